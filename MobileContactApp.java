@@ -1,7 +1,7 @@
 package gr.aueb.mobileapp;
 
 import gr.aueb.mobileapp.dao.IMobileContactDAO;
-import gr.aueb.mobileapp.dao.MobileContactDAOImpl;
+import gr.aueb.mobileapp.dao.MobileContactConcurrentDAOImpl;
 import gr.aueb.mobileapp.dto.MobileContactDTO;
 import gr.aueb.mobileapp.dto.UserDetailsDTO;
 import gr.aueb.mobileapp.model.MobileContact;
@@ -13,7 +13,7 @@ import java.util.List;
 public class MobileContactApp {
 
     // Wiring
-    private final static IMobileContactDAO dao = new MobileContactDAOImpl();
+    private final static IMobileContactDAO dao = new MobileContactConcurrentDAOImpl();
     public final static IMobileContactService service = new MobileContactServiceImpl(dao);
 
     public static void main(String[] args) {
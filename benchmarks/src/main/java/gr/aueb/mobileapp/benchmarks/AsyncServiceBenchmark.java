@@ -0,0 +1,106 @@
+package gr.aueb.mobileapp.benchmarks;
+
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.service.AsyncMobileContactServiceImpl;
+import gr.aueb.mobileapp.service.IMobileContactService;
+import gr.aueb.mobileapp.service.MobileContactServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of 10,000 concurrent callers, each looking up one contact, through
+ * the asynchronous service and through the blocking service on a fixed pool of
+ * platform threads, the usual thread per request handler. Every lookup of the
+ * DAO waits ioMicros, like the round trip to a remote Datasource, so the
+ * blocking service is limited by its threads and the asynchronous one by
+ * maxInFlight. One invocation starts all the callers and waits for all of them
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AsyncServiceBenchmark {
+
+    private static final int CALLERS = 10_000;
+
+    @Param({"0", "200"})
+    public int ioMicros;
+
+    @Param({"1000"})
+    public int maxInFlight;
+
+    @Param({"200"})
+    public int platformThreads;
+
+    private IMobileContactService service;
+    private AsyncMobileContactServiceImpl asyncService;
+    private ExecutorService requestHandlers;
+
+    @Setup(Level.Trial)
+    public void setUp(StoreState state) {
+        service = new MobileContactServiceImpl(new DelayedMobileContactDAO(state.store, ioMicros * 1000L), true);
+        asyncService = new AsyncMobileContactServiceImpl(service, maxInFlight);
+        requestHandlers = Executors.newFixedThreadPool(platformThreads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        asyncService.close();
+        requestHandlers.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLERS)
+    public void async(StoreState state, ThreadState thread) {
+        CompletableFuture<Optional<MobileContact>>[] calls = newCalls();
+        for (int i = 0; i < CALLERS; i++) {
+            calls[i] = asyncService.findMobileContact(state.contacts[thread.randomPosition()].getId());
+        }
+        checkResults(calls);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLERS)
+    public void blocking(StoreState state, ThreadState thread) {
+        CompletableFuture<Optional<MobileContact>>[] calls = newCalls();
+        for (int i = 0; i < CALLERS; i++) {
+            long id = state.contacts[thread.randomPosition()].getId();
+            calls[i] = CompletableFuture.supplyAsync(() -> service.findMobileContact(id), requestHandlers);
+        }
+        checkResults(calls);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CompletableFuture<Optional<MobileContact>>[] newCalls() {
+        return (CompletableFuture<Optional<MobileContact>>[]) new CompletableFuture<?>[CALLERS];
+    }
+
+    /**
+     * Waits for every caller and checks that it found its contact
+     */
+    private static void checkResults(CompletableFuture<Optional<MobileContact>>[] calls) {
+        for (CompletableFuture<Optional<MobileContact>> call : calls) {
+            if (call.join().isEmpty()) throw new IllegalStateException("A contact of the dataset was not found");
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package gr.aueb.mobileapp.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the benchmarks once per thread count and merges the JMH results
+ * into one JSON file. Every result carries its benchmark, threads and
+ * params (dao, size), so the file of one run can be compared with the
+ * file of another, e.g. before and after a change to a DAO.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar [options] [benchmark regex...]
+ *
+ *   --threads 1,4,16        thread counts, one JMH run each (default 1,2,4,8)
+ *   --daos list,hash        overrides the dao param
+ *   --sizes 1000,100000     overrides the size param
+ *   --out results.json      the merged result file (default benchmark-results.json)
+ *   --quick                 1 warmup and 3 measurement iterations of 1 second
+ *   --gc                    adds the bytes allocated per operation (gc.alloc.rate.norm)
+ *   --jvm-args "-Xmx16g"    extra arguments of the forked JVMs
+ * </pre>
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        List<String> threadCounts = List.of("1", "2", "4", "8");
+        String daos = null;
+        String sizes = null;
+        Path out = Paths.get("benchmark-results.json");
+        boolean quick = false;
+        boolean gc = false;
+        String jvmArgs = null;
+        List<String> includes = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads":
+                    threadCounts = List.of(args[++i].split(","));
+                    break;
+                case "--daos":
+                    daos = args[++i];
+                    break;
+                case "--sizes":
+                    sizes = args[++i];
+                    break;
+                case "--out":
+                    out = Paths.get(args[++i]);
+                    break;
+                case "--quick":
+                    quick = true;
+                    break;
+                case "--gc":
+                    gc = true;
+                    break;
+                case "--jvm-args":
+                    jvmArgs = args[++i];
+                    break;
+                default:
+                    includes.add(args[i]);
+            }
+        }
+        if (includes.isEmpty()) includes.add(BenchmarkRunner.class.getPackageName() + ".*");
+
+        List<String> results = new ArrayList<>();
+        for (String threads : threadCounts) {
+            Path partial = Files.createTempFile("jmh-threads-" + threads + "-", ".json");
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .threads(Integer.parseInt(threads.trim()))
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(partial.toString());
+            for (String include : includes) {
+                options.include(include);
+            }
+            if (daos != null) options.param("dao", daos.split(","));
+            if (sizes != null) options.param("size", sizes.split(","));
+            if (jvmArgs != null) options.jvmArgsAppend(jvmArgs.split(" "));
+            if (gc) options.addProfiler(GCProfiler.class);
+            if (quick) {
+                options.warmupIterations(1).warmupTime(TimeValue.seconds(1))
+                        .measurementIterations(3).measurementTime(TimeValue.seconds(1));
+            }
+
+            new Runner(options.build()).run();
+            results.add(Files.readString(partial, StandardCharsets.UTF_8));
+            Files.delete(partial);
+        }
+
+        Files.writeString(out, merge(results), StandardCharsets.UTF_8);
+        System.out.println("Results written to " + out.toAbsolutePath());
+    }
+
+    /**
+     * Joins JMH JSON result arrays into a single array
+     */
+    private static String merge(List<String> arrays) {
+        StringBuilder merged = new StringBuilder("[");
+        for (String array : arrays) {
+            String elements = array.trim();
+            if (elements.length() < 2) continue;
+            elements = elements.substring(1, elements.length() - 1).trim();
+            if (elements.isEmpty()) continue;
+            if (merged.length() > 1) merged.append(",");
+            merged.append('\n').append(elements);
+        }
+        return merged.append("\n]\n").toString();
+    }
+}
@@ -0,0 +1,185 @@
+package gr.aueb.mobileapp.benchmarks;
+
+import gr.aueb.mobileapp.codec.ContactCodec;
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of a contact with {@link ContactCodec}, into a heap or a
+ * direct buffer, against Java serialization of the same contact, and reading
+ * only the phone number of an encoded contact in place against decoding all of
+ * it. The model classes are not Serializable, so serialization runs on mirror
+ * classes with the same fields. The round trips of the codec are covered by
+ * ContactCodecTest
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    private static final int CONTACTS = 1024;
+
+    @Param({"heap", "direct"})
+    public String buffer;
+
+    private MobileContact[] contacts;
+    private SerializableContact[] serializableContacts;
+    private ByteBuffer target;
+    private ByteBuffer encoded;
+    private int[] offsets;
+    private byte[][] serialized;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        contacts = new MobileContact[CONTACTS];
+        for (int i = 0; i < CONTACTS; i++) {
+            contacts[i] = StoreState.contactOf(i);
+        }
+        boolean direct = "direct".equals(buffer);
+        target = direct ? ByteBuffer.allocateDirect(1024) : ByteBuffer.allocate(1024);
+
+        int length = 0;
+        for (MobileContact contact : contacts) {
+            length += ContactCodec.encodedLength(contact);
+        }
+        encoded = direct ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+        offsets = new int[CONTACTS];
+        serializableContacts = new SerializableContact[CONTACTS];
+        serialized = new byte[CONTACTS][];
+        for (int i = 0; i < CONTACTS; i++) {
+            offsets[i] = encoded.position();
+            ContactCodec.encode(contacts[i], encoded);
+            serializableContacts[i] = new SerializableContact(contacts[i]);
+            serialized[i] = serialize(serializableContacts[i]);
+        }
+    }
+
+    @Benchmark
+    public int codecEncode() {
+        target.clear();
+        return ContactCodec.encode(nextContact(), target);
+    }
+
+    @Benchmark
+    public MobileContact codecDecode() {
+        encoded.position(offsets[nextIndex()]);
+        return ContactCodec.decodeMobileContact(encoded);
+    }
+
+    @Benchmark
+    public String codecReadPhoneNumber() {
+        return ContactCodec.readPhoneNumber(encoded, offsets[nextIndex()]);
+    }
+
+    @Benchmark
+    public boolean codecPhoneNumberEquals() {
+        int i = nextIndex();
+        return ContactCodec.phoneNumberEquals(encoded, offsets[i], contacts[i].getPhoneNumber());
+    }
+
+    /**
+     * Java serialization of the mirror of a contact; the same for every buffer parameter
+     */
+    @Benchmark
+    public byte[] serializationEncode() throws IOException {
+        return serialize(serializableContacts[nextIndex()]);
+    }
+
+    @Benchmark
+    public SerializableContact serializationDecode() throws IOException, ClassNotFoundException {
+        return deserialize(serialized[nextIndex()]);
+    }
+
+    /**
+     * The phone number of a serialized contact, which takes decoding all of it
+     */
+    @Benchmark
+    public String serializationReadPhoneNumber() throws IOException, ClassNotFoundException {
+        return deserialize(serialized[nextIndex()]).phoneNumber;
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (CONTACTS - 1);
+        return next;
+    }
+
+    private MobileContact nextContact() {
+        return contacts[nextIndex()];
+    }
+
+    private static byte[] serialize(SerializableContact contact) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(contact);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static SerializableContact deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (SerializableContact) in.readObject();
+        }
+    }
+
+    /**
+     * A Serializable copy of {@link MobileContact}
+     */
+    public static class SerializableContact implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final long id;
+        final SerializableUserDetails userDetails;
+        final String phoneNumber;
+
+        SerializableContact(MobileContact contact) {
+            UserDetails details = contact.getUserDetails();
+            id = contact.getId();
+            userDetails = details == null ? null : new SerializableUserDetails(details);
+            phoneNumber = contact.getPhoneNumber();
+        }
+    }
+
+    /**
+     * A Serializable copy of {@link UserDetails}
+     */
+    public static class SerializableUserDetails implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final long id;
+        final String firstname;
+        final String lastname;
+
+        SerializableUserDetails(UserDetails userDetails) {
+            id = userDetails.getId();
+            firstname = userDetails.getFirstname();
+            lastname = userDetails.getLastname();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package gr.aueb.mobileapp.benchmarks;
+
+import gr.aueb.mobileapp.model.MobileContact;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-contact operations of the DAO. Writes come in pairs that leave
+ * the dataset at its initial size, so the results of the different sizes
+ * stay comparable however many operations an iteration runs
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DaoBenchmark {
+
+    @Benchmark
+    public MobileContact getById(StoreState state, ThreadState thread) {
+        return state.store.get(state.contacts[thread.randomPosition()].getId());
+    }
+
+    @Benchmark
+    public MobileContact getByPhoneNumber(StoreState state, ThreadState thread) {
+        return state.store.get(state.contacts[thread.randomPosition()].getPhoneNumber());
+    }
+
+    @Benchmark
+    public boolean idExists(StoreState state, ThreadState thread) {
+        return state.store.userIdExist(state.contacts[thread.randomPosition()].getId());
+    }
+
+    @Benchmark
+    public boolean phoneNumberExists(StoreState state, ThreadState thread) {
+        return state.store.phoneNumberExists(state.contacts[thread.randomPosition()].getPhoneNumber());
+    }
+
+    /**
+     * A phone number that does not exist, the worst case of a scan
+     */
+    @Benchmark
+    public boolean phoneNumberMissing(StoreState state) {
+        return state.store.phoneNumberExists("00000000000");
+    }
+
+    /**
+     * An id that is not part of the dataset, like the existence check before an insert
+     */
+    @Benchmark
+    public boolean idMissing(StoreState state, ThreadState thread) {
+        return state.store.userIdExist(state.size + (long) thread.randomPosition());
+    }
+
+    /**
+     * Inserts a new contact and deletes it again
+     */
+    @Benchmark
+    public MobileContact insertAndDelete(StoreState state, ThreadState thread) {
+        long id = thread.freshId();
+        state.store.insert(StoreState.contactOf(id));
+        return state.store.remove(id);
+    }
+
+    /**
+     * Deletes a contact of the dataset and inserts it again
+     */
+    @Benchmark
+    public MobileContact deleteAndReinsert(StoreState state, ThreadState thread) {
+        MobileContact mobileContact = state.contacts[thread.randomPosition()];
+        MobileContact removed = state.store.remove(mobileContact.getId());
+        if (removed != null) state.store.insert(mobileContact);
+        return removed;
+    }
+
+    /**
+     * A mixed workload: 45% lookups by id, 35% lookups by phone number, 10% replaces
+     * of a contact with itself and 10% inserts followed by a delete
+     */
+    @Benchmark
+    public MobileContact mixed(StoreState state, ThreadState thread) {
+        int percent = thread.randomPercent();
+        MobileContact mobileContact = state.contacts[thread.randomPosition()];
+        if (percent < 45) return state.store.get(mobileContact.getId());
+        if (percent < 80) return state.store.get(mobileContact.getPhoneNumber());
+        if (percent < 90) return state.store.replaceIfPresent(mobileContact.getId(), mobileContact);
+        return insertAndDelete(state, thread);
+    }
+}
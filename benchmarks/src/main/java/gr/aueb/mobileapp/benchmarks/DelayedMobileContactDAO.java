@@ -0,0 +1,53 @@
+package gr.aueb.mobileapp.benchmarks;
+
+import gr.aueb.mobileapp.dao.ForwardingMobileContactDAO;
+import gr.aueb.mobileapp.dao.IMobileContactDAO;
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Adds a fixed wait to the lookups of a DAO, like the round trip to a remote
+ * Datasource. The calling thread is parked, as it would be by blocking I/O
+ */
+class DelayedMobileContactDAO extends ForwardingMobileContactDAO {
+
+    private final long delayNanos;
+
+    DelayedMobileContactDAO(IMobileContactDAO delegate, long delayNanos) {
+        super(delegate);
+        this.delayNanos = delayNanos;
+    }
+
+    @Override
+    public MobileContact get(long id) {
+        await();
+        return delegate.get(id);
+    }
+
+    @Override
+    public MobileContact get(String phoneNumber) {
+        await();
+        return delegate.get(phoneNumber);
+    }
+
+    @Override
+    public boolean phoneNumberExists(String phoneNumber) {
+        await();
+        return delegate.phoneNumberExists(phoneNumber);
+    }
+
+    @Override
+    public boolean userIdExist(long id) {
+        await();
+        return delegate.userIdExist(id);
+    }
+
+    private void await() {
+        if (delayNanos == 0) return;
+        long deadline = System.nanoTime() + delayNanos;
+        for (long left = delayNanos; left > 0; left = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(left);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package gr.aueb.mobileapp.benchmarks;
+
+import gr.aueb.mobileapp.io.ContactExporter;
+import gr.aueb.mobileapp.io.ExportFormat;
+import gr.aueb.mobileapp.io.ExportReport;
+import gr.aueb.mobileapp.model.MobileContact;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Export of the whole dataset to one file and to four partition files, against
+ * the export the exporter replaces: getAll and a String per contact written
+ * through a BufferedWriter
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportBenchmark {
+
+    @Param({"csv", "jsonl", "binary"})
+    public String format;
+
+    private ExportFormat exportFormat;
+    private ContactExporter exporter;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp(StoreState state) throws IOException {
+        exportFormat = ExportFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        exporter = new ContactExporter(state.store);
+        directory = Files.createTempDirectory("mobile-contacts-export");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public ExportReport export() throws IOException {
+        return exporter.export(directory.resolve("contacts." + exportFormat.getExtension()), exportFormat);
+    }
+
+    @Benchmark
+    public ExportReport exportPartitioned() throws IOException {
+        return exporter.exportPartitioned(directory, exportFormat, 4);
+    }
+
+    /**
+     * The CSV export through getAll and Strings; the same for every format parameter
+     */
+    @Benchmark
+    public long stringCsv(StoreState state) throws IOException {
+        Path file = directory.resolve("strings.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("id,firstname,lastname,phoneNumber\n");
+            for (MobileContact contact : state.store.getAll()) {
+                writer.write(contact.getId() + "," + contact.getUserDetails().getFirstname() + ","
+                        + contact.getUserDetails().getLastname() + "," + contact.getPhoneNumber() + "\n");
+            }
+        }
+        return Files.size(file);
+    }
+}
@@ -0,0 +1,86 @@
+package gr.aueb.mobileapp.benchmarks;
+
+import gr.aueb.mobileapp.io.ContactFileFormat;
+import gr.aueb.mobileapp.io.ContactImporter;
+import gr.aueb.mobileapp.io.ImportReport;
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.service.IMobileContactService;
+import gr.aueb.mobileapp.service.MobileContactServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Import of a CSV file of as many new contacts as the dataset holds, with one
+ * parser thread and with several. Every import is timed on its own and the
+ * imported contacts are deleted after it, so each import starts from the dataset
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ImportBenchmark {
+
+    @Param({"1", "4"})
+    public int parserThreads;
+
+    private IMobileContactService service;
+    private ContactImporter importer;
+    private Path file;
+    private List<Long> importedIds;
+
+    @Setup(Level.Trial)
+    public void setUp(StoreState state) throws IOException {
+        service = new MobileContactServiceImpl(state.store, true);
+        importer = new ContactImporter(service, ContactImporter.DEFAULT_BATCH_SIZE, parserThreads,
+                ContactImporter.DEFAULT_CHUNK_SIZE, ContactImporter.DEFAULT_MAX_ERRORS);
+        file = Files.createTempFile("mobile-contacts-import", ".csv");
+        importedIds = new ArrayList<>(state.size);
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("id,firstname,lastname,phoneNumber\n");
+            for (long id = state.size; id < 2L * state.size; id++) {
+                MobileContact contact = StoreState.contactOf(id);
+                writer.write(id + "," + contact.getUserDetails().getFirstname() + ","
+                        + contact.getUserDetails().getLastname() + "," + contact.getPhoneNumber() + "\n");
+                importedIds.add(id);
+            }
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteImported() {
+        service.deleteMobileContactsByIds(importedIds);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public ImportReport importCsv() throws IOException {
+        ImportReport report = importer.importFile(file, ContactFileFormat.CSV, ContactImporter.NO_GENERATED_IDS);
+        if (report.getImported() != importedIds.size()) throw new IllegalStateException("Import failed: " + report);
+        return report;
+    }
+}
@@ -0,0 +1,47 @@
+package gr.aueb.mobileapp.benchmarks;
+
+import gr.aueb.mobileapp.model.MobileContact;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full iterations over the Datasource, reading a field of every contact
+ * so the contacts are actually materialized and touched
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IterationBenchmark {
+
+    @Benchmark
+    public long getAll(StoreState state) {
+        long sum = 0;
+        for (MobileContact mobileContact : state.store.getAll()) {
+            sum += mobileContact.getId();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long stream(StoreState state) {
+        return state.store.stream().mapToLong(MobileContact::getId).sum();
+    }
+
+    @Benchmark
+    public long snapshot(StoreState state) {
+        long sum = 0;
+        for (MobileContact mobileContact : state.store.snapshot()) {
+            sum += mobileContact.getId();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,260 @@
+package gr.aueb.mobileapp.benchmarks;
+
+import gr.aueb.mobileapp.metrics.MetricsRegistry;
+import gr.aueb.mobileapp.metrics.OperationMetrics;
+import gr.aueb.mobileapp.metrics.OperationSnapshot;
+import gr.aueb.mobileapp.service.ContactOutcome;
+import gr.aueb.mobileapp.service.IMobileContactService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Runs a {@link LoadTrace} against any {@link IMobileContactService} from a
+ * number of threads and measures the latency of every operation by its kind.
+ *
+ * With a target rate the load is open loop: operation i is due at i / rate
+ * seconds after the start, whether or not the earlier ones have completed, and
+ * its latency is measured from that time rather than from when a thread got to
+ * it. A service that falls behind thus shows its queueing delay in the
+ * latencies instead of slowing the load down. Without a rate every thread runs
+ * the next operation as soon as it is done with the previous one.
+ *
+ * The latencies are reported per interval and in total. An operation that
+ * completes while an interval is being closed may be counted in neither
+ * interval, but always in the total
+ */
+public class LoadDriver {
+
+    //Below this, a thread waiting for the time of its next operation spins instead of parking
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(20);
+
+    private final IMobileContactService service;
+    private final int threads;
+    private final long intervalNanos;
+
+    /**
+     * @param threads
+     *              the number of threads that call the service
+     * @param intervalMillis
+     *              the length of a reporting interval
+     */
+    public LoadDriver(IMobileContactService service, int threads, long intervalMillis) {
+        if (threads < 1) throw new IllegalArgumentException("Invalid number of threads " + threads);
+        if (intervalMillis < 1) throw new IllegalArgumentException("Invalid interval " + intervalMillis);
+        this.service = service;
+        this.threads = threads;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    }
+
+    /**
+     * Runs every operation of a trace once and waits for them to complete
+     * @param rate
+     *              the target operations per second, or 0 to run as fast as possible
+     * @param listener
+     *              called with each interval as soon as it is closed, e.g. to print it
+     * @return
+     *          the latencies of every interval and in total
+     */
+    public LoadResult run(LoadTrace trace, double rate, Consumer<Interval> listener) throws InterruptedException {
+        double periodNanos = rate > 0 ? 1e9 / rate : 0;
+        Recorder total = new Recorder();
+        AtomicReference<Recorder> current = new AtomicReference<>(new Recorder());
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(threads);
+        //Leaves the threads time to start before the first operation is due
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(10);
+
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    awaitNanos(start);
+                    for (int i = next.getAndIncrement(); i < trace.getCount(); i = next.getAndIncrement()) {
+                        long due = periodNanos > 0 ? start + (long) (i * periodNanos) : System.nanoTime();
+                        awaitNanos(due);
+                        execute(trace, i, due, total, current.get());
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "load-driver-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        List<Interval> intervals = new ArrayList<>();
+        long intervalStart = start;
+        boolean finished = false;
+        while (!finished) {
+            long remaining = intervalStart + intervalNanos - System.nanoTime();
+            finished = done.await(Math.max(0L, remaining), TimeUnit.NANOSECONDS);
+            long now = System.nanoTime();
+            Recorder closed = current.getAndSet(new Recorder());
+            Interval interval = new Interval(intervals.size(), intervalStart - start, now - intervalStart, closed.snapshot());
+            intervals.add(interval);
+            listener.accept(interval);
+            intervalStart = now;
+        }
+        Interval all = new Interval(-1, 0L, System.nanoTime() - start, total.snapshot());
+        return new LoadResult(intervals, all);
+    }
+
+    private void execute(LoadTrace trace, int i, long due, Recorder total, Recorder interval) {
+        LoadOperation operation = trace.getOperation(i);
+        String failure;
+        try {
+            failure = call(operation, trace, i);
+        } catch (RuntimeException e) {
+            failure = e.getClass().getSimpleName();
+        }
+        long nanos = System.nanoTime() - due;
+        total.record(operation, failure, nanos);
+        interval.record(operation, failure, nanos);
+    }
+
+    /**
+     * Calls the service for one operation
+     * @return
+     *          null if the operation had the expected result, otherwise the reason it did not
+     */
+    private String call(LoadOperation operation, LoadTrace trace, int i) {
+        long id = trace.getId(i);
+        switch (operation) {
+            case INSERT:
+                return reasonOf(service.tryInsertMobileContact(trace.getContact(i)));
+            case UPDATE:
+                return reasonOf(service.tryUpdateMobileContact(id, trace.getContact(i)));
+            case GET:
+                return service.findMobileContact(id).isPresent() ? null : "NOT_FOUND";
+            case DELETE:
+                return reasonOf(service.tryDeleteMobileContactById(id));
+            case MISS:
+                return service.findMobileContact(id).isPresent() ? "FOUND" : null;
+            default:
+                throw new IllegalStateException("Unknown operation " + operation);
+        }
+    }
+
+    private static String reasonOf(ContactOutcome outcome) {
+        return outcome.isSuccess() ? null : outcome.getStatus().name();
+    }
+
+    private static void awaitNanos(long deadline) {
+        for (long remaining = deadline - System.nanoTime(); remaining > 0; remaining = deadline - System.nanoTime()) {
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * The metrics of each kind of operation, looked up once
+     */
+    private static final class Recorder {
+
+        private final MetricsRegistry registry = new MetricsRegistry();
+        private final OperationMetrics[] operations = new OperationMetrics[LoadOperation.values().length];
+
+        Recorder() {
+            for (LoadOperation operation : LoadOperation.values()) {
+                operations[operation.ordinal()] = registry.operation(operation.getKey());
+            }
+        }
+
+        void record(LoadOperation operation, String failure, long nanos) {
+            if (failure == null) {
+                operations[operation.ordinal()].recordSuccess(nanos);
+            } else {
+                operations[operation.ordinal()].recordFailure(failure, nanos);
+            }
+        }
+
+        Map<String, OperationSnapshot> snapshot() {
+            return registry.snapshot();
+        }
+    }
+
+    /**
+     * The latencies of the operations completed in a period of a run, by the
+     * key of their {@link LoadOperation}
+     */
+    public static final class Interval {
+
+        private final int index;
+        private final long startNanos;
+        private final long durationNanos;
+        private final Map<String, OperationSnapshot> operations;
+
+        Interval(int index, long startNanos, long durationNanos, Map<String, OperationSnapshot> operations) {
+            this.index = index;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+            this.operations = Collections.unmodifiableMap(operations);
+        }
+
+        /**
+         * Returns the position of the interval in the run, or -1 for the whole run
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Returns the time from the start of the run to the start of the interval
+         */
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        public Map<String, OperationSnapshot> getOperations() {
+            return operations;
+        }
+
+        /**
+         * Returns the operations completed per second, of every kind
+         */
+        public double getThroughput() {
+            long count = 0;
+            for (OperationSnapshot snapshot : operations.values()) {
+                count += snapshot.getCount();
+            }
+            return durationNanos == 0 ? 0.0 : count * 1e9 / durationNanos;
+        }
+    }
+
+    /**
+     * The intervals of a run and its totals
+     */
+    public static final class LoadResult {
+
+        private final List<Interval> intervals;
+        private final Interval total;
+
+        LoadResult(List<Interval> intervals, Interval total) {
+            this.intervals = Collections.unmodifiableList(intervals);
+            this.total = total;
+        }
+
+        public List<Interval> getIntervals() {
+            return intervals;
+        }
+
+        public Interval getTotal() {
+            return total;
+        }
+    }
+}
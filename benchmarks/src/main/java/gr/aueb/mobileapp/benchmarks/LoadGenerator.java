@@ -0,0 +1,194 @@
+package gr.aueb.mobileapp.benchmarks;
+
+import gr.aueb.mobileapp.dao.IMobileContactDAO;
+import gr.aueb.mobileapp.metrics.OperationSnapshot;
+import gr.aueb.mobileapp.service.MobileContactServiceImpl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Drives {@link MobileContactServiceImpl} over one of the DAOs with a generated
+ * or recorded {@link LoadTrace}, prints the throughput and latency percentiles of
+ * each interval and writes them, with the totals, to a JSON file. A trace
+ * recorded with --record and replayed with --replay runs the same operations in
+ * the same order at the same rate, so the results of two DAOs can be compared.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar gr.aueb.mobileapp.benchmarks.LoadGenerator [options]
+ *
+ *   --dao concurrent             the DAO of the service (default concurrent)
+ *   --size 100000                the contacts loaded before the run (default 100000)
+ *   --operations 1000000         the operations of the trace (default 1000000)
+ *   --rate 50000                 target operations per second, 0 for as fast as possible (default 50000)
+ *   --threads 8                  the threads that call the service (default 8)
+ *   --mix get=80,update=10,insert=5,delete=3,miss=2
+ *                                the relative weight of each operation (this is the default)
+ *   --zipf 0.99                  the skew of the ids picked from the dataset, 0 for uniform (default 0.99)
+ *   --seed 1                     the seed of the generated trace (default 1)
+ *   --interval 1000              the reporting interval in milliseconds (default 1000)
+ *   --record trace.bin           writes the generated trace to a file
+ *   --replay trace.bin           runs a recorded trace, with its size and, unless --rate is given, its rate
+ *   --out load-results.json      the result file (default load-results.json)
+ * </pre>
+ */
+public class LoadGenerator {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String dao = "concurrent";
+        long size = 100_000;
+        int operations = 1_000_000;
+        Double rate = null;
+        int threads = 8;
+        Map<LoadOperation, Integer> mix = parseMix("get=80,update=10,insert=5,delete=3,miss=2");
+        double zipf = 0.99;
+        long seed = 1;
+        long intervalMillis = 1000;
+        Path record = null;
+        Path replay = null;
+        Path out = Paths.get("load-results.json");
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--dao":
+                    dao = args[++i];
+                    break;
+                case "--size":
+                    size = Long.parseLong(args[++i]);
+                    break;
+                case "--operations":
+                    operations = Integer.parseInt(args[++i]);
+                    break;
+                case "--rate":
+                    rate = Double.parseDouble(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--mix":
+                    mix = parseMix(args[++i]);
+                    break;
+                case "--zipf":
+                    zipf = Double.parseDouble(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--interval":
+                    intervalMillis = Long.parseLong(args[++i]);
+                    break;
+                case "--record":
+                    record = Paths.get(args[++i]);
+                    break;
+                case "--replay":
+                    replay = Paths.get(args[++i]);
+                    break;
+                case "--out":
+                    out = Paths.get(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        LoadTrace trace = replay != null ? LoadTrace.read(replay)
+                : LoadTrace.generate(size, operations, mix, zipf, rate == null ? 50_000 : rate, seed);
+        if (record != null) {
+            trace.write(record);
+            System.out.println("Trace written to " + record.toAbsolutePath());
+        }
+        double targetRate = rate != null ? rate : trace.getRate();
+
+        StoreType type = StoreType.valueOf(dao.toUpperCase(Locale.ROOT));
+        Path directory = Files.createTempDirectory("mobile-contacts-load");
+        IMobileContactDAO store = type.create(directory);
+        try {
+            if (!type.isThreadSafe() && threads > 1) store = new SynchronizedMobileContactDAO(store);
+            for (long id = 0; id < trace.getSize(); id++) {
+                store.insert(StoreState.contactOf(id));
+            }
+            System.out.printf(Locale.ROOT, "%s: %,d contacts, %,d operations at %s from %d threads%n", dao,
+                    trace.getSize(), trace.getCount(), targetRate > 0 ? String.format(Locale.ROOT, "%,.0f ops/s", targetRate)
+                            : "full speed", threads);
+
+            LoadDriver driver = new LoadDriver(new MobileContactServiceImpl(store), threads, intervalMillis);
+            LoadDriver.LoadResult result = driver.run(trace, targetRate, LoadGenerator::print);
+            System.out.println("total");
+            print(result.getTotal());
+
+            Files.writeString(out, toJson(dao, threads, targetRate, trace, result), StandardCharsets.UTF_8);
+            System.out.println("Results written to " + out.toAbsolutePath());
+        } finally {
+            if (store instanceof Closeable) ((Closeable) store).close();
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses weights such as "get=80,update=10"
+     */
+    private static Map<LoadOperation, Integer> parseMix(String value) {
+        Map<LoadOperation, Integer> mix = new EnumMap<>(LoadOperation.class);
+        for (String entry : value.split(",")) {
+            String[] pair = entry.split("=");
+            if (pair.length != 2) throw new IllegalArgumentException("Invalid mix entry " + entry);
+            mix.put(LoadOperation.valueOf(pair[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(pair[1].trim()));
+        }
+        return mix;
+    }
+
+    private static void print(LoadDriver.Interval interval) {
+        if (interval.getIndex() >= 0) {
+            System.out.printf(Locale.ROOT, "%7.1fs  %,12.0f ops/s%n", interval.getStartNanos() / 1e9, interval.getThroughput());
+        }
+        for (OperationSnapshot snapshot : interval.getOperations().values()) {
+            if (snapshot.getCount() == 0) continue;
+            System.out.printf(Locale.ROOT, "    %-7s %,10d ops  %,8d failed  p50 %,9.1f us  p99 %,9.1f us  p99.9 %,9.1f us  max %,10.1f us%n",
+                    snapshot.getOperation(), snapshot.getCount(), snapshot.getFailureCount(), snapshot.getP50Nanos() / 1e3,
+                    snapshot.getP99Nanos() / 1e3, snapshot.getP999Nanos() / 1e3, snapshot.getMaxNanos() / 1e3);
+        }
+    }
+
+    private static String toJson(String dao, int threads, double rate, LoadTrace trace, LoadDriver.LoadResult result) {
+        StringBuilder json = new StringBuilder();
+        json.append(String.format(Locale.ROOT, "{\"dao\": \"%s\", \"threads\": %d, \"rate\": %.1f, \"size\": %d, \"operations\": %d,",
+                dao, threads, rate, trace.getSize(), trace.getCount()));
+        json.append("\n \"intervals\": [");
+        for (int i = 0; i < result.getIntervals().size(); i++) {
+            if (i > 0) json.append(",");
+            appendInterval(json, result.getIntervals().get(i));
+        }
+        json.append("\n ],\n \"total\": ");
+        appendInterval(json, result.getTotal());
+        return json.append("\n}\n").toString();
+    }
+
+    private static void appendInterval(StringBuilder json, LoadDriver.Interval interval) {
+        json.append(String.format(Locale.ROOT, "%n  {\"startSeconds\": %.3f, \"seconds\": %.3f, \"throughput\": %.1f, \"operations\": [",
+                interval.getStartNanos() / 1e9, interval.getDurationNanos() / 1e9, interval.getThroughput()));
+        boolean first = true;
+        for (OperationSnapshot snapshot : interval.getOperations().values()) {
+            if (snapshot.getCount() == 0) continue;
+            if (!first) json.append(",");
+            first = false;
+            json.append(String.format(Locale.ROOT, "%n    {\"operation\": \"%s\", \"count\": %d, \"failures\": %d, "
+                            + "\"p50Nanos\": %d, \"p99Nanos\": %d, \"p999Nanos\": %d, \"maxNanos\": %d}",
+                    snapshot.getOperation(), snapshot.getCount(), snapshot.getFailureCount(), snapshot.getP50Nanos(),
+                    snapshot.getP99Nanos(), snapshot.getP999Nanos(), snapshot.getMaxNanos()));
+        }
+        json.append("]}");
+    }
+}
@@ -0,0 +1,27 @@
+package gr.aueb.mobileapp.benchmarks;
+
+import java.util.Locale;
+
+/**
+ * The operations of a {@link LoadTrace}, each one call of the service
+ */
+public enum LoadOperation {
+
+    /** Inserts a contact with a new id */
+    INSERT,
+    /** Replaces the names of a contact of the dataset, keeping its phone number */
+    UPDATE,
+    /** Looks up a contact of the dataset by id */
+    GET,
+    /** Deletes a contact of the dataset by id */
+    DELETE,
+    /** Looks up an id that never exists */
+    MISS;
+
+    /**
+     * Returns the lower case name, used in the options and the reports
+     */
+    public String getKey() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
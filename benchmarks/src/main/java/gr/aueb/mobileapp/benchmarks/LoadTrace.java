@@ -0,0 +1,246 @@
+package gr.aueb.mobileapp.benchmarks;
+
+import gr.aueb.mobileapp.codec.ContactCodec;
+import gr.aueb.mobileapp.dto.MobileContactDTO;
+import gr.aueb.mobileapp.dto.UserDetailsDTO;
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * A fixed sequence of operations against a dataset of contacts, generated from
+ * a seed or read from a file, so the same load can be replayed against every
+ * DAO. The dataset is the contacts 0 to size - 1 of {@link StoreState#contactOf(long)};
+ * updates and lookups pick their ids from it with a Zipf distribution over a
+ * shuffled order of the ids, inserts take new ids from size on and misses look
+ * up ids that never exist. Deletes remove the oldest contact inserted by the
+ * trace, or a uniformly drawn one of the dataset if there is none, so the
+ * popular contacts stay in place as the contacts churn.
+ *
+ * A trace file holds the magic number "MCLT", a version, the size of the
+ * dataset, the target rate and the number of operations, then per operation its
+ * ordinal and id, and for an insert or update the {@link ContactCodec} record of
+ * the contact
+ */
+public final class LoadTrace {
+
+    /** "MCLT" */
+    private static final int MAGIC = 0x4D434C54;
+    private static final short VERSION = 1;
+    private static final int HEADER_BYTES = Integer.BYTES + Short.BYTES + Long.BYTES + Double.BYTES + Integer.BYTES;
+
+    //The ids of the misses start far above any inserted id
+    private static final long MISSING_IDS = 1L << 40;
+    //Spreads the ranks over the ids, so the popular contacts are not the first ones
+    private static final long SCRAMBLE = 1_000_000_007L;
+
+    private final long size;
+    private final double rate;
+    private final byte[] operations;
+    private final long[] ids;
+    private final MobileContactDTO[] contacts;
+
+    private LoadTrace(long size, double rate, byte[] operations, long[] ids, MobileContactDTO[] contacts) {
+        this.size = size;
+        this.rate = rate;
+        this.operations = operations;
+        this.ids = ids;
+        this.contacts = contacts;
+    }
+
+    /**
+     * Generates a trace
+     * @param size
+     *              the number of contacts of the dataset
+     * @param count
+     *              the number of operations
+     * @param mix
+     *              the relative weight of each operation; missing ones are not generated
+     * @param zipfExponent
+     *              the skew of the ids picked from the dataset, 0 for uniform
+     * @param rate
+     *              the target operations per second, or 0 for as fast as possible
+     * @param seed
+     *              the seed of the random numbers, so a trace can be generated again
+     */
+    public static LoadTrace generate(long size, int count, Map<LoadOperation, Integer> mix, double zipfExponent,
+                                     double rate, long seed) {
+        LoadOperation[] kinds = LoadOperation.values();
+        int[] cumulative = new int[kinds.length];
+        int total = 0;
+        for (LoadOperation kind : kinds) {
+            int weight = mix.getOrDefault(kind, 0);
+            if (weight < 0) throw new IllegalArgumentException("Invalid weight of " + kind.getKey() + ": " + weight);
+            total += weight;
+            cumulative[kind.ordinal()] = total;
+        }
+        if (total == 0) throw new IllegalArgumentException("The mix has no operations");
+        if (size < 1 && total > mix.getOrDefault(LoadOperation.INSERT, 0) + mix.getOrDefault(LoadOperation.MISS, 0)) {
+            throw new IllegalArgumentException("Updates, lookups and deletes need a dataset");
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        ZipfDistribution zipf = new ZipfDistribution(Math.max(1L, size), zipfExponent);
+        long scramble = gcd(SCRAMBLE, size) == 1 ? SCRAMBLE : 1L;
+        byte[] operations = new byte[count];
+        long[] ids = new long[count];
+        MobileContactDTO[] contacts = new MobileContactDTO[count];
+        long nextId = size;
+        long oldestInserted = size;
+
+        for (int i = 0; i < count; i++) {
+            int draw = random.nextInt(total);
+            int kind = 0;
+            while (draw >= cumulative[kind]) {
+                kind++;
+            }
+            operations[i] = (byte) kind;
+            switch (kinds[kind]) {
+                case INSERT:
+                    ids[i] = nextId++;
+                    contacts[i] = toDTO(StoreState.contactOf(ids[i]));
+                    break;
+                case UPDATE:
+                    ids[i] = Math.floorMod((zipf.sample(random) - 1) * scramble, size);
+                    //The names of another contact of the dataset and the phone number of this one
+                    MobileContactDTO renamed = toDTO(StoreState.contactOf(random.nextLong(size)));
+                    renamed.setId(ids[i]);
+                    renamed.getUserDetails().setId(ids[i]);
+                    renamed.setPhoneNumber(StoreState.phoneNumberOf(ids[i]));
+                    contacts[i] = renamed;
+                    break;
+                case GET:
+                    ids[i] = Math.floorMod((zipf.sample(random) - 1) * scramble, size);
+                    break;
+                case DELETE:
+                    ids[i] = oldestInserted < nextId ? oldestInserted++ : random.nextLong(size);
+                    break;
+                case MISS:
+                    ids[i] = MISSING_IDS + random.nextLong(MISSING_IDS);
+                    break;
+            }
+        }
+        return new LoadTrace(size, rate, operations, ids, contacts);
+    }
+
+    /**
+     * Reads a trace written by {@link #write(Path)}
+     * @throws IOException
+     *          if the file cannot be read or is not a trace
+     */
+    public static LoadTrace read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) throw new IOException("Not a trace file: " + file);
+            short version = buffer.getShort();
+            if (version != VERSION) throw new IOException("Unsupported trace version " + version);
+            long size = buffer.getLong();
+            double rate = buffer.getDouble();
+            int count = buffer.getInt();
+
+            LoadOperation[] kinds = LoadOperation.values();
+            byte[] operations = new byte[count];
+            long[] ids = new long[count];
+            MobileContactDTO[] contacts = new MobileContactDTO[count];
+            try {
+                for (int i = 0; i < count; i++) {
+                    operations[i] = buffer.get();
+                    if (operations[i] < 0 || operations[i] >= kinds.length) throw new IOException("Unknown operation " + operations[i]);
+                    ids[i] = buffer.getLong();
+                    if (hasContact(kinds[operations[i]])) contacts[i] = ContactCodec.decodeMobileContactDTO(buffer);
+                }
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException("Truncated or invalid trace file: " + file, e);
+            }
+            return new LoadTrace(size, rate, operations, ids, contacts);
+        }
+    }
+
+    /**
+     * Writes the trace to a file, replacing it
+     */
+    public void write(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+            buffer.putInt(MAGIC).putShort(VERSION).putLong(size).putDouble(rate).putInt(operations.length);
+            for (int i = 0; i < operations.length; i++) {
+                int length = 1 + Long.BYTES + (contacts[i] == null ? 0 : ContactCodec.encodedLength(contacts[i]));
+                if (buffer.remaining() < length) {
+                    drain(channel, buffer);
+                    if (buffer.capacity() < length) buffer = ByteBuffer.allocate(length);
+                }
+                buffer.put(operations[i]).putLong(ids[i]);
+                if (contacts[i] != null) ContactCodec.encode(contacts[i], buffer);
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    /**
+     * Returns the number of contacts of the dataset the trace runs against
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the target operations per second the trace was generated for, or 0
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    public int getCount() {
+        return operations.length;
+    }
+
+    public LoadOperation getOperation(int i) {
+        return LoadOperation.values()[operations[i]];
+    }
+
+    public long getId(int i) {
+        return ids[i];
+    }
+
+    /**
+     * Returns the contact of an insert or update
+     * @return
+     *          the contact, or null for the other operations
+     */
+    public MobileContactDTO getContact(int i) {
+        return contacts[i];
+    }
+
+    private static boolean hasContact(LoadOperation operation) {
+        return operation == LoadOperation.INSERT || operation == LoadOperation.UPDATE;
+    }
+
+    private static MobileContactDTO toDTO(MobileContact mobileContact) {
+        UserDetails userDetails = mobileContact.getUserDetails();
+        return new MobileContactDTO(mobileContact.getId(),
+                new UserDetailsDTO(userDetails.getId(), userDetails.getFirstname(), userDetails.getLastname()),
+                mobileContact.getPhoneNumber());
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+}
@@ -0,0 +1,101 @@
+package gr.aueb.mobileapp.benchmarks;
+
+import gr.aueb.mobileapp.dao.IMobileContactDAO;
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Measures the heap retained per contact by each DAO: the used heap after a
+ * full collection is taken before and after the DAO is filled. The names of
+ * every contact are distinct String instances, as they are when contacts are
+ * read from a request or a file. Memory outside the heap, like the mapped
+ * files of the mapped DAO, is not counted.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar gr.aueb.mobileapp.benchmarks.MemoryFootprint
+ *      [--size 1000000] [--daos hash,primitive] [--out memory.json]
+ * </pre>
+ */
+public class MemoryFootprint {
+
+    public static void main(String[] args) throws IOException {
+        int size = 1_000_000;
+        List<String> daos = new ArrayList<>();
+        Path out = Paths.get("memory-footprint.json");
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--size":
+                    size = Integer.parseInt(args[++i]);
+                    break;
+                case "--daos":
+                    daos.addAll(List.of(args[++i].split(",")));
+                    break;
+                case "--out":
+                    out = Paths.get(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (daos.isEmpty()) {
+            for (StoreType type : StoreType.values()) {
+                daos.add(type.name().toLowerCase(Locale.ROOT));
+            }
+        }
+
+        StringBuilder json = new StringBuilder("[");
+        for (String dao : daos) {
+            double bytesPerContact = measure(StoreType.valueOf(dao.toUpperCase(Locale.ROOT)), size);
+            System.out.printf(Locale.ROOT, "%-12s %,d contacts  %.1f bytes per contact%n", dao, size, bytesPerContact);
+            if (json.length() > 1) json.append(",");
+            json.append(String.format(Locale.ROOT, "%n  {\"dao\": \"%s\", \"size\": %d, \"bytesPerContact\": %.1f}",
+                    dao, size, bytesPerContact));
+        }
+        Files.writeString(out, json.append("\n]\n").toString(), StandardCharsets.UTF_8);
+        System.out.println("Results written to " + out.toAbsolutePath());
+    }
+
+    private static double measure(StoreType type, int size) throws IOException {
+        Path directory = Files.createTempDirectory("mobile-contacts-memory");
+        long before = usedHeap();
+
+        IMobileContactDAO dao = type.create(directory);
+        for (int i = 0; i < size; i++) {
+            MobileContact template = StoreState.contactOf(i);
+            UserDetails userDetails = template.getUserDetails();
+            dao.insert(new MobileContact(i, new UserDetails(i, new String(userDetails.getFirstname()),
+                    new String(userDetails.getLastname())), template.getPhoneNumber()));
+        }
+
+        long after = usedHeap();
+        if (dao.getAll().size() != size) throw new IllegalStateException("The " + type + " DAO lost contacts");
+        if (dao instanceof Closeable) ((Closeable) dao).close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+        return (after - before) / (double) size;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,167 @@
+package gr.aueb.mobileapp.benchmarks;
+
+import gr.aueb.mobileapp.dto.MobileContactDTO;
+import gr.aueb.mobileapp.dto.UserDetailsDTO;
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.service.ContactOutcome;
+import gr.aueb.mobileapp.service.IMobileContactService;
+import gr.aueb.mobileapp.service.MobileContactServiceImpl;
+import gr.aueb.mobileapp.service.exceptions.MobileContactNotFoundException;
+import gr.aueb.mobileapp.service.exceptions.PhoneNumberAlreadyExistsException;
+import gr.aueb.mobileapp.service.exceptions.UserIdAlreadyExistException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert and update through the service, on the success and on the exception paths,
+ * and the same failures through the non-throwing variants. With the stackTrace
+ * exceptions the service prints the stack trace of every exception it throws; the
+ * benchmark discards what is printed, so the cost of building and formatting the
+ * trace is measured but not the cost of the console
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+
+    @Param({"stackTrace", "lightweight"})
+    public String exceptions;
+
+    private IMobileContactService service;
+    private PrintStream err;
+
+    @Setup(Level.Trial)
+    public void setUp(StoreState state) {
+        service = new MobileContactServiceImpl(state.store, exceptions.equals("lightweight"));
+        err = System.err;
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void restoreStackTraces() {
+        System.setErr(err);
+    }
+
+    /**
+     * Inserts a new contact and deletes it again
+     */
+    @Benchmark
+    public MobileContact insert(StoreState state, ThreadState thread) throws Exception {
+        long id = thread.freshId();
+        MobileContact inserted = service.insertMobileContact(dtoOf(id, StoreState.phoneNumberOf(id), "Fresh"));
+        service.deleteMobileContactById(id);
+        return inserted;
+    }
+
+    @Benchmark
+    public Exception insertExistingPhoneNumber(StoreState state, ThreadState thread) {
+        MobileContact existing = state.contacts[thread.randomPosition()];
+        try {
+            service.insertMobileContact(dtoOf(thread.freshId(), existing.getPhoneNumber(), "Duplicate"));
+        } catch (PhoneNumberAlreadyExistsException | UserIdAlreadyExistException e) {
+            return e;
+        }
+        throw new IllegalStateException("The phone number " + existing.getPhoneNumber() + " was inserted twice");
+    }
+
+    @Benchmark
+    public Exception insertExistingId(StoreState state, ThreadState thread) {
+        MobileContact existing = state.contacts[thread.randomPosition()];
+        long freshId = thread.freshId();
+        try {
+            service.insertMobileContact(dtoOf(existing.getId(), StoreState.phoneNumberOf(freshId), "Duplicate"));
+        } catch (PhoneNumberAlreadyExistsException | UserIdAlreadyExistException e) {
+            return e;
+        }
+        throw new IllegalStateException("The id " + existing.getId() + " was inserted twice");
+    }
+
+    /**
+     * Updates the names of a contact of the dataset, keeping its phone number
+     */
+    @Benchmark
+    public MobileContact update(StoreState state, ThreadState thread) throws Exception {
+        MobileContact existing = state.contacts[thread.randomPosition()];
+        return service.updateMobileContact(existing.getId(),
+                dtoOf(existing.getId(), existing.getPhoneNumber(), "Updated"));
+    }
+
+    @Benchmark
+    public Exception updateMissingId(StoreState state, ThreadState thread) {
+        long freshId = thread.freshId();
+        try {
+            service.updateMobileContact(freshId, dtoOf(freshId, StoreState.phoneNumberOf(freshId), "Missing"));
+        } catch (PhoneNumberAlreadyExistsException | UserIdAlreadyExistException | MobileContactNotFoundException e) {
+            return e;
+        }
+        throw new IllegalStateException("The missing id " + freshId + " was updated");
+    }
+
+    /**
+     * Updates a contact of the dataset with the phone number of another one
+     */
+    @Benchmark
+    public Exception updateExistingPhoneNumber(StoreState state, ThreadState thread) {
+        int position = thread.randomPosition();
+        MobileContact existing = state.contacts[position];
+        MobileContact other = state.contacts[(position + 1) % state.contacts.length];
+        try {
+            service.updateMobileContact(existing.getId(),
+                    dtoOf(existing.getId(), other.getPhoneNumber(), "Conflict"));
+        } catch (PhoneNumberAlreadyExistsException | UserIdAlreadyExistException | MobileContactNotFoundException e) {
+            return e;
+        }
+        throw new IllegalStateException("The phone number " + other.getPhoneNumber() + " was given to two contacts");
+    }
+
+    @Benchmark
+    public Exception getMissingId(ThreadState thread) {
+        long freshId = thread.freshId();
+        try {
+            service.getMobileContact(freshId);
+        } catch (MobileContactNotFoundException e) {
+            return e;
+        }
+        throw new IllegalStateException("The missing id " + freshId + " was found");
+    }
+
+    @Benchmark
+    public Optional<MobileContact> findMissingId(ThreadState thread) {
+        return service.findMobileContact(thread.freshId());
+    }
+
+    @Benchmark
+    public ContactOutcome tryInsertExistingPhoneNumber(StoreState state, ThreadState thread) {
+        MobileContact existing = state.contacts[thread.randomPosition()];
+        return service.tryInsertMobileContact(dtoOf(thread.freshId(), existing.getPhoneNumber(), "Duplicate"));
+    }
+
+    @Benchmark
+    public ContactOutcome tryUpdateMissingId(ThreadState thread) {
+        long freshId = thread.freshId();
+        return service.tryUpdateMobileContact(freshId, dtoOf(freshId, StoreState.phoneNumberOf(freshId), "Missing"));
+    }
+
+    private static MobileContactDTO dtoOf(long id, String phoneNumber, String lastname) {
+        return new MobileContactDTO(id, new UserDetailsDTO(id, "Bench", lastname), phoneNumber);
+    }
+}
@@ -0,0 +1,96 @@
+package gr.aueb.mobileapp.benchmarks;
+
+import gr.aueb.mobileapp.dao.IMobileContactDAO;
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * A DAO filled with a dataset of the given size, shared by all benchmark threads.
+ * Contact i has id i and phone number {@link #phoneNumberOf(long)}; names are
+ * drawn from small pools so they repeat like real names do
+ */
+@State(Scope.Benchmark)
+public class StoreState {
+
+    private static final String[] FIRSTNAMES = {
+            "Alice", "Bob", "Carol", "Dimitris", "Eleni", "Fotis", "Georgia", "Hector",
+            "Ioanna", "Kostas", "Lena", "Manolis", "Nikos", "Olga", "Petros", "Sofia"
+    };
+    private static final String[] LASTNAMES = {
+            "Papadopoulos", "Wonderland", "Smith", "Georgiou", "Nikolaou", "Johnson",
+            "Ioannou", "Brown", "Karagiannis", "Miller", "Vlachos", "Davis", "Oikonomou"
+    };
+
+    @Param({"list", "hash", "concurrent", "sharded", "mapped", "primitive"})
+    public String dao;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    IMobileContactDAO store;
+    MobileContact[] contacts;
+
+    private IMobileContactDAO created;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkParams params) throws IOException {
+        StoreType type = StoreType.valueOf(dao.toUpperCase(Locale.ROOT));
+        directory = Files.createTempDirectory("mobile-contacts-bench");
+        created = type.create(directory);
+        if (!created.getAll().isEmpty()) {
+            //MobileContactDAOImpl keeps its contacts in a static list, so trials must not share a JVM
+            throw new IllegalStateException("The " + dao + " DAO is not empty; run the benchmarks with at least one fork");
+        }
+
+        contacts = new MobileContact[size];
+        for (int i = 0; i < size; i++) {
+            contacts[i] = contactOf(i);
+            created.insert(contacts[i]);
+        }
+
+        store = type.isThreadSafe() || params.getThreads() == 1 ? created : new SynchronizedMobileContactDAO(created);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (created instanceof Closeable) ((Closeable) created).close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Returns the phone number of the contact with the given id, unique per id
+     */
+    static String phoneNumberOf(long id) {
+        return "69" + String.format("%08d", id);
+    }
+
+    /**
+     * Returns the contact with the given id; ids at or above the size are not part of the dataset
+     */
+    static MobileContact contactOf(long id) {
+        int i = (int) (id % (FIRSTNAMES.length * LASTNAMES.length));
+        UserDetails userDetails = new UserDetails(id, FIRSTNAMES[i % FIRSTNAMES.length],
+                LASTNAMES[i / FIRSTNAMES.length]);
+        return new MobileContact(id, userDetails, phoneNumberOf(id));
+    }
+}
@@ -0,0 +1,112 @@
+package gr.aueb.mobileapp.benchmarks;
+
+import gr.aueb.mobileapp.dao.CachingMobileContactDAO;
+import gr.aueb.mobileapp.dao.ChangeCapturingMobileContactDAO;
+import gr.aueb.mobileapp.dao.IMobileContactDAO;
+import gr.aueb.mobileapp.dao.InstrumentedMobileContactDAO;
+import gr.aueb.mobileapp.dao.MobileContactConcurrentDAOImpl;
+import gr.aueb.mobileapp.dao.MobileContactDAOImpl;
+import gr.aueb.mobileapp.dao.MobileContactHashDAOImpl;
+import gr.aueb.mobileapp.dao.MobileContactMappedDAOImpl;
+import gr.aueb.mobileapp.dao.MobileContactPrimitiveDAOImpl;
+import gr.aueb.mobileapp.dao.MobileContactShardedDAOImpl;
+import gr.aueb.mobileapp.dao.cache.EvictionPolicy;
+import gr.aueb.mobileapp.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The {@link IMobileContactDAO} implementations the benchmarks compare.
+ * A new implementation is added here and to the dao parameter of
+ * {@link StoreState} to be measured against the existing ones
+ */
+public enum StoreType {
+
+    LIST(false) {
+        @Override
+        IMobileContactDAO create(Path directory) {
+            return new MobileContactDAOImpl();
+        }
+    },
+    HASH(false) {
+        @Override
+        IMobileContactDAO create(Path directory) {
+            return new MobileContactHashDAOImpl();
+        }
+    },
+    CONCURRENT(true) {
+        @Override
+        IMobileContactDAO create(Path directory) {
+            return new MobileContactConcurrentDAOImpl();
+        }
+    },
+    SHARDED(true) {
+        @Override
+        IMobileContactDAO create(Path directory) {
+            return new MobileContactShardedDAOImpl();
+        }
+    },
+    MAPPED(true) {
+        @Override
+        IMobileContactDAO create(Path directory) throws IOException {
+            return new MobileContactMappedDAOImpl(directory);
+        }
+    },
+    PRIMITIVE(false) {
+        @Override
+        IMobileContactDAO create(Path directory) {
+            return new MobileContactPrimitiveDAOImpl();
+        }
+    },
+    /** The concurrent DAO with metrics, to measure the overhead of the instrumentation */
+    INSTRUMENTED(true) {
+        @Override
+        IMobileContactDAO create(Path directory) {
+            return new InstrumentedMobileContactDAO(new MobileContactConcurrentDAOImpl(), new MetricsRegistry());
+        }
+    },
+    /** The concurrent DAO publishing its changes, to measure the overhead of the change stream */
+    CHANGES(true) {
+        @Override
+        IMobileContactDAO create(Path directory) {
+            return new ChangeCapturingMobileContactDAO(new MobileContactConcurrentDAOImpl());
+        }
+    },
+    /** The concurrent DAO behind an LRU cache of {@link #CACHE_SIZE} contacts */
+    CACHED_LRU(true) {
+        @Override
+        IMobileContactDAO create(Path directory) {
+            return new CachingMobileContactDAO(new MobileContactConcurrentDAOImpl(), CACHE_SIZE, EvictionPolicy.LRU);
+        }
+    },
+    /** The concurrent DAO behind a Window TinyLFU cache of {@link #CACHE_SIZE} contacts */
+    CACHED_TINY_LFU(true) {
+        @Override
+        IMobileContactDAO create(Path directory) {
+            return new CachingMobileContactDAO(new MobileContactConcurrentDAOImpl(), CACHE_SIZE, EvictionPolicy.TINY_LFU);
+        }
+    };
+
+    private static final int CACHE_SIZE = 65_536;
+
+    private final boolean threadSafe;
+
+    StoreType(boolean threadSafe) {
+        this.threadSafe = threadSafe;
+    }
+
+    /**
+     * Returns true if the DAO can be used by several threads without external locking
+     */
+    boolean isThreadSafe() {
+        return threadSafe;
+    }
+
+    /**
+     * Creates an empty DAO
+     * @param directory
+     *                  an empty directory for the DAOs that keep their data in files
+     */
+    abstract IMobileContactDAO create(Path directory) throws IOException;
+}
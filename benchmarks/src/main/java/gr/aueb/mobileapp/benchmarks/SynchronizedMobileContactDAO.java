@@ -0,0 +1,149 @@
+package gr.aueb.mobileapp.benchmarks;
+
+import gr.aueb.mobileapp.dao.ContactPage;
+import gr.aueb.mobileapp.dao.ContactSnapshot;
+import gr.aueb.mobileapp.dao.ForwardingMobileContactDAO;
+import gr.aueb.mobileapp.dao.IMobileContactDAO;
+import gr.aueb.mobileapp.dao.WriteStatus;
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Serializes every operation of a DAO that is not thread safe, so it can be
+ * measured with several benchmark threads. This is the cost a caller pays
+ * to share such a DAO, so it is part of what the benchmarks compare
+ */
+class SynchronizedMobileContactDAO extends ForwardingMobileContactDAO {
+
+    SynchronizedMobileContactDAO(IMobileContactDAO delegate) {
+        super(delegate);
+    }
+
+    @Override
+    public synchronized MobileContact insert(MobileContact mobileContact) {
+        return super.insert(mobileContact);
+    }
+
+    @Override
+    public synchronized MobileContact update(long id, MobileContact mobileContact) {
+        return super.update(id, mobileContact);
+    }
+
+    @Override
+    public synchronized void delete(long id) {
+        super.delete(id);
+    }
+
+    @Override
+    public synchronized void delete(String phoneNumber) {
+        super.delete(phoneNumber);
+    }
+
+    @Override
+    public synchronized MobileContact remove(long id) {
+        return super.remove(id);
+    }
+
+    @Override
+    public synchronized MobileContact remove(String phoneNumber) {
+        return super.remove(phoneNumber);
+    }
+
+    @Override
+    public synchronized MobileContact get(long id) {
+        return super.get(id);
+    }
+
+    @Override
+    public synchronized MobileContact get(String phoneNumber) {
+        return super.get(phoneNumber);
+    }
+
+    @Override
+    public synchronized List<MobileContact> getAll() {
+        return List.copyOf(super.getAll());
+    }
+
+    @Override
+    public synchronized ContactPage getPage(Long cursor, int pageSize) {
+        return super.getPage(cursor, pageSize);
+    }
+
+    @Override
+    public synchronized Stream<MobileContact> stream() {
+        return getAll().stream();
+    }
+
+    @Override
+    public synchronized ContactSnapshot snapshot() {
+        return super.snapshot();
+    }
+
+    @Override
+    public synchronized List<MobileContact> findByPhonePrefix(String prefix, int limit) {
+        return super.findByPhonePrefix(prefix, limit);
+    }
+
+    @Override
+    public synchronized List<MobileContact> searchByName(String query, int limit) {
+        return super.searchByName(query, limit);
+    }
+
+    @Override
+    public synchronized List<MobileContact> findAll(Predicate<? super MobileContact> predicate) {
+        return super.findAll(predicate);
+    }
+
+    @Override
+    public synchronized List<MobileContact> getContactsByUser(long userDetailsId) {
+        return super.getContactsByUser(userDetailsId);
+    }
+
+    @Override
+    public synchronized List<MobileContact> deleteContactsByUser(long userDetailsId) {
+        return super.deleteContactsByUser(userDetailsId);
+    }
+
+    @Override
+    public synchronized boolean phoneNumberExists(String phoneNumber) {
+        return super.phoneNumberExists(phoneNumber);
+    }
+
+    @Override
+    public synchronized boolean userIdExist(long id) {
+        return super.userIdExist(id);
+    }
+
+    @Override
+    public synchronized MobileContact insertIfAbsent(MobileContact mobileContact) {
+        return super.insertIfAbsent(mobileContact);
+    }
+
+    @Override
+    public synchronized MobileContact replaceIfPresent(long id, MobileContact mobileContact) {
+        return super.replaceIfPresent(id, mobileContact);
+    }
+
+    @Override
+    public synchronized List<WriteStatus> insertAll(List<MobileContact> mobileContacts) {
+        return super.insertAll(mobileContacts);
+    }
+
+    @Override
+    public synchronized List<WriteStatus> updateAll(List<MobileContact> mobileContacts) {
+        return super.updateAll(mobileContacts);
+    }
+
+    @Override
+    public synchronized List<WriteStatus> deleteAllById(List<Long> ids) {
+        return super.deleteAllById(ids);
+    }
+
+    @Override
+    public synchronized List<WriteStatus> deleteAllByPhoneNumber(List<String> phoneNumbers) {
+        return super.deleteAllByPhoneNumber(phoneNumbers);
+    }
+}
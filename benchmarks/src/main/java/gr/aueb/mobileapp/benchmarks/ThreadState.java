@@ -0,0 +1,49 @@
+package gr.aueb.mobileapp.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.SplittableRandom;
+
+/**
+ * Per-thread source of random dataset positions and of fresh ids. Fresh ids
+ * of different threads never collide, so concurrent inserts do not conflict
+ */
+@State(Scope.Thread)
+public class ThreadState {
+
+    private SplittableRandom random;
+    private long nextFreshId;
+    private int size;
+
+    @Setup(Level.Trial)
+    public void setUp(StoreState store, ThreadParams params) {
+        random = new SplittableRandom(42 + params.getThreadIndex());
+        size = store.size;
+        nextFreshId = store.size + ((long) params.getThreadIndex() << 32);
+    }
+
+    /**
+     * Returns the position of a random contact of the dataset
+     */
+    int randomPosition() {
+        return random.nextInt(size);
+    }
+
+    /**
+     * Returns a random number from 0 to 99, to pick the operation of a mixed workload
+     */
+    int randomPercent() {
+        return random.nextInt(100);
+    }
+
+    /**
+     * Returns an id that is not part of the dataset and was not returned before
+     */
+    long freshId() {
+        return nextFreshId++;
+    }
+}
@@ -0,0 +1,76 @@
+package gr.aueb.mobileapp.benchmarks;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zipf distribution over the ranks 1 to n: rank k is drawn with a probability
+ * proportional to 1 / k^exponent, so a few ranks take most of the draws, like
+ * the popular contacts of a real workload. An exponent of 0 is uniform, and
+ * around 1 the first 1% of the ranks take about half of the draws.
+ *
+ * Draws use rejection-inversion (Hormann and Derflinger, 1996), which needs
+ * no table of the n probabilities and takes a constant expected time per draw
+ */
+public final class ZipfDistribution {
+
+    private final long n;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double s;
+
+    public ZipfDistribution(long n, double exponent) {
+        if (n < 1) throw new IllegalArgumentException("Invalid number of ranks " + n);
+        if (!(exponent >= 0)) throw new IllegalArgumentException("Invalid exponent " + exponent);
+        this.n = n;
+        this.exponent = exponent;
+        hIntegralX1 = hIntegral(1.5) - 1.0;
+        hIntegralN = hIntegral(n + 0.5);
+        s = 2.0 - hIntegralInverse(hIntegral(2.5) - h(2.0));
+    }
+
+    /**
+     * Draws a rank, between 1 and n
+     */
+    public long sample(SplittableRandom random) {
+        while (true) {
+            double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+            double x = hIntegralInverse(u);
+            long k = Math.max(1L, Math.min(n, (long) (x + 0.5)));
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) return k;
+        }
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    /**
+     * The integral of h from 1 to x, shifted by a constant
+     */
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return expm1OverX((1.0 - exponent) * logX) * logX;
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = Math.max(-1.0, x * (1.0 - exponent));
+        return Math.exp(log1pOverX(t) * x);
+    }
+
+    /**
+     * log(1 + x) / x, also close to 0
+     */
+    private static double log1pOverX(double x) {
+        if (Math.abs(x) > 1e-8) return Math.log1p(x) / x;
+        return 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+    }
+
+    /**
+     * (exp(x) - 1) / x, also close to 0
+     */
+    private static double expm1OverX(double x) {
+        if (Math.abs(x) > 1e-8) return Math.expm1(x) / x;
+        return 1.0 + x * 0.5 * (1.0 + x / 3.0 * (1.0 + 0.25 * x));
+    }
+}
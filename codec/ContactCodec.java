@@ -0,0 +1,332 @@
+package gr.aueb.mobileapp.codec;
+
+import gr.aueb.mobileapp.dto.MobileContactDTO;
+import gr.aueb.mobileapp.dto.UserDetailsDTO;
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Versioned binary encoding of {@link MobileContact}, {@link UserDetails} and
+ * their DTOs. A DTO is encoded exactly like the entity it maps to, so a record
+ * written from a {@link MobileContactDTO} reads back as a {@link MobileContact}
+ * and the other way round.
+ *
+ * Every record starts with its version, its type and its total length, so a
+ * reader can skip a record without decoding it. The fixed size fields and the
+ * lengths of the strings come first, at fixed offsets, and the UTF-8 bytes of the
+ * strings follow, the phone number first. A single field of a contact, such as
+ * the id or the phone number, is thus read or compared in place with the static
+ * accessors, without decoding the rest of the record.
+ *
+ * A contact record, all numbers big endian:
+ * <pre>
+ *  0 version      byte, {@link #VERSION}
+ *  1 type         byte, {@link #CONTACT}
+ *  2 length       int, of the whole record
+ *  6 id           long
+ * 14 flags        byte, {@link #HAS_USER_DETAILS}
+ * 15 userId       long, the id of the user details, 0 without them
+ * 23 phone        int, the length of the phone number, -1 for null
+ * 27 firstname    int, -1 for null
+ * 31 lastname     int, -1 for null
+ * 35 the bytes of the phone number, the firstname and the lastname
+ * </pre>
+ * A user details record has the version, type {@link #USER_DETAILS}, length and id,
+ * then the lengths of the firstname and the lastname at 14 and 18 and their bytes
+ * from 22.
+ *
+ * A later version may only add fields after the strings. The decoders read the
+ * fields they know of a record of any version and skip the rest by its length.
+ * Decoding a malformed or truncated record throws an IllegalArgumentException
+ */
+public final class ContactCodec {
+
+    public static final byte VERSION = 1;
+
+    public static final byte CONTACT = 1;
+    public static final byte USER_DETAILS = 2;
+
+    public static final byte HAS_USER_DETAILS = 1;
+
+    private static final int TYPE = 1;
+    private static final int LENGTH = 2;
+    private static final int ID = 6;
+
+    private static final int FLAGS = 14;
+    private static final int USER_ID = 15;
+    private static final int PHONE_LENGTH = 23;
+    private static final int FIRSTNAME_LENGTH = 27;
+    private static final int LASTNAME_LENGTH = 31;
+    public static final int CONTACT_HEADER_BYTES = 35;
+
+    private static final int DETAILS_FIRSTNAME_LENGTH = 14;
+    private static final int DETAILS_LASTNAME_LENGTH = 18;
+    public static final int USER_DETAILS_HEADER_BYTES = 22;
+
+    private ContactCodec() {}
+
+    /**
+     * Returns the length of the record of a contact
+     */
+    public static int encodedLength(MobileContact mobileContact) {
+        UserDetails userDetails = mobileContact.getUserDetails();
+        return contactLength(mobileContact.getPhoneNumber(),
+                userDetails == null ? null : userDetails.getFirstname(),
+                userDetails == null ? null : userDetails.getLastname());
+    }
+
+    public static int encodedLength(MobileContactDTO contactDTO) {
+        UserDetailsDTO userDetailsDTO = contactDTO.getUserDetails();
+        return contactLength(contactDTO.getPhoneNumber(),
+                userDetailsDTO == null ? null : userDetailsDTO.getFirstname(),
+                userDetailsDTO == null ? null : userDetailsDTO.getLastname());
+    }
+
+    public static int encodedLength(UserDetails userDetails) {
+        return USER_DETAILS_HEADER_BYTES + lengthOf(userDetails.getFirstname()) + lengthOf(userDetails.getLastname());
+    }
+
+    public static int encodedLength(UserDetailsDTO userDetailsDTO) {
+        return USER_DETAILS_HEADER_BYTES + lengthOf(userDetailsDTO.getFirstname()) + lengthOf(userDetailsDTO.getLastname());
+    }
+
+    /**
+     * Returns an upper bound of the length of the record of a contact, found
+     * without encoding the strings
+     */
+    public static int maxEncodedLength(MobileContact mobileContact) {
+        UserDetails userDetails = mobileContact.getUserDetails();
+        int chars = charsOf(mobileContact.getPhoneNumber());
+        if (userDetails != null) chars += charsOf(userDetails.getFirstname()) + charsOf(userDetails.getLastname());
+        return CONTACT_HEADER_BYTES + Utf8.MAX_BYTES_PER_CHAR * chars;
+    }
+
+    /**
+     * Encodes a contact at the position of the buffer and moves the position past it
+     * @return
+     *          the length of the record
+     * @throws BufferOverflowException
+     *          if the record does not fit; the buffer is not changed
+     */
+    public static int encode(MobileContact mobileContact, ByteBuffer dst) {
+        //The exact length takes a pass over the strings, needed only when the buffer is nearly full
+        if (dst.remaining() < maxEncodedLength(mobileContact) && dst.remaining() < encodedLength(mobileContact)) {
+            throw new BufferOverflowException();
+        }
+        UserDetails userDetails = mobileContact.getUserDetails();
+        if (userDetails == null) {
+            return encodeContact(dst, mobileContact.getId(), false, 0L, mobileContact.getPhoneNumber(), null, null);
+        }
+        return encodeContact(dst, mobileContact.getId(), true, userDetails.getId(), mobileContact.getPhoneNumber(),
+                userDetails.getFirstname(), userDetails.getLastname());
+    }
+
+    public static int encode(MobileContactDTO contactDTO, ByteBuffer dst) {
+        if (dst.remaining() < encodedLength(contactDTO)) throw new BufferOverflowException();
+        UserDetailsDTO userDetailsDTO = contactDTO.getUserDetails();
+        if (userDetailsDTO == null) {
+            return encodeContact(dst, contactDTO.getId(), false, 0L, contactDTO.getPhoneNumber(), null, null);
+        }
+        return encodeContact(dst, contactDTO.getId(), true, userDetailsDTO.getId(), contactDTO.getPhoneNumber(),
+                userDetailsDTO.getFirstname(), userDetailsDTO.getLastname());
+    }
+
+    public static int encode(UserDetails userDetails, ByteBuffer dst) {
+        if (dst.remaining() < encodedLength(userDetails)) throw new BufferOverflowException();
+        return encodeUserDetails(dst, userDetails.getId(), userDetails.getFirstname(), userDetails.getLastname());
+    }
+
+    public static int encode(UserDetailsDTO userDetailsDTO, ByteBuffer dst) {
+        if (dst.remaining() < encodedLength(userDetailsDTO)) throw new BufferOverflowException();
+        return encodeUserDetails(dst, userDetailsDTO.getId(), userDetailsDTO.getFirstname(), userDetailsDTO.getLastname());
+    }
+
+    /**
+     * Decodes the contact record at the position of the buffer and moves the position past it
+     */
+    public static MobileContact decodeMobileContact(ByteBuffer src) {
+        int start = src.position();
+        checkHeader(src, start, CONTACT, CONTACT_HEADER_BYTES);
+        UserDetails userDetails = null;
+        if (hasUserDetails(src, start)) {
+            userDetails = new UserDetails(src.getLong(start + USER_ID),
+                    readString(src, start, firstnameOffset(src, start), src.getInt(start + FIRSTNAME_LENGTH)),
+                    readString(src, start, lastnameOffset(src, start), src.getInt(start + LASTNAME_LENGTH)));
+        }
+        MobileContact mobileContact = new MobileContact(src.getLong(start + ID), userDetails, readPhoneNumber(src, start));
+        src.position(start + recordLength(src, start));
+        return mobileContact;
+    }
+
+    public static MobileContactDTO decodeMobileContactDTO(ByteBuffer src) {
+        int start = src.position();
+        checkHeader(src, start, CONTACT, CONTACT_HEADER_BYTES);
+        UserDetailsDTO userDetailsDTO = null;
+        if (hasUserDetails(src, start)) {
+            userDetailsDTO = new UserDetailsDTO(src.getLong(start + USER_ID),
+                    readString(src, start, firstnameOffset(src, start), src.getInt(start + FIRSTNAME_LENGTH)),
+                    readString(src, start, lastnameOffset(src, start), src.getInt(start + LASTNAME_LENGTH)));
+        }
+        MobileContactDTO contactDTO = new MobileContactDTO(src.getLong(start + ID), userDetailsDTO, readPhoneNumber(src, start));
+        src.position(start + recordLength(src, start));
+        return contactDTO;
+    }
+
+    public static UserDetails decodeUserDetails(ByteBuffer src) {
+        int start = src.position();
+        checkHeader(src, start, USER_DETAILS, USER_DETAILS_HEADER_BYTES);
+        int firstnameLength = src.getInt(start + DETAILS_FIRSTNAME_LENGTH);
+        long lastnameOffset = USER_DETAILS_HEADER_BYTES + (long) Math.max(0, firstnameLength);
+        UserDetails userDetails = new UserDetails(src.getLong(start + ID),
+                readString(src, start, USER_DETAILS_HEADER_BYTES, firstnameLength),
+                readString(src, start, lastnameOffset, src.getInt(start + DETAILS_LASTNAME_LENGTH)));
+        src.position(start + recordLength(src, start));
+        return userDetails;
+    }
+
+    public static UserDetailsDTO decodeUserDetailsDTO(ByteBuffer src) {
+        UserDetails userDetails = decodeUserDetails(src);
+        return new UserDetailsDTO(userDetails.getId(), userDetails.getFirstname(), userDetails.getLastname());
+    }
+
+    /**
+     * Returns the length of the record at an absolute index, to skip it
+     */
+    public static int recordLength(ByteBuffer src, int index) {
+        return src.getInt(index + LENGTH);
+    }
+
+    /**
+     * Returns the type of the record at an absolute index, {@link #CONTACT} or {@link #USER_DETAILS}
+     */
+    public static byte recordType(ByteBuffer src, int index) {
+        return src.get(index + TYPE);
+    }
+
+    /**
+     * Reads the id of the contact or user details record at an absolute index
+     */
+    public static long readId(ByteBuffer src, int index) {
+        return src.getLong(index + ID);
+    }
+
+    /**
+     * Decodes only the phone number of the contact record at an absolute index
+     * @return
+     *          the phone number, or null
+     */
+    public static String readPhoneNumber(ByteBuffer src, int index) {
+        return readString(src, index, CONTACT_HEADER_BYTES, src.getInt(index + PHONE_LENGTH));
+    }
+
+    /**
+     * Returns a view of the UTF-8 bytes of the phone number of the contact record
+     * at an absolute index, sharing the content of the buffer
+     * @return
+     *          a read-only buffer of the bytes, or null if the phone number is null
+     */
+    public static ByteBuffer phoneNumberBytes(ByteBuffer src, int index) {
+        int length = src.getInt(index + PHONE_LENGTH);
+        return length < 0 ? null : src.slice(index + CONTACT_HEADER_BYTES, length).asReadOnlyBuffer();
+    }
+
+    /**
+     * Compares the phone number of the contact record at an absolute index with a
+     * phone number, in place and without decoding it
+     */
+    public static boolean phoneNumberEquals(ByteBuffer src, int index, String phoneNumber) {
+        int length = src.getInt(index + PHONE_LENGTH);
+        if (phoneNumber == null || length < 0) return phoneNumber == null && length < 0;
+        return Utf8.equals(src, index + CONTACT_HEADER_BYTES, length, phoneNumber);
+    }
+
+    private static int encodeContact(ByteBuffer dst, long id, boolean hasUserDetails, long userId,
+                                     String phoneNumber, String firstname, String lastname) {
+        int start = dst.position();
+        int end = start + CONTACT_HEADER_BYTES;
+        dst.put(start, VERSION)
+                .put(start + TYPE, CONTACT)
+                .putLong(start + ID, id)
+                .put(start + FLAGS, hasUserDetails ? HAS_USER_DETAILS : (byte) 0)
+                .putLong(start + USER_ID, userId);
+        end = writeString(dst, start + PHONE_LENGTH, end, phoneNumber);
+        end = writeString(dst, start + FIRSTNAME_LENGTH, end, firstname);
+        end = writeString(dst, start + LASTNAME_LENGTH, end, lastname);
+        dst.putInt(start + LENGTH, end - start);
+        dst.position(end);
+        return end - start;
+    }
+
+    private static int encodeUserDetails(ByteBuffer dst, long id, String firstname, String lastname) {
+        int start = dst.position();
+        int end = start + USER_DETAILS_HEADER_BYTES;
+        dst.put(start, VERSION)
+                .put(start + TYPE, USER_DETAILS)
+                .putLong(start + ID, id);
+        end = writeString(dst, start + DETAILS_FIRSTNAME_LENGTH, end, firstname);
+        end = writeString(dst, start + DETAILS_LASTNAME_LENGTH, end, lastname);
+        dst.putInt(start + LENGTH, end - start);
+        dst.position(end);
+        return end - start;
+    }
+
+    /**
+     * Writes the bytes of a string at index and its length at lengthIndex
+     * @return
+     *          the index after the bytes
+     */
+    private static int writeString(ByteBuffer dst, int lengthIndex, int index, String value) {
+        if (value == null) {
+            dst.putInt(lengthIndex, -1);
+            return index;
+        }
+        int end = Utf8.encode(value, dst, index);
+        dst.putInt(lengthIndex, end - index);
+        return end;
+    }
+
+    private static String readString(ByteBuffer src, int start, long offset, int length) {
+        if (length == -1) return null;
+        if (length < 0) throw new IllegalArgumentException("Invalid string length " + length);
+        if (offset + length > recordLength(src, start)) throw new IllegalArgumentException("A string runs past the end of the record");
+        return Utf8.decode(src, start + (int) offset, length);
+    }
+
+    private static void checkHeader(ByteBuffer src, int start, byte type, int headerBytes) {
+        if (src.limit() - start < headerBytes) throw new IllegalArgumentException("Truncated record");
+        byte version = src.get(start);
+        if (version < 1) throw new IllegalArgumentException("Invalid record version " + version);
+        if (src.get(start + TYPE) != type) throw new IllegalArgumentException("Expected a record of type " + type
+                + " but found " + src.get(start + TYPE));
+        int length = recordLength(src, start);
+        if (length < headerBytes || start + length > src.limit()) throw new IllegalArgumentException("Invalid record length " + length);
+    }
+
+    private static boolean hasUserDetails(ByteBuffer src, int start) {
+        return (src.get(start + FLAGS) & HAS_USER_DETAILS) != 0;
+    }
+
+    //Offsets are longs, so the lengths of a malformed record cannot overflow them
+    private static long firstnameOffset(ByteBuffer src, int start) {
+        return CONTACT_HEADER_BYTES + (long) Math.max(0, src.getInt(start + PHONE_LENGTH));
+    }
+
+    private static long lastnameOffset(ByteBuffer src, int start) {
+        return firstnameOffset(src, start) + Math.max(0, src.getInt(start + FIRSTNAME_LENGTH));
+    }
+
+    private static int contactLength(String phoneNumber, String firstname, String lastname) {
+        return CONTACT_HEADER_BYTES + lengthOf(phoneNumber) + lengthOf(firstname) + lengthOf(lastname);
+    }
+
+    private static int lengthOf(String value) {
+        return value == null ? 0 : Utf8.encodedLength(value);
+    }
+
+    private static int charsOf(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
@@ -0,0 +1,148 @@
+package gr.aueb.mobileapp.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * UTF-8 encoding of strings straight into byte arrays and {@link ByteBuffer}s,
+ * and decoding and comparing straight from them, without the intermediate
+ * byte[] of String.getBytes. An unpaired surrogate is encoded as '?', like
+ * String.getBytes does
+ */
+public final class Utf8 {
+
+    /** The longest encoding of a char; a surrogate pair takes 4 bytes for 2 chars */
+    public static final int MAX_BYTES_PER_CHAR = 3;
+
+    //Copy of the bytes of a string read from a direct buffer, reused by the thread
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[256]);
+
+    private Utf8() {}
+
+    /**
+     * Returns the length of the encoding of a string
+     */
+    public static int encodedLength(String value) {
+        int length = value.length();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) continue;
+            if (c < 0x800) {
+                length++;
+            } else if (isPair(value, i)) {
+                length += 2;
+                i++;
+            } else if (!Character.isSurrogate(c)) {
+                length += 2;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Encodes a string into an array
+     * @param position
+     *              the position to write at
+     * @return
+     *          the position after the encoding
+     */
+    public static int encode(String value, byte[] dst, int position) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                dst[position++] = (byte) c;
+            } else if (c < 0x800) {
+                dst[position++] = (byte) (0xC0 | (c >> 6));
+                dst[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (isPair(value, i)) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                dst[position++] = (byte) (0xF0 | (codePoint >> 18));
+                dst[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                dst[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                dst[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                dst[position++] = '?';
+            } else {
+                dst[position++] = (byte) (0xE0 | (c >> 12));
+                dst[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                dst[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Encodes a string into a buffer at an absolute index; the position of the
+     * buffer is not changed. A heap buffer is written through its array
+     * @return
+     *          the index after the encoding
+     */
+    public static int encode(String value, ByteBuffer dst, int index) {
+        if (dst.hasArray()) {
+            int offset = dst.arrayOffset();
+            return encode(value, dst.array(), offset + index) - offset;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                dst.put(index++, (byte) c);
+            } else if (c < 0x800) {
+                dst.put(index++, (byte) (0xC0 | (c >> 6)));
+                dst.put(index++, (byte) (0x80 | (c & 0x3F)));
+            } else if (isPair(value, i)) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                dst.put(index++, (byte) (0xF0 | (codePoint >> 18)));
+                dst.put(index++, (byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                dst.put(index++, (byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                dst.put(index++, (byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                dst.put(index++, (byte) '?');
+            } else {
+                dst.put(index++, (byte) (0xE0 | (c >> 12)));
+                dst.put(index++, (byte) (0x80 | ((c >> 6) & 0x3F)));
+                dst.put(index++, (byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Decodes the string of the given length at an absolute index; the position of
+     * the buffer is not changed. A heap buffer is decoded from its array, a direct
+     * one through a copy reused by the thread
+     */
+    public static String decode(ByteBuffer src, int index, int length) {
+        if (src.hasArray()) {
+            return new String(src.array(), src.arrayOffset() + index, length, StandardCharsets.UTF_8);
+        }
+        byte[] scratch = SCRATCH.get();
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+            SCRATCH.set(scratch);
+        }
+        src.get(index, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns true if the bytes of the given length at an absolute index are the
+     * encoding of the string, comparing byte by byte without decoding
+     */
+    public static boolean equals(ByteBuffer src, int index, int length, String value) {
+        if (length < value.length() || length > value.length() * MAX_BYTES_PER_CHAR) return false;
+        int end = index + length;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                String rest = decode(src, index, end - index);
+                return rest.length() == value.length() - i && value.regionMatches(i, rest, 0, rest.length());
+            }
+            if (index == end || src.get(index++) != (byte) c) return false;
+        }
+        return index == end;
+    }
+
+    private static boolean isPair(String value, int i) {
+        return Character.isHighSurrogate(value.charAt(i)) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1));
+    }
+}
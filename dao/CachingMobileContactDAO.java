@@ -0,0 +1,303 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.dao.cache.BoundedCache;
+import gr.aueb.mobileapp.dao.cache.CacheStats;
+import gr.aueb.mobileapp.dao.cache.EvictionPolicy;
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through cache in front of any {@link IMobileContactDAO}.
+ * Contacts are cached by id, and phone numbers map to the id of their owner,
+ * so a lookup by phone number is answered only while the cached contact of
+ * that id still has the phone number; an update or delete by id therefore
+ * only has to invalidate the id. Lookups that find nothing are cached too,
+ * and every write through this decorator invalidates the ids and phone
+ * numbers it touches, whether it succeeds or throws.
+ *
+ * Writes that bypass the decorator are not seen; call {@link #invalidateAll()}
+ * after them. The cached contacts are the instances the decorated DAO
+ * returned and must not be changed by the callers. The cache is thread safe,
+ * but the decorator is only as thread safe as the DAO it wraps: a
+ * {@link MobileContactDAOImpl} or {@link MobileContactHashDAOImpl} used by
+ * several threads still needs its own external locking
+ */
+public class CachingMobileContactDAO extends ForwardingMobileContactDAO {
+
+    //Cached in place of a contact or an id that the decorated DAO does not have
+    private static final Object MISSING = new Object();
+
+    private final BoundedCache<Long, Object> contactsById;
+    private final BoundedCache<String, Object> idsByPhoneNumber;
+    private final boolean negativeCaching;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CachingMobileContactDAO(IMobileContactDAO delegate, int maximumSize, EvictionPolicy policy) {
+        this(delegate, maximumSize, policy, true);
+    }
+
+    /**
+     * @param maximumSize
+     *                      the most contacts cached, and separately the most phone numbers
+     * @param negativeCaching
+     *                      true to cache the ids and phone numbers that were not found
+     */
+    public CachingMobileContactDAO(IMobileContactDAO delegate, int maximumSize, EvictionPolicy policy,
+                                   boolean negativeCaching) {
+        super(delegate);
+        int concurrencyLevel = Runtime.getRuntime().availableProcessors() * 4;
+        this.contactsById = new BoundedCache<>(maximumSize, policy, concurrencyLevel);
+        this.idsByPhoneNumber = new BoundedCache<>(maximumSize, policy, concurrencyLevel);
+        this.negativeCaching = negativeCaching;
+    }
+
+    @Override
+    public MobileContact insert(MobileContact mobileContact) {
+        try {
+            return delegate.insert(mobileContact);
+        } finally {
+            invalidate(mobileContact);
+        }
+    }
+
+    @Override
+    public MobileContact update(long id, MobileContact mobileContact) {
+        try {
+            return delegate.update(id, mobileContact);
+        } finally {
+            contactsById.invalidate(id);
+            invalidate(mobileContact);
+        }
+    }
+
+    @Override
+    public void delete(long id) {
+        try {
+            delegate.delete(id);
+        } finally {
+            contactsById.invalidate(id);
+        }
+    }
+
+    /**
+     * Deletes through {@link #remove(String)}, to learn the id to invalidate
+     */
+    @Override
+    public void delete(String phoneNumber) {
+        remove(phoneNumber);
+    }
+
+    @Override
+    public MobileContact remove(long id) {
+        try {
+            return delegate.remove(id);
+        } finally {
+            contactsById.invalidate(id);
+        }
+    }
+
+    @Override
+    public MobileContact remove(String phoneNumber) {
+        MobileContact removed = null;
+        try {
+            removed = delegate.remove(phoneNumber);
+            return removed;
+        } finally {
+            if (phoneNumber != null) idsByPhoneNumber.invalidate(phoneNumber);
+            if (removed != null) contactsById.invalidate(removed.getId());
+        }
+    }
+
+    @Override
+    public MobileContact get(long id) {
+        Long key = id;
+        Object cached = contactsById.get(key);
+        if (cached != null) {
+            hits.increment();
+            if (cached == MISSING) {
+                negativeHits.increment();
+                return null;
+            }
+            return (MobileContact) cached;
+        }
+
+        misses.increment();
+        return load(key);
+    }
+
+    /**
+     * Looks up the owner of a phone number. A miss caches the id of the owner
+     * only; its contact is cached by the next lookup, which reads it by id, since
+     * a load must know its key before it starts to be checked against the
+     * writes that run meanwhile
+     */
+    @Override
+    public MobileContact get(String phoneNumber) {
+        if (phoneNumber == null) return delegate.get(phoneNumber);
+
+        Object cached = idsByPhoneNumber.get(phoneNumber);
+        if (cached == MISSING) {
+            hits.increment();
+            negativeHits.increment();
+            return null;
+        }
+        if (cached != null) {
+            //The owner may have changed its phone number or been deleted since
+            Long id = (Long) cached;
+            Object owner = contactsById.get(id);
+            if (owner instanceof MobileContact && phoneNumber.equals(((MobileContact) owner).getPhoneNumber())) {
+                hits.increment();
+                return (MobileContact) owner;
+            }
+            misses.increment();
+            if (owner == null) {
+                MobileContact mobileContact = load(id);
+                if (mobileContact != null && phoneNumber.equals(mobileContact.getPhoneNumber())) return mobileContact;
+            }
+        } else {
+            misses.increment();
+        }
+
+        long load = idsByPhoneNumber.startLoad(phoneNumber);
+        MobileContact mobileContact = delegate.get(phoneNumber);
+        if (mobileContact != null) {
+            idsByPhoneNumber.putLoaded(phoneNumber, mobileContact.getId(), load);
+        } else if (negativeCaching) {
+            idsByPhoneNumber.putLoaded(phoneNumber, MISSING, load);
+        }
+        return mobileContact;
+    }
+
+    @Override
+    public boolean phoneNumberExists(String phoneNumber) {
+        return get(phoneNumber) != null;
+    }
+
+    @Override
+    public boolean userIdExist(long id) {
+        return get(id) != null;
+    }
+
+    @Override
+    public MobileContact insertIfAbsent(MobileContact mobileContact) {
+        try {
+            return delegate.insertIfAbsent(mobileContact);
+        } finally {
+            invalidate(mobileContact);
+        }
+    }
+
+    @Override
+    public MobileContact replaceIfPresent(long id, MobileContact mobileContact) {
+        try {
+            return delegate.replaceIfPresent(id, mobileContact);
+        } finally {
+            contactsById.invalidate(id);
+            invalidate(mobileContact);
+        }
+    }
+
+    @Override
+    public List<WriteStatus> insertAll(List<MobileContact> mobileContacts) {
+        try {
+            return delegate.insertAll(mobileContacts);
+        } finally {
+            mobileContacts.forEach(this::invalidate);
+        }
+    }
+
+    @Override
+    public List<WriteStatus> updateAll(List<MobileContact> mobileContacts) {
+        try {
+            return delegate.updateAll(mobileContacts);
+        } finally {
+            mobileContacts.forEach(this::invalidate);
+        }
+    }
+
+    @Override
+    public List<WriteStatus> deleteAllById(List<Long> ids) {
+        try {
+            return delegate.deleteAllById(ids);
+        } finally {
+            for (Long id : ids) {
+                if (id != null) contactsById.invalidate(id);
+            }
+        }
+    }
+
+    /**
+     * Deletes the contacts and drops every cached contact, since the batch
+     * does not report the ids of the deleted contacts
+     */
+    @Override
+    public List<WriteStatus> deleteAllByPhoneNumber(List<String> phoneNumbers) {
+        try {
+            return delegate.deleteAllByPhoneNumber(phoneNumbers);
+        } finally {
+            for (String phoneNumber : phoneNumbers) {
+                if (phoneNumber != null) idsByPhoneNumber.invalidate(phoneNumber);
+            }
+            contactsById.invalidateAll();
+        }
+    }
+
+    /**
+     * Deletes the contacts of a person and invalidates their ids. If the delete
+     * throws, every cached contact is dropped, since the deleted ids are not known
+     */
+    @Override
+    public List<MobileContact> deleteContactsByUser(long userDetailsId) {
+        List<MobileContact> removed = null;
+        try {
+            removed = delegate.deleteContactsByUser(userDetailsId);
+            return removed;
+        } finally {
+            if (removed == null) {
+                contactsById.invalidateAll();
+            } else {
+                for (MobileContact mobileContact : removed) {
+                    contactsById.invalidate(mobileContact.getId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops every cached entry, e.g. after the decorated DAO was changed directly
+     */
+    public void invalidateAll() {
+        contactsById.invalidateAll();
+        idsByPhoneNumber.invalidateAll();
+    }
+
+    /**
+     * Returns the hits, misses and evictions so far, of the lookups by id and by phone number together
+     */
+    public CacheStats getStats() {
+        return new CacheStats(hits.sum(), negativeHits.sum(), misses.sum(),
+                contactsById.evictionCount() + idsByPhoneNumber.evictionCount(),
+                contactsById.size() + idsByPhoneNumber.size());
+    }
+
+    private MobileContact load(Long id) {
+        long load = contactsById.startLoad(id);
+        MobileContact mobileContact = delegate.get(id);
+        if (mobileContact != null) {
+            contactsById.putLoaded(id, mobileContact, load);
+        } else if (negativeCaching) {
+            contactsById.putLoaded(id, MISSING, load);
+        }
+        return mobileContact;
+    }
+
+    private void invalidate(MobileContact mobileContact) {
+        if (mobileContact == null) return;
+        contactsById.invalidate(mobileContact.getId());
+        if (mobileContact.getPhoneNumber() != null) idsByPhoneNumber.invalidate(mobileContact.getPhoneNumber());
+    }
+}
@@ -0,0 +1,232 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.dao.changes.ChangeRingBuffer;
+import gr.aueb.mobileapp.dao.changes.ChangeSubscription;
+import gr.aueb.mobileapp.dao.changes.ChangeType;
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decorator of {@link IMobileContactDAO} that publishes every successful
+ * insert, update and delete to a {@link ChangeRingBuffer}, so downstream
+ * systems follow the changes with a {@link ChangeSubscription} instead of
+ * reading and comparing all the contacts. Changes to the same id are applied
+ * and published under the same stripe, so their sequences keep their order;
+ * the changes of a batch get consecutive sequences.
+ *
+ * Publishing never waits for the subscribers. Writes that bypass the
+ * decorator are not published
+ */
+public class ChangeCapturingMobileContactDAO extends ForwardingMobileContactDAO {
+
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final StripedLocks locks = new StripedLocks(Runtime.getRuntime().availableProcessors() * 4);
+    private final ChangeRingBuffer changes;
+
+    /**
+     * Publishes to a ring of the latest 65,536 changes
+     */
+    public ChangeCapturingMobileContactDAO(IMobileContactDAO delegate) {
+        this(delegate, new ChangeRingBuffer(DEFAULT_CAPACITY));
+    }
+
+    /**
+     * @param changes
+     *              the ring the changes are published to
+     */
+    public ChangeCapturingMobileContactDAO(IMobileContactDAO delegate, ChangeRingBuffer changes) {
+        super(delegate);
+        this.changes = changes;
+    }
+
+    /**
+     * Returns the ring the changes are published to
+     */
+    public ChangeRingBuffer getChanges() {
+        return changes;
+    }
+
+    /**
+     * Subscribes to the changes that follow; shorthand for {@code getChanges().subscribe()}
+     */
+    public ChangeSubscription subscribe() {
+        return changes.subscribe();
+    }
+
+    @Override
+    public MobileContact insert(MobileContact mobileContact) {
+        if (mobileContact == null) return null;
+
+        int[] held = locks.lock(locks.stripeOf(mobileContact.getId()));
+        try {
+            MobileContact inserted = delegate.insert(mobileContact);
+            if (inserted != null) changes.publish(ChangeType.INSERT, inserted.getId(), inserted);
+            return inserted;
+        } finally {
+            locks.unlock(held);
+        }
+    }
+
+    @Override
+    public MobileContact update(long id, MobileContact mobileContact) {
+        int[] held = locks.lock(locks.stripeOf(id));
+        try {
+            MobileContact updated = delegate.update(id, mobileContact);
+            if (updated != null) changes.publish(ChangeType.UPDATE, id, mobileContact);
+            return updated;
+        } finally {
+            locks.unlock(held);
+        }
+    }
+
+    @Override
+    public void delete(long id) {
+        remove(id);
+    }
+
+    @Override
+    public void delete(String phoneNumber) {
+        remove(phoneNumber);
+    }
+
+    @Override
+    public MobileContact remove(long id) {
+        int[] held = locks.lock(locks.stripeOf(id));
+        try {
+            MobileContact removed = delegate.remove(id);
+            if (removed != null) changes.publish(ChangeType.DELETE, id, removed);
+            return removed;
+        } finally {
+            locks.unlock(held);
+        }
+    }
+
+    @Override
+    public MobileContact remove(String phoneNumber) {
+        while (true) {
+            MobileContact current = delegate.get(phoneNumber);
+            if (current == null) return null;
+
+            //While the stripe of its id is held, no writer of this decorator can move the phone number
+            int[] held = locks.lock(locks.stripeOf(current.getId()));
+            try {
+                //Datasources may build a new instance on every read, so the owner is compared by id
+                MobileContact again = delegate.get(phoneNumber);
+                if (again == null || again.getId() != current.getId()) continue;
+                MobileContact removed = delegate.remove(phoneNumber);
+                if (removed != null) changes.publish(ChangeType.DELETE, removed.getId(), removed);
+                return removed;
+            } finally {
+                locks.unlock(held);
+            }
+        }
+    }
+
+    @Override
+    public MobileContact insertIfAbsent(MobileContact mobileContact) {
+        int[] held = locks.lock(locks.stripeOf(mobileContact.getId()));
+        try {
+            MobileContact existing = delegate.insertIfAbsent(mobileContact);
+            if (existing == null) changes.publish(ChangeType.INSERT, mobileContact.getId(), mobileContact);
+            return existing;
+        } finally {
+            locks.unlock(held);
+        }
+    }
+
+    @Override
+    public MobileContact replaceIfPresent(long id, MobileContact mobileContact) {
+        int[] held = locks.lock(locks.stripeOf(id));
+        try {
+            MobileContact previous = delegate.replaceIfPresent(id, mobileContact);
+            if (previous != null && previous.getId() == id) changes.publish(ChangeType.UPDATE, id, mobileContact);
+            return previous;
+        } finally {
+            locks.unlock(held);
+        }
+    }
+
+    @Override
+    public List<WriteStatus> insertAll(List<MobileContact> mobileContacts) {
+        locks.lockAll();
+        try {
+            List<WriteStatus> statuses = delegate.insertAll(mobileContacts);
+            for (int i = 0; i < statuses.size(); i++) {
+                MobileContact mobileContact = mobileContacts.get(i);
+                if (statuses.get(i) == WriteStatus.OK) changes.publish(ChangeType.INSERT, mobileContact.getId(), mobileContact);
+            }
+            return statuses;
+        } finally {
+            locks.unlockAll();
+        }
+    }
+
+    @Override
+    public List<WriteStatus> updateAll(List<MobileContact> mobileContacts) {
+        locks.lockAll();
+        try {
+            List<WriteStatus> statuses = delegate.updateAll(mobileContacts);
+            for (int i = 0; i < statuses.size(); i++) {
+                MobileContact mobileContact = mobileContacts.get(i);
+                if (statuses.get(i) == WriteStatus.OK) changes.publish(ChangeType.UPDATE, mobileContact.getId(), mobileContact);
+            }
+            return statuses;
+        } finally {
+            locks.unlockAll();
+        }
+    }
+
+    @Override
+    public List<WriteStatus> deleteAllById(List<Long> ids) {
+        locks.lockAll();
+        try {
+            List<MobileContact> removed = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                removed.add(id == null ? null : delegate.get(id));
+            }
+            List<WriteStatus> statuses = delegate.deleteAllById(ids);
+            for (int i = 0; i < statuses.size(); i++) {
+                if (statuses.get(i) == WriteStatus.OK) changes.publish(ChangeType.DELETE, ids.get(i), removed.get(i));
+            }
+            return statuses;
+        } finally {
+            locks.unlockAll();
+        }
+    }
+
+    @Override
+    public List<WriteStatus> deleteAllByPhoneNumber(List<String> phoneNumbers) {
+        locks.lockAll();
+        try {
+            List<MobileContact> owners = new ArrayList<>(phoneNumbers.size());
+            for (String phoneNumber : phoneNumbers) {
+                owners.add(delegate.get(phoneNumber));
+            }
+            List<WriteStatus> statuses = delegate.deleteAllByPhoneNumber(phoneNumbers);
+            for (int i = 0; i < statuses.size(); i++) {
+                MobileContact owner = owners.get(i);
+                if (statuses.get(i) == WriteStatus.OK) changes.publish(ChangeType.DELETE, owner.getId(), owner);
+            }
+            return statuses;
+        } finally {
+            locks.unlockAll();
+        }
+    }
+
+    @Override
+    public List<MobileContact> deleteContactsByUser(long userDetailsId) {
+        locks.lockAll();
+        try {
+            List<MobileContact> removed = delegate.deleteContactsByUser(userDetailsId);
+            for (MobileContact mobileContact : removed) {
+                changes.publish(ChangeType.DELETE, mobileContact.getId(), mobileContact);
+            }
+            return removed;
+        } finally {
+            locks.unlockAll();
+        }
+    }
+}
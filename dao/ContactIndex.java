@@ -0,0 +1,37 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+
+/**
+ * The lookups an {@link IMobileContactDAO} answers from an index instead of
+ * a scan over all the contacts, as reported by {@link IMobileContactDAO#getIndexes()}
+ */
+public enum ContactIndex {
+
+    /**
+     * {@link IMobileContactDAO#get(long)} and {@link IMobileContactDAO#userIdExist(long)}
+     */
+    ID,
+
+    /**
+     * {@link IMobileContactDAO#get(String)} and {@link IMobileContactDAO#phoneNumberExists(String)}
+     */
+    PHONE_NUMBER,
+
+    /**
+     * {@link IMobileContactDAO#findByPhonePrefix(String, int)}, which then also
+     * returns the {@link MobileContact} instances in ascending phone number order
+     */
+    PHONE_PREFIX,
+
+    /**
+     * {@link IMobileContactDAO#getContactsByUser(long)}, by the id of the {@link UserDetails}
+     */
+    USER_DETAILS_ID,
+
+    /**
+     * {@link IMobileContactDAO#getPage(Long, int)}, in time proportional to the page size
+     */
+    ID_ORDER
+}
@@ -0,0 +1,56 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of {@link MobileContact} instances in ascending id order.
+ * The cursor of the next page is the id of the last contact of this page,
+ * so paging stays stable while contacts are inserted or removed
+ */
+public class ContactPage {
+
+    private final List<MobileContact> contacts;
+    private final Long nextCursor;
+
+    public ContactPage(List<MobileContact> contacts, Long nextCursor) {
+        this.contacts = Collections.unmodifiableList(contacts);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<MobileContact> getContacts() {
+        return contacts;
+    }
+
+    /**
+     * Returns the cursor to be passed to get the next page
+     * @return
+     *          the id of the last contact of this page, or null
+     *          if this is the last page
+     */
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    /**
+     * Builds a page out of at most pageSize + 1 contacts in ascending id
+     * order; the extra contact only tells whether a next page exists
+     * @param contacts
+     *                  the contacts read after the cursor
+     * @param pageSize
+     *                  the requested page size
+     * @return
+     *          the resulting {@link ContactPage}
+     */
+    static ContactPage of(List<MobileContact> contacts, int pageSize) {
+        if (contacts.size() <= pageSize) return new ContactPage(contacts, null);
+        List<MobileContact> page = contacts.subList(0, pageSize);
+        return new ContactPage(page, page.get(pageSize - 1).getId());
+    }
+}
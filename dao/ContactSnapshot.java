@@ -0,0 +1,41 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Immutable view of the {@link MobileContact} instances of a datasource at one
+ * point in time. Writes made after the snapshot was taken are not seen, so a
+ * long scan or export reads a consistent set of contacts while writes go on
+ */
+public interface ContactSnapshot extends Iterable<MobileContact> {
+
+    /**
+     * Returns the version of the datasource the snapshot was taken at
+     * @return
+     *          a number that grows with every write, so two snapshots of the same
+     *          version hold the same contacts, or -1 if the datasource does not
+     *          keep versions
+     */
+    long getVersion();
+
+    int size();
+
+    /**
+     *Returns the {@link MobileContact} with the input id, as of the snapshot
+     * @param id
+     *          the {@link MobileContact} 's id to be returned
+     * @return
+     *          null if the Mobile Contact did not exist when the snapshot was taken
+     */
+    MobileContact get(long id);
+
+    Stream<MobileContact> stream();
+
+    /**
+     * Returns the contacts of the snapshot in a new list
+     */
+    List<MobileContact> toList();
+}
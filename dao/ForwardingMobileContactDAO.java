@@ -0,0 +1,154 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Base class of the decorators of {@link IMobileContactDAO}.
+ * Every operation, including the ones with a default implementation,
+ * is forwarded to the decorated DAO, so subclasses only override the
+ * operations they need to intercept and keep the optimized
+ * implementations of the decorated DAO for the rest
+ */
+public abstract class ForwardingMobileContactDAO implements IMobileContactDAO {
+
+    protected final IMobileContactDAO delegate;
+
+    protected ForwardingMobileContactDAO(IMobileContactDAO delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public MobileContact insert(MobileContact mobileContact) {
+        return delegate.insert(mobileContact);
+    }
+
+    @Override
+    public MobileContact update(long id, MobileContact mobileContact) {
+        return delegate.update(id, mobileContact);
+    }
+
+    @Override
+    public void delete(long id) {
+        delegate.delete(id);
+    }
+
+    @Override
+    public void delete(String phoneNumber) {
+        delegate.delete(phoneNumber);
+    }
+
+    @Override
+    public MobileContact remove(long id) {
+        return delegate.remove(id);
+    }
+
+    @Override
+    public MobileContact remove(String phoneNumber) {
+        return delegate.remove(phoneNumber);
+    }
+
+    @Override
+    public MobileContact get(long id) {
+        return delegate.get(id);
+    }
+
+    @Override
+    public MobileContact get(String phoneNumber) {
+        return delegate.get(phoneNumber);
+    }
+
+    @Override
+    public List<MobileContact> getAll() {
+        return delegate.getAll();
+    }
+
+    @Override
+    public ContactPage getPage(Long cursor, int pageSize) {
+        return delegate.getPage(cursor, pageSize);
+    }
+
+    @Override
+    public Stream<MobileContact> stream() {
+        return delegate.stream();
+    }
+
+    @Override
+    public ContactSnapshot snapshot() {
+        return delegate.snapshot();
+    }
+
+    @Override
+    public List<MobileContact> findByPhonePrefix(String prefix, int limit) {
+        return delegate.findByPhonePrefix(prefix, limit);
+    }
+
+    @Override
+    public List<MobileContact> searchByName(String query, int limit) {
+        return delegate.searchByName(query, limit);
+    }
+
+    @Override
+    public List<MobileContact> findAll(Predicate<? super MobileContact> predicate) {
+        return delegate.findAll(predicate);
+    }
+
+    @Override
+    public Set<ContactIndex> getIndexes() {
+        return delegate.getIndexes();
+    }
+
+    @Override
+    public List<MobileContact> getContactsByUser(long userDetailsId) {
+        return delegate.getContactsByUser(userDetailsId);
+    }
+
+    @Override
+    public List<MobileContact> deleteContactsByUser(long userDetailsId) {
+        return delegate.deleteContactsByUser(userDetailsId);
+    }
+
+    @Override
+    public boolean phoneNumberExists(String phoneNumber) {
+        return delegate.phoneNumberExists(phoneNumber);
+    }
+
+    @Override
+    public boolean userIdExist(long id) {
+        return delegate.userIdExist(id);
+    }
+
+    @Override
+    public MobileContact insertIfAbsent(MobileContact mobileContact) {
+        return delegate.insertIfAbsent(mobileContact);
+    }
+
+    @Override
+    public MobileContact replaceIfPresent(long id, MobileContact mobileContact) {
+        return delegate.replaceIfPresent(id, mobileContact);
+    }
+
+    @Override
+    public List<WriteStatus> insertAll(List<MobileContact> mobileContacts) {
+        return delegate.insertAll(mobileContacts);
+    }
+
+    @Override
+    public List<WriteStatus> updateAll(List<MobileContact> mobileContacts) {
+        return delegate.updateAll(mobileContacts);
+    }
+
+    @Override
+    public List<WriteStatus> deleteAllById(List<Long> ids) {
+        return delegate.deleteAllById(ids);
+    }
+
+    @Override
+    public List<WriteStatus> deleteAllByPhoneNumber(List<String> phoneNumbers) {
+        return delegate.deleteAllByPhoneNumber(phoneNumbers);
+    }
+}
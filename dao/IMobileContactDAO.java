@@ -1,8 +1,18 @@
 package gr.aueb.mobileapp.dao;
 
 import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public interface IMobileContactDAO {
 
@@ -41,6 +51,36 @@ public interface IMobileContactDAO {
      */
     void delete(String phoneNumber);
 
+    /**
+     *Removes a {@link MobileContact} from the Datasource based on the id
+     * and returns it, so callers need a single lookup to know
+     * whether something was removed
+     * @param id
+     *          the id of the {@link MobileContact} needed to be removed
+     * @return
+     *          the removed {@link MobileContact} or null if the id does not exist
+     */
+    default MobileContact remove(long id) {
+        MobileContact mobileContact = get(id);
+        if (mobileContact != null) delete(id);
+        return mobileContact;
+    }
+
+    /**
+     *Removes a {@link MobileContact} from the Datasource based on the phoneNumber
+     * and returns it, so callers need a single lookup to know
+     * whether something was removed
+     * @param phoneNumber
+     *                  the phoneNumber of the {@link MobileContact} needed to be removed
+     * @return
+     *          the removed {@link MobileContact} or null if the phone number does not exist
+     */
+    default MobileContact remove(String phoneNumber) {
+        MobileContact mobileContact = get(phoneNumber);
+        if (mobileContact != null) delete(phoneNumber);
+        return mobileContact;
+    }
+
     /**
      * Returns a {@link MobileContact} from the datasource based on the input id
      * @param id
@@ -66,6 +106,155 @@ public interface IMobileContactDAO {
      */
     List<MobileContact> getAll();
 
+    /**
+     *Returns one page of {@link MobileContact} instances in ascending id order
+     * @param cursor
+     *              the id after which the page starts, as returned by
+     *              {@link ContactPage#getNextCursor()}, or null for the first page
+     * @param pageSize
+     *              the maximum number of {@link MobileContact} instances of the page
+     * @return
+     *          the resulting {@link ContactPage}
+     */
+    default ContactPage getPage(Long cursor, int pageSize) {
+        if (pageSize <= 0) throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+
+        Comparator<MobileContact> byId = Comparator.comparingLong(MobileContact::getId);
+        PriorityQueue<MobileContact> smallest = new PriorityQueue<>(byId.reversed());
+        for (Iterator<MobileContact> contacts = stream().iterator(); contacts.hasNext(); ) {
+            MobileContact mobileContact = contacts.next();
+            if (cursor != null && mobileContact.getId() <= cursor) continue;
+            smallest.add(mobileContact);
+            if (smallest.size() > pageSize + 1) smallest.poll();
+        }
+
+        List<MobileContact> contacts = new ArrayList<>(smallest);
+        contacts.sort(byId);
+        return ContactPage.of(contacts, pageSize);
+    }
+
+    /**
+     *Returns a lazy {@link Stream} over all the {@link MobileContact} instances
+     * of the datasource, without building the full result in memory
+     * @return
+     *          the resulting {@link Stream}, which may be made parallel
+     */
+    default Stream<MobileContact> stream() {
+        return getAll().stream();
+    }
+
+    /**
+     *Returns an immutable, point-in-time view of all the {@link MobileContact}
+     * instances of the datasource, which later writes do not change
+     * @return
+     *          the resulting {@link ContactSnapshot}; unless the datasource
+     *          keeps versions, it holds a copy of {@link #getAll()}
+     */
+    default ContactSnapshot snapshot() {
+        return new ListContactSnapshot(-1, List.copyOf(getAll()));
+    }
+
+
+    /**
+     *Returns the {@link MobileContact} instances whose phone number starts with the prefix
+     * @param prefix
+     *              the phone number prefix, e.g. an area code
+     * @param limit
+     *              the maximum number of results
+     * @return
+     *          at most limit matching {@link MobileContact} instances
+     */
+    default List<MobileContact> findByPhonePrefix(String prefix, int limit) {
+        List<MobileContact> result = new ArrayList<>();
+        for (Iterator<MobileContact> contacts = stream().iterator(); contacts.hasNext(); ) {
+            MobileContact mobileContact = contacts.next();
+            if (result.size() >= limit) break;
+            if (mobileContact.getPhoneNumber().startsWith(prefix)) result.add(mobileContact);
+        }
+        return result;
+    }
+
+    /**
+     *Returns the {@link MobileContact} instances whose first or last name
+     * contains one of the words of the query, ignoring case
+     * @param query
+     *              one or more names, e.g. "alice wonder"
+     * @param limit
+     *              the maximum number of results
+     * @return
+     *          at most limit matching {@link MobileContact} instances
+     */
+    default List<MobileContact> searchByName(String query, int limit) {
+        List<MobileContact> result = new ArrayList<>();
+        Set<String> queryTokens = NameSearchIndex.tokenize(query);
+        for (Iterator<MobileContact> contacts = stream().iterator(); contacts.hasNext(); ) {
+            MobileContact mobileContact = contacts.next();
+            if (result.size() >= limit) break;
+            UserDetails userDetails = mobileContact.getUserDetails();
+            if (userDetails == null) continue;
+            Set<String> tokens = NameSearchIndex.tokenize(userDetails.getFirstname() + " " + userDetails.getLastname());
+            for (String queryToken : queryTokens) {
+                if (tokens.stream().anyMatch(token -> token.contains(queryToken))) {
+                    result.add(mobileContact);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     *Returns every {@link MobileContact} instance that matches a condition
+     * @param predicate
+     *                  the condition, which may be tested from several threads at once
+     * @return
+     *          the matching {@link MobileContact} instances, in no particular order
+     */
+    default List<MobileContact> findAll(Predicate<? super MobileContact> predicate) {
+        return stream().filter(predicate).collect(Collectors.toList());
+    }
+
+    /**
+     *Returns every {@link MobileContact} instance of a person, based on the id
+     * of its {@link UserDetails}. Indexed implementations answer in time
+     * proportional to the number of matches
+     * @param userDetailsId
+     *                      the id of the User Details
+     * @return
+     *          the matching {@link MobileContact} instances, empty if there are none
+     */
+    default List<MobileContact> getContactsByUser(long userDetailsId) {
+        return findAll(mobileContact -> mobileContact.getUserDetails() != null
+                && mobileContact.getUserDetails().getId() == userDetailsId);
+    }
+
+    /**
+     *Removes every {@link MobileContact} instance of a person, based on the id
+     * of its {@link UserDetails}. Each contact is removed on its own, so a
+     * contact inserted for the person meanwhile may be left in place
+     * @param userDetailsId
+     *                      the id of the User Details
+     * @return
+     *          the removed {@link MobileContact} instances, empty if there were none
+     */
+    default List<MobileContact> deleteContactsByUser(long userDetailsId) {
+        List<MobileContact> removed = new ArrayList<>();
+        for (MobileContact mobileContact : getContactsByUser(userDetailsId)) {
+            MobileContact current = remove(mobileContact.getId());
+            if (current != null) removed.add(current);
+        }
+        return removed;
+    }
+
+    /**
+     *Returns the lookups this implementation answers from an index rather
+     * than a scan, so that callers such as a query planner can choose among them
+     * @return
+     *          the indexed lookups, empty if every lookup scans
+     */
+    default Set<ContactIndex> getIndexes() {
+        return EnumSet.noneOf(ContactIndex.class);
+    }
 
     /**
      *Checks if the phone number already exists in the datasource
@@ -88,4 +277,117 @@ public interface IMobileContactDAO {
      *          in datasource
      */
     boolean userIdExist(long id);
+
+    /**
+     *Inserts a {@link MobileContact} only if neither its id nor its
+     * phone number are already present in the datasource. The check
+     * and the insert happen as one atomic step for implementations
+     * that are safe for concurrent use
+     * @param mobileContact
+     *                      the gr.aueb.mobileapp.model that contains the mobile data
+     * @return
+     *          null if the {@link MobileContact} was inserted, otherwise the
+     *          existing {@link MobileContact} that holds the phone number or the id
+     */
+    default MobileContact insertIfAbsent(MobileContact mobileContact) {
+        MobileContact existing = get(mobileContact.getPhoneNumber());
+        if (existing == null) existing = get(mobileContact.getId());
+        if (existing != null) return existing;
+
+        insert(mobileContact);
+        return null;
+    }
+
+    /**
+     *Replaces the {@link MobileContact} with the input id only if it is
+     * present and its new phone number does not belong to another
+     * {@link MobileContact}. The check and the replacement happen as one
+     * atomic step for implementations that are safe for concurrent use
+     * @param id
+     *          id of the Mobile Contact that we want to replace
+     * @param mobileContact
+     *                      the gr.aueb.mobileapp.model that contains the mobile data
+     * @return
+     *          the replaced {@link MobileContact}, null if the id does not exist, or
+     *          the {@link MobileContact} that already owns the phone number (its id
+     *          differs from the input id) in which case nothing is replaced
+     */
+    default MobileContact replaceIfPresent(long id, MobileContact mobileContact) {
+        if (id != mobileContact.getId()) return null;
+        MobileContact previous = get(id);
+        if (previous == null) return null;
+
+        MobileContact owner = get(mobileContact.getPhoneNumber());
+        if (owner != null && owner.getId() != id) return owner;
+
+        update(id, mobileContact);
+        return previous;
+    }
+
+    /**
+     *Inserts a batch of {@link MobileContact} instances. Each item is inserted
+     * only if neither its id nor its phone number exist, including the items
+     * that precede it in the same batch
+     * @param mobileContacts
+     *                      the batch of Mobile Contacts to be inserted
+     * @return
+     *          the {@link WriteStatus} of each item, in the order of the batch
+     */
+    default List<WriteStatus> insertAll(List<MobileContact> mobileContacts) {
+        List<WriteStatus> statuses = new ArrayList<>(mobileContacts.size());
+        for (MobileContact mobileContact : mobileContacts) {
+            statuses.add(WriteStatus.ofInsert(mobileContact, insertIfAbsent(mobileContact)));
+        }
+        return statuses;
+    }
+
+    /**
+     *Replaces a batch of {@link MobileContact} instances, each one based on its own id
+     * @param mobileContacts
+     *                      the batch of Mobile Contacts to be replaced
+     * @return
+     *          the {@link WriteStatus} of each item, in the order of the batch
+     */
+    default List<WriteStatus> updateAll(List<MobileContact> mobileContacts) {
+        List<WriteStatus> statuses = new ArrayList<>(mobileContacts.size());
+        for (MobileContact mobileContact : mobileContacts) {
+            statuses.add(WriteStatus.ofReplace(mobileContact.getId(),
+                    replaceIfPresent(mobileContact.getId(), mobileContact)));
+        }
+        return statuses;
+    }
+
+    /**
+     *Removes a batch of {@link MobileContact} instances based on their ids
+     * @param ids
+     *          the ids of the Mobile Contacts to be removed
+     * @return
+     *          the {@link WriteStatus} of each id, in the order of the batch; INVALID for a null id
+     */
+    default List<WriteStatus> deleteAllById(List<Long> ids) {
+        List<WriteStatus> statuses = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            if (id == null) {
+                statuses.add(WriteStatus.INVALID);
+                continue;
+            }
+            statuses.add(remove(id) != null ? WriteStatus.OK : WriteStatus.NOT_FOUND);
+        }
+        return statuses;
+    }
+
+    /**
+     *Removes a batch of {@link MobileContact} instances based on their phone numbers
+     * @param phoneNumbers
+     *                  the phone numbers of the Mobile Contacts to be removed
+     * @return
+     *          the {@link WriteStatus} of each phone number, in the order of the batch
+     */
+    default List<WriteStatus> deleteAllByPhoneNumber(List<String> phoneNumbers) {
+        List<WriteStatus> statuses = new ArrayList<>(phoneNumbers.size());
+        for (String phoneNumber : phoneNumbers) {
+            statuses.add(remove(phoneNumber) != null ? WriteStatus.OK : WriteStatus.NOT_FOUND);
+        }
+        return statuses;
+    }
 }
@@ -0,0 +1,398 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.metrics.MetricsRegistry;
+import gr.aueb.mobileapp.metrics.OperationMetrics;
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Decorator of {@link IMobileContactDAO} that records the latency of every
+ * operation and counts the calls that succeed and the exceptions thrown, by type.
+ * The metrics are named "dao." followed by the operation, e.g. "dao.getById";
+ * {@link #stream()} measures the creation of the stream, not its consumption
+ */
+public class InstrumentedMobileContactDAO extends ForwardingMobileContactDAO {
+
+    private static final String PREFIX = "dao.";
+
+    private final OperationMetrics insert;
+    private final OperationMetrics update;
+    private final OperationMetrics deleteById;
+    private final OperationMetrics deleteByPhoneNumber;
+    private final OperationMetrics removeById;
+    private final OperationMetrics removeByPhoneNumber;
+    private final OperationMetrics getById;
+    private final OperationMetrics getByPhoneNumber;
+    private final OperationMetrics getAll;
+    private final OperationMetrics getPage;
+    private final OperationMetrics stream;
+    private final OperationMetrics snapshot;
+    private final OperationMetrics findByPhonePrefix;
+    private final OperationMetrics searchByName;
+    private final OperationMetrics findAll;
+    private final OperationMetrics getContactsByUser;
+    private final OperationMetrics deleteContactsByUser;
+    private final OperationMetrics phoneNumberExists;
+    private final OperationMetrics userIdExist;
+    private final OperationMetrics insertIfAbsent;
+    private final OperationMetrics replaceIfPresent;
+    private final OperationMetrics insertAll;
+    private final OperationMetrics updateAll;
+    private final OperationMetrics deleteAllById;
+    private final OperationMetrics deleteAllByPhoneNumber;
+
+    public InstrumentedMobileContactDAO(IMobileContactDAO delegate, MetricsRegistry registry) {
+        super(delegate);
+        insert = registry.operation(PREFIX + "insert");
+        update = registry.operation(PREFIX + "update");
+        deleteById = registry.operation(PREFIX + "deleteById");
+        deleteByPhoneNumber = registry.operation(PREFIX + "deleteByPhoneNumber");
+        removeById = registry.operation(PREFIX + "removeById");
+        removeByPhoneNumber = registry.operation(PREFIX + "removeByPhoneNumber");
+        getById = registry.operation(PREFIX + "getById");
+        getByPhoneNumber = registry.operation(PREFIX + "getByPhoneNumber");
+        getAll = registry.operation(PREFIX + "getAll");
+        getPage = registry.operation(PREFIX + "getPage");
+        stream = registry.operation(PREFIX + "stream");
+        snapshot = registry.operation(PREFIX + "snapshot");
+        findByPhonePrefix = registry.operation(PREFIX + "findByPhonePrefix");
+        searchByName = registry.operation(PREFIX + "searchByName");
+        findAll = registry.operation(PREFIX + "findAll");
+        getContactsByUser = registry.operation(PREFIX + "getContactsByUser");
+        deleteContactsByUser = registry.operation(PREFIX + "deleteContactsByUser");
+        phoneNumberExists = registry.operation(PREFIX + "phoneNumberExists");
+        userIdExist = registry.operation(PREFIX + "userIdExist");
+        insertIfAbsent = registry.operation(PREFIX + "insertIfAbsent");
+        replaceIfPresent = registry.operation(PREFIX + "replaceIfPresent");
+        insertAll = registry.operation(PREFIX + "insertAll");
+        updateAll = registry.operation(PREFIX + "updateAll");
+        deleteAllById = registry.operation(PREFIX + "deleteAllById");
+        deleteAllByPhoneNumber = registry.operation(PREFIX + "deleteAllByPhoneNumber");
+    }
+
+    @Override
+    public MobileContact insert(MobileContact mobileContact) {
+        long start = System.nanoTime();
+        try {
+            MobileContact result = delegate.insert(mobileContact);
+            insert.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            insert.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public MobileContact update(long id, MobileContact mobileContact) {
+        long start = System.nanoTime();
+        try {
+            MobileContact result = delegate.update(id, mobileContact);
+            update.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            update.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void delete(long id) {
+        long start = System.nanoTime();
+        try {
+            delegate.delete(id);
+            deleteById.recordSuccess(System.nanoTime() - start);
+        } catch (RuntimeException e) {
+            deleteById.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void delete(String phoneNumber) {
+        long start = System.nanoTime();
+        try {
+            delegate.delete(phoneNumber);
+            deleteByPhoneNumber.recordSuccess(System.nanoTime() - start);
+        } catch (RuntimeException e) {
+            deleteByPhoneNumber.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public MobileContact remove(long id) {
+        long start = System.nanoTime();
+        try {
+            MobileContact result = delegate.remove(id);
+            removeById.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            removeById.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public MobileContact remove(String phoneNumber) {
+        long start = System.nanoTime();
+        try {
+            MobileContact result = delegate.remove(phoneNumber);
+            removeByPhoneNumber.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            removeByPhoneNumber.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public MobileContact get(long id) {
+        long start = System.nanoTime();
+        try {
+            MobileContact result = delegate.get(id);
+            getById.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            getById.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public MobileContact get(String phoneNumber) {
+        long start = System.nanoTime();
+        try {
+            MobileContact result = delegate.get(phoneNumber);
+            getByPhoneNumber.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            getByPhoneNumber.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<MobileContact> getAll() {
+        long start = System.nanoTime();
+        try {
+            List<MobileContact> result = delegate.getAll();
+            getAll.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            getAll.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public ContactPage getPage(Long cursor, int pageSize) {
+        long start = System.nanoTime();
+        try {
+            ContactPage result = delegate.getPage(cursor, pageSize);
+            getPage.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            getPage.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Stream<MobileContact> stream() {
+        long start = System.nanoTime();
+        try {
+            Stream<MobileContact> result = delegate.stream();
+            stream.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            stream.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public ContactSnapshot snapshot() {
+        long start = System.nanoTime();
+        try {
+            ContactSnapshot result = delegate.snapshot();
+            snapshot.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            snapshot.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<MobileContact> findByPhonePrefix(String prefix, int limit) {
+        long start = System.nanoTime();
+        try {
+            List<MobileContact> result = delegate.findByPhonePrefix(prefix, limit);
+            findByPhonePrefix.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            findByPhonePrefix.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<MobileContact> searchByName(String query, int limit) {
+        long start = System.nanoTime();
+        try {
+            List<MobileContact> result = delegate.searchByName(query, limit);
+            searchByName.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            searchByName.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<MobileContact> findAll(Predicate<? super MobileContact> predicate) {
+        long start = System.nanoTime();
+        try {
+            List<MobileContact> result = delegate.findAll(predicate);
+            findAll.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            findAll.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<MobileContact> getContactsByUser(long userDetailsId) {
+        long start = System.nanoTime();
+        try {
+            List<MobileContact> result = delegate.getContactsByUser(userDetailsId);
+            getContactsByUser.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            getContactsByUser.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<MobileContact> deleteContactsByUser(long userDetailsId) {
+        long start = System.nanoTime();
+        try {
+            List<MobileContact> result = delegate.deleteContactsByUser(userDetailsId);
+            deleteContactsByUser.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            deleteContactsByUser.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean phoneNumberExists(String phoneNumber) {
+        long start = System.nanoTime();
+        try {
+            boolean result = delegate.phoneNumberExists(phoneNumber);
+            phoneNumberExists.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            phoneNumberExists.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean userIdExist(long id) {
+        long start = System.nanoTime();
+        try {
+            boolean result = delegate.userIdExist(id);
+            userIdExist.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            userIdExist.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public MobileContact insertIfAbsent(MobileContact mobileContact) {
+        long start = System.nanoTime();
+        try {
+            MobileContact result = delegate.insertIfAbsent(mobileContact);
+            insertIfAbsent.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            insertIfAbsent.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public MobileContact replaceIfPresent(long id, MobileContact mobileContact) {
+        long start = System.nanoTime();
+        try {
+            MobileContact result = delegate.replaceIfPresent(id, mobileContact);
+            replaceIfPresent.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            replaceIfPresent.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<WriteStatus> insertAll(List<MobileContact> mobileContacts) {
+        long start = System.nanoTime();
+        try {
+            List<WriteStatus> result = delegate.insertAll(mobileContacts);
+            insertAll.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            insertAll.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<WriteStatus> updateAll(List<MobileContact> mobileContacts) {
+        long start = System.nanoTime();
+        try {
+            List<WriteStatus> result = delegate.updateAll(mobileContacts);
+            updateAll.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            updateAll.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<WriteStatus> deleteAllById(List<Long> ids) {
+        long start = System.nanoTime();
+        try {
+            List<WriteStatus> result = delegate.deleteAllById(ids);
+            deleteAllById.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            deleteAllById.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<WriteStatus> deleteAllByPhoneNumber(List<String> phoneNumbers) {
+        long start = System.nanoTime();
+        try {
+            List<WriteStatus> result = delegate.deleteAllByPhoneNumber(phoneNumbers);
+            deleteAllByPhoneNumber.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            deleteAllByPhoneNumber.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+}
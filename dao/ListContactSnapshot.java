@@ -0,0 +1,59 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * {@link ContactSnapshot} over a list that is never changed again
+ */
+final class ListContactSnapshot implements ContactSnapshot {
+
+    private final long version;
+    private final List<MobileContact> contacts;
+
+    /**
+     * @param contacts
+     *                  a list that nobody changes any more
+     */
+    ListContactSnapshot(long version, List<MobileContact> contacts) {
+        this.version = version;
+        this.contacts = contacts;
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public int size() {
+        return contacts.size();
+    }
+
+    @Override
+    public MobileContact get(long id) {
+        for (MobileContact mobileContact : contacts) {
+            if (mobileContact.getId() == id) return mobileContact;
+        }
+        return null;
+    }
+
+    @Override
+    public Stream<MobileContact> stream() {
+        return contacts.stream();
+    }
+
+    @Override
+    public List<MobileContact> toList() {
+        return new ArrayList<>(contacts);
+    }
+
+    @Override
+    public Iterator<MobileContact> iterator() {
+        return contacts.iterator();
+    }
+}
@@ -0,0 +1,74 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.dao.persistent.PersistentLongMap;
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link ContactSnapshot} over a version of a {@link PersistentLongMap} keyed by id.
+ * Taking the next version copies only the path to the changed id, so a snapshot
+ * costs nothing to keep and nothing to take
+ */
+final class MapContactSnapshot implements ContactSnapshot {
+
+    static final MapContactSnapshot EMPTY = new MapContactSnapshot(0, PersistentLongMap.empty());
+
+    private final long version;
+    private final PersistentLongMap<MobileContact> contactsById;
+
+    private MapContactSnapshot(long version, PersistentLongMap<MobileContact> contactsById) {
+        this.version = version;
+        this.contactsById = contactsById;
+    }
+
+    /**
+     * Returns the next version, with the contact stored under its id
+     */
+    MapContactSnapshot with(MobileContact mobileContact) {
+        return new MapContactSnapshot(version + 1, contactsById.with(mobileContact.getId(), mobileContact));
+    }
+
+    /**
+     * Returns the next version, without the id
+     */
+    MapContactSnapshot without(long id) {
+        return new MapContactSnapshot(version + 1, contactsById.without(id));
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public int size() {
+        return contactsById.size();
+    }
+
+    @Override
+    public MobileContact get(long id) {
+        return contactsById.get(id);
+    }
+
+    @Override
+    public Stream<MobileContact> stream() {
+        return StreamSupport.stream(contactsById.spliterator(), false);
+    }
+
+    @Override
+    public List<MobileContact> toList() {
+        List<MobileContact> contacts = new ArrayList<>(contactsById.size());
+        contactsById.forEach(contacts::add);
+        return contacts;
+    }
+
+    @Override
+    public Iterator<MobileContact> iterator() {
+        return contactsById.iterator();
+    }
+}
@@ -0,0 +1,667 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Thread safe implementation of {@link IMobileContactDAO}.
+ * Reads go straight to lock-free concurrent maps. Writes lock only
+ * the stripes that own the ids and phone numbers they touch, so
+ * writers on unrelated contacts never wait for each other and the
+ * uniqueness of ids and phone numbers holds under concurrent use.
+ * Every write also publishes, under the stripe of its id, a new version of
+ * the persistent map of that stripe, which {@link #snapshot()}, {@link #getAll()}
+ * and {@link #stream()} read, so writers on different stripes do not contend
+ * on a shared version either.
+ */
+public class MobileContactConcurrentDAOImpl implements IMobileContactDAO {
+
+    //Storage
+    private final ConcurrentMap<Long, MobileContact> contactsById = new ConcurrentHashMap<>();
+
+    //Primary index on phone number
+    private final ConcurrentMap<String, MobileContact> contactsByPhoneNumber = new ConcurrentHashMap<>();
+
+    //Ordered index on id for paging
+    private final ConcurrentNavigableMap<Long, MobileContact> contactsInIdOrder = new ConcurrentSkipListMap<>();
+
+    //Ordered index for phone number prefix searches
+    private final PhonePrefixIndex phonePrefixIndex = new PhonePrefixIndex();
+
+    //Inverted index for name searches
+    private final NameSearchIndex nameSearchIndex = new NameSearchIndex();
+
+    //Multi-valued index from the id of the User Details to their contacts
+    private final UserContactsIndex userContactsIndex = new UserContactsIndex();
+
+    //Persistent copy of the id map per stripe, replaced with a new version by every write to the stripe
+    private final AtomicReferenceArray<MapContactSnapshot> versions;
+
+    private static final int SNAPSHOT_ATTEMPTS = 4;
+
+    //Every change of a key in the maps above happens while holding the stripe of that key
+    private final StripedLocks stripes;
+
+    public MobileContactConcurrentDAOImpl() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public MobileContactConcurrentDAOImpl(int concurrencyLevel) {
+        stripes = new StripedLocks(concurrencyLevel);
+        versions = new AtomicReferenceArray<>(stripes.size());
+        for (int i = 0; i < stripes.size(); i++) {
+            versions.set(i, MapContactSnapshot.EMPTY);
+        }
+    }
+
+    /**
+     *Insert a new {@link MobileContact} instance in the Datasource
+     * @param mobileContact
+     *                      the gr.aueb.mobileapp.model that contains mobile data
+     * @return
+     *          the added {@link MobileContact} or null if its id or
+     *          phone number already exists
+     */
+    @Override
+    public MobileContact insert(MobileContact mobileContact) {
+
+        if (mobileContact == null) return null;
+        return insertIfAbsent(mobileContact) == null ? mobileContact : null;
+    }
+
+    /**
+     * Update a {@link MobileContact} instance based on the id
+     * @param id
+     *          id of the {@link MobileContact} instance that we want to update
+     * @param mobileContact
+     *                      the gr.aueb.mobileapp.model that contains the mobile data
+     *
+     * @return
+     *          the updated {@link MobileContact} or null if the id does not exist
+     *          or the new phone number belongs to another {@link MobileContact}
+     */
+    @Override
+    public MobileContact update(long id, MobileContact mobileContact) {
+
+        MobileContact previous = replaceIfPresent(id, mobileContact);
+        if (previous == null || previous.getId() != id) return null;
+        return mobileContact;
+    }
+
+    /**
+     *Removes a {@link MobileContact} from the Datasource based on the id
+     * @param id
+     *             the {@link MobileContact} 's id needed to be removed
+     */
+    @Override
+    public void delete(long id) {
+        remove(id);
+    }
+
+    /**
+     *Removes a {@link MobileContact} from the Datasource based on the phone number
+     * @param phoneNumber
+     *                  the {@link MobileContact} 's phone number needed to be removed
+     */
+    @Override
+    public void delete(String phoneNumber) {
+        remove(phoneNumber);
+    }
+
+    /**
+     *Removes a {@link MobileContact} based on the id, holding the
+     * stripes of the id and of its phone number
+     * @param id
+     *             the {@link MobileContact} 's id needed to be removed
+     * @return
+     *          the removed {@link MobileContact} or null if the id does not exist
+     */
+    @Override
+    public MobileContact remove(long id) {
+
+        while (true) {
+            MobileContact current = contactsById.get(id);
+            if (current == null) return null;
+
+            int[] held = stripes.lock(stripes.stripeOf(id), stripes.stripeOf(current.getPhoneNumber()));
+            try {
+                if (removeLocked(current)) return current;
+            } finally {
+                stripes.unlock(held);
+            }
+        }
+    }
+
+    /**
+     *Removes a {@link MobileContact} based on the phone number, holding
+     * the stripes of the phone number and of its id
+     * @param phoneNumber
+     *                  the {@link MobileContact} 's phone number needed to be removed
+     * @return
+     *          the removed {@link MobileContact} or null if the phone number does not exist
+     */
+    @Override
+    public MobileContact remove(String phoneNumber) {
+
+        while (true) {
+            MobileContact current = contactsByPhoneNumber.get(phoneNumber);
+            if (current == null) return null;
+
+            int[] held = stripes.lock(stripes.stripeOf(phoneNumber), stripes.stripeOf(current.getId()));
+            try {
+                if (contactsByPhoneNumber.get(phoneNumber) == current && removeLocked(current)) return current;
+            } finally {
+                stripes.unlock(held);
+            }
+        }
+    }
+
+    /**
+     *Returns a {@link MobileContact} from the datasource based on the input id
+     * @param id
+     *          the {@link MobileContact} 's id to be returned
+     * @return
+     *          null  if the Mobile Contact will not exist
+     */
+    @Override
+    public MobileContact get(long id) {
+        return contactsById.get(id);
+    }
+
+    /**
+     *Returns a {@link MobileContact} from the datasource based on the input phone number
+     * @param phoneNumber
+     *                  the {@link MobileContact} 's phone number to be returned
+     * @return
+     *           null  if the Mobile Contact will not exist
+     */
+    @Override
+    public MobileContact get(String phoneNumber) {
+        return contactsByPhoneNumber.get(phoneNumber);
+    }
+
+    /**
+     *Returns a copy of all the instances of the Datasource, as of a single point in time
+     * @return
+     *          all instances of the Datasource
+     */
+    @Override
+    public List<MobileContact> getAll() {
+        return Collections.unmodifiableList(snapshot().toList());
+    }
+
+    /**
+     *Returns one page of {@link MobileContact} instances read from the
+     * ordered id index, starting right after the cursor
+     * @param cursor
+     *              the id after which the page starts, or null for the first page
+     * @param pageSize
+     *              the maximum number of {@link MobileContact} instances of the page
+     * @return
+     *          the resulting {@link ContactPage}
+     */
+    @Override
+    public ContactPage getPage(Long cursor, int pageSize) {
+        if (pageSize <= 0) throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+
+        Map<Long, MobileContact> after = cursor == null ? contactsInIdOrder : contactsInIdOrder.tailMap(cursor, false);
+        List<MobileContact> contacts = new ArrayList<>(pageSize + 1);
+        for (MobileContact mobileContact : after.values()) {
+            contacts.add(mobileContact);
+            if (contacts.size() > pageSize) break;
+        }
+        return ContactPage.of(contacts, pageSize);
+    }
+
+    /**
+     *Returns a lazy {@link Stream} over the current snapshot. It never throws
+     * {@link java.util.ConcurrentModificationException} and does not see the
+     * contacts changed while streaming
+     * @return
+     *          the resulting {@link Stream}
+     */
+    @Override
+    public Stream<MobileContact> stream() {
+        return snapshot().stream();
+    }
+
+    /**
+     *Returns the current version of the Datasource. Every write publishes a new
+     * version of its stripe that shares all but a few nodes with the previous one,
+     * so a snapshot only collects the version of each stripe. The versions are
+     * read twice, and if no stripe changed in between, they all held at once;
+     * after a few attempts that concurrent writes spoil, the stripes are locked
+     * @return
+     *          the resulting {@link ContactSnapshot}
+     */
+    @Override
+    public ContactSnapshot snapshot() {
+        MapContactSnapshot[] parts = new MapContactSnapshot[versions.length()];
+        for (int attempt = 0; attempt < SNAPSHOT_ATTEMPTS; attempt++) {
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = versions.get(i);
+            }
+            if (unchanged(parts)) return new StripedContactSnapshot(parts, stripes);
+        }
+
+        stripes.lockAll();
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = versions.get(i);
+            }
+        } finally {
+            stripes.unlockAll();
+        }
+        return new StripedContactSnapshot(parts, stripes);
+    }
+
+    /**
+     *Returns the {@link MobileContact} instances whose phone number starts with
+     * the prefix, read from the ordered phone number index
+     * @param prefix
+     *              the phone number prefix, e.g. an area code
+     * @param limit
+     *              the maximum number of results
+     * @return
+     *          at most limit matching {@link MobileContact} instances
+     */
+    @Override
+    public List<MobileContact> findByPhonePrefix(String prefix, int limit) {
+        return phonePrefixIndex.find(prefix, limit);
+    }
+
+    /**
+     *Returns the {@link MobileContact} instances whose names best match the
+     * query, ranked by the name search index
+     * @param query
+     *              one or more, possibly partial or misspelled, names
+     * @param limit
+     *              the maximum number of results
+     * @return
+     *          at most limit {@link MobileContact} instances, best match first
+     */
+    @Override
+    public List<MobileContact> searchByName(String query, int limit) {
+        return nameSearchIndex.search(query, limit);
+    }
+
+    /**
+     *Returns the {@link MobileContact} instances of a person, read from the
+     * User Details index
+     * @param userDetailsId
+     *                      the id of the User Details
+     * @return
+     *          the matching {@link MobileContact} instances, empty if there are none
+     */
+    @Override
+    public List<MobileContact> getContactsByUser(long userDetailsId) {
+        return userContactsIndex.find(userDetailsId);
+    }
+
+    /**
+     *Removes the {@link MobileContact} instances of a person found in the User
+     * Details index, holding only the stripes of one contact at a time. A
+     * contact that was replaced or removed meanwhile is left alone
+     * @param userDetailsId
+     *                      the id of the User Details
+     * @return
+     *          the removed {@link MobileContact} instances, empty if there were none
+     */
+    @Override
+    public List<MobileContact> deleteContactsByUser(long userDetailsId) {
+        List<MobileContact> removed = new ArrayList<>();
+        for (MobileContact current : userContactsIndex.find(userDetailsId)) {
+            int[] held = stripes.lock(stripes.stripeOf(current.getId()), stripes.stripeOf(current.getPhoneNumber()));
+            try {
+                if (removeLocked(current)) removed.add(current);
+            } finally {
+                stripes.unlock(held);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     *Returns the lookups answered from the id and phone number hash indexes, the
+     * ordered phone number and id indexes and the User Details index
+     * @return
+     *          the indexed lookups
+     */
+    @Override
+    public Set<ContactIndex> getIndexes() {
+        return EnumSet.of(ContactIndex.ID, ContactIndex.PHONE_NUMBER, ContactIndex.PHONE_PREFIX,
+                ContactIndex.USER_DETAILS_ID, ContactIndex.ID_ORDER);
+    }
+
+    /**
+     *Checks if the phone number already exists in the phone number index
+     * @param phoneNumber
+     *                  the phone number to be searched
+     * @return
+     *          true if the phone number exists in the Datasource
+     */
+    @Override
+    public boolean phoneNumberExists(String phoneNumber) {
+        return contactsByPhoneNumber.containsKey(phoneNumber);
+    }
+
+    /**
+     *Checks if the id already exists in the Datasource
+     * @param id
+     *          the id to be searched
+     * @return
+     *          true if the id exists in the Datasource
+     */
+    @Override
+    public boolean userIdExist(long id) {
+        return contactsById.containsKey(id);
+    }
+
+    /**
+     *Atomically inserts a {@link MobileContact} if neither its id nor its
+     * phone number exist, holding only the stripes of the two keys
+     * @param mobileContact
+     *                      the gr.aueb.mobileapp.model that contains the mobile data
+     * @return
+     *          null if the {@link MobileContact} was inserted, otherwise the
+     *          existing {@link MobileContact} that holds the phone number or the id
+     */
+    @Override
+    public MobileContact insertIfAbsent(MobileContact mobileContact) {
+
+        int[] held = stripes.lock(stripes.stripeOf(mobileContact.getId()),
+                stripes.stripeOf(mobileContact.getPhoneNumber()));
+        try {
+            return insertLocked(mobileContact);
+        } finally {
+            stripes.unlock(held);
+        }
+    }
+
+    /**
+     *Atomically replaces the {@link MobileContact} with the input id,
+     * holding the stripes of the id, the old and the new phone number
+     * @param id
+     *          id of the Mobile Contact that we want to replace
+     * @param mobileContact
+     *                      the gr.aueb.mobileapp.model that contains the mobile data
+     * @return
+     *          the replaced {@link MobileContact}, null if the id does not exist, or
+     *          the {@link MobileContact} that already owns the phone number
+     */
+    @Override
+    public MobileContact replaceIfPresent(long id, MobileContact mobileContact) {
+
+        if (id != mobileContact.getId()) return null;
+
+        while (true) {
+            MobileContact previous = contactsById.get(id);
+            if (previous == null) return null;
+
+            int[] held = stripes.lock(stripes.stripeOf(id), stripes.stripeOf(mobileContact.getPhoneNumber()),
+                    stripes.stripeOf(previous.getPhoneNumber()));
+            try {
+                if (contactsById.get(id) != previous) continue;
+                return replaceLocked(previous, mobileContact);
+            } finally {
+                stripes.unlock(held);
+            }
+        }
+    }
+
+    /**
+     *Inserts a batch of {@link MobileContact} instances acquiring the stripes
+     * of all their ids and phone numbers once for the whole batch
+     * @param mobileContacts
+     *                      the batch of Mobile Contacts to be inserted
+     * @return
+     *          the {@link WriteStatus} of each item, in the order of the batch
+     */
+    @Override
+    public List<WriteStatus> insertAll(List<MobileContact> mobileContacts) {
+
+        boolean[] needed = new boolean[stripes.size()];
+        for (MobileContact mobileContact : mobileContacts) {
+            needed[stripes.stripeOf(mobileContact.getId())] = true;
+            needed[stripes.stripeOf(mobileContact.getPhoneNumber())] = true;
+        }
+
+        List<WriteStatus> statuses = new ArrayList<>(mobileContacts.size());
+        stripes.lock(needed);
+        try {
+            for (MobileContact mobileContact : mobileContacts) {
+                statuses.add(WriteStatus.ofInsert(mobileContact, insertLocked(mobileContact)));
+            }
+        } finally {
+            stripes.unlock(needed);
+        }
+        return statuses;
+    }
+
+    /**
+     *Replaces a batch of {@link MobileContact} instances acquiring the stripes
+     * of their ids, old and new phone numbers once for the whole batch.
+     * Items whose old phone number changed concurrently after the stripes
+     * were chosen are applied one by one afterwards
+     * @param mobileContacts
+     *                      the batch of Mobile Contacts to be replaced
+     * @return
+     *          the {@link WriteStatus} of each item, in the order of the batch
+     */
+    @Override
+    public List<WriteStatus> updateAll(List<MobileContact> mobileContacts) {
+
+        boolean[] needed = new boolean[stripes.size()];
+        for (MobileContact mobileContact : mobileContacts) {
+            needed[stripes.stripeOf(mobileContact.getId())] = true;
+            needed[stripes.stripeOf(mobileContact.getPhoneNumber())] = true;
+            MobileContact previous = contactsById.get(mobileContact.getId());
+            if (previous != null) needed[stripes.stripeOf(previous.getPhoneNumber())] = true;
+        }
+
+        List<WriteStatus> statuses = new ArrayList<>(mobileContacts.size());
+        List<Integer> deferred = new ArrayList<>();
+        stripes.lock(needed);
+        try {
+            for (MobileContact mobileContact : mobileContacts) {
+                MobileContact previous = contactsById.get(mobileContact.getId());
+                if (previous == null) {
+                    statuses.add(WriteStatus.NOT_FOUND);
+                } else if (!needed[stripes.stripeOf(previous.getPhoneNumber())]) {
+                    deferred.add(statuses.size());
+                    statuses.add(null);
+                } else {
+                    statuses.add(WriteStatus.ofReplace(mobileContact.getId(), replaceLocked(previous, mobileContact)));
+                }
+            }
+        } finally {
+            stripes.unlock(needed);
+        }
+
+        for (int index : deferred) {
+            MobileContact mobileContact = mobileContacts.get(index);
+            statuses.set(index, WriteStatus.ofReplace(mobileContact.getId(),
+                    replaceIfPresent(mobileContact.getId(), mobileContact)));
+        }
+        return statuses;
+    }
+
+    /**
+     *Removes a batch of {@link MobileContact} instances based on their ids
+     * acquiring the stripes of the ids and their phone numbers once
+     * @param ids
+     *          the ids of the Mobile Contacts to be removed
+     * @return
+     *          the {@link WriteStatus} of each id, in the order of the batch; INVALID for a null id
+     */
+    @Override
+    public List<WriteStatus> deleteAllById(List<Long> ids) {
+
+        boolean[] needed = new boolean[stripes.size()];
+        for (Long id : ids) {
+            if (id == null) continue;
+            needed[stripes.stripeOf(id)] = true;
+            MobileContact current = contactsById.get(id);
+            if (current != null) needed[stripes.stripeOf(current.getPhoneNumber())] = true;
+        }
+
+        List<WriteStatus> statuses = new ArrayList<>(ids.size());
+        List<Integer> deferred = new ArrayList<>();
+        stripes.lock(needed);
+        try {
+            for (Long id : ids) {
+                if (id == null) {
+                    statuses.add(WriteStatus.INVALID);
+                    continue;
+                }
+                MobileContact current = contactsById.get(id);
+                if (current == null) {
+                    statuses.add(WriteStatus.NOT_FOUND);
+                } else if (!needed[stripes.stripeOf(current.getPhoneNumber())]) {
+                    deferred.add(statuses.size());
+                    statuses.add(null);
+                } else {
+                    removeLocked(current);
+                    statuses.add(WriteStatus.OK);
+                }
+            }
+        } finally {
+            stripes.unlock(needed);
+        }
+
+        for (int index : deferred) {
+            statuses.set(index, remove(ids.get(index)) != null ? WriteStatus.OK : WriteStatus.NOT_FOUND);
+        }
+        return statuses;
+    }
+
+    /**
+     *Removes a batch of {@link MobileContact} instances based on their phone
+     * numbers acquiring the stripes of the phone numbers and their ids once
+     * @param phoneNumbers
+     *                  the phone numbers of the Mobile Contacts to be removed
+     * @return
+     *          the {@link WriteStatus} of each phone number, in the order of the batch
+     */
+    @Override
+    public List<WriteStatus> deleteAllByPhoneNumber(List<String> phoneNumbers) {
+
+        boolean[] needed = new boolean[stripes.size()];
+        for (String phoneNumber : phoneNumbers) {
+            needed[stripes.stripeOf(phoneNumber)] = true;
+            MobileContact current = contactsByPhoneNumber.get(phoneNumber);
+            if (current != null) needed[stripes.stripeOf(current.getId())] = true;
+        }
+
+        List<WriteStatus> statuses = new ArrayList<>(phoneNumbers.size());
+        List<Integer> deferred = new ArrayList<>();
+        stripes.lock(needed);
+        try {
+            for (String phoneNumber : phoneNumbers) {
+                MobileContact current = contactsByPhoneNumber.get(phoneNumber);
+                if (current == null) {
+                    statuses.add(WriteStatus.NOT_FOUND);
+                } else if (!needed[stripes.stripeOf(current.getId())]) {
+                    deferred.add(statuses.size());
+                    statuses.add(null);
+                } else {
+                    removeLocked(current);
+                    statuses.add(WriteStatus.OK);
+                }
+            }
+        } finally {
+            stripes.unlock(needed);
+        }
+
+        for (int index : deferred) {
+            statuses.set(index, remove(phoneNumbers.get(index)) != null ? WriteStatus.OK : WriteStatus.NOT_FOUND);
+        }
+        return statuses;
+    }
+
+    /**
+     * Inserts a {@link MobileContact}. The caller must hold the stripes
+     * of its id and phone number
+     */
+    private MobileContact insertLocked(MobileContact mobileContact) {
+        MobileContact existing = contactsByPhoneNumber.get(mobileContact.getPhoneNumber());
+        if (existing == null) existing = contactsById.get(mobileContact.getId());
+        if (existing != null) return existing;
+
+        contactsById.put(mobileContact.getId(), mobileContact);
+        contactsByPhoneNumber.put(mobileContact.getPhoneNumber(), mobileContact);
+        contactsInIdOrder.put(mobileContact.getId(), mobileContact);
+        phonePrefixIndex.add(mobileContact);
+        nameSearchIndex.add(mobileContact);
+        userContactsIndex.add(mobileContact);
+        publish(mobileContact.getId(), mobileContact);
+        return null;
+    }
+
+    /**
+     * Replaces the current {@link MobileContact} of an id. The caller must hold
+     * the stripes of the id, the old and the new phone number
+     */
+    private MobileContact replaceLocked(MobileContact previous, MobileContact mobileContact) {
+        MobileContact owner = contactsByPhoneNumber.get(mobileContact.getPhoneNumber());
+        if (owner != null && owner != previous) return owner;
+
+        contactsById.put(mobileContact.getId(), mobileContact);
+        contactsByPhoneNumber.remove(previous.getPhoneNumber(), previous);
+        contactsByPhoneNumber.put(mobileContact.getPhoneNumber(), mobileContact);
+        contactsInIdOrder.put(mobileContact.getId(), mobileContact);
+        phonePrefixIndex.remove(previous);
+        phonePrefixIndex.add(mobileContact);
+        nameSearchIndex.remove(previous);
+        nameSearchIndex.add(mobileContact);
+        userContactsIndex.remove(previous);
+        userContactsIndex.add(mobileContact);
+        publish(mobileContact.getId(), mobileContact);
+        return previous;
+    }
+
+    /**
+     * Removes a {@link MobileContact}. The caller must hold the stripes
+     * of its id and phone number
+     */
+    private boolean removeLocked(MobileContact current) {
+        if (!contactsById.remove(current.getId(), current)) return false;
+        contactsByPhoneNumber.remove(current.getPhoneNumber(), current);
+        contactsInIdOrder.remove(current.getId(), current);
+        phonePrefixIndex.remove(current);
+        nameSearchIndex.remove(current);
+        userContactsIndex.remove(current);
+        publish(current.getId(), null);
+        return true;
+    }
+
+    /**
+     * Publishes the next version of the stripe of an id, with the contact
+     * stored under the id or without the id if the contact is null. The caller
+     * must hold the stripe, so no other write replaces the version meanwhile
+     */
+    private void publish(long id, MobileContact mobileContact) {
+        int stripe = stripes.stripeOf(id);
+        MapContactSnapshot version = versions.get(stripe);
+        versions.set(stripe, mobileContact == null ? version.without(id) : version.with(mobileContact));
+    }
+
+    private boolean unchanged(MapContactSnapshot[] parts) {
+        for (int i = 0; i < parts.length; i++) {
+            if (versions.get(i) != parts[i]) return false;
+        }
+        return true;
+    }
+}
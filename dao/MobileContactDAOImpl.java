@@ -1,15 +1,34 @@
 package gr.aueb.mobileapp.dao;
 
+import gr.aueb.mobileapp.dao.persistent.PersistentVector;
 import gr.aueb.mobileapp.model.MobileContact;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
+/**
+ * ArrayList style implementation of {@link IMobileContactDAO}.
+ * The storage is a {@link PersistentVector}: every write publishes a new
+ * version that shares all but O(log n) elements with the previous one, so
+ * {@link #getAll()} and {@link #snapshot()} share the current version
+ * instead of copying it and never see a write in progress. Writes must
+ * not run concurrently with each other
+ */
 public class MobileContactDAOImpl implements IMobileContactDAO {
 
     //Storage
-    private static final List<MobileContact> contacts = new ArrayList<>();
+    private static volatile PersistentVector<MobileContact> contacts = PersistentVector.empty();
+
+    //Multi-valued index from the id of the User Details to their contacts, kept with the storage
+    private static final UserContactsIndex userContactsIndex = new UserContactsIndex();
+
+    //Odd while a write is in progress, so a snapshot can pair the contacts with their version
+    private static final AtomicLong writes = new AtomicLong();
 
     /**
      *Insert a new {@link MobileContact} instance in the
@@ -23,7 +42,13 @@ public class MobileContactDAOImpl implements IMobileContactDAO {
     public MobileContact insert(MobileContact mobileContact) {
 
         if (mobileContact == null) return null;
-        contacts.add(mobileContact);
+        beginWrite();
+        try {
+            contacts = contacts.with(mobileContact);
+            userContactsIndex.add(mobileContact);
+        } finally {
+            endWrite();
+        }
         return mobileContact;
     }
 
@@ -43,8 +68,9 @@ public class MobileContactDAOImpl implements IMobileContactDAO {
     public MobileContact update(long id, MobileContact mobileContact) {
 
         if (id != mobileContact.getId()) return null;
-        int positionToUpdate = getIndexById(id);
-        return contacts.set(positionToUpdate, mobileContact);
+        PersistentVector<MobileContact> current = contacts;
+        int positionToUpdate = getIndexById(current, id);
+        return setAt(current, positionToUpdate, mobileContact);
     }
 
     /**
@@ -55,7 +81,7 @@ public class MobileContactDAOImpl implements IMobileContactDAO {
     @Override
     public void delete(long id) {
 
-        contacts.removeIf((contact) -> contact.getId() == id);
+        removeIf((contact) -> contact.getId() == id);
     }
 
     /**
@@ -65,7 +91,39 @@ public class MobileContactDAOImpl implements IMobileContactDAO {
      */
     @Override
     public void delete(String phoneNumber) {
-        contacts.removeIf((contact) -> contact.getPhoneNumber().equals(phoneNumber));
+        removeIf((contact) -> contact.getPhoneNumber().equals(phoneNumber));
+    }
+
+    /**
+     *Removes a {@link MobileContact} from the ArrayList Datasource based on the id
+     * with a single pass over the list
+     * @param id
+     *             the {@link MobileContact} 's id needed to be removed
+     * @return
+     *          the removed {@link MobileContact} or null if the id does not exist
+     */
+    @Override
+    public MobileContact remove(long id) {
+        PersistentVector<MobileContact> current = contacts;
+        int position = getIndexById(current, id);
+        if (position == -1) return null;
+        return removeAt(current, position);
+    }
+
+    /**
+     *Removes a {@link MobileContact} from the ArrayList Datasource based on the phone number
+     * with a single pass over the list
+     * @param phoneNumber
+     *                  the {@link MobileContact} 's phone number needed to be removed
+     * @return
+     *          the removed {@link MobileContact} or null if the phone number does not exist
+     */
+    @Override
+    public MobileContact remove(String phoneNumber) {
+        PersistentVector<MobileContact> current = contacts;
+        int position = getIndexByPhoneNumber(current, phoneNumber);
+        if (position == -1) return null;
+        return removeAt(current, position);
     }
 
     /**
@@ -77,9 +135,10 @@ public class MobileContactDAOImpl implements IMobileContactDAO {
      */
     @Override
     public MobileContact get(long id) {
-        int position = getIndexById(id);
+        PersistentVector<MobileContact> current = contacts;
+        int position = getIndexById(current, id);
         if (position == -1) return null;
-        return contacts.get(position);
+        return current.get(position);
     }
 
     /**
@@ -91,22 +150,65 @@ public class MobileContactDAOImpl implements IMobileContactDAO {
      */
     @Override
     public MobileContact get(String phoneNumber) {
-        int position = getIndexByPhoneNumber(phoneNumber);
+        PersistentVector<MobileContact> current = contacts;
+        int position = getIndexByPhoneNumber(current, phoneNumber);
         if (position == -1) return null;
-        return contacts.get(position);
+        return current.get(position);
     }
 
     /**
-     *Returns all the instances from the ArrayList Datasource
+     *Returns all the instances from the ArrayList Datasource, as of the call.
+     * The result shares the current version of the Datasource instead of copying it,
+     * and later writes do not change it
      * @return
      *          all instances from the ArrayList Datasource
      */
     @Override
     public List<MobileContact> getAll() {
-//      return new ArrayList<>(contacts);
-        return Collections.unmodifiableList(contacts);
+        return currentContacts();
+    }
+
+    /**
+     *Returns the current contents of the ArrayList Datasource and their version,
+     * without copying
+     * @return
+     *          the resulting {@link ContactSnapshot}
+     */
+    @Override
+    public ContactSnapshot snapshot() {
+        while (true) {
+            long before = writes.get();
+            if ((before & 1) == 0) {
+                List<MobileContact> current = currentContacts();
+                if (writes.get() == before) return new ListContactSnapshot(before / 2, current);
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+
+    /**
+     *Returns the {@link MobileContact} instances of a person from the
+     * User Details index instead of scanning the ArrayList Datasource
+     * @param userDetailsId
+     *                      the id of the User Details
+     * @return
+     *          the matching Mobile Contacts, in the order they were indexed
+     */
+    @Override
+    public List<MobileContact> getContactsByUser(long userDetailsId) {
+        return userContactsIndex.find(userDetailsId);
     }
 
+    /**
+     *Returns the lookups answered from an index; every other lookup scans the list
+     * @return
+     *          the indexed lookups
+     */
+    @Override
+    public Set<ContactIndex> getIndexes() {
+        return EnumSet.of(ContactIndex.USER_DETAILS_ID);
+    }
 
     /**
      *Checks if the phone number already exists in the ArrayList Database
@@ -117,7 +219,7 @@ public class MobileContactDAOImpl implements IMobileContactDAO {
      */
     @Override
     public boolean phoneNumberExists(String phoneNumber) {
-        return getIndexByPhoneNumber(phoneNumber) != -1;
+        return getIndexByPhoneNumber(contacts, phoneNumber) != -1;
     }
 
     /**
@@ -129,7 +231,109 @@ public class MobileContactDAOImpl implements IMobileContactDAO {
      */
     @Override
     public boolean userIdExist(long id) {
-        return getIndexById(id) != -1;
+        return getIndexById(contacts, id) != -1;
+    }
+
+    /**
+     *Inserts a {@link MobileContact} if neither its id nor its phone number
+     * exist, checking both with a single pass over the list
+     * @param mobileContact
+     *                      the gr.aueb.mobileapp.model that contains the mobile data
+     * @return
+     *          null if the {@link MobileContact} was inserted, otherwise the
+     *          existing {@link MobileContact} that holds the phone number or the id
+     */
+    @Override
+    public MobileContact insertIfAbsent(MobileContact mobileContact) {
+        MobileContact sameId = null;
+
+        PersistentVector<MobileContact> current = contacts;
+        for (MobileContact contact : current) {
+            if (contact.getPhoneNumber().equals(mobileContact.getPhoneNumber())) return contact;
+            if (sameId == null && contact.getId() == mobileContact.getId()) sameId = contact;
+        }
+        if (sameId != null) return sameId;
+
+        beginWrite();
+        try {
+            contacts = current.with(mobileContact);
+            userContactsIndex.add(mobileContact);
+        } finally {
+            endWrite();
+        }
+        return null;
+    }
+
+    /**
+     *Replaces the {@link MobileContact} with the input id, finding its
+     * position and the owner of the new phone number with a single pass
+     * @param id
+     *          id of the Mobile Contact that we want to replace
+     * @param mobileContact
+     *                      the gr.aueb.mobileapp.model that contains the mobile data
+     * @return
+     *          the replaced {@link MobileContact}, null if the id does not exist, or
+     *          the {@link MobileContact} that already owns the phone number
+     */
+    @Override
+    public MobileContact replaceIfPresent(long id, MobileContact mobileContact) {
+        if (id != mobileContact.getId()) return null;
+        int position = -1;
+        MobileContact owner = null;
+
+        PersistentVector<MobileContact> current = contacts;
+        int i = 0;
+        for (MobileContact contact : current) {
+            if (position == -1 && contact.getId() == id) position = i;
+            if (owner == null && contact.getPhoneNumber().equals(mobileContact.getPhoneNumber())) owner = contact;
+            i++;
+        }
+        if (position == -1) return null;
+        if (owner != null && owner.getId() != id) return owner;
+
+        return setAt(current, position, mobileContact);
+    }
+
+    /**
+     *Inserts a batch of {@link MobileContact} instances. The ids and phone numbers
+     * of the ArrayList Datasource are collected with a single pass, so the
+     * whole batch is checked without scanning the list once per item
+     * @param mobileContacts
+     *                      the batch of Mobile Contacts to be inserted
+     * @return
+     *          the {@link WriteStatus} of each item, in the order of the batch
+     */
+    @Override
+    public List<WriteStatus> insertAll(List<MobileContact> mobileContacts) {
+        Set<Long> ids = new HashSet<>();
+        Set<String> phoneNumbers = new HashSet<>();
+        for (MobileContact contact : contacts) {
+            ids.add(contact.getId());
+            phoneNumbers.add(contact.getPhoneNumber());
+        }
+
+        List<WriteStatus> statuses = new ArrayList<>(mobileContacts.size());
+        List<MobileContact> accepted = new ArrayList<>();
+        for (MobileContact mobileContact : mobileContacts) {
+            if (phoneNumbers.contains(mobileContact.getPhoneNumber())) {
+                statuses.add(WriteStatus.PHONE_CONFLICT);
+            } else if (!ids.add(mobileContact.getId())) {
+                statuses.add(WriteStatus.ID_CONFLICT);
+            } else {
+                phoneNumbers.add(mobileContact.getPhoneNumber());
+                accepted.add(mobileContact);
+                statuses.add(WriteStatus.OK);
+            }
+        }
+
+        beginWrite();
+        try {
+            contacts = contacts.withAll(accepted);
+            accepted.forEach(userContactsIndex::add);
+        } finally {
+            endWrite();
+        }
+        return statuses;
     }
 
     /**
@@ -141,16 +345,8 @@ public class MobileContactDAOImpl implements IMobileContactDAO {
      *          the resulting position of the -1 if the
      *          phone number will not exist
      */
-    private int getIndexById(long id) {
-        int position = -1;
-
-        for (int i = 0; i < contacts.size(); i++) {
-            if (contacts.get(i).getId() == id) {
-                position = i;
-                break;
-            }
-        }
-        return position;
+    private static int getIndexById(PersistentVector<MobileContact> contacts, long id) {
+        return contacts.indexOf(contact -> contact.getId() == id, 0);
     }
 
     /**
@@ -162,15 +358,78 @@ public class MobileContactDAOImpl implements IMobileContactDAO {
      *          the resulting position of the -1 if the
      *          phone number will not exist
      */
-    private int getIndexByPhoneNumber(String phoneNumber) {
-        int position = -1;
+    private static int getIndexByPhoneNumber(PersistentVector<MobileContact> contacts, String phoneNumber) {
+        return contacts.indexOf(contact -> contact.getPhoneNumber().equals(phoneNumber), 0);
+    }
+
+    private static MobileContact setAt(PersistentVector<MobileContact> current, int position, MobileContact mobileContact) {
+        MobileContact previous = current.get(position);
+        beginWrite();
+        try {
+            contacts = current.set(position, mobileContact);
+            userContactsIndex.remove(previous);
+            userContactsIndex.add(mobileContact);
+        } finally {
+            endWrite();
+        }
+        return previous;
+    }
+
+    private static MobileContact removeAt(PersistentVector<MobileContact> current, int position) {
+        MobileContact removed = current.get(position);
+        beginWrite();
+        try {
+            contacts = current.without(position);
+            userContactsIndex.remove(removed);
+        } finally {
+            endWrite();
+        }
+        return removed;
+    }
 
-        for (int i = 0; i < contacts.size(); i++) {
-            if (contacts.get(i).getPhoneNumber().equals(phoneNumber)) {
-                position = i;
-                break;
+    /**
+     * Removes every contact from the storage, which is shared by all the instances
+     */
+    static void reset() {
+        removeIf(mobileContact -> true);
+    }
+
+    /**
+     * Removes every contact that matches, the last one first so the positions
+     * of the others do not move
+     */
+    private static void removeIf(Predicate<MobileContact> matches) {
+        PersistentVector<MobileContact> current = contacts;
+        List<Integer> positions = new ArrayList<>();
+        for (int position = current.indexOf(matches, 0); position != -1; position = current.indexOf(matches, position + 1)) {
+            positions.add(position);
+        }
+        if (positions.isEmpty()) return;
+
+        beginWrite();
+        try {
+            for (int i = positions.size() - 1; i >= 0; i--) {
+                userContactsIndex.remove(current.get(positions.get(i)));
+                current = current.without(positions.get(i));
             }
+            contacts = current;
+        } finally {
+            endWrite();
         }
-        return position;
+    }
+
+    /**
+     * Returns an unmodifiable list over the current version, without copying it
+     */
+    private static List<MobileContact> currentContacts() {
+        return contacts.asList();
+    }
+
+    private static void beginWrite() {
+        writes.incrementAndGet();
+    }
+
+    private static void endWrite() {
+        writes.incrementAndGet();
     }
 }
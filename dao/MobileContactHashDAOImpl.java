@@ -0,0 +1,351 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Hash indexed implementation of {@link IMobileContactDAO}.
+ * Keeps the records keyed by id together with a primary index
+ * on the phone number, so every lookup and existence check
+ * is a single hash probe instead of a scan over all contacts.
+ */
+public class MobileContactHashDAOImpl implements IMobileContactDAO {
+
+    //Storage, keyed by id in insertion order
+    private final Map<Long, MobileContact> contactsById = new LinkedHashMap<>();
+
+    //Primary index on phone number
+    private final Map<String, MobileContact> contactsByPhoneNumber = new HashMap<>();
+
+    //Ordered index for phone number prefix searches
+    private final PhonePrefixIndex phonePrefixIndex = new PhonePrefixIndex();
+
+    //Inverted index for name searches, null if left out
+    private final NameSearchIndex nameSearchIndex;
+
+    //Multi-valued index from the id of the User Details to their contacts, null if left out
+    private final UserContactsIndex userContactsIndex;
+
+    public MobileContactHashDAOImpl() {
+        this(true);
+    }
+
+    /**
+     * @param personIndexes
+     *                  false to leave out the name search and User Details indexes, for
+     *                  a DAO whose owner keeps them over several DAOs; the lookups they
+     *                  answer then scan the contacts
+     */
+    MobileContactHashDAOImpl(boolean personIndexes) {
+        nameSearchIndex = personIndexes ? new NameSearchIndex() : null;
+        userContactsIndex = personIndexes ? new UserContactsIndex() : null;
+    }
+
+    /**
+     *Insert a new {@link MobileContact} instance in the
+     * Datasource and registers it in both indexes
+     * @param mobileContact
+     *                      the gr.aueb.mobileapp.model that contains mobile data
+     * @return
+     *          the added {@link MobileContact} or null if its phone number
+     *          belongs to another {@link MobileContact}
+     */
+    @Override
+    public MobileContact insert(MobileContact mobileContact) {
+
+        if (mobileContact == null) return null;
+        MobileContact owner = contactsByPhoneNumber.get(mobileContact.getPhoneNumber());
+        if (owner != null && owner.getId() != mobileContact.getId()) return null;
+        MobileContact previous = contactsById.put(mobileContact.getId(), mobileContact);
+        if (previous != null) {
+            contactsByPhoneNumber.remove(previous.getPhoneNumber(), previous);
+            unindex(previous);
+        }
+        contactsByPhoneNumber.put(mobileContact.getPhoneNumber(), mobileContact);
+        index(mobileContact);
+        return mobileContact;
+    }
+
+    /**
+     * Update a {@link MobileContact} instance based on the id.
+     * If the phone number changes the old entry of the phone
+     * number index is replaced by the new one
+     * @param id
+     *          id of the {@link MobileContact} instance that we want to update
+     * @param mobileContact
+     *                      the gr.aueb.mobileapp.model that contains the mobile data
+     *
+     * @return
+     *          the updated {@link MobileContact} or null if the id of the
+     *          {@link MobileContact} instance is different from the input id,
+     *          does not exist, or the new phone number belongs to another
+     *          {@link MobileContact}
+     */
+    @Override
+    public MobileContact update(long id, MobileContact mobileContact) {
+
+        MobileContact previous = replaceIfPresent(id, mobileContact);
+        if (previous == null || previous.getId() != id) return null;
+        return mobileContact;
+    }
+
+    /**
+     *Removes a {@link MobileContact} from the Datasource based on the id
+     * @param id
+     *             the {@link MobileContact} 's id needed to be removed
+     */
+    @Override
+    public void delete(long id) {
+        remove(id);
+    }
+
+    /**
+     *Removes a {@link MobileContact} from the Datasource based on the phone number
+     * @param phoneNumber
+     *                  the {@link MobileContact} 's phone number needed to be removed
+     */
+    @Override
+    public void delete(String phoneNumber) {
+        remove(phoneNumber);
+    }
+
+    /**
+     *Removes a {@link MobileContact} based on the id with a single probe of each index
+     * @param id
+     *             the {@link MobileContact} 's id needed to be removed
+     * @return
+     *          the removed {@link MobileContact} or null if the id does not exist
+     */
+    @Override
+    public MobileContact remove(long id) {
+
+        MobileContact removed = contactsById.remove(id);
+        if (removed != null) {
+            contactsByPhoneNumber.remove(removed.getPhoneNumber(), removed);
+            unindex(removed);
+        }
+        return removed;
+    }
+
+    /**
+     *Removes a {@link MobileContact} based on the phone number with a single probe of each index
+     * @param phoneNumber
+     *                  the {@link MobileContact} 's phone number needed to be removed
+     * @return
+     *          the removed {@link MobileContact} or null if the phone number does not exist
+     */
+    @Override
+    public MobileContact remove(String phoneNumber) {
+
+        MobileContact removed = contactsByPhoneNumber.remove(phoneNumber);
+        if (removed != null) {
+            contactsById.remove(removed.getId(), removed);
+            unindex(removed);
+        }
+        return removed;
+    }
+
+    /**
+     *Returns a {@link MobileContact} from the datasource based on the input id
+     * @param id
+     *          the {@link MobileContact} 's id to be returned
+     * @return
+     *          null  if the Mobile Contact will not exist
+     */
+    @Override
+    public MobileContact get(long id) {
+        return contactsById.get(id);
+    }
+
+    /**
+     *Returns a {@link MobileContact} from the datasource based on the input phone number
+     * @param phoneNumber
+     *                  the {@link MobileContact} 's phone number to be returned
+     * @return
+     *           null  if the Mobile Contact will not exist
+     */
+    @Override
+    public MobileContact get(String phoneNumber) {
+        return contactsByPhoneNumber.get(phoneNumber);
+    }
+
+    /**
+     *Returns all the instances of the Datasource in insertion order
+     * @return
+     *          all instances of the Datasource
+     */
+    @Override
+    public List<MobileContact> getAll() {
+        return Collections.unmodifiableList(new ArrayList<>(contactsById.values()));
+    }
+
+    /**
+     *Returns a lazy {@link Stream} over the instances of the Datasource in
+     * insertion order, read straight from the storage without copying it.
+     * Like the storage, it must not be used while the Datasource is written
+     * @return
+     *          the resulting {@link Stream}, which may be made parallel
+     */
+    @Override
+    public Stream<MobileContact> stream() {
+        return contactsById.values().stream();
+    }
+
+    /**
+     *Returns the {@link MobileContact} instances whose phone number starts with
+     * the prefix, read from the ordered phone number index
+     * @param prefix
+     *              the phone number prefix, e.g. an area code
+     * @param limit
+     *              the maximum number of results
+     * @return
+     *          at most limit matching {@link MobileContact} instances
+     */
+    @Override
+    public List<MobileContact> findByPhonePrefix(String prefix, int limit) {
+        return phonePrefixIndex.find(prefix, limit);
+    }
+
+    /**
+     *Returns the {@link MobileContact} instances whose names best match the
+     * query, ranked by the name search index
+     * @param query
+     *              one or more, possibly partial or misspelled, names
+     * @param limit
+     *              the maximum number of results
+     * @return
+     *          at most limit {@link MobileContact} instances, best match first
+     */
+    @Override
+    public List<MobileContact> searchByName(String query, int limit) {
+        if (nameSearchIndex == null) return IMobileContactDAO.super.searchByName(query, limit);
+        return nameSearchIndex.search(query, limit);
+    }
+
+    /**
+     *Returns the {@link MobileContact} instances of a person, read from the
+     * User Details index
+     * @param userDetailsId
+     *                      the id of the User Details
+     * @return
+     *          the matching {@link MobileContact} instances, empty if there are none
+     */
+    @Override
+    public List<MobileContact> getContactsByUser(long userDetailsId) {
+        if (userContactsIndex == null) return IMobileContactDAO.super.getContactsByUser(userDetailsId);
+        return userContactsIndex.find(userDetailsId);
+    }
+
+    /**
+     *Returns the lookups answered from the id and phone number hash indexes, the
+     * ordered phone number index and the User Details index, if it is kept
+     * @return
+     *          the indexed lookups
+     */
+    @Override
+    public Set<ContactIndex> getIndexes() {
+        Set<ContactIndex> indexes = EnumSet.of(ContactIndex.ID, ContactIndex.PHONE_NUMBER, ContactIndex.PHONE_PREFIX);
+        if (userContactsIndex != null) indexes.add(ContactIndex.USER_DETAILS_ID);
+        return indexes;
+    }
+
+    /**
+     *Checks if the phone number already exists in the phone number index
+     * @param phoneNumber
+     *                  the phone number to be searched
+     * @return
+     *          true if the phone number exists in the Datasource
+     */
+    @Override
+    public boolean phoneNumberExists(String phoneNumber) {
+        return contactsByPhoneNumber.containsKey(phoneNumber);
+    }
+
+    /**
+     *Checks if the id already exists in the Datasource
+     * @param id
+     *          the id to be searched
+     * @return
+     *          true if the id exists in the Datasource
+     */
+    @Override
+    public boolean userIdExist(long id) {
+        return contactsById.containsKey(id);
+    }
+
+    /**
+     *Inserts a {@link MobileContact} if neither its id nor its phone number
+     * exist, claiming each key with a single probe of its index
+     * @param mobileContact
+     *                      the gr.aueb.mobileapp.model that contains the mobile data
+     * @return
+     *          null if the {@link MobileContact} was inserted, otherwise the
+     *          existing {@link MobileContact} that holds the phone number or the id
+     */
+    @Override
+    public MobileContact insertIfAbsent(MobileContact mobileContact) {
+
+        MobileContact existing = contactsByPhoneNumber.putIfAbsent(mobileContact.getPhoneNumber(), mobileContact);
+        if (existing != null) return existing;
+
+        existing = contactsById.putIfAbsent(mobileContact.getId(), mobileContact);
+        if (existing != null) {
+            contactsByPhoneNumber.remove(mobileContact.getPhoneNumber(), mobileContact);
+            return existing;
+        }
+        index(mobileContact);
+        return null;
+    }
+
+    /**
+     *Replaces the {@link MobileContact} with the input id, claiming its
+     * new phone number with a single probe of the phone number index
+     * @param id
+     *          id of the Mobile Contact that we want to replace
+     * @param mobileContact
+     *                      the gr.aueb.mobileapp.model that contains the mobile data
+     * @return
+     *          the replaced {@link MobileContact}, null if the id does not exist, or
+     *          the {@link MobileContact} that already owns the phone number
+     */
+    @Override
+    public MobileContact replaceIfPresent(long id, MobileContact mobileContact) {
+
+        if (id != mobileContact.getId()) return null;
+        MobileContact previous = contactsById.get(id);
+        if (previous == null) return null;
+
+        if (previous.getPhoneNumber().equals(mobileContact.getPhoneNumber())) {
+            contactsByPhoneNumber.put(mobileContact.getPhoneNumber(), mobileContact);
+        } else {
+            MobileContact owner = contactsByPhoneNumber.putIfAbsent(mobileContact.getPhoneNumber(), mobileContact);
+            if (owner != null) return owner;
+            contactsByPhoneNumber.remove(previous.getPhoneNumber(), previous);
+        }
+        contactsById.put(id, mobileContact);
+        unindex(previous);
+        index(mobileContact);
+        return previous;
+    }
+
+    private void index(MobileContact mobileContact) {
+        phonePrefixIndex.add(mobileContact);
+        if (nameSearchIndex != null) nameSearchIndex.add(mobileContact);
+        if (userContactsIndex != null) userContactsIndex.add(mobileContact);
+    }
+
+    private void unindex(MobileContact mobileContact) {
+        phonePrefixIndex.remove(mobileContact);
+        if (nameSearchIndex != null) nameSearchIndex.remove(mobileContact);
+        if (userContactsIndex != null) userContactsIndex.remove(mobileContact);
+    }
+}
@@ -0,0 +1,612 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.dao.mapped.BloomFilter;
+import gr.aueb.mobileapp.dao.mapped.FilterStats;
+import gr.aueb.mobileapp.dao.mapped.MappedContactFile;
+import gr.aueb.mobileapp.dao.mapped.OffHeapHashIndex;
+import gr.aueb.mobileapp.metrics.MetricsRegistry;
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of {@link IMobileContactDAO} for datasets larger than the heap.
+ * The contacts are fixed-layout records in memory-mapped files and the id,
+ * phone number and User Details indexes are hash tables in direct buffers, so the heap holds
+ * no per-contact objects. A {@link MobileContact} is built only when a caller
+ * asks for one; existence checks and phone comparisons read the mapped
+ * records in place. The indexes are rebuilt from the records when the store
+ * is opened. Phone numbers are limited to {@value MappedContactFile#MAX_PHONE_BYTES}
+ * and names to {@value MappedContactFile#MAX_NAME_BYTES} UTF-8 bytes.
+ *
+ * A {@link BloomFilter} over the ids and one over the phone numbers answer
+ * most lookups of absent contacts, e.g. the existence checks before an
+ * insert, from a few bits on the heap without taking the lock or probing an
+ * index. The filters are built when the store is opened and rebuilt, larger,
+ * once they have taken as many keys as they were sized for, removed keys
+ * included; {@link #getFilterStats()} counts the probes they avoid, and
+ * {@link #registerMetrics(MetricsRegistry)} publishes the counts as counters
+ */
+public class MobileContactMappedDAOImpl implements IMobileContactDAO, Closeable {
+
+    private static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+    private static final String FILTER_METRICS = "dao.filter.";
+    //Filters are sized for at least this many keys, so a small store does not rebuild them often
+    private static final int MIN_FILTER_KEYS = 1 << 16;
+
+    private final MappedContactFile records;
+    private final OffHeapHashIndex idIndex;
+    private final OffHeapHashIndex phoneIndex;
+    //Slots of the records with User Details, keyed by the id of the User Details
+    private final OffHeapHashIndex userIndex;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    //Read without the lock; changed and replaced only under the write lock
+    private final double falsePositiveRate;
+    private volatile BloomFilter idFilter;
+    private volatile BloomFilter phoneFilter;
+    private long filterRebuilds;
+    private final LongAdder filterNegatives = new LongAdder();
+    private final LongAdder filterPositives = new LongAdder();
+    private final LongAdder filterFalsePositives = new LongAdder();
+
+    /**
+     * Opens the store of a directory, creating it if missing
+     * @param directory
+     *                  the directory of the segment files
+     */
+    public MobileContactMappedDAOImpl(Path directory) throws IOException {
+        this(directory, DEFAULT_FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * Opens the store of a directory, creating it if missing
+     * @param directory
+     *                  the directory of the segment files
+     * @param falsePositiveRate
+     *                  the target fraction of lookups of absent contacts that the
+     *                  filters pass on to the indexes, e.g. 0.01
+     */
+    public MobileContactMappedDAOImpl(Path directory, double falsePositiveRate) throws IOException {
+        if (!(falsePositiveRate > 0.0 && falsePositiveRate < 1.0)) {
+            throw new IllegalArgumentException("Invalid false positive rate " + falsePositiveRate);
+        }
+        this.falsePositiveRate = falsePositiveRate;
+        records = new MappedContactFile(directory);
+        idIndex = new OffHeapHashIndex(records.slotCount());
+        phoneIndex = new OffHeapHashIndex(records.slotCount());
+        userIndex = new OffHeapHashIndex(records.slotCount());
+        for (int slot = 0; slot < records.slotCount(); slot++) {
+            if (!records.isLive(slot)) continue;
+            idIndex.put(records.id(slot), slot);
+            phoneIndex.put(records.phoneHash(slot), slot);
+            if (records.hasUserDetails(slot)) userIndex.put(records.userId(slot), slot);
+        }
+        buildFilters();
+    }
+
+    /**
+     *Insert a new {@link MobileContact} instance in the mapped Datasource
+     * @param mobileContact
+     *                      the gr.aueb.mobileapp.model that contains mobile data
+     * @return
+     *          the added {@link MobileContact} or null if its id or
+     *          phone number already exists
+     */
+    @Override
+    public MobileContact insert(MobileContact mobileContact) {
+        if (mobileContact == null) return null;
+        return insertIfAbsent(mobileContact) == null ? mobileContact : null;
+    }
+
+    /**
+     * Update a {@link MobileContact} instance based on the id
+     * @param id
+     *          id of the {@link MobileContact} instance that we want to update
+     * @param mobileContact
+     *                      the gr.aueb.mobileapp.model that contains the mobile data
+     * @return
+     *          the updated {@link MobileContact} or null if the id does not exist
+     *          or the new phone number belongs to another {@link MobileContact}
+     */
+    @Override
+    public MobileContact update(long id, MobileContact mobileContact) {
+        MobileContact previous = replaceIfPresent(id, mobileContact);
+        if (previous == null || previous.getId() != id) return null;
+        return mobileContact;
+    }
+
+    @Override
+    public void delete(long id) {
+        remove(id);
+    }
+
+    @Override
+    public void delete(String phoneNumber) {
+        remove(phoneNumber);
+    }
+
+    @Override
+    public MobileContact remove(long id) {
+        if (!idMightExist(id)) return null;
+
+        lock.writeLock().lock();
+        try {
+            int slot = checkedSlotOf(id);
+            if (slot < 0) return null;
+            MobileContact removed = records.read(slot);
+            free(slot);
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public MobileContact remove(String phoneNumber) {
+        byte[] phoneBytes = bytesOf(phoneNumber);
+        if (!phoneMightExist(phoneBytes)) return null;
+
+        lock.writeLock().lock();
+        try {
+            int slot = checkedSlotOf(phoneBytes);
+            if (slot < 0) return null;
+            MobileContact removed = records.read(slot);
+            free(slot);
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     *Returns a {@link MobileContact} materialized from its mapped record
+     * @param id
+     *          the {@link MobileContact} 's id to be returned
+     * @return
+     *          null  if the Mobile Contact will not exist
+     */
+    @Override
+    public MobileContact get(long id) {
+        if (!idMightExist(id)) return null;
+
+        lock.readLock().lock();
+        try {
+            int slot = checkedSlotOf(id);
+            return slot < 0 ? null : records.read(slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *Returns a {@link MobileContact} materialized from its mapped record
+     * @param phoneNumber
+     *                  the {@link MobileContact} 's phone number to be returned
+     * @return
+     *           null  if the Mobile Contact will not exist
+     */
+    @Override
+    public MobileContact get(String phoneNumber) {
+        byte[] phoneBytes = bytesOf(phoneNumber);
+        if (!phoneMightExist(phoneBytes)) return null;
+
+        lock.readLock().lock();
+        try {
+            int slot = checkedSlotOf(phoneBytes);
+            return slot < 0 ? null : records.read(slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *Returns all the instances of the Datasource. This materializes every
+     * record on the heap; prefer {@link #stream()} or {@link #getPage(Long, int)}
+     * @return
+     *          all instances of the Datasource
+     */
+    @Override
+    public List<MobileContact> getAll() {
+        lock.readLock().lock();
+        try {
+            List<MobileContact> contacts = new ArrayList<>(idIndex.size());
+            for (int slot = 0; slot < records.slotCount(); slot++) {
+                if (records.isLive(slot)) contacts.add(records.read(slot));
+            }
+            return Collections.unmodifiableList(contacts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *Returns a lazy {@link Stream} over the mapped records; each record is
+     * materialized only when the stream reaches it
+     * @return
+     *          the resulting {@link Stream}, which may be made parallel
+     */
+    @Override
+    public Stream<MobileContact> stream() {
+        int slotCount;
+        lock.readLock().lock();
+        try {
+            slotCount = records.slotCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+        return IntStream.range(0, slotCount).mapToObj(this::readIfLive).filter(Objects::nonNull);
+    }
+
+    /**
+     *Returns the {@link MobileContact} instances whose phone number starts with
+     * the prefix. The records are compared in place and only matches are materialized
+     * @param prefix
+     *              the phone number prefix, e.g. an area code
+     * @param limit
+     *              the maximum number of results
+     * @return
+     *          at most limit matching {@link MobileContact} instances
+     */
+    @Override
+    public List<MobileContact> findByPhonePrefix(String prefix, int limit) {
+        byte[] prefixBytes = bytesOf(prefix);
+        List<MobileContact> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int slot = 0; slot < records.slotCount() && result.size() < limit; slot++) {
+                if (records.isLive(slot) && records.phoneStartsWith(slot, prefixBytes)) {
+                    result.add(records.read(slot));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *Returns the {@link MobileContact} instances of a person, found through the
+     * off-heap User Details index; only the matches are materialized
+     * @param userDetailsId
+     *                      the id of the User Details
+     * @return
+     *          the matching {@link MobileContact} instances, empty if there are none
+     */
+    @Override
+    public List<MobileContact> getContactsByUser(long userDetailsId) {
+        lock.readLock().lock();
+        try {
+            List<MobileContact> result = new ArrayList<>();
+            for (int slot : slotsOfUser(userDetailsId)) {
+                result.add(records.read(slot));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *Removes the {@link MobileContact} instances of a person, found through the
+     * off-heap User Details index, under a single write lock
+     * @param userDetailsId
+     *                      the id of the User Details
+     * @return
+     *          the removed {@link MobileContact} instances, empty if there were none
+     */
+    @Override
+    public List<MobileContact> deleteContactsByUser(long userDetailsId) {
+        lock.writeLock().lock();
+        try {
+            List<MobileContact> removed = new ArrayList<>();
+            for (int slot : slotsOfUser(userDetailsId)) {
+                removed.add(records.read(slot));
+                free(slot);
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     *Returns the lookups answered from the off-heap id, phone number and User
+     * Details indexes; phone number prefixes are searched by a scan of the records
+     * @return
+     *          the indexed lookups
+     */
+    @Override
+    public Set<ContactIndex> getIndexes() {
+        return EnumSet.of(ContactIndex.ID, ContactIndex.PHONE_NUMBER, ContactIndex.USER_DETAILS_ID);
+    }
+
+    /**
+     *Checks if the phone number exists, answering from the phone number filter
+     * without taking the lock when it certainly does not
+     * @param phoneNumber
+     *                  the phone number to be searched
+     * @return
+     *          true if the phone number exists in the Datasource
+     */
+    @Override
+    public boolean phoneNumberExists(String phoneNumber) {
+        byte[] phoneBytes = bytesOf(phoneNumber);
+        if (!phoneMightExist(phoneBytes)) return false;
+
+        lock.readLock().lock();
+        try {
+            return checkedSlotOf(phoneBytes) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *Checks if the id exists, answering from the id filter without taking
+     * the lock when it certainly does not
+     * @param id
+     *          the id to be searched
+     * @return
+     *          true if the id exists in the Datasource
+     */
+    @Override
+    public boolean userIdExist(long id) {
+        if (!idMightExist(id)) return false;
+
+        lock.readLock().lock();
+        try {
+            return checkedSlotOf(id) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *Inserts a {@link MobileContact} if neither its id nor its phone number exist
+     * @param mobileContact
+     *                      the gr.aueb.mobileapp.model that contains the mobile data
+     * @return
+     *          null if the {@link MobileContact} was inserted, otherwise the
+     *          existing {@link MobileContact} that holds the phone number or the id
+     * @throws IllegalArgumentException
+     *          if the phone number or a name does not fit in the record layout
+     */
+    @Override
+    public MobileContact insertIfAbsent(MobileContact mobileContact) {
+        MappedContactFile.checkFits(mobileContact);
+        byte[] phoneNumber = bytesOf(mobileContact.getPhoneNumber());
+
+        lock.writeLock().lock();
+        try {
+            int existing = phoneMightExist(phoneNumber) ? checkedSlotOf(phoneNumber) : -1;
+            if (existing < 0 && idMightExist(mobileContact.getId())) existing = checkedSlotOf(mobileContact.getId());
+            if (existing >= 0) return records.read(existing);
+
+            int slot = records.append(mobileContact);
+            idIndex.put(mobileContact.getId(), slot);
+            phoneIndex.put(MappedContactFile.hash(phoneNumber), slot);
+            if (records.hasUserDetails(slot)) userIndex.put(records.userId(slot), slot);
+            idFilter.add(mobileContact.getId());
+            phoneFilter.add(MappedContactFile.hash(phoneNumber));
+            if (idFilter.count() > idFilter.capacity()) {
+                buildFilters();
+                filterRebuilds++;
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     *Replaces the {@link MobileContact} with the input id, writing its new version to another record slot
+     * @param id
+     *          id of the Mobile Contact that we want to replace
+     * @param mobileContact
+     *                      the gr.aueb.mobileapp.model that contains the mobile data
+     * @return
+     *          the replaced {@link MobileContact}, null if the id does not exist, or
+     *          the {@link MobileContact} that already owns the phone number
+     * @throws IllegalArgumentException
+     *          if the phone number or a name does not fit in the record layout
+     */
+    @Override
+    public MobileContact replaceIfPresent(long id, MobileContact mobileContact) {
+        if (id != mobileContact.getId()) return null;
+        MappedContactFile.checkFits(mobileContact);
+        byte[] phoneNumber = bytesOf(mobileContact.getPhoneNumber());
+
+        lock.writeLock().lock();
+        try {
+            int slot = slotOf(id);
+            if (slot < 0) return null;
+            int owner = slotOf(phoneNumber);
+            if (owner >= 0 && owner != slot) return records.read(owner);
+
+            MobileContact previous = records.read(slot);
+            long previousHash = records.phoneHash(slot);
+            //The old record stays live until the indexes point to the new one
+            int replacement = records.appendReplacement(slot, mobileContact);
+            idIndex.put(id, replacement);
+            phoneIndex.put(MappedContactFile.hash(phoneNumber), replacement);
+            if (records.hasUserDetails(replacement)) userIndex.put(records.userId(replacement), replacement);
+            free(slot);
+            if (MappedContactFile.hash(phoneNumber) != previousHash) {
+                phoneFilter.add(MappedContactFile.hash(phoneNumber));
+                //The phone filter fills up with the old phone numbers, the id filter does not
+                if (phoneFilter.count() > phoneFilter.capacity()) {
+                    buildFilters();
+                    filterRebuilds++;
+                }
+            }
+            return previous;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the counts of {@link #getFilterStats()} to a registry, as the counters
+     * "dao.filter.negatives", "dao.filter.positives", "dao.filter.falsePositives"
+     * and "dao.filter.rebuilds", which its MBean shows
+     */
+    public void registerMetrics(MetricsRegistry registry) {
+        registry.counter(FILTER_METRICS + "negatives", filterNegatives::sum);
+        registry.counter(FILTER_METRICS + "positives", filterPositives::sum);
+        registry.counter(FILTER_METRICS + "falsePositives", filterFalsePositives::sum);
+        registry.counter(FILTER_METRICS + "rebuilds", () -> getFilterStats().getRebuildCount());
+    }
+
+    /**
+     * Returns the lookups answered by the id and phone number filters so far,
+     * and the memory the filters take
+     */
+    public FilterStats getFilterStats() {
+        lock.readLock().lock();
+        try {
+            return new FilterStats(filterNegatives.sum(), filterPositives.sum(), filterFalsePositives.sum(),
+                    filterRebuilds, idFilter.sizeInBytes() + phoneFilter.sizeInBytes());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Forces the mapped records to disk
+     */
+    public void sync() {
+        lock.readLock().lock();
+        try {
+            records.force();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            records.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private MobileContact readIfLive(int slot) {
+        lock.readLock().lock();
+        try {
+            return records.isLive(slot) ? records.read(slot) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void free(int slot) {
+        idIndex.remove(records.id(slot), slot);
+        phoneIndex.remove(records.phoneHash(slot), slot);
+        if (records.hasUserDetails(slot)) userIndex.remove(records.userId(slot), slot);
+        records.free(slot);
+    }
+
+    /**
+     * Builds the filters from the live records, sized so that the next build
+     * is at least half as many inserts away as there are slots to read.
+     * The caller holds the write lock, or is the constructor
+     */
+    private void buildFilters() {
+        long keys = Math.max(MIN_FILTER_KEYS, Math.max(2L * idIndex.size(), records.slotCount()));
+        BloomFilter ids = new BloomFilter(keys, falsePositiveRate);
+        BloomFilter phones = new BloomFilter(keys, falsePositiveRate);
+        for (int slot = 0; slot < records.slotCount(); slot++) {
+            if (!records.isLive(slot)) continue;
+            ids.add(records.id(slot));
+            phones.add(records.phoneHash(slot));
+        }
+        idFilter = ids;
+        phoneFilter = phones;
+    }
+
+    /**
+     * Returns false if the id certainly does not exist; needs no lock
+     */
+    private boolean idMightExist(long id) {
+        if (idFilter.mightContain(id)) {
+            filterPositives.increment();
+            return true;
+        }
+        filterNegatives.increment();
+        return false;
+    }
+
+    /**
+     * Returns false if the phone number certainly does not exist; needs no lock
+     */
+    private boolean phoneMightExist(byte[] phoneNumber) {
+        if (phoneFilter.mightContain(MappedContactFile.hash(phoneNumber))) {
+            filterPositives.increment();
+            return true;
+        }
+        filterNegatives.increment();
+        return false;
+    }
+
+    /**
+     * Looks up an id the id filter let through, counting it if it is missing
+     */
+    private int checkedSlotOf(long id) {
+        int slot = slotOf(id);
+        if (slot < 0) filterFalsePositives.increment();
+        return slot;
+    }
+
+    private int checkedSlotOf(byte[] phoneNumber) {
+        int slot = slotOf(phoneNumber);
+        if (slot < 0) filterFalsePositives.increment();
+        return slot;
+    }
+
+    private int slotOf(long id) {
+        return idIndex.find(id, slot -> true);
+    }
+
+    /**
+     * Collects every slot indexed under the id of the User Details; the
+     * predicate never matches, so the probe visits all of them
+     */
+    private int[] slotsOfUser(long userDetailsId) {
+        IntStream.Builder slots = IntStream.builder();
+        userIndex.find(userDetailsId, slot -> {
+            slots.add(slot);
+            return false;
+        });
+        return slots.build().toArray();
+    }
+
+    private int slotOf(byte[] phoneNumber) {
+        return phoneIndex.find(MappedContactFile.hash(phoneNumber), slot -> records.phoneEquals(slot, phoneNumber));
+    }
+
+    private static byte[] bytesOf(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,417 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.dao.persistence.ContactLogStore;
+import gr.aueb.mobileapp.dao.persistence.LogRecord;
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Durable implementation of {@link IMobileContactDAO}. It keeps the
+ * contacts in an in-memory DAO, normally a {@link MobileContactConcurrentDAOImpl},
+ * and writes every successful insert, update and delete to an append-only
+ * log on local disk. Periodic checkpoints compact the log into a snapshot;
+ * on startup the latest snapshot is loaded and the log tail is replayed.
+ * Changes to the same id are applied and logged under the same stripe,
+ * so the log keeps their order. Once the log fails, writes throw
+ * {@link java.io.UncheckedIOException} and leave the contacts unchanged
+ */
+public class MobileContactPersistentDAOImpl extends ForwardingMobileContactDAO implements Closeable {
+
+    private static final int DEFAULT_GROUP_COMMIT_RECORDS = 1024;
+    private static final long DEFAULT_GROUP_COMMIT_MILLIS = 5;
+    private static final long DEFAULT_CHECKPOINT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final StripedLocks locks = new StripedLocks(Runtime.getRuntime().availableProcessors() * 4);
+    private final ContactLogStore store;
+    private final ScheduledExecutorService checkpointer;
+    private final AtomicLong checkpointFailures = new AtomicLong();
+    private volatile IOException lastCheckpointFailure;
+
+    /**
+     * Opens a store with group commit every 1024 records or 5 milliseconds,
+     * without waiting for the fsync, and a checkpoint every 10 minutes
+     * @param delegate
+     *                  the empty in-memory DAO that holds the recovered contacts
+     * @param directory
+     *                  the directory of the snapshot and log files
+     */
+    public MobileContactPersistentDAOImpl(IMobileContactDAO delegate, Path directory) throws IOException {
+        this(delegate, directory, DEFAULT_GROUP_COMMIT_RECORDS, DEFAULT_GROUP_COMMIT_MILLIS, false,
+                DEFAULT_CHECKPOINT_MILLIS);
+    }
+
+    /**
+     * Opens a store and recovers its contacts into the delegate
+     * @param delegate
+     *                  the empty in-memory DAO that holds the recovered contacts
+     * @param directory
+     *                  the directory of the snapshot and log files
+     * @param groupCommitRecords
+     *                  the number of pending log records that triggers an fsync
+     * @param groupCommitMillis
+     *                  the maximum time a log record waits for its fsync
+     * @param awaitSync
+     *                  true if every write returns only after its record is on disk
+     * @param checkpointIntervalMillis
+     *                  the time between two checkpoints, or 0 to checkpoint only on demand
+     */
+    public MobileContactPersistentDAOImpl(IMobileContactDAO delegate, Path directory, int groupCommitRecords,
+                                          long groupCommitMillis, boolean awaitSync,
+                                          long checkpointIntervalMillis) throws IOException {
+        super(delegate);
+        this.store = new ContactLogStore(directory, groupCommitRecords, groupCommitMillis, awaitSync,
+                this::restore, this::replay);
+
+        if (checkpointIntervalMillis > 0) {
+            checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "mobile-contact-checkpoint");
+                thread.setDaemon(true);
+                return thread;
+            });
+            checkpointer.scheduleWithFixedDelay(this::checkpointQuietly, checkpointIntervalMillis,
+                    checkpointIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            checkpointer = null;
+        }
+    }
+
+    @Override
+    public MobileContact insert(MobileContact mobileContact) {
+        if (mobileContact == null) return null;
+
+        int[] held = locks.lock(locks.stripeOf(mobileContact.getId()));
+        try {
+            store.ensureWritable();
+            MobileContact inserted = delegate.insert(mobileContact);
+            if (inserted != null) append(List.of(LogRecord.put(inserted)), () -> delegate.remove(inserted.getId()));
+            return inserted;
+        } finally {
+            locks.unlock(held);
+        }
+    }
+
+    @Override
+    public MobileContact update(long id, MobileContact mobileContact) {
+        int[] held = locks.lock(locks.stripeOf(id));
+        try {
+            store.ensureWritable();
+            MobileContact previous = delegate.get(id);
+            MobileContact updated = delegate.update(id, mobileContact);
+            if (updated != null) append(List.of(LogRecord.put(mobileContact)), () -> restore(id, previous));
+            return updated;
+        } finally {
+            locks.unlock(held);
+        }
+    }
+
+    @Override
+    public void delete(long id) {
+        remove(id);
+    }
+
+    @Override
+    public void delete(String phoneNumber) {
+        remove(phoneNumber);
+    }
+
+    @Override
+    public MobileContact remove(long id) {
+        int[] held = locks.lock(locks.stripeOf(id));
+        try {
+            store.ensureWritable();
+            MobileContact removed = delegate.remove(id);
+            if (removed != null) append(List.of(LogRecord.delete(id)), () -> restore(id, removed));
+            return removed;
+        } finally {
+            locks.unlock(held);
+        }
+    }
+
+    @Override
+    public MobileContact remove(String phoneNumber) {
+        while (true) {
+            MobileContact current = delegate.get(phoneNumber);
+            if (current == null) return null;
+
+            //While the stripe of its id is held, no writer of this decorator can move the phone number
+            int[] held = locks.lock(locks.stripeOf(current.getId()));
+            try {
+                //Datasources may build a new instance on every read, so the owner is compared by id
+                MobileContact again = delegate.get(phoneNumber);
+                if (again == null || again.getId() != current.getId()) continue;
+                store.ensureWritable();
+                MobileContact removed = delegate.remove(phoneNumber);
+                if (removed != null) {
+                    append(List.of(LogRecord.delete(removed.getId())), () -> restore(removed.getId(), removed));
+                }
+                return removed;
+            } finally {
+                locks.unlock(held);
+            }
+        }
+    }
+
+    @Override
+    public MobileContact insertIfAbsent(MobileContact mobileContact) {
+        int[] held = locks.lock(locks.stripeOf(mobileContact.getId()));
+        try {
+            store.ensureWritable();
+            MobileContact existing = delegate.insertIfAbsent(mobileContact);
+            if (existing == null) {
+                append(List.of(LogRecord.put(mobileContact)), () -> delegate.remove(mobileContact.getId()));
+            }
+            return existing;
+        } finally {
+            locks.unlock(held);
+        }
+    }
+
+    @Override
+    public MobileContact replaceIfPresent(long id, MobileContact mobileContact) {
+        int[] held = locks.lock(locks.stripeOf(id));
+        try {
+            store.ensureWritable();
+            MobileContact previous = delegate.replaceIfPresent(id, mobileContact);
+            if (previous != null && previous.getId() == id) {
+                append(List.of(LogRecord.put(mobileContact)), () -> restore(id, previous));
+            }
+            return previous;
+        } finally {
+            locks.unlock(held);
+        }
+    }
+
+    @Override
+    public List<WriteStatus> insertAll(List<MobileContact> mobileContacts) {
+        locks.lockAll();
+        try {
+            store.ensureWritable();
+            List<WriteStatus> statuses = delegate.insertAll(mobileContacts);
+            List<LogRecord> records = new ArrayList<>();
+            List<Long> inserted = new ArrayList<>();
+            for (int i = 0; i < statuses.size(); i++) {
+                if (statuses.get(i) != WriteStatus.OK) continue;
+                records.add(LogRecord.put(mobileContacts.get(i)));
+                inserted.add(mobileContacts.get(i).getId());
+            }
+            append(records, () -> inserted.forEach(delegate::remove));
+            return statuses;
+        } finally {
+            locks.unlockAll();
+        }
+    }
+
+    @Override
+    public List<WriteStatus> updateAll(List<MobileContact> mobileContacts) {
+        locks.lockAll();
+        try {
+            store.ensureWritable();
+            List<MobileContact> previous = new ArrayList<>(mobileContacts.size());
+            for (MobileContact mobileContact : mobileContacts) {
+                previous.add(delegate.get(mobileContact.getId()));
+            }
+            List<WriteStatus> statuses = delegate.updateAll(mobileContacts);
+            List<LogRecord> records = new ArrayList<>();
+            List<MobileContact> replaced = new ArrayList<>();
+            for (int i = 0; i < statuses.size(); i++) {
+                if (statuses.get(i) != WriteStatus.OK) continue;
+                records.add(LogRecord.put(mobileContacts.get(i)));
+                replaced.add(previous.get(i));
+            }
+            append(records, () -> restoreAll(replaced));
+            return statuses;
+        } finally {
+            locks.unlockAll();
+        }
+    }
+
+    @Override
+    public List<WriteStatus> deleteAllById(List<Long> ids) {
+        locks.lockAll();
+        try {
+            store.ensureWritable();
+            List<MobileContact> previous = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                previous.add(id == null ? null : delegate.get(id));
+            }
+            List<WriteStatus> statuses = delegate.deleteAllById(ids);
+            List<LogRecord> records = new ArrayList<>();
+            List<MobileContact> removed = new ArrayList<>();
+            for (int i = 0; i < statuses.size(); i++) {
+                if (statuses.get(i) != WriteStatus.OK) continue;
+                records.add(LogRecord.delete(ids.get(i)));
+                removed.add(previous.get(i));
+            }
+            append(records, () -> restoreAll(removed));
+            return statuses;
+        } finally {
+            locks.unlockAll();
+        }
+    }
+
+    @Override
+    public List<WriteStatus> deleteAllByPhoneNumber(List<String> phoneNumbers) {
+        locks.lockAll();
+        try {
+            store.ensureWritable();
+            List<MobileContact> owners = new ArrayList<>(phoneNumbers.size());
+            for (String phoneNumber : phoneNumbers) {
+                owners.add(delegate.get(phoneNumber));
+            }
+            List<WriteStatus> statuses = delegate.deleteAllByPhoneNumber(phoneNumbers);
+            List<LogRecord> records = new ArrayList<>();
+            List<MobileContact> removed = new ArrayList<>();
+            for (int i = 0; i < statuses.size(); i++) {
+                if (statuses.get(i) != WriteStatus.OK) continue;
+                records.add(LogRecord.delete(owners.get(i).getId()));
+                removed.add(owners.get(i));
+            }
+            append(records, () -> restoreAll(removed));
+            return statuses;
+        } finally {
+            locks.unlockAll();
+        }
+    }
+
+    @Override
+    public List<MobileContact> deleteContactsByUser(long userDetailsId) {
+        locks.lockAll();
+        try {
+            store.ensureWritable();
+            List<MobileContact> removed = delegate.deleteContactsByUser(userDetailsId);
+            List<LogRecord> records = new ArrayList<>(removed.size());
+            for (MobileContact mobileContact : removed) {
+                records.add(LogRecord.delete(mobileContact.getId()));
+            }
+            append(records, () -> restoreAll(removed));
+            return removed;
+        } finally {
+            locks.unlockAll();
+        }
+    }
+
+    /**
+     * Writes a snapshot of the current contacts and deletes the log
+     * files and snapshots it replaces
+     */
+    public void checkpoint() throws IOException {
+        store.checkpoint(() -> delegate.stream().iterator());
+    }
+
+    /**
+     * Forces every change written so far to disk
+     */
+    public void sync() throws IOException {
+        store.sync();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (checkpointer != null) {
+            checkpointer.shutdown();
+            try {
+                checkpointer.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        store.close();
+    }
+
+    /**
+     * Returns the number of periodic checkpoints that failed
+     */
+    public long getCheckpointFailureCount() {
+        return checkpointFailures.get();
+    }
+
+    /**
+     * Returns the error of the latest failed periodic checkpoint, or null if none failed
+     */
+    public IOException getLastCheckpointFailure() {
+        return lastCheckpointFailure;
+    }
+
+    private void checkpointQuietly() {
+        try {
+            checkpoint();
+        } catch (IOException e) {
+            //The log still holds every change; the next checkpoint retries
+            lastCheckpointFailure = e;
+            checkpointFailures.incrementAndGet();
+        }
+    }
+
+    /**
+     * Appends the records of changes already applied to the delegate. If the
+     * log fails, the changes are undone before the error is thrown, so readers
+     * never see a change that would be lost on restart
+     */
+    private void append(List<LogRecord> records, Runnable undo) {
+        try {
+            store.appendAll(records);
+        } catch (UncheckedIOException e) {
+            undo.run();
+            throw e;
+        }
+    }
+
+    /**
+     * Puts back the previous contact of an id, or removes the id if it had none.
+     * A contact whose phone number was taken meanwhile is left out; replaying
+     * the log of the new owner takes the number away from it on restart as well
+     */
+    private void restore(long id, MobileContact previous) {
+        if (previous == null) {
+            delegate.remove(id);
+        } else if (delegate.replaceIfPresent(id, previous) == null) {
+            delegate.insertIfAbsent(previous);
+        }
+    }
+
+    /**
+     * Restores the contacts of a batch in reverse order, so an id written
+     * twice ends with the contact it had before the batch
+     */
+    private void restoreAll(List<MobileContact> previous) {
+        for (int i = previous.size() - 1; i >= 0; i--) {
+            MobileContact mobileContact = previous.get(i);
+            restore(mobileContact.getId(), mobileContact);
+        }
+    }
+
+    private void restore(MobileContact mobileContact) {
+        delegate.insertIfAbsent(mobileContact);
+    }
+
+    /**
+     * Applies a logged change to the delegate. A PUT takes the phone
+     * number away from any other id that still holds it, since the log
+     * of that id records the change that freed it further on
+     */
+    private void replay(LogRecord record) {
+        if (record.getType() == LogRecord.Type.DELETE) {
+            delegate.remove(record.getId());
+            return;
+        }
+
+        MobileContact mobileContact = record.getMobileContact();
+        MobileContact owner = delegate.get(mobileContact.getPhoneNumber());
+        if (owner != null && owner.getId() != mobileContact.getId()) {
+            delegate.remove(owner.getId());
+        }
+        if (delegate.replaceIfPresent(mobileContact.getId(), mobileContact) == null) {
+            delegate.insertIfAbsent(mobileContact);
+        }
+    }
+}
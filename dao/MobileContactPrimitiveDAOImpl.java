@@ -0,0 +1,354 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.dao.primitive.LongIntHashMap;
+import gr.aueb.mobileapp.dao.primitive.PhoneNumberCodec;
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Column oriented implementation of {@link IMobileContactDAO}. Every contact
+ * is a slot in parallel primitive arrays, phone numbers are packed into longs
+ * by {@link PhoneNumberCodec} and both the id and the phone number index are
+ * {@link LongIntHashMap}s, so no id is boxed and no per-contact objects are
+ * kept besides the names. Existence checks allocate nothing. Phone numbers
+ * that cannot be packed are kept as Strings in a separate index. The contacts
+ * of a person are chained through two more columns, from a slot found by the
+ * id of their User Details, so they are found without boxing or scanning.
+ * Not thread safe, like {@link MobileContactHashDAOImpl}
+ */
+public class MobileContactPrimitiveDAOImpl implements IMobileContactDAO {
+
+    private static final byte LIVE = 1;
+    private static final byte HAS_USER_DETAILS = 2;
+
+    private static final int INITIAL_SLOTS = 16;
+
+    //Columns, indexed by slot
+    private long[] ids = new long[INITIAL_SLOTS];
+    private long[] phoneCodes = new long[INITIAL_SLOTS];
+    private long[] userIds = new long[INITIAL_SLOTS];
+    private String[] firstnames = new String[INITIAL_SLOTS];
+    private String[] lastnames = new String[INITIAL_SLOTS];
+    private byte[] flags = new byte[INITIAL_SLOTS];
+
+    //Chain of the slots with the same User Details id, NO_VALUE at either end
+    private int[] nextOfUser = new int[INITIAL_SLOTS];
+    private int[] previousOfUser = new int[INITIAL_SLOTS];
+
+    //Slots of deleted contacts, reused before new slots are taken
+    private int[] freeSlots = new int[INITIAL_SLOTS];
+    private int freeCount;
+    private int slotCount;
+
+    private final LongIntHashMap slotsById = new LongIntHashMap(INITIAL_SLOTS);
+    private final LongIntHashMap slotsByPhoneCode = new LongIntHashMap(INITIAL_SLOTS);
+    private final LongIntHashMap firstSlotByUserId = new LongIntHashMap(INITIAL_SLOTS);
+
+    //Phone numbers that cannot be packed, e.g. "210-1234567"
+    private final Map<String, Integer> slotsByOtherPhoneNumber = new HashMap<>();
+    private final Map<Integer, String> otherPhoneNumbersBySlot = new HashMap<>();
+
+    /**
+     *Insert a new {@link MobileContact} instance in the Datasource
+     * @param mobileContact
+     *                      the gr.aueb.mobileapp.model that contains mobile data
+     * @return
+     *          the added {@link MobileContact} or null if its id or
+     *          phone number already exists
+     */
+    @Override
+    public MobileContact insert(MobileContact mobileContact) {
+        if (mobileContact == null) return null;
+        return insertIfAbsent(mobileContact) == null ? mobileContact : null;
+    }
+
+    /**
+     * Update a {@link MobileContact} instance based on the id
+     * @param id
+     *          id of the {@link MobileContact} instance that we want to update
+     * @param mobileContact
+     *                      the gr.aueb.mobileapp.model that contains the mobile data
+     * @return
+     *          the updated {@link MobileContact} or null if the id does not exist
+     *          or the new phone number belongs to another {@link MobileContact}
+     */
+    @Override
+    public MobileContact update(long id, MobileContact mobileContact) {
+        MobileContact previous = replaceIfPresent(id, mobileContact);
+        if (previous == null || previous.getId() != id) return null;
+        return mobileContact;
+    }
+
+    @Override
+    public void delete(long id) {
+        remove(id);
+    }
+
+    @Override
+    public void delete(String phoneNumber) {
+        remove(phoneNumber);
+    }
+
+    @Override
+    public MobileContact remove(long id) {
+        int slot = slotsById.get(id);
+        if (slot == LongIntHashMap.NO_VALUE) return null;
+        MobileContact removed = read(slot);
+        free(slot);
+        return removed;
+    }
+
+    @Override
+    public MobileContact remove(String phoneNumber) {
+        int slot = slotOf(phoneNumber);
+        if (slot == LongIntHashMap.NO_VALUE) return null;
+        MobileContact removed = read(slot);
+        free(slot);
+        return removed;
+    }
+
+    @Override
+    public MobileContact get(long id) {
+        int slot = slotsById.get(id);
+        return slot == LongIntHashMap.NO_VALUE ? null : read(slot);
+    }
+
+    @Override
+    public MobileContact get(String phoneNumber) {
+        int slot = slotOf(phoneNumber);
+        return slot == LongIntHashMap.NO_VALUE ? null : read(slot);
+    }
+
+    @Override
+    public List<MobileContact> getAll() {
+        List<MobileContact> contacts = new ArrayList<>(slotsById.size());
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (flags[slot] != 0) contacts.add(read(slot));
+        }
+        return Collections.unmodifiableList(contacts);
+    }
+
+    /**
+     *Returns a lazy {@link Stream} over the slots; each {@link MobileContact}
+     * is built only when the stream reaches it
+     * @return
+     *          the resulting {@link Stream}
+     */
+    @Override
+    public Stream<MobileContact> stream() {
+        return IntStream.range(0, slotCount).mapToObj(slot -> flags[slot] != 0 ? read(slot) : null)
+                .filter(Objects::nonNull);
+    }
+
+    /**
+     *Returns the {@link MobileContact} instances of a person, following the
+     * chain of their slots instead of scanning
+     * @param userDetailsId
+     *                      the id of the User Details
+     * @return
+     *          the matching Mobile Contacts, in the order they were indexed
+     */
+    @Override
+    public List<MobileContact> getContactsByUser(long userDetailsId) {
+        List<MobileContact> contacts = new ArrayList<>();
+        for (int slot = firstSlotByUserId.get(userDetailsId); slot != LongIntHashMap.NO_VALUE; slot = nextOfUser[slot]) {
+            contacts.add(read(slot));
+        }
+        //The chain starts with the latest slot
+        Collections.reverse(contacts);
+        return contacts;
+    }
+
+    /**
+     *Returns the lookups answered from the id, phone number and User Details indexes
+     * @return
+     *          the indexed lookups
+     */
+    @Override
+    public Set<ContactIndex> getIndexes() {
+        return EnumSet.of(ContactIndex.ID, ContactIndex.PHONE_NUMBER, ContactIndex.USER_DETAILS_ID);
+    }
+
+    @Override
+    public boolean phoneNumberExists(String phoneNumber) {
+        return slotOf(phoneNumber) != LongIntHashMap.NO_VALUE;
+    }
+
+    @Override
+    public boolean userIdExist(long id) {
+        return slotsById.containsKey(id);
+    }
+
+    /**
+     *Inserts a {@link MobileContact} if neither its id nor its phone number exist
+     * @param mobileContact
+     *                      the gr.aueb.mobileapp.model that contains the mobile data
+     * @return
+     *          null if the {@link MobileContact} was inserted, otherwise the
+     *          existing {@link MobileContact} that holds the phone number or the id
+     */
+    @Override
+    public MobileContact insertIfAbsent(MobileContact mobileContact) {
+        int existing = slotOf(mobileContact.getPhoneNumber());
+        if (existing == LongIntHashMap.NO_VALUE) existing = slotsById.get(mobileContact.getId());
+        if (existing != LongIntHashMap.NO_VALUE) return read(existing);
+
+        int slot = allocate();
+        write(slot, mobileContact);
+        slotsById.put(mobileContact.getId(), slot);
+        indexPhoneNumber(slot);
+        indexUser(slot);
+        return null;
+    }
+
+    /**
+     *Replaces the {@link MobileContact} with the input id in its own slot
+     * @param id
+     *          id of the Mobile Contact that we want to replace
+     * @param mobileContact
+     *                      the gr.aueb.mobileapp.model that contains the mobile data
+     * @return
+     *          the replaced {@link MobileContact}, null if the id does not exist, or
+     *          the {@link MobileContact} that already owns the phone number
+     */
+    @Override
+    public MobileContact replaceIfPresent(long id, MobileContact mobileContact) {
+        if (id != mobileContact.getId()) return null;
+        int slot = slotsById.get(id);
+        if (slot == LongIntHashMap.NO_VALUE) return null;
+        int owner = slotOf(mobileContact.getPhoneNumber());
+        if (owner != LongIntHashMap.NO_VALUE && owner != slot) return read(owner);
+
+        MobileContact previous = read(slot);
+        unindexPhoneNumber(slot);
+        unindexUser(slot);
+        write(slot, mobileContact);
+        indexPhoneNumber(slot);
+        indexUser(slot);
+        return previous;
+    }
+
+    /**
+     * Returns the heap bytes of the columns and of the indexes, which
+     * excludes the name Strings and the phone numbers that cannot be packed
+     */
+    public long columnBytes() {
+        //Three long columns, two references of a compressed heap, two int columns and the flags
+        long perSlot = 3L * Long.BYTES + 4L * Integer.BYTES + Byte.BYTES;
+        return ids.length * perSlot + (long) freeSlots.length * Integer.BYTES
+                + slotsById.tableBytes() + slotsByPhoneCode.tableBytes() + firstSlotByUserId.tableBytes();
+    }
+
+    private int slotOf(String phoneNumber) {
+        long code = PhoneNumberCodec.encode(phoneNumber);
+        if (code != PhoneNumberCodec.NOT_ENCODABLE) return slotsByPhoneCode.get(code);
+        Integer slot = slotsByOtherPhoneNumber.get(phoneNumber);
+        return slot == null ? LongIntHashMap.NO_VALUE : slot;
+    }
+
+    private MobileContact read(int slot) {
+        UserDetails userDetails = null;
+        if ((flags[slot] & HAS_USER_DETAILS) != 0) {
+            userDetails = new UserDetails(userIds[slot], firstnames[slot], lastnames[slot]);
+        }
+        String phoneNumber = phoneCodes[slot] != PhoneNumberCodec.NOT_ENCODABLE
+                ? PhoneNumberCodec.decode(phoneCodes[slot])
+                : otherPhoneNumbersBySlot.get(slot);
+        return new MobileContact(ids[slot], userDetails, phoneNumber);
+    }
+
+    private void write(int slot, MobileContact mobileContact) {
+        UserDetails userDetails = mobileContact.getUserDetails();
+        ids[slot] = mobileContact.getId();
+        phoneCodes[slot] = PhoneNumberCodec.encode(mobileContact.getPhoneNumber());
+        if (phoneCodes[slot] == PhoneNumberCodec.NOT_ENCODABLE) {
+            otherPhoneNumbersBySlot.put(slot, mobileContact.getPhoneNumber());
+        }
+        userIds[slot] = userDetails != null ? userDetails.getId() : 0L;
+        firstnames[slot] = userDetails != null ? userDetails.getFirstname() : null;
+        lastnames[slot] = userDetails != null ? userDetails.getLastname() : null;
+        flags[slot] = userDetails != null ? LIVE | HAS_USER_DETAILS : LIVE;
+    }
+
+    private void indexPhoneNumber(int slot) {
+        if (phoneCodes[slot] != PhoneNumberCodec.NOT_ENCODABLE) {
+            slotsByPhoneCode.put(phoneCodes[slot], slot);
+        } else {
+            slotsByOtherPhoneNumber.put(otherPhoneNumbersBySlot.get(slot), slot);
+        }
+    }
+
+    private void unindexPhoneNumber(int slot) {
+        if (phoneCodes[slot] != PhoneNumberCodec.NOT_ENCODABLE) {
+            slotsByPhoneCode.remove(phoneCodes[slot]);
+        } else {
+            slotsByOtherPhoneNumber.remove(otherPhoneNumbersBySlot.remove(slot));
+        }
+    }
+
+    /**
+     * Adds a slot with User Details to the front of the chain of their id
+     */
+    private void indexUser(int slot) {
+        if ((flags[slot] & HAS_USER_DETAILS) == 0) return;
+        int first = firstSlotByUserId.put(userIds[slot], slot);
+        nextOfUser[slot] = first;
+        previousOfUser[slot] = LongIntHashMap.NO_VALUE;
+        if (first != LongIntHashMap.NO_VALUE) previousOfUser[first] = slot;
+    }
+
+    private void unindexUser(int slot) {
+        if ((flags[slot] & HAS_USER_DETAILS) == 0) return;
+        int previous = previousOfUser[slot];
+        int next = nextOfUser[slot];
+        if (previous != LongIntHashMap.NO_VALUE) {
+            nextOfUser[previous] = next;
+        } else if (next != LongIntHashMap.NO_VALUE) {
+            firstSlotByUserId.put(userIds[slot], next);
+        } else {
+            firstSlotByUserId.remove(userIds[slot]);
+        }
+        if (next != LongIntHashMap.NO_VALUE) previousOfUser[next] = previous;
+    }
+
+    private void free(int slot) {
+        slotsById.remove(ids[slot]);
+        unindexPhoneNumber(slot);
+        unindexUser(slot);
+        firstnames[slot] = null;
+        lastnames[slot] = null;
+        flags[slot] = 0;
+
+        if (freeCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        freeSlots[freeCount++] = slot;
+    }
+
+    private int allocate() {
+        if (freeCount > 0) return freeSlots[--freeCount];
+
+        if (slotCount == ids.length) {
+            int capacity = slotCount * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            phoneCodes = Arrays.copyOf(phoneCodes, capacity);
+            userIds = Arrays.copyOf(userIds, capacity);
+            firstnames = Arrays.copyOf(firstnames, capacity);
+            lastnames = Arrays.copyOf(lastnames, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            nextOfUser = Arrays.copyOf(nextOfUser, capacity);
+            previousOfUser = Arrays.copyOf(previousOfUser, capacity);
+        }
+        return slotCount++;
+    }
+}
@@ -0,0 +1,539 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Thread safe implementation of {@link IMobileContactDAO} that spreads the
+ * contacts over independent partitions by hash of the id. Each partition is a
+ * DAO of its own with its own read-write lock, so operations on contacts of
+ * different partitions never wait for each other. A phone directory, itself a
+ * hash partitioned concurrent map, maps every phone number to the id of its
+ * owner: lookups by phone number go straight to the owning partition, and an
+ * insert or update claims the phone number in the directory before it writes,
+ * which keeps phone numbers unique across the partitions.
+ *
+ * {@link #getAll()}, {@link #findAll(Predicate)} and the other scans read the
+ * partitions in parallel on the common {@link ForkJoinPool}. Each partition
+ * is read at a single point in time, but the partitions are not read at the
+ * same point in time
+ */
+public class MobileContactShardedDAOImpl implements IMobileContactDAO {
+
+    private final Partition[] partitions;
+
+    //Owner id of every phone number. An insert or update claims the phone number here first
+    private final ConcurrentMap<String, Long> phoneDirectory = new ConcurrentHashMap<>();
+
+    //Inverted index for name searches over all the partitions, so results are ranked together
+    private final NameSearchIndex nameSearchIndex = new NameSearchIndex();
+
+    //Multi-valued index from the id of the User Details to their contacts, over all the partitions
+    private final UserContactsIndex userContactsIndex = new UserContactsIndex();
+
+    /**
+     * Uses hash indexed partitions without name search and User Details indexes,
+     * since this DAO keeps those over all the partitions
+     */
+    public MobileContactShardedDAOImpl() {
+        this(Runtime.getRuntime().availableProcessors() * 4, () -> new MobileContactHashDAOImpl(false));
+    }
+
+    /**
+     * @param partitionCount
+     *                      the number of partitions
+     * @param partitionFactory
+     *                      creates the empty DAO of each partition. Every call must
+     *                      return an independent DAO, so a {@link MobileContactDAOImpl},
+     *                      whose instances share one static list, cannot be a partition.
+     *                      Name searches and lookups by User Details never reach the
+     *                      partitions, so their DAOs need no indexes for them
+     */
+    public MobileContactShardedDAOImpl(int partitionCount, Supplier<? extends IMobileContactDAO> partitionFactory) {
+        if (partitionCount < 1) throw new IllegalArgumentException("partitionCount must be positive: " + partitionCount);
+        partitions = new Partition[partitionCount];
+        Set<IMobileContactDAO> created = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < partitionCount; i++) {
+            IMobileContactDAO dao = partitionFactory.get();
+            if (!created.add(dao) || !dao.getAll().isEmpty()) {
+                throw new IllegalArgumentException("Each partition needs a new, empty DAO");
+            }
+            partitions[i] = new Partition(dao);
+        }
+    }
+
+    /**
+     *Insert a new {@link MobileContact} instance in its partition
+     * @param mobileContact
+     *                      the gr.aueb.mobileapp.model that contains mobile data
+     * @return
+     *          the added {@link MobileContact} or null if its id or
+     *          phone number already exists
+     */
+    @Override
+    public MobileContact insert(MobileContact mobileContact) {
+        if (mobileContact == null) return null;
+        return insertIfAbsent(mobileContact) == null ? mobileContact : null;
+    }
+
+    /**
+     * Update a {@link MobileContact} instance based on the id
+     * @param id
+     *          id of the {@link MobileContact} instance that we want to update
+     * @param mobileContact
+     *                      the gr.aueb.mobileapp.model that contains the mobile data
+     * @return
+     *          the updated {@link MobileContact} or null if the id does not exist
+     *          or the new phone number belongs to another {@link MobileContact}
+     */
+    @Override
+    public MobileContact update(long id, MobileContact mobileContact) {
+        MobileContact previous = replaceIfPresent(id, mobileContact);
+        if (previous == null || previous.getId() != id) return null;
+        return mobileContact;
+    }
+
+    @Override
+    public void delete(long id) {
+        remove(id);
+    }
+
+    @Override
+    public void delete(String phoneNumber) {
+        remove(phoneNumber);
+    }
+
+    /**
+     *Removes a {@link MobileContact} from its partition and releases its phone number
+     * @param id
+     *             the {@link MobileContact} 's id needed to be removed
+     * @return
+     *          the removed {@link MobileContact} or null if the id does not exist
+     */
+    @Override
+    public MobileContact remove(long id) {
+        Partition partition = partitionOf(id);
+        partition.lock.writeLock().lock();
+        try {
+            MobileContact removed = partition.dao.remove(id);
+            if (removed != null) release(removed);
+            return removed;
+        } finally {
+            partition.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     *Removes the {@link MobileContact} that owns a phone number, found through the phone directory
+     * @param phoneNumber
+     *                  the {@link MobileContact} 's phone number needed to be removed
+     * @return
+     *          the removed {@link MobileContact} or null if the phone number does not exist
+     */
+    @Override
+    public MobileContact remove(String phoneNumber) {
+        while (true) {
+            Long id = phoneDirectory.get(phoneNumber);
+            if (id == null) return null;
+
+            Partition partition = partitionOf(id);
+            partition.lock.writeLock().lock();
+            try {
+                MobileContact current = partition.dao.get(id);
+                if (current != null && current.getPhoneNumber().equals(phoneNumber)) {
+                    partition.dao.remove(id);
+                    release(current);
+                    return current;
+                }
+            } finally {
+                partition.lock.writeLock().unlock();
+            }
+            //Claimed by an insert that has not reached its partition yet
+            if (id.equals(phoneDirectory.get(phoneNumber))) return null;
+        }
+    }
+
+    @Override
+    public MobileContact get(long id) {
+        Partition partition = partitionOf(id);
+        partition.lock.readLock().lock();
+        try {
+            return partition.dao.get(id);
+        } finally {
+            partition.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *Returns the {@link MobileContact} that owns a phone number, read from
+     * the partition of the owner id held by the phone directory
+     * @param phoneNumber
+     *                  the {@link MobileContact} 's phone number to be returned
+     * @return
+     *           null  if the Mobile Contact will not exist
+     */
+    @Override
+    public MobileContact get(String phoneNumber) {
+        while (true) {
+            Long id = phoneDirectory.get(phoneNumber);
+            if (id == null) return null;
+            MobileContact owner = get(id);
+            if (owner != null && owner.getPhoneNumber().equals(phoneNumber)) return owner;
+            //Claimed by an insert or update that has not reached its partition yet
+            if (id.equals(phoneDirectory.get(phoneNumber))) return null;
+        }
+    }
+
+    /**
+     *Returns a copy of all the instances, read from the partitions in parallel
+     * @return
+     *          all instances of the Datasource
+     */
+    @Override
+    public List<MobileContact> getAll() {
+        return Collections.unmodifiableList(scan(IMobileContactDAO::getAll));
+    }
+
+    /**
+     *Returns one page of {@link MobileContact} instances in ascending id order,
+     * merged from the pages of the partitions
+     * @param cursor
+     *              the id after which the page starts, or null for the first page
+     * @param pageSize
+     *              the maximum number of {@link MobileContact} instances of the page
+     * @return
+     *          the resulting {@link ContactPage}
+     */
+    @Override
+    public ContactPage getPage(Long cursor, int pageSize) {
+        if (pageSize <= 0) throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+
+        //The page is among the pageSize + 1 smallest ids of each partition
+        List<MobileContact> contacts = scan(dao -> dao.getPage(cursor, pageSize + 1).getContacts());
+        contacts.sort(Comparator.comparingLong(MobileContact::getId));
+        return ContactPage.of(contacts.subList(0, Math.min(contacts.size(), pageSize + 1)), pageSize);
+    }
+
+    /**
+     *Returns a lazy {@link Stream} over the partitions, each one read at a single
+     * point in time when the stream reaches it. The partitions split for parallel traversal
+     * @return
+     *          the resulting {@link Stream}
+     */
+    @Override
+    public Stream<MobileContact> stream() {
+        return IntStream.range(0, partitions.length)
+                .boxed()
+                .flatMap(index -> partitions[index].read(IMobileContactDAO::getAll).stream());
+    }
+
+    /**
+     *Returns the {@link MobileContact} instances whose phone number starts with
+     * the prefix, in phone number order, from the partitions searched in parallel
+     * @param prefix
+     *              the phone number prefix, e.g. an area code
+     * @param limit
+     *              the maximum number of results
+     * @return
+     *          at most limit matching {@link MobileContact} instances
+     */
+    @Override
+    public List<MobileContact> findByPhonePrefix(String prefix, int limit) {
+        List<MobileContact> matches = scan(dao -> dao.findByPhonePrefix(prefix, limit));
+        matches.sort(Comparator.comparing(MobileContact::getPhoneNumber));
+        return new ArrayList<>(matches.subList(0, Math.min(matches.size(), limit)));
+    }
+
+    /**
+     *Returns the {@link MobileContact} instances whose first or last name best
+     * match the query, ranked over all the partitions together
+     * @param query
+     *              one or more, possibly partial or misspelled, names
+     * @param limit
+     *              the maximum number of results
+     * @return
+     *          at most limit {@link MobileContact} instances, best match first
+     */
+    @Override
+    public List<MobileContact> searchByName(String query, int limit) {
+        return nameSearchIndex.search(query, limit);
+    }
+
+    /**
+     *Returns every {@link MobileContact} instance that matches a condition,
+     * testing the partitions in parallel
+     * @param predicate
+     *                  the condition, which may be tested from several threads at once
+     * @return
+     *          the matching {@link MobileContact} instances, in no particular order
+     */
+    @Override
+    public List<MobileContact> findAll(Predicate<? super MobileContact> predicate) {
+        return scan(dao -> dao.findAll(predicate));
+    }
+
+    /**
+     *Returns the {@link MobileContact} instances of a person, read from the
+     * User Details index shared by the partitions
+     * @param userDetailsId
+     *                      the id of the User Details
+     * @return
+     *          the matching {@link MobileContact} instances, empty if there are none
+     */
+    @Override
+    public List<MobileContact> getContactsByUser(long userDetailsId) {
+        return userContactsIndex.find(userDetailsId);
+    }
+
+    /**
+     *Removes the {@link MobileContact} instances of a person found in the User
+     * Details index, locking only the partitions of the matches, one at a time.
+     * A contact that was moved to another person or removed meanwhile is left alone
+     * @param userDetailsId
+     *                      the id of the User Details
+     * @return
+     *          the removed {@link MobileContact} instances, empty if there were none
+     */
+    @Override
+    public List<MobileContact> deleteContactsByUser(long userDetailsId) {
+        List<MobileContact> removed = new ArrayList<>();
+        for (MobileContact current : userContactsIndex.find(userDetailsId)) {
+            Partition partition = partitionOf(current.getId());
+            partition.lock.writeLock().lock();
+            try {
+                MobileContact latest = partition.dao.get(current.getId());
+                if (latest == null || latest.getUserDetails() == null
+                        || latest.getUserDetails().getId() != userDetailsId) continue;
+                partition.dao.remove(current.getId());
+                release(latest);
+                removed.add(latest);
+            } finally {
+                partition.lock.writeLock().unlock();
+            }
+        }
+        return removed;
+    }
+
+    /**
+     *Returns the lookups answered from an index: ids go to a single partition,
+     * phone numbers through the phone directory and User Details ids through the
+     * shared index. Phone number prefixes and pages are merged from the partitions,
+     * so they are indexed if the partitions index them
+     * @return
+     *          the indexed lookups
+     */
+    @Override
+    public Set<ContactIndex> getIndexes() {
+        Set<ContactIndex> indexes = EnumSet.of(ContactIndex.ID, ContactIndex.PHONE_NUMBER, ContactIndex.USER_DETAILS_ID);
+        Set<ContactIndex> partitionIndexes = partitions[0].dao.getIndexes();
+        if (partitionIndexes.contains(ContactIndex.PHONE_PREFIX)) indexes.add(ContactIndex.PHONE_PREFIX);
+        if (partitionIndexes.contains(ContactIndex.ID_ORDER)) indexes.add(ContactIndex.ID_ORDER);
+        return indexes;
+    }
+
+    @Override
+    public boolean phoneNumberExists(String phoneNumber) {
+        return get(phoneNumber) != null;
+    }
+
+    @Override
+    public boolean userIdExist(long id) {
+        Partition partition = partitionOf(id);
+        partition.lock.readLock().lock();
+        try {
+            return partition.dao.userIdExist(id);
+        } finally {
+            partition.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *Inserts a {@link MobileContact} if neither its id nor its phone number
+     * exist in any partition. The phone number is claimed in the phone
+     * directory first and released again if the id is taken
+     * @param mobileContact
+     *                      the gr.aueb.mobileapp.model that contains the mobile data
+     * @return
+     *          null if the {@link MobileContact} was inserted, otherwise the
+     *          existing {@link MobileContact} that holds the phone number or the id
+     */
+    @Override
+    public MobileContact insertIfAbsent(MobileContact mobileContact) {
+        String phoneNumber = mobileContact.getPhoneNumber();
+        long id = mobileContact.getId();
+        while (true) {
+            Long ownerId = phoneDirectory.putIfAbsent(phoneNumber, id);
+            if (ownerId == null) break;
+            MobileContact owner = get(ownerId);
+            if (owner != null && owner.getPhoneNumber().equals(phoneNumber)) return owner;
+            //The owner is being inserted, updated or removed; wait until it is settled
+            Thread.yield();
+        }
+
+        Partition partition = partitionOf(id);
+        partition.lock.writeLock().lock();
+        try {
+            MobileContact sameId = partition.dao.get(id);
+            if (sameId != null) {
+                phoneDirectory.remove(phoneNumber, id);
+                return sameId;
+            }
+            partition.dao.insert(mobileContact);
+            nameSearchIndex.add(mobileContact);
+            userContactsIndex.add(mobileContact);
+            return null;
+        } finally {
+            partition.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     *Replaces the {@link MobileContact} with the input id. A new phone number
+     * is claimed in the phone directory before the partition is changed, and
+     * the old one is released after
+     * @param id
+     *          id of the Mobile Contact that we want to replace
+     * @param mobileContact
+     *                      the gr.aueb.mobileapp.model that contains the mobile data
+     * @return
+     *          the replaced {@link MobileContact}, null if the id does not exist, or
+     *          the {@link MobileContact} that already owns the phone number
+     */
+    @Override
+    public MobileContact replaceIfPresent(long id, MobileContact mobileContact) {
+        if (id != mobileContact.getId()) return null;
+        String phoneNumber = mobileContact.getPhoneNumber();
+        Partition partition = partitionOf(id);
+
+        while (true) {
+            Long ownerId = null;
+            partition.lock.writeLock().lock();
+            try {
+                MobileContact previous = partition.dao.get(id);
+                if (previous == null) return null;
+
+                boolean samePhoneNumber = previous.getPhoneNumber().equals(phoneNumber);
+                if (!samePhoneNumber) {
+                    ownerId = phoneDirectory.putIfAbsent(phoneNumber, id);
+                }
+                if (ownerId == null || ownerId == id) {
+                    partition.dao.update(id, mobileContact);
+                    if (!samePhoneNumber) phoneDirectory.remove(previous.getPhoneNumber(), id);
+                    nameSearchIndex.remove(previous);
+                    nameSearchIndex.add(mobileContact);
+                    userContactsIndex.remove(previous);
+                    userContactsIndex.add(mobileContact);
+                    return previous;
+                }
+            } finally {
+                partition.lock.writeLock().unlock();
+            }
+
+            //The owner is read outside the lock, since it may live in another partition
+            MobileContact owner = get(ownerId);
+            if (owner != null && owner.getPhoneNumber().equals(phoneNumber)) return owner;
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Returns the number of partitions
+     */
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+
+    /**
+     * Releases the phone number and the index entries of a contact just
+     * removed from its partition. The caller holds the write lock of the partition
+     */
+    private void release(MobileContact removed) {
+        phoneDirectory.remove(removed.getPhoneNumber(), removed.getId());
+        nameSearchIndex.remove(removed);
+        userContactsIndex.remove(removed);
+    }
+
+    private Partition partitionOf(long id) {
+        long h = id * 0x9e3779b97f4a7c15L;
+        return partitions[(int) Math.floorMod(h ^ (h >>> 32), (long) partitions.length)];
+    }
+
+    /**
+     * Reads every partition in parallel and concatenates the results
+     */
+    private List<MobileContact> scan(Function<IMobileContactDAO, List<MobileContact>> reader) {
+        return ForkJoinPool.commonPool().invoke(new PartitionScan(partitions, reader, 0, partitions.length));
+    }
+
+    /**
+     * A DAO and the lock that guards it
+     */
+    private static final class Partition {
+
+        final IMobileContactDAO dao;
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        Partition(IMobileContactDAO dao) {
+            this.dao = dao;
+        }
+
+        List<MobileContact> read(Function<IMobileContactDAO, List<MobileContact>> reader) {
+            lock.readLock().lock();
+            try {
+                //Copied, since the DAO may return a view of its storage
+                return new ArrayList<>(reader.apply(dao));
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Splits a range of partitions in halves down to single partitions, which are read in parallel
+     */
+    private static final class PartitionScan extends RecursiveTask<List<MobileContact>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Partition[] partitions;
+        private final Function<IMobileContactDAO, List<MobileContact>> reader;
+        private final int from;
+        private final int to;
+
+        PartitionScan(Partition[] partitions, Function<IMobileContactDAO, List<MobileContact>> reader, int from, int to) {
+            this.partitions = partitions;
+            this.reader = reader;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<MobileContact> compute() {
+            if (to - from == 1) return partitions[from].read(reader);
+
+            int middle = (from + to) >>> 1;
+            PartitionScan right = new PartitionScan(partitions, reader, middle, to);
+            right.fork();
+            List<MobileContact> result = new PartitionScan(partitions, reader, from, middle).compute();
+            result.addAll(right.join());
+            return result;
+        }
+    }
+}
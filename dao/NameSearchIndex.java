@@ -0,0 +1,325 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index over the first and last names of the {@link UserDetails}
+ * of each {@link MobileContact}. Names are normalized (case, accents) and
+ * split in tokens; every token is indexed as a whole and as trigrams.
+ * A search ranks exact token matches first, then tokens that start with a
+ * query token (partial names), then tokens that share enough trigrams with
+ * a query token (typos). The work of a search is bounded by its limit: each
+ * query token contributes a bounded number of candidates, exact matches
+ * first, and only the candidates are ranked. The index is safe for concurrent use.
+ */
+public class NameSearchIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final double EXACT_SCORE = 3.0;
+    private static final double PREFIX_SCORE = 2.0;
+
+    //Trigrams shared by more contacts than this carry little signal and are skipped
+    private static final int MAX_TRIGRAM_POSTINGS = 50_000;
+
+    //Fraction of the trigrams of a query token a fuzzy match has to share
+    private static final double MIN_TRIGRAM_SIMILARITY = 0.5;
+
+    //Candidates each query token contributes per requested result, and at least
+    private static final int CANDIDATES_PER_RESULT = 8;
+    private static final int MIN_CANDIDATES = 64;
+
+    //Postings walked to find the contacts with every token of a query, whatever its limit
+    private static final int MAX_INTERSECTION_VISITS = 65_536;
+
+    private final ConcurrentMap<Long, MobileContact> contactsById = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<Long>> tokenPostings = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<Long>> trigramPostings = new ConcurrentHashMap<>();
+
+    //The indexed tokens, in order, for partial name lookups; kept in step with tokenPostings
+    private final ConcurrentSkipListSet<String> tokenDictionary = new ConcurrentSkipListSet<>();
+
+    /**
+     * Indexes the names of a {@link MobileContact}
+     * @param mobileContact
+     *                      the Mobile Contact to be indexed
+     */
+    public void add(MobileContact mobileContact) {
+        long id = mobileContact.getId();
+        contactsById.put(id, mobileContact);
+        for (String token : tokensOf(mobileContact)) {
+            addToken(token, id);
+            for (String trigram : trigramsOf(token)) {
+                addPosting(trigramPostings, trigram, id);
+            }
+        }
+    }
+
+    /**
+     * Removes the names of a {@link MobileContact} from the index,
+     * if it is still the one indexed under its id
+     * @param mobileContact
+     *                      the Mobile Contact to be removed from the index
+     */
+    public void remove(MobileContact mobileContact) {
+        long id = mobileContact.getId();
+        if (!contactsById.remove(id, mobileContact)) return;
+        for (String token : tokensOf(mobileContact)) {
+            removeToken(token, id);
+            for (String trigram : trigramsOf(token)) {
+                removePosting(trigramPostings, trigram, id);
+            }
+        }
+    }
+
+    /**
+     * Returns the {@link MobileContact} instances whose names best match the query
+     * @param query
+     *              one or more, possibly partial or misspelled, names
+     * @param limit
+     *              the maximum number of results
+     * @return
+     *          at most limit Mobile Contacts, best match first
+     */
+    public List<MobileContact> search(String query, int limit) {
+        List<String> queryTokens = new ArrayList<>(tokenize(query));
+        if (queryTokens.isEmpty() || limit <= 0) return Collections.emptyList();
+
+        int budget = (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_CANDIDATES, (long) limit * CANDIDATES_PER_RESULT));
+        Set<Long> candidates = new HashSet<>();
+        if (queryTokens.size() > 1) collectAllExact(queryTokens, candidates, budget);
+        for (String queryToken : queryTokens) {
+            Set<Long> tokenCandidates = new HashSet<>();
+            collectExact(queryToken, tokenCandidates, budget);
+            collectPrefix(queryToken, tokenCandidates, budget);
+            if (tokenCandidates.size() < limit) {
+                collectTrigrams(queryToken, tokenCandidates);
+            }
+            candidates.addAll(tokenCandidates);
+        }
+
+        Map<Long, Double> scores = new HashMap<>();
+        for (Long id : candidates) {
+            MobileContact mobileContact = contactsById.get(id);
+            if (mobileContact == null) continue;
+            Set<String> tokens = tokensOf(mobileContact);
+            double score = 0;
+            for (String queryToken : queryTokens) {
+                score += score(queryToken, tokens);
+            }
+            if (score > 0) scores.put(id, score);
+        }
+
+        return topMatches(scores, limit);
+    }
+
+    /**
+     * Collects the contacts with every query token, the best possible matches,
+     * walking a bounded part of the shortest postings
+     */
+    private void collectAllExact(List<String> queryTokens, Set<Long> candidates, int budget) {
+        List<Set<Long>> postings = new ArrayList<>(queryTokens.size());
+        for (String queryToken : queryTokens) {
+            Set<Long> matches = tokenPostings.get(queryToken);
+            if (matches == null) return;
+            postings.add(matches);
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+
+        int visits = MAX_INTERSECTION_VISITS;
+        int found = 0;
+        for (Long id : postings.get(0)) {
+            if (found >= budget || visits-- <= 0) return;
+            boolean inAll = true;
+            for (int i = 1; i < postings.size() && inAll; i++) {
+                inAll = postings.get(i).contains(id);
+            }
+            if (inAll && candidates.add(id)) found++;
+        }
+    }
+
+    private void collectExact(String queryToken, Set<Long> candidates, int budget) {
+        Set<Long> postings = tokenPostings.get(queryToken);
+        if (postings == null) return;
+        for (Long id : postings) {
+            if (candidates.size() >= budget) return;
+            candidates.add(id);
+        }
+    }
+
+    private void collectPrefix(String queryToken, Set<Long> candidates, int budget) {
+        for (String token : tokenDictionary.tailSet(queryToken, false)) {
+            if (candidates.size() >= budget || !token.startsWith(queryToken)) return;
+            Set<Long> postings = tokenPostings.get(token);
+            if (postings == null) continue;
+            for (Long id : postings) {
+                if (candidates.size() >= budget) return;
+                candidates.add(id);
+            }
+        }
+    }
+
+    /**
+     * Collects the contacts that share enough trigrams with a query token; only
+     * run when the token has few exact and partial matches, e.g. a typo
+     */
+    private void collectTrigrams(String queryToken, Set<Long> candidates) {
+        Set<String> trigrams = trigramsOf(queryToken);
+        Map<Long, Integer> shared = new HashMap<>();
+        for (String trigram : trigrams) {
+            Set<Long> postings = trigramPostings.get(trigram);
+            if (postings == null || postings.size() > MAX_TRIGRAM_POSTINGS) continue;
+            for (Long id : postings) {
+                shared.merge(id, 1, Integer::sum);
+            }
+        }
+
+        for (Map.Entry<Long, Integer> entry : shared.entrySet()) {
+            if ((double) entry.getValue() / trigrams.size() >= MIN_TRIGRAM_SIMILARITY) {
+                candidates.add(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Scores the best match of a query token among the tokens of a contact
+     * @return
+     *          the exact or prefix score, the trigram similarity of a fuzzy match, or 0
+     */
+    private static double score(String queryToken, Set<String> tokens) {
+        if (tokens.contains(queryToken)) return EXACT_SCORE;
+        for (String token : tokens) {
+            if (token.startsWith(queryToken)) return PREFIX_SCORE;
+        }
+
+        Set<String> trigrams = trigramsOf(queryToken);
+        double best = 0;
+        for (String token : tokens) {
+            Set<String> tokenTrigrams = trigramsOf(token);
+            int shared = 0;
+            for (String trigram : trigrams) {
+                if (tokenTrigrams.contains(trigram)) shared++;
+            }
+            best = Math.max(best, (double) shared / trigrams.size());
+        }
+        return best >= MIN_TRIGRAM_SIMILARITY ? best : 0;
+    }
+
+    private List<MobileContact> topMatches(Map<Long, Double> scores, int limit) {
+        Comparator<Map.Entry<Long, Double>> byRank = Map.Entry.<Long, Double>comparingByValue()
+                .thenComparing(Map.Entry.<Long, Double>comparingByKey().reversed());
+        PriorityQueue<Map.Entry<Long, Double>> best = new PriorityQueue<>(byRank);
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            best.add(entry);
+            if (best.size() > limit) best.poll();
+        }
+
+        List<MobileContact> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            MobileContact mobileContact = contactsById.get(best.poll().getKey());
+            if (mobileContact != null) result.add(mobileContact);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Adds a posting of a token, and the token to the dictionary under the lock
+     * of its postings, so a concurrent removal of its last posting cannot drop it
+     */
+    private void addToken(String token, long id) {
+        tokenPostings.compute(token, (k, ids) -> {
+            if (ids == null) {
+                ids = ConcurrentHashMap.newKeySet();
+                tokenDictionary.add(token);
+            }
+            ids.add(id);
+            return ids;
+        });
+    }
+
+    /**
+     * Removes a posting of a token, and the token from the dictionary with its last posting
+     */
+    private void removeToken(String token, long id) {
+        tokenPostings.computeIfPresent(token, (k, ids) -> {
+            ids.remove(id);
+            if (!ids.isEmpty()) return ids;
+            tokenDictionary.remove(token);
+            return null;
+        });
+    }
+
+    private static void addPosting(ConcurrentMap<String, Set<Long>> postings, String key, long id) {
+        postings.compute(key, (k, ids) -> {
+            if (ids == null) ids = ConcurrentHashMap.newKeySet();
+            ids.add(id);
+            return ids;
+        });
+    }
+
+    private static void removePosting(ConcurrentMap<String, Set<Long>> postings, String key, long id) {
+        postings.computeIfPresent(key, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private static Set<String> tokensOf(MobileContact mobileContact) {
+        UserDetails userDetails = mobileContact.getUserDetails();
+        Set<String> tokens = new LinkedHashSet<>();
+        if (userDetails == null) return tokens;
+        tokens.addAll(tokenize(userDetails.getFirstname()));
+        tokens.addAll(tokenize(userDetails.getLastname()));
+        return tokens;
+    }
+
+    /**
+     * Splits a name in lower case tokens without accents, so that the same
+     * name written with different case or accents gives the same tokens
+     * @param text
+     *              the name to be split
+     * @return
+     *          the distinct normalized tokens of the name
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) return tokens;
+
+        String normalized = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT)
+                .replace('\u03c2', '\u03c3');
+        for (String token : SEPARATORS.split(normalized)) {
+            if (!token.isEmpty()) tokens.add(token);
+        }
+        return tokens;
+    }
+
+    private static Set<String> trigramsOf(String token) {
+        String padded = "$" + token + "$";
+        Set<String> trigrams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+}
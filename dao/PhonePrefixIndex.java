@@ -0,0 +1,61 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Ordered index of {@link MobileContact} instances by phone number.
+ * All the phone numbers that share a prefix are adjacent in the index,
+ * so a prefix search costs one descent to the first match plus one step
+ * per returned contact, whatever the size of the Datasource.
+ * The index is safe for concurrent use without external locking.
+ */
+public class PhonePrefixIndex {
+
+    private final ConcurrentNavigableMap<String, MobileContact> contactsByPhoneNumber = new ConcurrentSkipListMap<>();
+
+    /**
+     * Adds a {@link MobileContact} under its phone number
+     * @param mobileContact
+     *                      the Mobile Contact to be indexed
+     */
+    public void add(MobileContact mobileContact) {
+        contactsByPhoneNumber.put(mobileContact.getPhoneNumber(), mobileContact);
+    }
+
+    /**
+     * Removes a {@link MobileContact} if it is still the one indexed under its phone number
+     * @param mobileContact
+     *                      the Mobile Contact to be removed from the index
+     */
+    public void remove(MobileContact mobileContact) {
+        contactsByPhoneNumber.remove(mobileContact.getPhoneNumber(), mobileContact);
+    }
+
+    /**
+     * Returns the {@link MobileContact} instances whose phone number starts
+     * with the prefix, in ascending phone number order
+     * @param prefix
+     *              the phone number prefix, e.g. "69"
+     * @param limit
+     *              the maximum number of results
+     * @return
+     *          at most limit matching Mobile Contacts
+     */
+    public List<MobileContact> find(String prefix, int limit) {
+        List<MobileContact> result = new ArrayList<>(Math.min(limit, 64));
+        if (limit <= 0) return result;
+
+        for (Map.Entry<String, MobileContact> entry : contactsByPhoneNumber.tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) break;
+            result.add(entry.getValue());
+            if (result.size() == limit) break;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,73 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * {@link ContactSnapshot} made of one {@link MapContactSnapshot} per stripe,
+ * all taken at the same point in time. Its version is the sum of the versions
+ * of the stripes, which counts every write before that point
+ */
+final class StripedContactSnapshot implements ContactSnapshot {
+
+    private final MapContactSnapshot[] parts;
+    private final StripedLocks stripes;
+    private final long version;
+    private final int size;
+
+    /**
+     * @param parts
+     *              the version of each stripe, indexed by stripe
+     */
+    StripedContactSnapshot(MapContactSnapshot[] parts, StripedLocks stripes) {
+        this.parts = parts;
+        this.stripes = stripes;
+        long version = 0;
+        int size = 0;
+        for (MapContactSnapshot part : parts) {
+            version += part.getVersion();
+            size += part.size();
+        }
+        this.version = version;
+        this.size = size;
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public MobileContact get(long id) {
+        return parts[stripes.stripeOf(id)].get(id);
+    }
+
+    @Override
+    public Stream<MobileContact> stream() {
+        return Arrays.stream(parts).flatMap(MapContactSnapshot::stream);
+    }
+
+    @Override
+    public List<MobileContact> toList() {
+        List<MobileContact> contacts = new ArrayList<>(size);
+        for (MapContactSnapshot part : parts) {
+            part.forEach(contacts::add);
+        }
+        return contacts;
+    }
+
+    @Override
+    public Iterator<MobileContact> iterator() {
+        return stream().iterator();
+    }
+}
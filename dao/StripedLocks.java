@@ -0,0 +1,97 @@
+package gr.aueb.mobileapp.dao;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of locks that keys are hashed to. Callers that need several
+ * stripes always lock them in ascending order, once each, so writers
+ * touching overlapping stripes cannot deadlock
+ */
+class StripedLocks {
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    StripedLocks(int concurrencyLevel) {
+        int size = Integer.highestOneBit(Math.max(1, concurrencyLevel - 1)) << 1;
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    int size() {
+        return locks.length;
+    }
+
+    int stripeOf(long key) {
+        return spread(Long.hashCode(key));
+    }
+
+    int stripeOf(Object key) {
+        return spread(key.hashCode());
+    }
+
+    private int spread(int hash) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * Locks the given stripes in ascending order, once each
+     * @param stripes
+     *              the stripes to be locked
+     * @return
+     *          the distinct stripes that are now held
+     */
+    int[] lock(int... stripes) {
+        Arrays.sort(stripes);
+        int count = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            if (i == 0 || stripes[i] != stripes[i - 1]) {
+                stripes[count++] = stripes[i];
+            }
+        }
+        int[] held = Arrays.copyOf(stripes, count);
+        for (int stripe : held) {
+            locks[stripe].lock();
+        }
+        return held;
+    }
+
+    void unlock(int[] held) {
+        for (int i = held.length - 1; i >= 0; i--) {
+            locks[held[i]].unlock();
+        }
+    }
+
+    /**
+     * Locks, in ascending order, every stripe marked in the mask
+     * @param needed
+     *              one flag per stripe
+     */
+    void lock(boolean[] needed) {
+        for (int i = 0; i < needed.length; i++) {
+            if (needed[i]) locks[i].lock();
+        }
+    }
+
+    void unlock(boolean[] needed) {
+        for (int i = needed.length - 1; i >= 0; i--) {
+            if (needed[i]) locks[i].unlock();
+        }
+    }
+
+    void lockAll() {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    void unlockAll() {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Multi-valued index of {@link MobileContact} instances by the id of their
+ * {@link UserDetails}, so all the contacts of a person are found in one
+ * lookup plus one step per returned contact, whatever the size of the
+ * Datasource. Each id maps to a small array that is copied on every change,
+ * which keeps lookups free of locks; a person rarely has more than a few
+ * contacts. Contacts without {@link UserDetails} are not indexed.
+ * The index is safe for concurrent use without external locking.
+ */
+public class UserContactsIndex {
+
+    private static final MobileContact[] NONE = new MobileContact[0];
+
+    private final ConcurrentMap<Long, MobileContact[]> contactsByUserId = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a {@link MobileContact} under the id of its {@link UserDetails},
+     * replacing an indexed contact with the same id
+     * @param mobileContact
+     *                      the Mobile Contact to be indexed
+     */
+    public void add(MobileContact mobileContact) {
+        UserDetails userDetails = mobileContact.getUserDetails();
+        if (userDetails == null) return;
+
+        contactsByUserId.compute(userDetails.getId(), (userId, contacts) -> {
+            if (contacts == null) return new MobileContact[] {mobileContact};
+            int index = indexOf(contacts, mobileContact);
+            if (index >= 0) {
+                MobileContact[] replaced = contacts.clone();
+                replaced[index] = mobileContact;
+                return replaced;
+            }
+            MobileContact[] added = Arrays.copyOf(contacts, contacts.length + 1);
+            added[contacts.length] = mobileContact;
+            return added;
+        });
+    }
+
+    /**
+     * Removes the {@link MobileContact} with the id of the input one from
+     * the contacts indexed under the id of its {@link UserDetails}
+     * @param mobileContact
+     *                      the Mobile Contact to be removed from the index
+     */
+    public void remove(MobileContact mobileContact) {
+        UserDetails userDetails = mobileContact.getUserDetails();
+        if (userDetails == null) return;
+
+        contactsByUserId.computeIfPresent(userDetails.getId(), (userId, contacts) -> {
+            int index = indexOf(contacts, mobileContact);
+            if (index < 0) return contacts;
+            if (contacts.length == 1) return null;
+            MobileContact[] removed = new MobileContact[contacts.length - 1];
+            System.arraycopy(contacts, 0, removed, 0, index);
+            System.arraycopy(contacts, index + 1, removed, index, removed.length - index);
+            return removed;
+        });
+    }
+
+    /**
+     * Returns the {@link MobileContact} instances whose {@link UserDetails} have the id
+     * @param userDetailsId
+     *                      the id of the User Details
+     * @return
+     *          the matching Mobile Contacts, in the order they were indexed,
+     *          or an empty list if there are none
+     */
+    public List<MobileContact> find(long userDetailsId) {
+        MobileContact[] contacts = contactsByUserId.getOrDefault(userDetailsId, NONE);
+        return contacts.length == 0 ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(contacts));
+    }
+
+    //Contacts are told apart by id, since MobileContact.equals ignores it
+    private static int indexOf(MobileContact[] contacts, MobileContact mobileContact) {
+        for (int i = 0; i < contacts.length; i++) {
+            if (contacts[i].getId() == mobileContact.getId()) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,54 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.model.MobileContact;
+
+/**
+ * Outcome of a single write of a batch operation
+ */
+public enum WriteStatus {
+
+    /** The write was applied */
+    OK,
+
+    /** The item was rejected before reaching the datasource, e.g. it had no phone number */
+    INVALID,
+
+    /** The id is already taken, either in the datasource or earlier in the same batch */
+    ID_CONFLICT,
+
+    /** The phone number is already taken, either in the datasource or earlier in the same batch */
+    PHONE_CONFLICT,
+
+    /** There is no {@link MobileContact} with the given id or phone number */
+    NOT_FOUND;
+
+    /**
+     * Maps the result of {@link IMobileContactDAO#insertIfAbsent(MobileContact)}
+     * @param mobileContact
+     *                      the Mobile Contact that was to be inserted
+     * @param existing
+     *                  the returned conflicting Mobile Contact, or null
+     * @return
+     *          the resulting {@link WriteStatus}
+     */
+    static WriteStatus ofInsert(MobileContact mobileContact, MobileContact existing) {
+        if (existing == null) return OK;
+        if (existing.getPhoneNumber().equals(mobileContact.getPhoneNumber())) return PHONE_CONFLICT;
+        return ID_CONFLICT;
+    }
+
+    /**
+     * Maps the result of {@link IMobileContactDAO#replaceIfPresent(long, MobileContact)}
+     * @param id
+     *          the id that was to be replaced
+     * @param previous
+     *                  the returned Mobile Contact, or null
+     * @return
+     *          the resulting {@link WriteStatus}
+     */
+    static WriteStatus ofReplace(long id, MobileContact previous) {
+        if (previous == null) return NOT_FOUND;
+        if (previous.getId() != id) return PHONE_CONFLICT;
+        return OK;
+    }
+}
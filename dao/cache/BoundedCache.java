@@ -0,0 +1,168 @@
+package gr.aueb.mobileapp.dao.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread safe cache that holds at most a given number of entries and drops the
+ * ones chosen by its {@link EvictionPolicy}. The keys are spread over segments
+ * with a lock and a share of the capacity each, so threads that use different
+ * keys rarely wait for each other.
+ *
+ * Values loaded from a slower store are added with {@link #putLoaded}: a load
+ * starts with {@link #startLoad(Object)}, and its value is dropped if its key
+ * was invalidated since, because a write may have changed the store after the
+ * value was read and the invalidation may already have run. Without this check,
+ * a reader that is slower than a concurrent writer would leave the old value
+ * cached for good. The invalidations are counted by stamps that each cover a
+ * small share of the keys of a segment, so a write only drops the loads of its
+ * own key and of the few keys that share its stamp
+ */
+public final class BoundedCache<K, V> {
+
+    private static final int STAMPS_PER_SEGMENT = 64;
+
+    private final CacheSegment<K, V>[] segments;
+    private final ReentrantLock[] locks;
+    private final int mask;
+    private final AtomicLongArray stamps;
+    private final int stampMask;
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximumSize
+     *                      the most entries the cache holds, at least 1
+     * @param policy
+     *                      the {@link EvictionPolicy} of a full segment
+     * @param concurrencyLevel
+     *                      the number of threads expected to use the cache at the same time
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BoundedCache(int maximumSize, EvictionPolicy policy, int concurrencyLevel) {
+        if (maximumSize < 1) throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        //Keep at least 64 entries per segment, so that the policy has enough entries to choose from
+        int count = 1;
+        while (count < concurrencyLevel && count * 2 * 64 <= maximumSize) {
+            count *= 2;
+        }
+        segments = new CacheSegment[count];
+        locks = new ReentrantLock[count];
+        mask = count - 1;
+        for (int i = 0; i < count; i++) {
+            int capacity = maximumSize / count + (i < maximumSize % count ? 1 : 0);
+            segments[i] = policy == EvictionPolicy.LRU ? new LruSegment<>(capacity) : new TinyLfuSegment<>(capacity);
+            locks[i] = new ReentrantLock();
+        }
+        stamps = new AtomicLongArray(count * STAMPS_PER_SEGMENT);
+        stampMask = stamps.length() - 1;
+    }
+
+    /**
+     * Returns the cached value of a key
+     * @return
+     *          the value, or null if the key is not cached
+     */
+    public V get(K key) {
+        int segment = segmentOf(key);
+        locks[segment].lock();
+        try {
+            return segments[segment].get(key);
+        } finally {
+            locks[segment].unlock();
+        }
+    }
+
+    /**
+     * Returns the token of a load of a key, to be passed to {@link #putLoaded}
+     */
+    public long startLoad(K key) {
+        return stamps.get(stampOf(key));
+    }
+
+    /**
+     * Caches a value read from the store, unless its key was invalidated since the load started
+     * @param load
+     *              the token returned by {@link #startLoad(Object)} for the key before the value was read
+     * @return
+     *          true if the value was cached
+     */
+    public boolean putLoaded(K key, V value, long load) {
+        int segment = segmentOf(key);
+        locks[segment].lock();
+        try {
+            if (stamps.get(stampOf(key)) != load) return false;
+            evictions.add(segments[segment].put(key, value));
+            return true;
+        } finally {
+            locks[segment].unlock();
+        }
+    }
+
+    /**
+     * Removes a key, after the store has been changed
+     */
+    public void invalidate(K key) {
+        int segment = segmentOf(key);
+        locks[segment].lock();
+        try {
+            //Stamped under the lock of the segment, so a load that checks the stamp
+            //later is rejected and a load that checked it earlier is removed
+            stamps.incrementAndGet(stampOf(key));
+            segments[segment].remove(key);
+        } finally {
+            locks[segment].unlock();
+        }
+    }
+
+    /**
+     * Removes every key
+     */
+    public void invalidateAll() {
+        for (int i = 0; i < segments.length; i++) {
+            locks[i].lock();
+            try {
+                //The stamps of a segment are the ones whose low bits are the segment
+                for (int stamp = i; stamp < stamps.length(); stamp += segments.length) {
+                    stamps.incrementAndGet(stamp);
+                }
+                segments[i].clear();
+            } finally {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of cached entries, counted one segment at a time
+     */
+    public long size() {
+        long size = 0;
+        for (int i = 0; i < segments.length; i++) {
+            locks[i].lock();
+            try {
+                size += segments[i].size();
+            } finally {
+                locks[i].unlock();
+            }
+        }
+        return size;
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private int segmentOf(Object key) {
+        return spread(key) & mask;
+    }
+
+    private int stampOf(Object key) {
+        return spread(key) & stampMask;
+    }
+
+    private static int spread(Object key) {
+        int h = key.hashCode() * 0x85ebca6b;
+        return h ^ (h >>> 13) ^ (h >>> 24);
+    }
+}
@@ -0,0 +1,22 @@
+package gr.aueb.mobileapp.dao.cache;
+
+/**
+ * One independently locked part of a {@link BoundedCache}; callers hold its lock
+ */
+interface CacheSegment<K, V> {
+
+    V get(K key);
+
+    /**
+     * Adds or replaces an entry
+     * @return
+     *          the number of entries evicted to make room
+     */
+    int put(K key, V value);
+
+    void remove(K key);
+
+    void clear();
+
+    int size();
+}
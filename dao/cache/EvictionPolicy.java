@@ -0,0 +1,18 @@
+package gr.aueb.mobileapp.dao.cache;
+
+/**
+ * Decides which entry a full {@link BoundedCache} drops
+ */
+public enum EvictionPolicy {
+
+    /** Drops the least recently used entry */
+    LRU,
+
+    /**
+     * Window TinyLFU: new entries enter a small LRU window, and an entry leaving
+     * the window replaces the least recently used entry of the main area only if
+     * it was requested more often, so a scan over many cold keys cannot flush
+     * the hot ones
+     */
+    TINY_LFU
+}
@@ -0,0 +1,49 @@
+package gr.aueb.mobileapp.dao.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Segment that evicts the least recently used entry
+ */
+final class LruSegment<K, V> implements CacheSegment<K, V> {
+
+    private final int capacity;
+    private final LinkedHashMap<K, V> entries;
+
+    LruSegment(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    @Override
+    public V get(K key) {
+        return entries.get(key);
+    }
+
+    @Override
+    public int put(K key, V value) {
+        entries.put(key, value);
+        int evicted = 0;
+        for (Iterator<K> eldest = entries.keySet().iterator(); entries.size() > capacity; evicted++) {
+            eldest.next();
+            eldest.remove();
+        }
+        return evicted;
+    }
+
+    @Override
+    public void remove(K key) {
+        entries.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+}
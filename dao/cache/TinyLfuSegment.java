@@ -0,0 +1,106 @@
+package gr.aueb.mobileapp.dao.cache;
+
+import java.util.LinkedHashMap;
+
+/**
+ * Segment with the Window TinyLFU policy. New entries enter the window, an LRU
+ * area of 1% of the capacity. The rest is the main area, split in a probation
+ * part of 20% and a protected part of 80%: an entry leaving the window goes to
+ * probation if the {@link FrequencySketch} says it was requested more often
+ * than the least recently used entry of probation, which it then replaces, and
+ * is dropped otherwise. An entry requested again while in probation moves to
+ * protected, whose least recently used entry falls back to probation
+ */
+final class TinyLfuSegment<K, V> implements CacheSegment<K, V> {
+
+    private final int windowCapacity;
+    private final int mainCapacity;
+    private final int protectedCapacity;
+    private final LinkedHashMap<K, V> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, V> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, V> protectedEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+
+    TinyLfuSegment(int capacity) {
+        this.windowCapacity = Math.max(1, capacity / 100);
+        this.mainCapacity = capacity - windowCapacity;
+        this.protectedCapacity = mainCapacity * 4 / 5;
+        this.sketch = new FrequencySketch(capacity);
+    }
+
+    @Override
+    public V get(K key) {
+        sketch.increment(key);
+        V value = window.get(key);
+        if (value != null) return value;
+        value = protectedEntries.get(key);
+        if (value != null) return value;
+        value = probation.remove(key);
+        if (value != null) {
+            protectedEntries.put(key, value);
+            if (protectedEntries.size() > protectedCapacity) {
+                K demoted = eldestOf(protectedEntries);
+                probation.put(demoted, protectedEntries.remove(demoted));
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public int put(K key, V value) {
+        if (window.containsKey(key)) {
+            window.put(key, value);
+            return 0;
+        }
+        if (protectedEntries.containsKey(key)) {
+            protectedEntries.put(key, value);
+            return 0;
+        }
+        if (probation.containsKey(key)) {
+            probation.put(key, value);
+            return 0;
+        }
+
+        sketch.increment(key);
+        window.put(key, value);
+        if (window.size() <= windowCapacity) return 0;
+
+        K candidate = eldestOf(window);
+        V candidateValue = window.remove(candidate);
+        if (probation.size() + protectedEntries.size() < mainCapacity) {
+            probation.put(candidate, candidateValue);
+            return 0;
+        }
+        LinkedHashMap<K, V> victims = probation.isEmpty() ? protectedEntries : probation;
+        if (victims.isEmpty()) return 1;
+        K victim = eldestOf(victims);
+        if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+            victims.remove(victim);
+            probation.put(candidate, candidateValue);
+        }
+        return 1;
+    }
+
+    @Override
+    public void remove(K key) {
+        if (window.remove(key) == null && probation.remove(key) == null) {
+            protectedEntries.remove(key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        window.clear();
+        probation.clear();
+        protectedEntries.clear();
+    }
+
+    @Override
+    public int size() {
+        return window.size() + probation.size() + protectedEntries.size();
+    }
+
+    private static <K> K eldestOf(LinkedHashMap<K, ?> entries) {
+        return entries.keySet().iterator().next();
+    }
+}
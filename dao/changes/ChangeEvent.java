@@ -0,0 +1,57 @@
+package gr.aueb.mobileapp.dao.changes;
+
+import gr.aueb.mobileapp.model.MobileContact;
+
+/**
+ * An insert, update or delete of a {@link MobileContact}, numbered by its
+ * position in the {@link ChangeRingBuffer}
+ */
+public final class ChangeEvent {
+
+    private final long sequence;
+    private final ChangeType type;
+    private final long id;
+    private final MobileContact mobileContact;
+
+    public ChangeEvent(long sequence, ChangeType type, long id, MobileContact mobileContact) {
+        this.sequence = sequence;
+        this.type = type;
+        this.id = id;
+        this.mobileContact = mobileContact;
+    }
+
+    /**
+     * Returns the number of the event; the events of the same id are numbered in
+     * the order they were applied
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public ChangeType getType() {
+        return type;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Returns the state of the {@link MobileContact} after an insert or update, or
+     * the last state of a deleted one. It is the instance the DAO stores and must
+     * not be changed
+     */
+    public MobileContact getMobileContact() {
+        return mobileContact;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeEvent{" +
+                "sequence=" + sequence +
+                ", type=" + type +
+                ", id=" + id +
+                ", mobileContact=" + mobileContact +
+                '}';
+    }
+}
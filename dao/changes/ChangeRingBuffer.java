@@ -0,0 +1,210 @@
+package gr.aueb.mobileapp.dao.changes;
+
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed size ring of the latest change events, written by any number of threads
+ * and read by any number of {@link ChangeSubscription}s, each at its own pace.
+ *
+ * The slots are allocated up front and reused, so publishing allocates nothing.
+ * A writer claims the next sequence, fills the slot of that sequence and marks it
+ * published; it never waits for the subscribers, so the event in a slot is
+ * overwritten once {@link #getCapacity()} newer events were published, whether or
+ * not every subscriber has read it. A subscriber checks the sequence of a slot
+ * before and after copying it, so it either gets the event it asked for or finds
+ * out that it was overrun.
+ *
+ * A slot keeps the contact of its event until it is reused, so the ring holds on
+ * to as many contacts as its capacity
+ */
+public class ChangeRingBuffer {
+
+    private static final long EMPTY = -1L;
+    private static final long WRITING = -2L;
+
+    private static final VarHandle SEQUENCE;
+
+    static {
+        try {
+            SEQUENCE = MethodHandles.lookup().findVarHandle(Slot.class, "sequence", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+    private final LongAdder overruns = new LongAdder();
+    private final List<ChangeSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param capacity
+     *              the number of events kept, rounded up to a power of two
+     */
+    public ChangeRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) throw new IllegalArgumentException("Invalid capacity " + capacity);
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        mask = size - 1;
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * Publishes an event
+     * @param mobileContact
+     *                  the state after an insert or update, or the last state of a deleted contact
+     * @return
+     *          the sequence of the event
+     */
+    public long publish(ChangeType type, long id, MobileContact mobileContact) {
+        long sequence = next.getAndIncrement();
+        Slot slot = slots[(int) sequence & mask];
+        while (true) {
+            long current = (long) SEQUENCE.getVolatile(slot);
+            //A writer a whole ring ahead already took the slot; readers of this event find an overrun
+            if (current > sequence) return sequence;
+            if (current != WRITING && SEQUENCE.compareAndSet(slot, current, WRITING)) break;
+            Thread.onSpinWait();
+        }
+        //Readers that see the new fields must also see the slot marked as being written
+        VarHandle.storeStoreFence();
+        slot.type = type;
+        slot.id = id;
+        slot.mobileContact = mobileContact;
+        SEQUENCE.setRelease(slot, sequence);
+        return sequence;
+    }
+
+    /**
+     * Returns the sequence the next event will get, which is also the number of
+     * events published so far
+     */
+    public long getNextSequence() {
+        return next.get();
+    }
+
+    /**
+     * Returns the sequence of the oldest event that has not been overwritten yet
+     */
+    public long getOldestSequence() {
+        return Math.max(0L, next.get() - slots.length);
+    }
+
+    /**
+     * Returns the number of times a subscriber found that it was overrun
+     */
+    public long getOverrunCount() {
+        return overruns.sum();
+    }
+
+    /**
+     * Subscribes from the next event to be published
+     */
+    public ChangeSubscription subscribe() {
+        return subscribe(next.get());
+    }
+
+    /**
+     * Subscribes from the given sequence, e.g. the next sequence of a subscription
+     * that was closed. A sequence that was already overwritten is reported by the
+     * first poll of the subscription
+     * @throws IllegalArgumentException
+     *          if the sequence is negative or was not published yet
+     */
+    public ChangeSubscription subscribe(long fromSequence) {
+        checkSequence(fromSequence);
+        ChangeSubscription subscription = new ChangeSubscription(this, fromSequence);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Returns the open subscriptions
+     */
+    public List<ChangeSubscription> getSubscriptions() {
+        return new ArrayList<>(subscriptions);
+    }
+
+    /**
+     * Returns the open subscriptions that are behind by at least the given number
+     * of events, or that were overrun already
+     */
+    public List<ChangeSubscription> getSlowSubscriptions(long minimumLag) {
+        List<ChangeSubscription> slow = new ArrayList<>();
+        for (ChangeSubscription subscription : subscriptions) {
+            if (subscription.getLag() >= minimumLag || subscription.isOverrun()) slow.add(subscription);
+        }
+        return slow;
+    }
+
+    void checkSequence(long sequence) {
+        if (sequence < 0 || sequence > next.get()) throw new IllegalArgumentException("Invalid sequence " + sequence);
+    }
+
+    void unsubscribe(ChangeSubscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    /**
+     * Reads the events from a sequence on into a list, up to the first event that
+     * is not published yet
+     * @return
+     *          the number of events added
+     * @throws ChangeStreamOverrunException
+     *          if the event at the sequence was overwritten; nothing is added
+     */
+    int read(long sequence, int maxEvents, List<ChangeEvent> events) throws ChangeStreamOverrunException {
+        int count = 0;
+        while (count < maxEvents) {
+            long wanted = sequence + count;
+            Slot slot = slots[(int) wanted & mask];
+            long published = (long) SEQUENCE.getAcquire(slot);
+            if (published == wanted) {
+                ChangeEvent event = new ChangeEvent(wanted, slot.type, slot.id, slot.mobileContact);
+                //The fields read above must not be taken from a newer event that overwrote the slot meanwhile
+                VarHandle.loadLoadFence();
+                if ((long) SEQUENCE.getVolatile(slot) != wanted) return overrun(wanted, count);
+                events.add(event);
+                count++;
+            } else if (published > wanted || next.get() - wanted > slots.length) {
+                return overrun(wanted, count);
+            } else {
+                //Claimed but not filled yet, or not claimed at all
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the events read before an overrun, or reports the overrun if it
+     * happened at the first one, so the events already read are not lost
+     */
+    private int overrun(long sequence, int count) throws ChangeStreamOverrunException {
+        if (count > 0) return count;
+        overruns.increment();
+        throw new ChangeStreamOverrunException(sequence, getOldestSequence());
+    }
+
+    private static final class Slot {
+        private volatile long sequence = EMPTY;
+        private ChangeType type;
+        private long id;
+        private MobileContact mobileContact;
+    }
+}
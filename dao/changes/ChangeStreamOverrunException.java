@@ -0,0 +1,33 @@
+package gr.aueb.mobileapp.dao.changes;
+
+/**
+ * Thrown to a subscriber that fell so far behind that the events it has not
+ * read yet were overwritten. The subscriber has to rebuild its state, e.g. from
+ * a snapshot, and seek to a sequence that is still available
+ */
+public class ChangeStreamOverrunException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final long sequence;
+    private final long oldestSequence;
+
+    public ChangeStreamOverrunException(long sequence, long oldestSequence) {
+        super("The event " + sequence + " was overwritten; the oldest available event is " + oldestSequence);
+        this.sequence = sequence;
+        this.oldestSequence = oldestSequence;
+    }
+
+    /**
+     * Returns the sequence of the first event the subscriber missed
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the sequence of the oldest event that could still be read when the overrun was found
+     */
+    public long getOldestSequence() {
+        return oldestSequence;
+    }
+}
@@ -0,0 +1,117 @@
+package gr.aueb.mobileapp.dao.changes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The position of one subscriber in a {@link ChangeRingBuffer}. Events are
+ * read in batches, in the order of their sequences, from the next sequence
+ * on. A subscription is meant for a single consumer thread; the lag and the
+ * next sequence may be read by any thread, e.g. for monitoring
+ */
+public class ChangeSubscription implements AutoCloseable {
+
+    //How long a waiting poll sleeps between two reads of the ring
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final ChangeRingBuffer ring;
+    private volatile long nextSequence;
+
+    ChangeSubscription(ChangeRingBuffer ring, long nextSequence) {
+        this.ring = ring;
+        this.nextSequence = nextSequence;
+    }
+
+    /**
+     * Reads the events that are available, without waiting
+     * @param maxEvents
+     *              the maximum number of events returned
+     * @return
+     *          the events in the order of their sequences, empty if there are none
+     * @throws ChangeStreamOverrunException
+     *          if the next event was overwritten before it was read
+     */
+    public List<ChangeEvent> poll(int maxEvents) throws ChangeStreamOverrunException {
+        if (maxEvents < 1) throw new IllegalArgumentException("Invalid batch size " + maxEvents);
+        List<ChangeEvent> events = new ArrayList<>(Math.min(maxEvents, 256));
+        nextSequence += ring.read(nextSequence, maxEvents, events);
+        return events.isEmpty() ? Collections.emptyList() : events;
+    }
+
+    /**
+     * Reads the events that are available, waiting up to the timeout for at
+     * least one. The writers do not signal the subscribers, so a waiting poll
+     * checks the ring every 50 microseconds
+     * @return
+     *          the events in the order of their sequences, empty if none was
+     *          published before the timeout
+     * @throws ChangeStreamOverrunException
+     *          if the next event was overwritten before it was read
+     */
+    public List<ChangeEvent> poll(int maxEvents, long timeout, TimeUnit unit)
+            throws ChangeStreamOverrunException, InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            List<ChangeEvent> events = poll(maxEvents);
+            long remaining = deadline - System.nanoTime();
+            if (!events.isEmpty() || remaining <= 0) return events;
+
+            LockSupport.parkNanos(Math.min(remaining, PARK_NANOS));
+            if (Thread.interrupted()) throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Returns the sequence of the next event to be read, the position to
+     * resume from with {@link ChangeRingBuffer#subscribe(long)}
+     */
+    public long getNextSequence() {
+        return nextSequence;
+    }
+
+    /**
+     * Moves the subscription to another sequence, e.g. to the oldest available
+     * one after an overrun
+     * @throws IllegalArgumentException
+     *          if the sequence is negative or was not published yet
+     */
+    public void seek(long sequence) {
+        ring.checkSequence(sequence);
+        nextSequence = sequence;
+    }
+
+    /**
+     * Returns the number of events published that the subscription has not read yet
+     */
+    public long getLag() {
+        return Math.max(0L, ring.getNextSequence() - nextSequence);
+    }
+
+    /**
+     * Returns true if the next event was already overwritten, so the next poll
+     * will throw {@link ChangeStreamOverrunException}
+     */
+    public boolean isOverrun() {
+        return nextSequence < ring.getOldestSequence();
+    }
+
+    /**
+     * Stops listing the subscription in its ring; the ring keeps no other state
+     * for it, so closing is only needed for monitoring
+     */
+    @Override
+    public void close() {
+        ring.unsubscribe(this);
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeSubscription{" +
+                "nextSequence=" + nextSequence +
+                ", lag=" + getLag() +
+                '}';
+    }
+}
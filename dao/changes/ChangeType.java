@@ -0,0 +1,6 @@
+package gr.aueb.mobileapp.dao.changes;
+
+/**
+ * The kind of change a {@link ChangeEvent} records
+ */
+public enum ChangeType { INSERT, UPDATE, DELETE }
@@ -0,0 +1,116 @@
+package gr.aueb.mobileapp.dao.mapped;
+
+/**
+ * Blocked Bloom filter over long keys. Every key sets its bits inside one
+ * block of 512 bits, a single cache line, so a lookup costs one memory
+ * access however many hash functions there are. The filter answers that a
+ * key was certainly never added, or that it may have been, with about the
+ * false positive rate it was sized for as long as it holds no more than the
+ * expected number of keys. Keys cannot be removed; a filter with too many
+ * stale keys is replaced by a new one.
+ *
+ * {@link #add(long)} calls must not run concurrently with each other, while
+ * {@link #mightContain(long)} may run from any thread without locking and
+ * sees every key whose add has completed
+ */
+public final class BloomFilter {
+
+    private static final int BLOCK_WORDS = 8;
+    private static final int BLOCK_BITS = BLOCK_WORDS * Long.SIZE;
+    private static final int MAX_HASHES = 16;
+    private static final double LN2 = Math.log(2);
+
+    private final long[] bits;
+    private final int blocks;
+    private final int hashes;
+    private final long capacity;
+
+    //Written after the bits of every add, read before the bits of every lookup
+    private volatile long count;
+
+    /**
+     * @param expectedKeys
+     *                  the number of keys the filter is sized for
+     * @param falsePositiveRate
+     *                  the target fraction of absent keys reported as present, e.g. 0.01
+     */
+    public BloomFilter(long expectedKeys, double falsePositiveRate) {
+        if (!(falsePositiveRate > 0.0 && falsePositiveRate < 1.0)) {
+            throw new IllegalArgumentException("Invalid false positive rate " + falsePositiveRate);
+        }
+        this.capacity = Math.max(1L, expectedKeys);
+        double bitsPerKey = -Math.log(falsePositiveRate) / (LN2 * LN2);
+        this.hashes = (int) Math.max(1L, Math.min(MAX_HASHES, Math.round(bitsPerKey * LN2)));
+        long totalBits = (long) Math.ceil(capacity * bitsPerKey);
+        long blockCount = Math.max(1L, (totalBits + BLOCK_BITS - 1) / BLOCK_BITS);
+        if (blockCount > Integer.MAX_VALUE / BLOCK_WORDS) {
+            throw new IllegalArgumentException("Filter too large for " + expectedKeys + " keys");
+        }
+        this.blocks = (int) blockCount;
+        this.bits = new long[blocks * BLOCK_WORDS];
+    }
+
+    /**
+     * Adds a key
+     */
+    public void add(long key) {
+        long hash = mix(key);
+        int base = blockOf(hash);
+        int h1 = (int) hash;
+        int h2 = (int) (mix(hash) >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+            bits[base + (bit >>> 6)] |= 1L << bit;
+        }
+        count = count + 1;
+    }
+
+    /**
+     * Returns false if the key was certainly never added, true if it may have been
+     */
+    public boolean mightContain(long key) {
+        if (count == 0) return false;
+
+        long hash = mix(key);
+        int base = blockOf(hash);
+        int h1 = (int) hash;
+        int h2 = (int) (mix(hash) >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+            if ((bits[base + (bit >>> 6)] & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of adds, including repeated and stale keys
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the number of keys the filter was sized for
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    public long sizeInBytes() {
+        return (long) bits.length * Long.BYTES;
+    }
+
+    /**
+     * Maps the high half of the hash onto the blocks without a division
+     */
+    private int blockOf(long hash) {
+        return (int) (((hash >>> 32) * blocks) >>> 32) * BLOCK_WORDS;
+    }
+
+    //Finalizer of SplitMix64, so keys that differ in a few bits land in unrelated blocks
+    private static long mix(long key) {
+        long h = (key ^ (key >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+}
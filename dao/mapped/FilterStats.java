@@ -0,0 +1,77 @@
+package gr.aueb.mobileapp.dao.mapped;
+
+/**
+ * Counts of the membership filters of a store at one point in time
+ */
+public final class FilterStats {
+
+    private final long negativeCount;
+    private final long positiveCount;
+    private final long falsePositiveCount;
+    private final long rebuildCount;
+    private final long sizeInBytes;
+
+    public FilterStats(long negativeCount, long positiveCount, long falsePositiveCount, long rebuildCount,
+                       long sizeInBytes) {
+        this.negativeCount = negativeCount;
+        this.positiveCount = positiveCount;
+        this.falsePositiveCount = falsePositiveCount;
+        this.rebuildCount = rebuildCount;
+        this.sizeInBytes = sizeInBytes;
+    }
+
+    /**
+     * Returns the number of lookups answered by a filter as certainly absent,
+     * each one an index probe and record read avoided
+     */
+    public long getNegativeCount() {
+        return negativeCount;
+    }
+
+    /**
+     * Returns the number of lookups a filter passed on to the index
+     */
+    public long getPositiveCount() {
+        return positiveCount;
+    }
+
+    /**
+     * Returns the number of lookups a filter passed on to the index that found nothing
+     */
+    public long getFalsePositiveCount() {
+        return falsePositiveCount;
+    }
+
+    /**
+     * Returns the number of times the filters were rebuilt after they filled
+     * up or gathered too many removed keys, not counting the build on open
+     */
+    public long getRebuildCount() {
+        return rebuildCount;
+    }
+
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * Returns the fraction of the lookups of absent keys that the filters did not answer
+     * @return
+     *          between 0 and 1, or 0 if there were no such lookups
+     */
+    public double getFalsePositiveRate() {
+        long absent = negativeCount + falsePositiveCount;
+        return absent == 0 ? 0.0 : (double) falsePositiveCount / absent;
+    }
+
+    @Override
+    public String toString() {
+        return "FilterStats{" +
+                "negativeCount=" + negativeCount +
+                ", positiveCount=" + positiveCount +
+                ", falsePositiveCount=" + falsePositiveCount +
+                ", rebuildCount=" + rebuildCount +
+                ", sizeInBytes=" + sizeInBytes +
+                '}';
+    }
+}
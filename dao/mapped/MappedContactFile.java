@@ -0,0 +1,382 @@
+package gr.aueb.mobileapp.dao.mapped;
+
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-layout {@link MobileContact} records in memory-mapped segment files.
+ * Every record takes {@value #RECORD_BYTES} bytes and is addressed by its slot:
+ *
+ * <pre>
+ *  0  status        1 byte   0 never used, 1 live, 2 deleted
+ *  1  phone length  1 byte
+ *  2  first length  1 byte
+ *  3  last length   1 byte
+ *  4  flags         1 byte   bit 0: has user details
+ *  6  version       2 bytes  counts the replacements of the contact, modulo 65536
+ *  8  id            8 bytes
+ * 16  user id       8 bytes
+ * 24  phone number  24 bytes UTF-8
+ * 48  firstname     40 bytes UTF-8
+ * 88  lastname      40 bytes UTF-8
+ * </pre>
+ *
+ * A record is marked deleted while it is written and live once complete,
+ * so a crash in the middle of a write never exposes a half written record.
+ * A contact is replaced by writing its next version to another slot before
+ * the old slot is freed; if a crash leaves both live, reopening keeps the
+ * later version and frees the other.
+ * The data lives in the page cache, not in the Java heap; a {@link MobileContact}
+ * is only built when {@link #read(int)} is called. Not thread safe
+ */
+public class MappedContactFile implements Closeable {
+
+    public static final int RECORD_BYTES = 128;
+    public static final int MAX_PHONE_BYTES = 24;
+    public static final int MAX_NAME_BYTES = 40;
+
+    private static final int SEGMENT_RECORDS = 1 << 18;
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".dat";
+
+    private static final byte NEVER_USED = 0;
+    private static final byte LIVE = 1;
+    private static final byte DELETED = 2;
+
+    private static final int STATUS = 0;
+    private static final int PHONE_LENGTH = 1;
+    private static final int FIRST_LENGTH = 2;
+    private static final int LAST_LENGTH = 3;
+    private static final int FLAGS = 4;
+    private static final int VERSION = 6;
+    private static final int ID = 8;
+    private static final int USER_ID = 16;
+    private static final int PHONE = 24;
+    private static final int FIRST = PHONE + MAX_PHONE_BYTES;
+    private static final int LAST = FIRST + MAX_NAME_BYTES;
+
+    private final Path directory;
+    private final List<FileChannel> channels = new ArrayList<>();
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    //Slots of deleted records, reused before new slots are taken; kept off-heap
+    private ByteBuffer freeSlots = ByteBuffer.allocateDirect(4 * 1024);
+    private int freeCount;
+    private int slotCount;
+
+    /**
+     * Opens the segment files of the directory, creating it if missing
+     * @param directory
+     *                  the directory of the segment files
+     */
+    public MappedContactFile(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        while (Files.exists(segmentFile(segments.size()))) {
+            mapSegment(segments.size());
+        }
+
+        slotCount = segments.size() * SEGMENT_RECORDS;
+        while (slotCount > 0 && buffer(slotCount - 1).get(offset(slotCount - 1) + STATUS) == NEVER_USED) {
+            slotCount--;
+        }
+        dropReplacedVersions();
+        for (int slot = slotCount - 1; slot >= 0; slot--) {
+            if (!isLive(slot)) pushFree(slot);
+        }
+    }
+
+    /**
+     * Returns one more than the highest slot ever used
+     */
+    public int slotCount() {
+        return slotCount;
+    }
+
+    public boolean isLive(int slot) {
+        return buffer(slot).get(offset(slot) + STATUS) == LIVE;
+    }
+
+    public long id(int slot) {
+        return buffer(slot).getLong(offset(slot) + ID);
+    }
+
+    /**
+     * Returns true if the record holds {@link UserDetails}
+     */
+    public boolean hasUserDetails(int slot) {
+        return (buffer(slot).get(offset(slot) + FLAGS) & 1) != 0;
+    }
+
+    /**
+     * Returns the id of the {@link UserDetails} of a record, 0 if it holds none
+     */
+    public long userId(int slot) {
+        return buffer(slot).getLong(offset(slot) + USER_ID);
+    }
+
+    /**
+     * Returns the hash of the phone number of a record, read in place
+     */
+    public long phoneHash(int slot) {
+        ByteBuffer buffer = buffer(slot);
+        int base = offset(slot);
+        return hash(buffer, base + PHONE, buffer.get(base + PHONE_LENGTH));
+    }
+
+    /**
+     * Compares the phone number of a record with the given UTF-8 bytes in place
+     */
+    public boolean phoneEquals(int slot, byte[] phoneNumber) {
+        ByteBuffer buffer = buffer(slot);
+        int base = offset(slot);
+        return buffer.get(base + PHONE_LENGTH) == phoneNumber.length && regionEquals(buffer, base + PHONE, phoneNumber);
+    }
+
+    /**
+     * Checks in place whether the phone number of a record starts with the given UTF-8 bytes
+     */
+    public boolean phoneStartsWith(int slot, byte[] prefix) {
+        ByteBuffer buffer = buffer(slot);
+        int base = offset(slot);
+        return buffer.get(base + PHONE_LENGTH) >= prefix.length && regionEquals(buffer, base + PHONE, prefix);
+    }
+
+    /**
+     * Materializes the {@link MobileContact} of a record
+     * @param slot
+     *          the slot of a live record
+     * @return
+     *          the resulting {@link MobileContact}
+     */
+    public MobileContact read(int slot) {
+        ByteBuffer buffer = buffer(slot);
+        int base = offset(slot);
+        UserDetails userDetails = null;
+        if ((buffer.get(base + FLAGS) & 1) != 0) {
+            userDetails = new UserDetails(buffer.getLong(base + USER_ID),
+                    readString(buffer, base + FIRST, buffer.get(base + FIRST_LENGTH)),
+                    readString(buffer, base + LAST, buffer.get(base + LAST_LENGTH)));
+        }
+        return new MobileContact(buffer.getLong(base + ID), userDetails,
+                readString(buffer, base + PHONE, buffer.get(base + PHONE_LENGTH)));
+    }
+
+    /**
+     * Writes a record to a free slot, reusing deleted slots first
+     * @param mobileContact
+     *                      the Mobile Contact to be stored
+     * @return
+     *          the slot of the record
+     */
+    public int append(MobileContact mobileContact) throws IOException {
+        return append(mobileContact, (short) 0);
+    }
+
+    /**
+     * Writes the next version of a live record to a free slot. The old record
+     * stays live until it is freed, so a crash in between leaves both records
+     * and reopening the file keeps the new one
+     * @param slot
+     *          the slot of the live record to be replaced
+     * @param mobileContact
+     *                      the new content of the record, with the same id
+     * @return
+     *          the slot of the new record
+     */
+    public int appendReplacement(int slot, MobileContact mobileContact) throws IOException {
+        return append(mobileContact, (short) (version(slot) + 1));
+    }
+
+    private int append(MobileContact mobileContact, short version) throws IOException {
+        byte[][] fields = encode(mobileContact);
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots.getInt(--freeCount * 4);
+        } else {
+            slot = slotCount;
+            if (slot / SEGMENT_RECORDS >= segments.size()) mapSegment(segments.size());
+            slotCount++;
+        }
+        write(slot, mobileContact, fields, version);
+        return slot;
+    }
+
+    /**
+     * Marks a record as deleted; its slot is reused by a later append
+     */
+    public void free(int slot) {
+        buffer(slot).put(offset(slot) + STATUS, DELETED);
+        pushFree(slot);
+    }
+
+    /**
+     * Checks that a {@link MobileContact} fits in the fixed layout
+     * @throws IllegalArgumentException
+     *          if the phone number or a name is too long
+     */
+    public static void checkFits(MobileContact mobileContact) {
+        encode(mobileContact);
+    }
+
+    /**
+     * Hash of the UTF-8 bytes of a phone number, equal to {@link #phoneHash(int)}
+     * of a record with the same phone number
+     */
+    public static long hash(byte[] phoneNumber) {
+        return hash(ByteBuffer.wrap(phoneNumber), 0, phoneNumber.length);
+    }
+
+    /**
+     * Forces the changes of every segment to disk
+     */
+    public void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        for (FileChannel channel : channels) {
+            channel.close();
+        }
+    }
+
+    private void write(int slot, MobileContact mobileContact, byte[][] fields, short version) {
+        ByteBuffer buffer = buffer(slot);
+        int base = offset(slot);
+        UserDetails userDetails = mobileContact.getUserDetails();
+
+        buffer.put(base + STATUS, DELETED);
+        buffer.putLong(base + ID, mobileContact.getId());
+        buffer.putShort(base + VERSION, version);
+        buffer.put(base + FLAGS, (byte) (userDetails != null ? 1 : 0));
+        buffer.putLong(base + USER_ID, userDetails != null ? userDetails.getId() : 0L);
+        writeField(buffer, base + PHONE, base + PHONE_LENGTH, fields[0]);
+        writeField(buffer, base + FIRST, base + FIRST_LENGTH, fields[1]);
+        writeField(buffer, base + LAST, base + LAST_LENGTH, fields[2]);
+        buffer.put(base + STATUS, LIVE);
+    }
+
+    private short version(int slot) {
+        return buffer(slot).getShort(offset(slot) + VERSION);
+    }
+
+    /**
+     * Marks deleted the older of two live records of the same id, which a
+     * crash between writing a replacement and freeing the old slot leaves
+     */
+    private void dropReplacedVersions() {
+        OffHeapHashIndex ids = new OffHeapHashIndex(slotCount);
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (!isLive(slot)) continue;
+            long id = id(slot);
+            int other = ids.find(id, candidate -> true);
+            if (other < 0) {
+                ids.put(id, slot);
+                continue;
+            }
+            boolean newer = version(slot) == (short) (version(other) + 1);
+            int stale = newer ? other : slot;
+            if (newer) {
+                ids.remove(id, other);
+                ids.put(id, slot);
+            }
+            buffer(stale).put(offset(stale) + STATUS, DELETED);
+        }
+    }
+
+    private static byte[][] encode(MobileContact mobileContact) {
+        UserDetails userDetails = mobileContact.getUserDetails();
+        byte[][] fields = {
+                bytesOf(mobileContact.getPhoneNumber(), MAX_PHONE_BYTES, "phone number"),
+                bytesOf(userDetails != null ? userDetails.getFirstname() : null, MAX_NAME_BYTES, "firstname"),
+                bytesOf(userDetails != null ? userDetails.getLastname() : null, MAX_NAME_BYTES, "lastname")
+        };
+        return fields;
+    }
+
+    private static byte[] bytesOf(String value, int maxBytes, String field) {
+        if (value == null) return new byte[0];
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > maxBytes) {
+            throw new IllegalArgumentException("The " + field + " '" + value + "' is longer than " + maxBytes + " bytes");
+        }
+        return bytes;
+    }
+
+    private static void writeField(ByteBuffer buffer, int position, int lengthPosition, byte[] value) {
+        buffer.put(lengthPosition, (byte) value.length);
+        for (int i = 0; i < value.length; i++) {
+            buffer.put(position + i, value[i]);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer, int position, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(position + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean regionEquals(ByteBuffer buffer, int position, byte[] expected) {
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(position + i) != expected[i]) return false;
+        }
+        return true;
+    }
+
+    private static long hash(ByteBuffer buffer, int position, int length) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < length; i++) {
+            hash ^= buffer.get(position + i) & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private void pushFree(int slot) {
+        if ((freeCount + 1) * 4 > freeSlots.capacity()) {
+            ByteBuffer grown = ByteBuffer.allocateDirect(freeSlots.capacity() * 2);
+            for (int i = 0; i < freeCount; i++) {
+                grown.putInt(i * 4, freeSlots.getInt(i * 4));
+            }
+            freeSlots = grown;
+        }
+        freeSlots.putInt(freeCount++ * 4, slot);
+    }
+
+    private void mapSegment(int segment) throws IOException {
+        FileChannel channel = FileChannel.open(segmentFile(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channels.add(channel);
+        segments.add(channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) SEGMENT_RECORDS * RECORD_BYTES));
+    }
+
+    private ByteBuffer buffer(int slot) {
+        return segments.get(slot / SEGMENT_RECORDS);
+    }
+
+    private static int offset(int slot) {
+        return (slot % SEGMENT_RECORDS) * RECORD_BYTES;
+    }
+
+    private Path segmentFile(int segment) {
+        return directory.resolve(String.format("%s%06d%s", PREFIX, segment, SUFFIX));
+    }
+}
@@ -0,0 +1,154 @@
+package gr.aueb.mobileapp.dao.mapped;
+
+import java.nio.ByteBuffer;
+import java.util.function.IntPredicate;
+
+/**
+ * Open addressing hash table from a long key to a record slot, stored in a
+ * direct buffer outside the Java heap. A key may map to several slots (e.g.
+ * when the key is the hash of a phone number), so lookups take a predicate
+ * that confirms a candidate slot against the record itself. Removal moves
+ * later entries back instead of leaving tombstones, so the table only ever
+ * grows by doubling, and it stays at most three quarters full.
+ * Not thread safe; callers synchronize externally
+ */
+public class OffHeapHashIndex {
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int EMPTY = 0;
+    //Largest power of two whose table still fits in one direct buffer
+    private static final int MAX_CAPACITY = 1 << 26;
+
+    private final int maxCapacity;
+    private ByteBuffer table;
+    private int mask;
+    private int size;
+
+    public OffHeapHashIndex(int expectedEntries) {
+        this(expectedEntries, MAX_CAPACITY);
+    }
+
+    OffHeapHashIndex(int expectedEntries, int maxCapacity) {
+        this.maxCapacity = maxCapacity;
+        allocate(capacityFor(expectedEntries, maxCapacity));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the first slot stored under the key that the predicate accepts
+     * @param key
+     *          the key to be searched
+     * @param matches
+     *              confirms a candidate slot
+     * @return
+     *          the slot, or -1 if there is none
+     */
+    public int find(long key, IntPredicate matches) {
+        for (int index = indexOf(key); ; index = (index + 1) & mask) {
+            int position = index * ENTRY_BYTES;
+            int value = table.getInt(position + 8);
+            if (value == EMPTY) return -1;
+            if (table.getLong(position) == key && matches.test(value - 1)) {
+                return value - 1;
+            }
+        }
+    }
+
+    /**
+     * Adds a slot under a key; an existing pair is not replaced
+     * @param key
+     *          the key of the slot
+     * @param slot
+     *          the record slot, zero or positive
+     * @throws IllegalStateException
+     *          if the index is full and cannot grow any more
+     */
+    public void put(long key, int slot) {
+        for (int index = indexOf(key); ; index = (index + 1) & mask) {
+            int position = index * ENTRY_BYTES;
+            int value = table.getInt(position + 8);
+            if (value == EMPTY) {
+                if ((size + 1) * 4L > (mask + 1) * 3L) {
+                    if (mask + 1 >= maxCapacity) {
+                        throw new IllegalStateException("The index cannot hold more than " + size + " entries");
+                    }
+                    rehash((mask + 1) * 2);
+                    put(key, slot);
+                    return;
+                }
+                table.putLong(position, key);
+                table.putInt(position + 8, slot + 1);
+                size++;
+                return;
+            }
+            if (value == slot + 1 && table.getLong(position) == key) return;
+        }
+    }
+
+    /**
+     * Removes a key and slot pair
+     * @return
+     *          true if the pair was present
+     */
+    public boolean remove(long key, int slot) {
+        int index = indexOf(key);
+        for (; ; index = (index + 1) & mask) {
+            int position = index * ENTRY_BYTES;
+            int value = table.getInt(position + 8);
+            if (value == EMPTY) return false;
+            if (value == slot + 1 && table.getLong(position) == key) break;
+        }
+
+        //Moves back every following entry of the run that would no longer be reachable
+        int gap = index;
+        for (int next = (gap + 1) & mask; ; next = (next + 1) & mask) {
+            int position = next * ENTRY_BYTES;
+            int value = table.getInt(position + 8);
+            if (value == EMPTY) break;
+            long nextKey = table.getLong(position);
+            int home = indexOf(nextKey);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                table.putLong(gap * ENTRY_BYTES, nextKey);
+                table.putInt(gap * ENTRY_BYTES + 8, value);
+                gap = next;
+            }
+        }
+        table.putInt(gap * ENTRY_BYTES + 8, EMPTY);
+        size--;
+        return true;
+    }
+
+    private int indexOf(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    private void rehash(int capacity) {
+        ByteBuffer old = this.table;
+        int oldCapacity = mask + 1;
+        allocate(capacity);
+        for (int index = 0; index < oldCapacity; index++) {
+            int position = index * ENTRY_BYTES;
+            int value = old.getInt(position + 8);
+            if (value != EMPTY) put(old.getLong(position), value - 1);
+        }
+    }
+
+    private void allocate(int capacity) {
+        table = ByteBuffer.allocateDirect(capacity * ENTRY_BYTES);
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private static int capacityFor(int expectedEntries, int maxCapacity) {
+        long wanted = Math.max(16, expectedEntries * 2L);
+        return (int) Math.min(maxCapacity, Long.highestOneBit(wanted - 1) << 1);
+    }
+}
@@ -0,0 +1,168 @@
+package gr.aueb.mobileapp.dao.persistence;
+
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Directory of snapshot and write-ahead log files of a persistent Datasource.
+ * Opening the store recovers the last state: the newest complete snapshot
+ * is loaded and the logs of its generation and the following ones are
+ * replayed on top of it. Afterwards records are appended to the log and
+ * {@link #checkpoint(Supplier)} compacts everything into a new snapshot
+ */
+public class ContactLogStore implements Closeable {
+
+    private final Path directory;
+    private final WriteAheadLog log;
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+
+    /**
+     * Opens the store, recovering its content
+     * @param directory
+     *                  the directory of the store, created if missing
+     * @param groupCommitRecords
+     *                  the number of pending records that triggers an fsync
+     * @param groupCommitMillis
+     *                  the maximum time a record stays in memory before it is forced to disk
+     * @param awaitSync
+     *                  true if appends wait until their record is on disk
+     * @param snapshotLoader
+     *                  receives every contact of the recovered snapshot
+     * @param logReplayer
+     *                  receives every record logged after the snapshot, in order
+     */
+    public ContactLogStore(Path directory, int groupCommitRecords, long groupCommitMillis, boolean awaitSync,
+                           Consumer<MobileContact> snapshotLoader, Consumer<LogRecord> logReplayer) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        long generation = recover(snapshotLoader, logReplayer);
+        this.log = new WriteAheadLog(directory, generation, groupCommitRecords, groupCommitMillis, awaitSync);
+    }
+
+    public void append(LogRecord record) {
+        log.append(record);
+    }
+
+    public void appendAll(List<LogRecord> records) {
+        log.appendAll(records);
+    }
+
+    /**
+     * Throws if records can no longer be appended
+     * @throws java.io.UncheckedIOException
+     *          if writing the log failed or the store is closed
+     */
+    public void ensureWritable() {
+        log.ensureWritable();
+    }
+
+    /**
+     * Forces every record appended so far to disk
+     */
+    public void sync() throws IOException {
+        log.sync();
+    }
+
+    /**
+     * Writes a compacted snapshot and deletes the files it makes obsolete.
+     * The log moves to a new generation first, so writes keep being logged
+     * while the snapshot is written; replaying them over a snapshot that
+     * already contains some of them gives the same state
+     * @param contents
+     *                  supplies the contacts of the Datasource, read after the switch
+     * @return
+     *          the generation of the new snapshot
+     */
+    public long checkpoint(Supplier<Iterator<MobileContact>> contents) throws IOException {
+        checkpointLock.lock();
+        try {
+            long generation = log.rotate();
+            SnapshotFile.write(directory, generation, contents.get());
+
+            for (Path file : listFiles()) {
+                long logGeneration = WriteAheadLog.generationOf(file);
+                long snapshotGeneration = SnapshotFile.generationOf(file);
+                if ((logGeneration >= 0 && logGeneration < generation)
+                        || (snapshotGeneration >= 0 && snapshotGeneration < generation)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            return generation;
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    /**
+     * Loads the newest complete snapshot and replays the logs that follow it
+     * @return
+     *          the generation new records are appended to
+     */
+    private long recover(Consumer<MobileContact> snapshotLoader, Consumer<LogRecord> logReplayer) throws IOException {
+        List<Long> snapshotGenerations = new ArrayList<>();
+        List<Long> logGenerations = new ArrayList<>();
+        for (Path file : listFiles()) {
+            if (file.getFileName().toString().endsWith(".tmp")) {
+                Files.deleteIfExists(file);
+            } else if (SnapshotFile.generationOf(file) >= 0) {
+                snapshotGenerations.add(SnapshotFile.generationOf(file));
+            } else if (WriteAheadLog.generationOf(file) >= 0) {
+                logGenerations.add(WriteAheadLog.generationOf(file));
+            }
+        }
+        snapshotGenerations.sort(Collections.reverseOrder());
+        Collections.sort(logGenerations);
+
+        long base = -1;
+        for (long generation : snapshotGenerations) {
+            Path snapshot = SnapshotFile.snapshotFile(directory, generation);
+            if (SnapshotFile.read(snapshot, contact -> { })) {
+                SnapshotFile.read(snapshot, snapshotLoader);
+                base = generation;
+                break;
+            }
+        }
+        if (base == -1) {
+            if (!snapshotGenerations.isEmpty()) {
+                throw new IOException("No complete snapshot found in " + directory);
+            }
+            base = logGenerations.isEmpty() ? 0 : logGenerations.get(0);
+        }
+
+        long expected = base;
+        for (long generation : logGenerations) {
+            if (generation < base) continue;
+            if (generation != expected) {
+                throw new IOException("Missing write-ahead log of generation " + expected + " in " + directory);
+            }
+            WriteAheadLog.replay(WriteAheadLog.logFile(directory, generation), logReplayer);
+            expected++;
+        }
+        return Math.max(base, expected - 1);
+    }
+
+    private List<Path> listFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> result = new ArrayList<>();
+            files.forEach(result::add);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package gr.aueb.mobileapp.dao.persistence;
+
+import gr.aueb.mobileapp.codec.ContactCodec;
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * One entry of the write-ahead log. A PUT carries the full state of a
+ * {@link MobileContact} after an insert or update, a DELETE only its id,
+ * so replaying the same entries more than once gives the same result
+ */
+public class LogRecord {
+
+    public enum Type { PUT, DELETE }
+
+    //The first byte of a payload
+    private static final byte DELETE_TAG = 1;
+    private static final byte PUT_TAG = 2;
+
+    private final Type type;
+    private final long id;
+    private final MobileContact mobileContact;
+
+    private LogRecord(Type type, long id, MobileContact mobileContact) {
+        this.type = type;
+        this.id = id;
+        this.mobileContact = mobileContact;
+    }
+
+    public static LogRecord put(MobileContact mobileContact) {
+        return new LogRecord(Type.PUT, mobileContact.getId(), mobileContact);
+    }
+
+    public static LogRecord delete(long id) {
+        return new LogRecord(Type.DELETE, id, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Returns the state of the {@link MobileContact} carried by a PUT
+     * @return
+     *          the Mobile Contact, or null for a DELETE
+     */
+    public MobileContact getMobileContact() {
+        return mobileContact;
+    }
+
+    /**
+     * Encodes the record in its binary form, without the framing: a type byte, then
+     * for a PUT the {@link ContactCodec} record of the contact and for a DELETE the id
+     * @return
+     *          the encoded record
+     */
+    byte[] encode() {
+        if (type == Type.DELETE) {
+            return ByteBuffer.allocate(1 + Long.BYTES).put(DELETE_TAG).putLong(id).array();
+        }
+        byte[] payload = new byte[1 + ContactCodec.encodedLength(mobileContact)];
+        ContactCodec.encode(mobileContact, ByteBuffer.wrap(payload, 1, payload.length - 1));
+        payload[0] = PUT_TAG;
+        return payload;
+    }
+
+    /**
+     * Decodes a record previously produced by {@link #encode()}
+     * @param payload
+     *              the encoded record
+     * @return
+     *          the resulting {@link LogRecord}
+     * @throws IOException
+     *          if the payload is not a valid record
+     */
+    static LogRecord decode(byte[] payload) throws IOException {
+        if (payload.length == 0) throw new IOException("Empty record");
+        switch (payload[0]) {
+            case PUT_TAG:
+                try {
+                    return put(ContactCodec.decodeMobileContact(ByteBuffer.wrap(payload, 1, payload.length - 1)));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Invalid record: " + e.getMessage(), e);
+                }
+            case DELETE_TAG:
+                if (payload.length < 1 + Long.BYTES) throw new IOException("Truncated record");
+                return delete(ByteBuffer.wrap(payload).getLong(1));
+            default:
+                throw new IOException("Unknown record type " + payload[0]);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package gr.aueb.mobileapp.dao.persistence;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.zip.CRC32;
+
+/**
+ * Framing shared by the log and the snapshot files: every payload is
+ * preceded by its length and its CRC32, so a torn or corrupted write
+ * at the end of a file is detected instead of being replayed
+ */
+final class RecordFraming {
+
+    static final int HEADER_BYTES = 8;
+
+    //Payloads are single contacts; anything larger is a corrupted length
+    private static final int MAX_PAYLOAD_BYTES = 1 << 20;
+
+    private RecordFraming() {}
+
+    static void write(DataOutputStream out, byte[] payload) throws IOException {
+        out.writeInt(payload.length);
+        out.writeInt(checksum(payload));
+        out.write(payload);
+    }
+
+    /**
+     * Reads the next framed payload
+     * @param in
+     *          the stream positioned at the start of a frame
+     * @param length
+     *              the length already read from the stream
+     * @return
+     *          the payload, or null if the frame is truncated or its checksum does not match
+     */
+    static byte[] readPayload(DataInputStream in, int length) throws IOException {
+        if (length < 0 || length > MAX_PAYLOAD_BYTES) return null;
+        try {
+            int crc = in.readInt();
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            return checksum(payload) == crc ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,121 @@
+package gr.aueb.mobileapp.dao.persistence;
+
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Compacted image of the Datasource. The snapshot of generation G holds
+ * every change written to the logs of the generations before G, so
+ * recovery loads it and replays the logs from generation G onwards.
+ * A snapshot is written to a temporary file and renamed once complete,
+ * and ends with a trailer carrying its record count
+ */
+final class SnapshotFile {
+
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".dat";
+
+    private static final int MAGIC = 0x4D43534E;
+    private static final int VERSION = 1;
+    private static final int TRAILER = -1;
+
+    private SnapshotFile() {}
+
+    /**
+     * Writes the snapshot of a generation
+     * @param directory
+     *                  the directory of the snapshot files
+     * @param generation
+     *                  the generation the snapshot belongs to
+     * @param contacts
+     *                  the contacts to be written
+     * @return
+     *          the number of contacts written
+     */
+    static long write(Path directory, long generation, Iterator<MobileContact> contacts) throws IOException {
+        Path target = snapshotFile(directory, generation);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        long count = 0;
+
+        try (OutputStream stream = Files.newOutputStream(temporary);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            while (contacts.hasNext()) {
+                RecordFraming.write(out, LogRecord.put(contacts.next()).encode());
+                count++;
+            }
+            out.writeInt(TRAILER);
+            out.writeLong(count);
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return count;
+    }
+
+    /**
+     * Reads a snapshot
+     * @param file
+     *          the snapshot file
+     * @param consumer
+     *                  receives each contact
+     * @return
+     *          false if the snapshot is incomplete or corrupted
+     */
+    static boolean read(Path file, Consumer<MobileContact> consumer) throws IOException {
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return false;
+
+            long count = 0;
+            while (true) {
+                int length = in.readInt();
+                if (length == TRAILER) return in.readLong() == count;
+
+                byte[] payload = RecordFraming.readPayload(in, length);
+                if (payload == null) return false;
+                consumer.accept(LogRecord.decode(payload).getMobileContact());
+                count++;
+            }
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the path of the snapshot file of a generation
+     */
+    static Path snapshotFile(Path directory, long generation) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, generation, SUFFIX));
+    }
+
+    /**
+     * Returns the generation of a snapshot file name, or -1 if it is not a snapshot file
+     */
+    static long generationOf(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) return -1;
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package gr.aueb.mobileapp.dao.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Append-only binary log of {@link LogRecord} entries with group commit.
+ * Appends only copy the framed record into a memory buffer; a background
+ * thread writes the buffer and forces it to disk once enough records are
+ * pending or the commit interval elapsed, so a single fsync covers all the
+ * records appended in between. The log is split in generations; each
+ * checkpoint starts a new generation so older ones can be deleted
+ */
+public class WriteAheadLog implements Closeable {
+
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final int groupCommitRecords;
+    private final long groupCommitMillis;
+    private final boolean awaitSync;
+
+    //Guards the pending buffer and the sequences
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushRequested = lock.newCondition();
+    private final Condition synced = lock.newCondition();
+
+    //Serializes writes to the file and generation switches
+    private final ReentrantLock ioLock = new ReentrantLock();
+
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(64 * 1024);
+    private int pendingRecords;
+    private long appendedSequence;
+    private long syncedSequence;
+    private IOException failure;
+    private boolean closed;
+
+    private FileChannel channel;
+    private long generation;
+
+    private final Thread flusher;
+
+    /**
+     * Opens the log of the given generation for appending
+     * @param directory
+     *                  the directory of the log files
+     * @param generation
+     *                  the generation to append to
+     * @param groupCommitRecords
+     *                  the number of pending records that triggers a flush
+     * @param groupCommitMillis
+     *                  the maximum time a record stays in memory before it is forced to disk
+     * @param awaitSync
+     *                  true if appends wait until their record is on disk
+     */
+    public WriteAheadLog(Path directory, long generation, int groupCommitRecords, long groupCommitMillis,
+                         boolean awaitSync) throws IOException {
+        this.directory = directory;
+        this.groupCommitRecords = Math.max(1, groupCommitRecords);
+        this.groupCommitMillis = Math.max(1, groupCommitMillis);
+        this.awaitSync = awaitSync;
+        this.generation = generation;
+        this.channel = openForAppend(logFile(directory, generation));
+
+        flusher = new Thread(this::runFlusher, "mobile-contact-wal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Appends a record
+     * @param record
+     *              the record to be appended
+     */
+    public void append(LogRecord record) {
+        appendAll(List.of(record));
+    }
+
+    /**
+     * Appends a batch of records as one unit of the group commit
+     * @param records
+     *              the records to be appended, in order
+     */
+    public void appendAll(List<LogRecord> records) {
+        if (records.isEmpty()) return;
+
+        ByteArrayOutputStream framed = new ByteArrayOutputStream(64 * records.size());
+        try (DataOutputStream out = new DataOutputStream(framed)) {
+            for (LogRecord record : records) {
+                RecordFraming.write(out, record.encode());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        lock.lock();
+        try {
+            checkUsable();
+            framed.writeTo(pending);
+            pendingRecords += records.size();
+            long sequence = ++appendedSequence;
+            if (pendingRecords >= groupCommitRecords) flushRequested.signal();
+
+            while (awaitSync && syncedSequence < sequence) {
+                checkUsable();
+                synced.awaitUninterruptibly();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Throws if records can no longer be appended, because writing to the disk
+     * failed or the log is closed
+     * @throws UncheckedIOException
+     *          if the log is not usable
+     */
+    public void ensureWritable() {
+        lock.lock();
+        try {
+            checkUsable();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces every record appended so far to disk
+     */
+    public void sync() throws IOException {
+        ioLock.lock();
+        try {
+            flushPending();
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    /**
+     * Forces the pending records to disk and continues in a new generation
+     * @return
+     *          the new generation; every record appended from now on belongs to it
+     */
+    public long rotate() throws IOException {
+        ioLock.lock();
+        try {
+            flushPending();
+            channel.close();
+            generation++;
+            channel = openForAppend(logFile(directory, generation));
+            return generation;
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    public long getGeneration() {
+        ioLock.lock();
+        try {
+            return generation;
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            flushRequested.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        ioLock.lock();
+        try {
+            flushPending();
+            channel.close();
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    private void runFlusher() {
+        while (true) {
+            lock.lock();
+            try {
+                if (!closed && pendingRecords < groupCommitRecords) {
+                    flushRequested.await(groupCommitMillis, TimeUnit.MILLISECONDS);
+                }
+                if (closed) return;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            ioLock.lock();
+            try {
+                flushPending();
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    failure = e;
+                    synced.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            } finally {
+                ioLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes the pending buffer to the current generation and forces it.
+     * The caller must hold the io lock
+     */
+    private void flushPending() throws IOException {
+        ByteArrayOutputStream batch;
+        long sequence;
+        lock.lock();
+        try {
+            if (pendingRecords == 0) return;
+            batch = pending;
+            sequence = appendedSequence;
+            pending = new ByteArrayOutputStream(Math.max(64 * 1024, batch.size()));
+            pendingRecords = 0;
+        } finally {
+            lock.unlock();
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+
+        lock.lock();
+        try {
+            syncedSequence = Math.max(syncedSequence, sequence);
+            synced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkUsable() throws IOException {
+        if (failure != null) throw new IOException("The write-ahead log failed", failure);
+        if (closed) throw new IOException("The write-ahead log is closed");
+    }
+
+    private static FileChannel openForAppend(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Returns the path of the log file of a generation
+     */
+    static Path logFile(Path directory, long generation) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, generation, SUFFIX));
+    }
+
+    /**
+     * Returns the generation of a log file name, or -1 if it is not a log file
+     */
+    static long generationOf(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) return -1;
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Reads every complete record of a log file in order. A torn or
+     * corrupted tail, left by a crash in the middle of a write, is cut off
+     * @param file
+     *          the log file to be read
+     * @param consumer
+     *                  receives each record
+     * @return
+     *          the number of records read
+     */
+    static long replay(Path file, Consumer<LogRecord> consumer) throws IOException {
+        long records = 0;
+        long validBytes = 0;
+        boolean torn = false;
+
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 64 * 1024))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] payload = RecordFraming.readPayload(in, length);
+                if (payload == null) {
+                    torn = true;
+                    break;
+                }
+                consumer.accept(LogRecord.decode(payload));
+                validBytes += RecordFraming.HEADER_BYTES + payload.length;
+                records++;
+            }
+        }
+
+        if (torn || Files.size(file) != validBytes) {
+            try (FileChannel truncate = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                truncate.truncate(validBytes);
+                truncate.force(true);
+            }
+        }
+        return records;
+    }
+}
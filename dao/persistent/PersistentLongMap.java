@@ -0,0 +1,294 @@
+package gr.aueb.mobileapp.dao.persistent;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * Immutable map from a long key to a value, stored as a hash array mapped trie.
+ * {@link #with} and {@link #without} return a new map that shares every node
+ * with this one except the at most 13 nodes on the path to the key, so an
+ * update copies a few small arrays instead of the whole map and every earlier
+ * version stays valid and unchanged. Since the maps never change they can be
+ * read by any number of threads without locking.
+ *
+ * Each level of the trie takes 5 bits of the mixed key. The mix is a bijection
+ * of the 64 bit keys, so two keys never share a full hash and the trie needs no
+ * collision lists
+ */
+public final class PersistentLongMap<V> implements Iterable<V> {
+
+    private static final int BITS = 5;
+    private static final int MAX_DEPTH = (64 + BITS - 1) / BITS;
+
+    private static final PersistentLongMap<?> EMPTY = new PersistentLongMap<>(new Node(0, new Object[0]), 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentLongMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentLongMap<V> empty() {
+        return (PersistentLongMap<V>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value of a key
+     * @return
+     *          the value, or null if the key is absent
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        long hash = mix(key);
+        Node node = root;
+        for (int shift = 0; ; shift += BITS) {
+            int bit = bitOf(hash, shift);
+            if ((node.bitmap & bit) == 0) return null;
+            Object slot = node.slots[node.indexOf(bit)];
+            if (slot instanceof Leaf) {
+                Leaf leaf = (Leaf) slot;
+                return leaf.key == key ? (V) leaf.value : null;
+            }
+            node = (Node) slot;
+        }
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Returns a map with the key mapped to the value; this map is not changed
+     * @param value
+     *              the value, not null
+     */
+    public PersistentLongMap<V> with(long key, V value) {
+        if (value == null) throw new NullPointerException("Null values are not supported");
+        boolean present = containsKey(key);
+        Node newRoot = root.with(new Leaf(key, mix(key), value), 0);
+        if (newRoot == root) return this;
+        return new PersistentLongMap<>(newRoot, present ? size : size + 1);
+    }
+
+    /**
+     * Returns a map without the key; this map is not changed
+     */
+    public PersistentLongMap<V> without(long key) {
+        if (!containsKey(key)) return this;
+        Object newRoot = root.without(key, mix(key), 0);
+        if (newRoot instanceof Leaf) {
+            //The root stays a node even when a single entry is left
+            Leaf leaf = (Leaf) newRoot;
+            newRoot = new Node(bitOf(leaf.hash, 0), new Object[] {leaf});
+        }
+        return size == 1 ? empty() : new PersistentLongMap<>((Node) newRoot, size - 1);
+    }
+
+    /**
+     * Returns the values in the order of the mixed keys, which is fixed for a
+     * given set of keys but unrelated to the order of the keys themselves
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return new ValueIterator<>(root);
+    }
+
+    @Override
+    public void forEach(Consumer<? super V> action) {
+        forEach(root, action);
+    }
+
+    @Override
+    public Spliterator<V> spliterator() {
+        return Spliterators.spliterator(iterator(), size,
+                Spliterator.SIZED | Spliterator.IMMUTABLE | Spliterator.NONNULL);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void forEach(Node node, Consumer<? super V> action) {
+        for (Object slot : node.slots) {
+            if (slot instanceof Leaf) {
+                action.accept((V) ((Leaf) slot).value);
+            } else {
+                forEach((Node) slot, action);
+            }
+        }
+    }
+
+    private static int bitOf(long hash, int shift) {
+        return 1 << (int) ((hash >>> shift) & ((1 << BITS) - 1));
+    }
+
+    /**
+     * The finalizer of MurmurHash3, which is a bijection
+     */
+    private static long mix(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Leaf {
+
+        final long key;
+        final long hash;
+        final Object value;
+
+        Leaf(long key, long hash, Object value) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Holds a slot, a {@link Leaf} or a child Node, for each bit set in the bitmap,
+     * in the order of the bits
+     */
+    private static final class Node {
+
+        final int bitmap;
+        final Object[] slots;
+
+        Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        int indexOf(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        Node with(Leaf leaf, int shift) {
+            int bit = bitOf(leaf.hash, shift);
+            int index = indexOf(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] copy = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, copy, 0, index);
+                copy[index] = leaf;
+                System.arraycopy(slots, index, copy, index + 1, slots.length - index);
+                return new Node(bitmap | bit, copy);
+            }
+
+            Object slot = slots[index];
+            Object replacement;
+            if (slot instanceof Node) {
+                Node child = (Node) slot;
+                replacement = child.with(leaf, shift + BITS);
+                if (replacement == child) return this;
+            } else {
+                Leaf existing = (Leaf) slot;
+                if (existing.key == leaf.key) {
+                    if (existing.value == leaf.value) return this;
+                    replacement = leaf;
+                } else {
+                    replacement = pair(existing, leaf, shift + BITS);
+                }
+            }
+            Object[] copy = slots.clone();
+            copy[index] = replacement;
+            return new Node(bitmap, copy);
+        }
+
+        /**
+         * Returns this node without the key, a single {@link Leaf} that the parent
+         * inlines in place of the node, or null if nothing is left
+         */
+        Object without(long key, long hash, int shift) {
+            int bit = bitOf(hash, shift);
+            int index = indexOf(bit);
+            Object slot = slots[index];
+            Object replacement = slot instanceof Leaf ? null : ((Node) slot).without(key, hash, shift + BITS);
+
+            if (replacement == null) {
+                if (slots.length == 1) return null;
+                if (slots.length == 2 && slots[1 - index] instanceof Leaf) return slots[1 - index];
+                Object[] copy = new Object[slots.length - 1];
+                System.arraycopy(slots, 0, copy, 0, index);
+                System.arraycopy(slots, index + 1, copy, index, slots.length - index - 1);
+                return new Node(bitmap & ~bit, copy);
+            }
+            if (replacement instanceof Leaf && slots.length == 1) return replacement;
+            Object[] copy = slots.clone();
+            copy[index] = replacement;
+            return new Node(bitmap, copy);
+        }
+
+        private static Node pair(Leaf first, Leaf second, int shift) {
+            int firstBit = bitOf(first.hash, shift);
+            int secondBit = bitOf(second.hash, shift);
+            if (firstBit == secondBit) {
+                return new Node(firstBit, new Object[] {pair(first, second, shift + BITS)});
+            }
+            return new Node(firstBit | secondBit,
+                    Integer.compareUnsigned(firstBit, secondBit) < 0 ? new Object[] {first, second} : new Object[] {second, first});
+        }
+    }
+
+    /**
+     * Depth first walk over the trie with an explicit stack of the nodes and positions
+     */
+    private static final class ValueIterator<V> implements Iterator<V> {
+
+        private final Node[] nodes = new Node[MAX_DEPTH + 1];
+        private final int[] positions = new int[MAX_DEPTH + 1];
+        private int depth;
+        private Leaf next;
+
+        ValueIterator(Node root) {
+            nodes[0] = root;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (next == null) throw new NoSuchElementException();
+            Object value = next.value;
+            advance();
+            return (V) value;
+        }
+
+        private void advance() {
+            while (depth >= 0) {
+                Node node = nodes[depth];
+                if (positions[depth] == node.slots.length) {
+                    depth--;
+                    continue;
+                }
+                Object slot = node.slots[positions[depth]++];
+                if (slot instanceof Leaf) {
+                    next = (Leaf) slot;
+                    return;
+                }
+                depth++;
+                nodes[depth] = (Node) slot;
+                positions[depth] = 0;
+            }
+            next = null;
+        }
+    }
+}
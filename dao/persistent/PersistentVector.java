@@ -0,0 +1,409 @@
+package gr.aueb.mobileapp.dao.persistent;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Immutable list, stored as a tree of small arrays in which every branch keeps
+ * the sizes of its children, so a position is found by descending from the root.
+ * {@link #with}, {@link #set} and {@link #without} return a new vector that shares
+ * every node with this one except the few nodes on the path to the position, so a
+ * write copies O(log n) elements instead of the whole list and every earlier
+ * version stays valid and unchanged. Since the vectors never change they can be
+ * read by any number of threads without locking.
+ *
+ * A full node is split in two, or, when the element is appended, a new node is
+ * started next to it, so appending leaves every node but the last full. Nodes
+ * that removals empty are dropped, while nodes that removals thin out are not
+ * merged
+ */
+public final class PersistentVector<E> implements Iterable<E> {
+
+    private static final int WIDTH = 32;
+
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(new Leaf(new Object[0]));
+
+    private final Node root;
+
+    private PersistentVector(Node root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> empty() {
+        return (PersistentVector<E>) EMPTY;
+    }
+
+    public int size() {
+        return root.size();
+    }
+
+    public boolean isEmpty() {
+        return root.size() == 0;
+    }
+
+    /**
+     * Returns the element at a position
+     * @throws IndexOutOfBoundsException
+     *          if the position is not below {@link #size()}
+     */
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        Objects.checkIndex(index, size());
+        Node node = root;
+        while (node instanceof Branch) {
+            Branch branch = (Branch) node;
+            int child = branch.childAt(index);
+            index -= branch.startOf(child);
+            node = branch.children[child];
+        }
+        return (E) ((Leaf) node).items[index];
+    }
+
+    /**
+     * Returns the first position, from a given one on, of an element that matches
+     * @return
+     *          the position, or -1 if no element matches
+     */
+    @SuppressWarnings("unchecked")
+    public int indexOf(Predicate<? super E> matches, int from) {
+        return from >= size() ? -1 : root.indexOf((Predicate<Object>) matches, Math.max(from, 0), 0);
+    }
+
+    /**
+     * Returns a vector with the element appended; this vector is not changed
+     */
+    public PersistentVector<E> with(E element) {
+        Node[] nodes = root.insert(size(), element);
+        return new PersistentVector<>(nodes.length == 1 ? nodes[0] : Branch.of(nodes));
+    }
+
+    /**
+     * Returns a vector with the elements appended in their order; this vector is not changed
+     */
+    public PersistentVector<E> withAll(Collection<? extends E> elements) {
+        PersistentVector<E> vector = this;
+        for (E element : elements) {
+            vector = vector.with(element);
+        }
+        return vector;
+    }
+
+    /**
+     * Returns a vector with the element at a position replaced; this vector is not changed
+     * @throws IndexOutOfBoundsException
+     *          if the position is not below {@link #size()}
+     */
+    public PersistentVector<E> set(int index, E element) {
+        Objects.checkIndex(index, size());
+        return new PersistentVector<>(root.set(index, element));
+    }
+
+    /**
+     * Returns a vector without the element at a position, the later elements
+     * moving one position down; this vector is not changed
+     * @throws IndexOutOfBoundsException
+     *          if the position is not below {@link #size()}
+     */
+    public PersistentVector<E> without(int index) {
+        Objects.checkIndex(index, size());
+        if (size() == 1) return empty();
+        Node node = root.remove(index);
+        //A root with a single child is replaced by the child
+        while (node instanceof Branch && ((Branch) node).children.length == 1) {
+            node = ((Branch) node).children[0];
+        }
+        return new PersistentVector<>(node);
+    }
+
+    /**
+     * Returns an unmodifiable {@link List} view of this vector
+     */
+    public List<E> asList() {
+        return new AbstractList<E>() {
+            @Override
+            public E get(int index) {
+                return PersistentVector.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return PersistentVector.this.size();
+            }
+
+            @Override
+            public Iterator<E> iterator() {
+                return PersistentVector.this.iterator();
+            }
+        };
+    }
+
+    /**
+     * Returns the elements in the order of their positions
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new ElementIterator<>(root);
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        forEach(root, action);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> void forEach(Node node, Consumer<? super E> action) {
+        if (node instanceof Leaf) {
+            for (Object item : ((Leaf) node).items) {
+                action.accept((E) item);
+            }
+        } else {
+            for (Node child : ((Branch) node).children) {
+                forEach(child, action);
+            }
+        }
+    }
+
+    private abstract static class Node {
+
+        abstract int size();
+
+        /**
+         * Returns this node with the element inserted, or the two nodes this
+         * node is split into if it is full
+         */
+        abstract Node[] insert(int index, Object element);
+
+        abstract Node set(int index, Object element);
+
+        /**
+         * Returns the position of the first matching element at or after from, offset
+         * by the position of this node, or -1
+         */
+        abstract int indexOf(Predicate<Object> matches, int from, int offset);
+
+        /**
+         * Returns this node without the element, or null if nothing is left
+         */
+        abstract Node remove(int index);
+    }
+
+    private static final class Leaf extends Node {
+
+        final Object[] items;
+
+        Leaf(Object[] items) {
+            this.items = items;
+        }
+
+        @Override
+        int size() {
+            return items.length;
+        }
+
+        @Override
+        Node[] insert(int index, Object element) {
+            if (items.length == WIDTH && index == WIDTH) {
+                return new Node[] {this, new Leaf(new Object[] {element})};
+            }
+            Object[] copy = new Object[items.length + 1];
+            System.arraycopy(items, 0, copy, 0, index);
+            copy[index] = element;
+            System.arraycopy(items, index, copy, index + 1, items.length - index);
+            if (copy.length <= WIDTH) return new Node[] {new Leaf(copy)};
+            int half = copy.length / 2;
+            return new Node[] {new Leaf(Arrays.copyOfRange(copy, 0, half)), new Leaf(Arrays.copyOfRange(copy, half, copy.length))};
+        }
+
+        @Override
+        Node set(int index, Object element) {
+            Object[] copy = items.clone();
+            copy[index] = element;
+            return new Leaf(copy);
+        }
+
+        @Override
+        int indexOf(Predicate<Object> matches, int from, int offset) {
+            for (int i = from; i < items.length; i++) {
+                if (matches.test(items[i])) return offset + i;
+            }
+            return -1;
+        }
+
+        @Override
+        Node remove(int index) {
+            if (items.length == 1) return null;
+            Object[] copy = new Object[items.length - 1];
+            System.arraycopy(items, 0, copy, 0, index);
+            System.arraycopy(items, index + 1, copy, index, items.length - index - 1);
+            return new Leaf(copy);
+        }
+    }
+
+    /**
+     * Holds its children and, for each child, the number of elements up to
+     * and including that child
+     */
+    private static final class Branch extends Node {
+
+        final Node[] children;
+        final int[] ends;
+
+        Branch(Node[] children, int[] ends) {
+            this.children = children;
+            this.ends = ends;
+        }
+
+        static Branch of(Node[] children) {
+            int[] ends = new int[children.length];
+            int end = 0;
+            for (int i = 0; i < children.length; i++) {
+                end += children[i].size();
+                ends[i] = end;
+            }
+            return new Branch(children, ends);
+        }
+
+        @Override
+        int size() {
+            return ends[ends.length - 1];
+        }
+
+        int startOf(int child) {
+            return child == 0 ? 0 : ends[child - 1];
+        }
+
+        /**
+         * Returns the child that holds a position, or the last child for the position past the end
+         */
+        int childAt(int index) {
+            int low = 0;
+            int high = ends.length - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (ends[middle] > index) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return low;
+        }
+
+        @Override
+        Node[] insert(int index, Object element) {
+            int child = childAt(index);
+            Node[] replacement = children[child].insert(index - startOf(child), element);
+            Node[] copy = new Node[children.length + replacement.length - 1];
+            System.arraycopy(children, 0, copy, 0, child);
+            System.arraycopy(replacement, 0, copy, child, replacement.length);
+            System.arraycopy(children, child + 1, copy, child + replacement.length, children.length - child - 1);
+            if (copy.length <= WIDTH) return new Node[] {of(copy)};
+            boolean appended = child == children.length - 1 && index == size();
+            int split = appended ? WIDTH : copy.length / 2;
+            return new Node[] {of(Arrays.copyOfRange(copy, 0, split)), of(Arrays.copyOfRange(copy, split, copy.length))};
+        }
+
+        @Override
+        Node set(int index, Object element) {
+            int child = childAt(index);
+            Node[] copy = children.clone();
+            copy[child] = children[child].set(index - startOf(child), element);
+            return new Branch(copy, ends);
+        }
+
+        @Override
+        int indexOf(Predicate<Object> matches, int from, int offset) {
+            for (int child = childAt(from); child < children.length; child++) {
+                int start = startOf(child);
+                int found = children[child].indexOf(matches, Math.max(from - start, 0), offset + start);
+                if (found != -1) return found;
+            }
+            return -1;
+        }
+
+        @Override
+        Node remove(int index) {
+            int child = childAt(index);
+            Node replacement = children[child].remove(index - startOf(child));
+            if (replacement == null) {
+                if (children.length == 1) return null;
+                Node[] copy = new Node[children.length - 1];
+                System.arraycopy(children, 0, copy, 0, child);
+                System.arraycopy(children, child + 1, copy, child, children.length - child - 1);
+                return of(copy);
+            }
+            Node[] copy = children.clone();
+            copy[child] = replacement;
+            int[] newEnds = ends.clone();
+            for (int i = child; i < newEnds.length; i++) {
+                newEnds[i]--;
+            }
+            return new Branch(copy, newEnds);
+        }
+    }
+
+    /**
+     * Depth first walk over the tree with an explicit stack of the branches and positions
+     */
+    private static final class ElementIterator<E> implements Iterator<E> {
+
+        private Branch[] branches = new Branch[8];
+        private int[] positions = new int[8];
+        private int depth = -1;
+        private Object[] items;
+        private int position;
+
+        ElementIterator(Node root) {
+            descend(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (position == items.length) {
+                if (!nextLeaf()) return false;
+            }
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return (E) items[position++];
+        }
+
+        private boolean nextLeaf() {
+            while (depth >= 0) {
+                Branch branch = branches[depth];
+                if (positions[depth] < branch.children.length) {
+                    descend(branch.children[positions[depth]++]);
+                    return true;
+                }
+                depth--;
+            }
+            return false;
+        }
+
+        private void descend(Node node) {
+            while (node instanceof Branch) {
+                if (++depth == branches.length) {
+                    branches = Arrays.copyOf(branches, depth * 2);
+                    positions = Arrays.copyOf(positions, depth * 2);
+                }
+                branches[depth] = (Branch) node;
+                positions[depth] = 1;
+                node = ((Branch) node).children[0];
+            }
+            items = ((Leaf) node).items;
+            position = 0;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package gr.aueb.mobileapp.dao.primitive;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from a long key to a non-negative int value,
+ * stored in two parallel arrays so neither keys nor values are boxed.
+ * Lookups allocate nothing. Removal shifts the following entries back
+ * instead of leaving tombstones, so long runs of deletes do not slow
+ * lookups down. Not thread safe; callers synchronize externally
+ */
+public class LongIntHashMap {
+
+    public static final int NO_VALUE = -1;
+
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public LongIntHashMap(int expectedEntries) {
+        allocate(capacityFor(expectedEntries));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value of a key
+     * @param key
+     *          the key to be searched
+     * @return
+     *          the value, or {@link #NO_VALUE} if the key is absent
+     */
+    public int get(long key) {
+        for (int index = indexOf(key); ; index = (index + 1) & mask) {
+            int value = values[index];
+            if (value == NO_VALUE || keys[index] == key) return value;
+        }
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != NO_VALUE;
+    }
+
+    /**
+     * Associates a value with a key, replacing the previous value
+     * @param key
+     *          the key
+     * @param value
+     *          the value, zero or positive
+     * @return
+     *          the previous value, or {@link #NO_VALUE} if the key was absent
+     */
+    public int put(long key, int value) {
+        if (value < 0) throw new IllegalArgumentException("Negative value " + value + " for key " + key);
+
+        for (int index = indexOf(key); ; index = (index + 1) & mask) {
+            int previous = values[index];
+            if (previous == NO_VALUE) {
+                keys[index] = key;
+                values[index] = value;
+                if (++size * 4L > (mask + 1) * 3L) rehash((mask + 1) * 2);
+                return NO_VALUE;
+            }
+            if (keys[index] == key) {
+                values[index] = value;
+                return previous;
+            }
+        }
+    }
+
+    /**
+     * Removes a key
+     * @return
+     *          the value of the removed key, or {@link #NO_VALUE} if it was absent
+     */
+    public int remove(long key) {
+        int index = indexOf(key);
+        while (values[index] != NO_VALUE && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        int removed = values[index];
+        if (removed == NO_VALUE) return NO_VALUE;
+
+        //Moves back every following entry of the run that would no longer be reachable
+        int gap = index;
+        for (int next = (gap + 1) & mask; values[next] != NO_VALUE; next = (next + 1) & mask) {
+            int home = indexOf(keys[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        values[gap] = NO_VALUE;
+        size--;
+        return removed;
+    }
+
+    /**
+     * Returns the heap bytes taken by the tables of the map
+     */
+    public long tableBytes() {
+        return (mask + 1L) * (Long.BYTES + Integer.BYTES);
+    }
+
+    private int indexOf(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    private void rehash(int capacity) {
+        if (capacity > MAX_CAPACITY) throw new IllegalStateException("The map cannot hold more than " + size + " entries");
+
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int index = 0; index < oldValues.length; index++) {
+            if (oldValues[index] != NO_VALUE) put(oldKeys[index], oldValues[index]);
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, NO_VALUE);
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private static int capacityFor(int expectedEntries) {
+        long wanted = Math.max(MIN_CAPACITY, expectedEntries * 4L / 3 + 1);
+        return (int) Math.min(MAX_CAPACITY, Long.highestOneBit(wanted - 1) << 1);
+    }
+}
@@ -0,0 +1,58 @@
+package gr.aueb.mobileapp.dao.primitive;
+
+/**
+ * Packs a phone number into a long. A number made of an optional leading
+ * '+' and up to {@value #MAX_DIGITS} digits is encoded as the decimal value of
+ * its digits with a leading 1, which keeps leading zeros, and with the sign
+ * bit set if it starts with '+'. "0030210" becomes 10030210 and "+30" becomes
+ * 130 with the sign bit set. Any other number, e.g. one with spaces or dashes,
+ * is not encodable and must be stored as a String. Encoding allocates nothing
+ */
+public final class PhoneNumberCodec {
+
+    /**
+     * The code of the phone numbers that cannot be packed; no packed number has it
+     */
+    public static final long NOT_ENCODABLE = 0L;
+
+    public static final int MAX_DIGITS = 18;
+
+    private PhoneNumberCodec() {}
+
+    /**
+     * Packs a phone number
+     * @param phoneNumber
+     *                  the phone number
+     * @return
+     *          its code, or {@link #NOT_ENCODABLE}
+     */
+    public static long encode(CharSequence phoneNumber) {
+        if (phoneNumber == null) return NOT_ENCODABLE;
+
+        int start = phoneNumber.length() > 0 && phoneNumber.charAt(0) == '+' ? 1 : 0;
+        int digits = phoneNumber.length() - start;
+        if (digits > MAX_DIGITS || (start == 1 && digits == 0)) return NOT_ENCODABLE;
+
+        long code = 1;
+        for (int i = start; i < phoneNumber.length(); i++) {
+            char c = phoneNumber.charAt(i);
+            if (c < '0' || c > '9') return NOT_ENCODABLE;
+            code = code * 10 + (c - '0');
+        }
+        return start == 1 ? code | Long.MIN_VALUE : code;
+    }
+
+    /**
+     * Unpacks a phone number
+     * @param code
+     *          a code returned by {@link #encode(CharSequence)}, other than {@link #NOT_ENCODABLE}
+     * @return
+     *          the phone number
+     */
+    public static String decode(long code) {
+        if (code == NOT_ENCODABLE) throw new IllegalArgumentException("The code of a phone number that is not encodable");
+
+        String digits = Long.toString(code & Long.MAX_VALUE).substring(1);
+        return code < 0 ? "+" + digits : digits;
+    }
+}
@@ -0,0 +1,169 @@
+package gr.aueb.mobileapp.io;
+
+/**
+ * Writes numbers and strings as UTF-8 text straight into a byte array, without
+ * the intermediate String or byte[] of Long.toString or String.getBytes. Every
+ * method takes the position to write at and returns the position after what it
+ * wrote; the callers make sure the array has room for the largest possible encoding
+ */
+final class ByteEncoding {
+
+    /** The longest UTF-8 encoding of a char; a surrogate pair takes 4 bytes for 2 chars */
+    static final int MAX_UTF8_BYTES_PER_CHAR = 3;
+
+    /** The longest JSON escape of a char, a control character as backslash, u and four hex digits */
+    static final int MAX_JSON_BYTES_PER_CHAR = 6;
+
+    /** The digits and sign of Long.MIN_VALUE */
+    static final int MAX_DECIMAL_LENGTH = 20;
+
+    private static final byte[] HEX = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+
+    private ByteEncoding() {}
+
+    /**
+     * Writes a long in decimal
+     */
+    static int putDecimal(byte[] dst, int position, long value) {
+        if (value < 0) {
+            dst[position++] = '-';
+        } else {
+            //Negative values reach Long.MIN_VALUE, so the digits are taken from the negated value
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = position + digits - 1; i >= position; i--) {
+            dst[i] = (byte) ('0' - value % 10);
+            value /= 10;
+        }
+        return position + digits;
+    }
+
+    /**
+     * Writes a string in UTF-8; an unpaired surrogate is written as '?', like String.getBytes does
+     */
+    static int putUtf8(byte[] dst, int position, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                dst[position++] = (byte) c;
+            } else {
+                position = putNonAscii(dst, position, value, i);
+                if (isPair(value, i)) i++;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Writes a field of a CSV record, in double quotes with the quotes doubled
+     * if it holds a comma, a quote or a line break
+     */
+    static int putCsvField(byte[] dst, int position, String value) {
+        if (value == null) return position;
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) return putUtf8(dst, position, value);
+
+        dst[position++] = '"';
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                dst[position++] = '"';
+                dst[position++] = '"';
+            } else if (c < 0x80) {
+                dst[position++] = (byte) c;
+            } else {
+                position = putNonAscii(dst, position, value, i);
+                if (isPair(value, i)) i++;
+            }
+        }
+        dst[position++] = '"';
+        return position;
+    }
+
+    /**
+     * Writes a JSON string with its quotes, or null
+     */
+    static int putJsonString(byte[] dst, int position, String value) {
+        if (value == null) return putAscii(dst, position, "null");
+
+        dst[position++] = '"';
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                dst[position++] = '\\';
+                dst[position++] = (byte) c;
+            } else if (c < 0x20) {
+                dst[position++] = '\\';
+                dst[position++] = 'u';
+                dst[position++] = '0';
+                dst[position++] = '0';
+                dst[position++] = HEX[c >> 4];
+                dst[position++] = HEX[c & 0xF];
+            } else if (c < 0x80) {
+                dst[position++] = (byte) c;
+            } else {
+                position = putNonAscii(dst, position, value, i);
+                if (isPair(value, i)) i++;
+            }
+        }
+        dst[position++] = '"';
+        return position;
+    }
+
+    /**
+     * Writes an ASCII string, e.g. a constant key
+     */
+    static int putAscii(byte[] dst, int position, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            dst[position++] = (byte) value.charAt(i);
+        }
+        return position;
+    }
+
+    /**
+     * Writes an int, big endian
+     */
+    static int putInt(byte[] dst, int position, int value) {
+        dst[position] = (byte) (value >>> 24);
+        dst[position + 1] = (byte) (value >>> 16);
+        dst[position + 2] = (byte) (value >>> 8);
+        dst[position + 3] = (byte) value;
+        return position + Integer.BYTES;
+    }
+
+    private static boolean isPair(String value, int i) {
+        return Character.isHighSurrogate(value.charAt(i)) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1));
+    }
+
+    /**
+     * Writes the char at i, which is not ASCII, or the surrogate pair that starts at i
+     */
+    private static int putNonAscii(byte[] dst, int position, String value, int i) {
+        char c = value.charAt(i);
+        if (c < 0x800) {
+            dst[position++] = (byte) (0xC0 | (c >> 6));
+            dst[position++] = (byte) (0x80 | (c & 0x3F));
+        } else if (isPair(value, i)) {
+            int codePoint = Character.toCodePoint(c, value.charAt(i + 1));
+            dst[position++] = (byte) (0xF0 | (codePoint >> 18));
+            dst[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            dst[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            dst[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (Character.isSurrogate(c)) {
+            dst[position++] = '?';
+        } else {
+            dst[position++] = (byte) (0xE0 | (c >> 12));
+            dst[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            dst[position++] = (byte) (0x80 | (c & 0x3F));
+        }
+        return position;
+    }
+}
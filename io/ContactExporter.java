@@ -0,0 +1,186 @@
+package gr.aueb.mobileapp.io;
+
+import gr.aueb.mobileapp.dao.ContactSnapshot;
+import gr.aueb.mobileapp.dao.IMobileContactDAO;
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Exports the contacts of an {@link IMobileContactDAO} to files.
+ *
+ * The contacts are read from a {@link ContactSnapshot}, so an export holds the
+ * contacts of a single point in time while writes go on. Each record is encoded
+ * by its {@link ExportFormat} into a reused byte array, with no String or byte[]
+ * per record, and copied into a direct {@link ByteBuffer}; a full buffer is
+ * written with a {@link FileChannel}, which writes a direct buffer without
+ * copying it again. The buffers are kept by the exporter and reused by the next
+ * exports.
+ *
+ * A partitioned export splits the snapshot into ranges of equal size and writes
+ * each range to a file of its own on a thread of its own
+ */
+public class ContactExporter {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private final IMobileContactDAO dao;
+    private final int bufferSize;
+    private final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+    public ContactExporter(IMobileContactDAO dao) {
+        this(dao, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param dao
+     *              the datasource of the contacts
+     * @param bufferSize
+     *              the size of the buffer of each file being written
+     */
+    public ContactExporter(IMobileContactDAO dao, int bufferSize) {
+        if (bufferSize < 1024) throw new IllegalArgumentException("bufferSize must be at least 1024: " + bufferSize);
+        this.dao = dao;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Exports all the contacts to a file, which is replaced if it exists
+     * @return
+     *          the {@link ExportReport}
+     */
+    public ExportReport export(Path file, ExportFormat format) throws IOException {
+        ContactSnapshot snapshot = dao.snapshot();
+        long bytes = write(file, format, snapshot);
+        return new ExportReport(Collections.singletonList(file), snapshot.size(), bytes, snapshot.getVersion());
+    }
+
+    /**
+     * Exports all the contacts to partitions files written in parallel, named
+     * contacts-00000, contacts-00001 and so on with the extension of the format.
+     * Every file is complete on its own, with the header of the format
+     * @param directory
+     *              an existing directory; files of the same names are replaced
+     * @param partitions
+     *              the number of files, which is also the number of threads
+     * @return
+     *          the {@link ExportReport}
+     */
+    public ExportReport exportPartitioned(Path directory, ExportFormat format, int partitions) throws IOException {
+        if (partitions < 1) throw new IllegalArgumentException("partitions must be positive: " + partitions);
+        ContactSnapshot snapshot = dao.snapshot();
+        List<MobileContact> contacts = snapshot.toList();
+
+        List<Path> files = new ArrayList<>(partitions);
+        List<Future<Long>> writes = new ArrayList<>(partitions);
+        ExecutorService writers = Executors.newFixedThreadPool(partitions, runnable -> {
+            Thread thread = new Thread(runnable, "contact-export-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (int partition = 0; partition < partitions; partition++) {
+                Path file = directory.resolve(String.format("contacts-%05d.%s", partition, format.getExtension()));
+                List<MobileContact> range = contacts.subList(
+                        (int) ((long) contacts.size() * partition / partitions),
+                        (int) ((long) contacts.size() * (partition + 1) / partitions));
+                files.add(file);
+                writes.add(writers.submit(() -> write(file, format, range)));
+            }
+
+            long bytes = 0;
+            for (Future<Long> write : writes) {
+                bytes += await(write);
+            }
+            return new ExportReport(files, contacts.size(), bytes, snapshot.getVersion());
+        } finally {
+            writers.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes the contacts to a file
+     * @return
+     *          the number of bytes written
+     */
+    private long write(Path file, ExportFormat format, Iterable<MobileContact> contacts) throws IOException {
+        ByteBuffer buffer = acquireBuffer();
+        //Each record is encoded into the array, with plain stores, and copied into the buffer at once
+        byte[] record = new byte[4096];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long bytes = 0;
+            buffer.put(record, 0, format.writeHeader(record));
+            for (MobileContact contact : contacts) {
+                int maxRecordSize = format.maxRecordSize(contact);
+                if (maxRecordSize > record.length) record = new byte[Math.max(maxRecordSize, record.length * 2)];
+                int length = format.write(contact, record);
+                if (buffer.remaining() < length) bytes += drain(channel, buffer);
+                if (length <= buffer.remaining()) {
+                    buffer.put(record, 0, length);
+                } else {
+                    //Only a record with fields of hundreds of thousands of chars is larger than the buffer
+                    bytes += writeFully(channel, ByteBuffer.wrap(record, 0, length));
+                }
+            }
+            bytes += drain(channel, buffer);
+            return bytes;
+        } finally {
+            buffer.clear();
+            buffers.offer(buffer);
+        }
+    }
+
+    private ByteBuffer acquireBuffer() {
+        ByteBuffer buffer = buffers.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Writes the content of the buffer and clears it
+     * @return
+     *          the number of bytes written
+     */
+    private static int drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        int bytes = writeFully(channel, buffer);
+        buffer.clear();
+        return bytes;
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        int bytes = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return bytes;
+    }
+
+    private static long await(Future<Long> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("The export was interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package gr.aueb.mobileapp.io;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * The file formats that {@link ContactImporter} reads
+ */
+public enum ContactFileFormat {
+
+    /**
+     * One contact per line: id, firstname, lastname, phone number and an optional
+     * userDetailsId, separated by commas, with optional double quotes around a field.
+     * A first line that names a phone column is a header that gives the order of
+     * the columns
+     */
+    CSV {
+        @Override
+        ContactParser newParser() {
+            return new CsvContactParser();
+        }
+    },
+
+    /**
+     * vCard 3.0 or 4.0 cards. The id is taken from a numeric UID or X-CONTACT-ID,
+     * the names from N, or from FN when N is missing, and the phone number from the
+     * first TEL, or the first cell TEL when there are several
+     */
+    VCARD {
+        @Override
+        ContactParser newParser() {
+            return new VCardContactParser();
+        }
+    };
+
+    /**
+     * Creates the parser of one import
+     */
+    abstract ContactParser newParser();
+
+    /**
+     * Returns the format of a file from its extension
+     * @param file
+     *              a .csv, .vcf or .vcard file
+     * @throws IllegalArgumentException
+     *              if the extension is not known
+     */
+    public static ContactFileFormat of(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) return CSV;
+        if (name.endsWith(".vcf") || name.endsWith(".vcard")) return VCARD;
+        throw new IllegalArgumentException("Unknown contact file format: " + file);
+    }
+}
@@ -0,0 +1,290 @@
+package gr.aueb.mobileapp.io;
+
+import gr.aueb.mobileapp.dao.WriteStatus;
+import gr.aueb.mobileapp.dto.MobileContactDTO;
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.service.BatchReport;
+import gr.aueb.mobileapp.service.IMobileContactService;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Imports the contacts of a CSV or vCard file through an {@link IMobileContactService}.
+ *
+ * The calling thread reads the file with a {@link FileChannel}, a chunk at a time,
+ * and cuts every chunk at the end of its last complete record; the rest is carried
+ * over to the next chunk. The chunks are parsed on a pool of parser threads while
+ * the calling thread reads on, and the parsed rows are inserted, in the order of the
+ * file, in batches of {@link IMobileContactService#insertMobileContacts(List)}.
+ * At most twice as many chunks as parser threads are read ahead of the insertion;
+ * when they are all waiting the calling thread inserts the oldest before it reads
+ * again, so a slow Datasource slows the reading down instead of filling the memory.
+ * The memory used is thus bounded by a few chunks and a batch whatever the size of
+ * the file.
+ *
+ * A record that cannot be parsed, or whose id or phone number is taken by a stored
+ * contact or by an earlier record of the file, is reported by line in the
+ * {@link ImportReport} and the import goes on
+ */
+public class ContactImporter {
+
+    public static final int DEFAULT_BATCH_SIZE = 1_000;
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+    public static final int DEFAULT_MAX_ERRORS = 10_000;
+
+    /** Passed as firstGeneratedId to reject the records without an id instead of numbering them */
+    public static final long NO_GENERATED_IDS = -1L;
+
+    //A chunk grows up to this size to hold a single record longer than the chunk size
+    private static final int MAX_RECORD_SIZE = 16 << 20;
+
+    private final IMobileContactService service;
+    private final int batchSize;
+    private final int parserThreads;
+    private final int chunkSize;
+    private final int maxErrors;
+
+    public ContactImporter(IMobileContactService service) {
+        this(service, DEFAULT_BATCH_SIZE, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE, DEFAULT_MAX_ERRORS);
+    }
+
+    /**
+     * @param service
+     *              the service the contacts are inserted through
+     * @param batchSize
+     *              the number of contacts of each insertMobileContacts call
+     * @param parserThreads
+     *              the number of threads that parse chunks
+     * @param chunkSize
+     *              the number of bytes read at a time
+     * @param maxErrors
+     *              the most {@link ImportError}s kept in the report
+     */
+    public ContactImporter(IMobileContactService service, int batchSize, int parserThreads, int chunkSize, int maxErrors) {
+        if (batchSize < 1) throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        if (parserThreads < 1) throw new IllegalArgumentException("parserThreads must be positive: " + parserThreads);
+        if (chunkSize < 1 || chunkSize > MAX_RECORD_SIZE) throw new IllegalArgumentException("Invalid chunkSize: " + chunkSize);
+        if (maxErrors < 0) throw new IllegalArgumentException("maxErrors must not be negative: " + maxErrors);
+        this.service = service;
+        this.batchSize = batchSize;
+        this.parserThreads = parserThreads;
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Imports a file in the format of its extension, rejecting the records without an id
+     * @see #importFile(Path, ContactFileFormat, long)
+     */
+    public ImportReport importFile(Path file) throws IOException {
+        return importFile(file, ContactFileFormat.of(file), NO_GENERATED_IDS);
+    }
+
+    /**
+     * Imports a file
+     * @param file
+     *              the file, in UTF-8 with or without a byte order mark
+     * @param format
+     *              the format of the file
+     * @param firstGeneratedId
+     *              the id given to the first record without an id, the next id to the
+     *              next one and so on, or {@link #NO_GENERATED_IDS}
+     * @return
+     *          the {@link ImportReport}
+     * @throws IOException
+     *          if the file cannot be read or holds a record longer than 16 MiB;
+     *          the contacts of the batches inserted before stay inserted
+     */
+    public ImportReport importFile(Path file, ContactFileFormat format, long firstGeneratedId) throws IOException {
+        ContactParser parser = format.newParser();
+        Inserter inserter = new Inserter(firstGeneratedId);
+        ArrayDeque<Future<ParsedChunk>> pending = new ArrayDeque<>();
+        int maxPending = parserThreads * 2;
+        ExecutorService parsers = Executors.newFixedThreadPool(parserThreads, runnable -> {
+            Thread thread = new Thread(runnable, "contact-import-parser");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            byte[] buffer = new byte[chunkSize];
+            int length = 0;
+            boolean eof = false;
+            boolean first = true;
+            while (true) {
+                ByteBuffer view = ByteBuffer.wrap(buffer);
+                while (!eof && length < buffer.length) {
+                    view.position(length);
+                    int read = channel.read(view);
+                    if (read < 0) eof = true;
+                    else length += read;
+                }
+
+                if (first) {
+                    int bom = hasByteOrderMark(buffer, length) ? 3 : 0;
+                    int header = parser.headerLength(buffer, bom, length, eof);
+                    if (header < 0) {
+                        buffer = grow(buffer);
+                        continue;
+                    }
+                    if (header > 0) inserter.skipLine();
+                    System.arraycopy(buffer, bom + header, buffer, 0, length - bom - header);
+                    length -= bom + header;
+                    first = false;
+                }
+                if (length == 0 && eof) break;
+
+                int end = eof ? length : parser.lastRecordEnd(buffer, 0, length);
+                if (end < 0) {
+                    buffer = grow(buffer);
+                    continue;
+                }
+                if (pending.size() == maxPending) inserter.insert(await(pending.poll()));
+                byte[] chunk = Arrays.copyOf(buffer, end);
+                pending.add(parsers.submit(() -> parser.parse(chunk)));
+                System.arraycopy(buffer, end, buffer, 0, length - end);
+                length -= end;
+            }
+
+            while (!pending.isEmpty()) {
+                inserter.insert(await(pending.poll()));
+            }
+            inserter.flush();
+            return inserter.report();
+        } finally {
+            parsers.shutdownNow();
+        }
+    }
+
+    private static ParsedChunk await(Future<ParsedChunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("The import was interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    private static byte[] grow(byte[] buffer) throws IOException {
+        if (buffer.length >= MAX_RECORD_SIZE) {
+            throw new IOException("A record is longer than " + MAX_RECORD_SIZE + " bytes");
+        }
+        return Arrays.copyOf(buffer, Math.min(buffer.length * 2, MAX_RECORD_SIZE));
+    }
+
+    private static boolean hasByteOrderMark(byte[] buffer, int length) {
+        return length >= 3 && buffer[0] == (byte) 0xEF && buffer[1] == (byte) 0xBB && buffer[2] == (byte) 0xBF;
+    }
+
+    /**
+     * Numbers the lines of the parsed chunks, batches their rows and records the outcomes.
+     * Used by the calling thread only
+     */
+    private final class Inserter {
+
+        private final List<MobileContactDTO> batch = new ArrayList<>(batchSize);
+        private final List<Long> batchLines = new ArrayList<>(batchSize);
+        private final Map<ImportError.Kind, Long> failures = new EnumMap<>(ImportError.Kind.class);
+        private final List<ImportError> errors = new ArrayList<>();
+        private long nextGeneratedId;
+        private long linesBefore;
+        private long records;
+        private long imported;
+
+        Inserter(long firstGeneratedId) {
+            this.nextGeneratedId = firstGeneratedId;
+        }
+
+        void skipLine() {
+            linesBefore++;
+        }
+
+        void insert(ParsedChunk chunk) {
+            for (ParsedChunk.Row row : chunk.getRows()) {
+                long line = linesBefore + row.line;
+                records++;
+                if (row.error != null) {
+                    fail(line, ImportError.Kind.PARSE_ERROR, row.error);
+                    continue;
+                }
+                MobileContactDTO contactDTO = row.contactDTO;
+                if (!row.hasId) {
+                    if (nextGeneratedId == NO_GENERATED_IDS) {
+                        fail(line, ImportError.Kind.PARSE_ERROR, "Missing id");
+                        continue;
+                    }
+                    long id = nextGeneratedId++;
+                    contactDTO.setId(id);
+                    if (!row.hasUserDetailsId) contactDTO.getUserDetails().setId(id);
+                }
+                batch.add(contactDTO);
+                batchLines.add(line);
+                if (batch.size() == batchSize) flush();
+            }
+            linesBefore += chunk.getLineCount();
+        }
+
+        void flush() {
+            if (batch.isEmpty()) return;
+            BatchReport batchReport = service.insertMobileContacts(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                WriteStatus status = batchReport.getStatus(i);
+                if (status == WriteStatus.OK) {
+                    imported++;
+                } else {
+                    reject(batchLines.get(i), batch.get(i), status);
+                }
+            }
+            batch.clear();
+            batchLines.clear();
+        }
+
+        private void reject(long line, MobileContactDTO contactDTO, WriteStatus status) {
+            switch (status) {
+                case PHONE_CONFLICT:
+                    Optional<MobileContact> owner = service.findMobileContact(contactDTO.getPhoneNumber());
+                    fail(line, ImportError.Kind.DUPLICATE_PHONE, "The phone number " + contactDTO.getPhoneNumber()
+                            + owner.map(o -> " belongs to the contact with id " + o.getId()).orElse(" is repeated in the batch"));
+                    break;
+                case ID_CONFLICT:
+                    Optional<MobileContact> holder = service.findMobileContact(contactDTO.getId());
+                    fail(line, ImportError.Kind.DUPLICATE_ID, "The id " + contactDTO.getId()
+                            + holder.map(h -> " belongs to the contact with phone number " + h.getPhoneNumber()).orElse(" is repeated in the batch"));
+                    break;
+                default:
+                    fail(line, ImportError.Kind.INVALID, "The contact was rejected as " + status);
+                    break;
+            }
+        }
+
+        private void fail(long line, ImportError.Kind kind, String message) {
+            failures.merge(kind, 1L, Long::sum);
+            if (errors.size() < maxErrors) errors.add(new ImportError(line, kind, message));
+        }
+
+        ImportReport report() {
+            return new ImportReport(records, imported, failures, errors);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package gr.aueb.mobileapp.io;
+
+/**
+ * Parser of one {@link ContactFileFormat}. The importer cuts the file into chunks
+ * that end at a record boundary, found with {@link #lastRecordEnd}, and parses the
+ * chunks on several threads at once. {@link #headerLength} is called once, on the
+ * first chunk, before any chunk is parsed; after it the parser is only read, so
+ * {@link #parse} must be safe to call from several threads
+ */
+interface ContactParser {
+
+    /**
+     * Reads the header at the start of the file, if the format has one
+     * @param data
+     *              the first bytes of the file
+     * @param from
+     *              the position of the first byte of the header
+     * @param to
+     *              the end of the bytes read so far
+     * @param eof
+     *              true if the file ends at to
+     * @return
+     *          the length of the header, 0 if there is none, or -1 if more bytes are needed
+     */
+    int headerLength(byte[] data, int from, int to, boolean eof);
+
+    /**
+     * Returns the end of the last complete record in a range
+     * @return
+     *          the position after the last complete record, or -1 if the range holds none
+     */
+    int lastRecordEnd(byte[] data, int from, int to);
+
+    /**
+     * Parses the complete records of a chunk
+     * @param data
+     *              the chunk, which starts at the start of a line
+     * @return
+     *          the rows, with the line numbers counted from the start of the chunk
+     */
+    ParsedChunk parse(byte[] data);
+}
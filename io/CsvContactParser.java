@@ -0,0 +1,212 @@
+package gr.aueb.mobileapp.io;
+
+import gr.aueb.mobileapp.dto.MobileContactDTO;
+import gr.aueb.mobileapp.dto.UserDetailsDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parser of {@link ContactFileFormat#CSV}. A quoted field may hold commas,
+ * doubled quotes and line breaks, so a record ends at the first line break
+ * outside quotes and is reported at the line it starts. A record with an
+ * empty id gets a generated one, and a record without a userDetailsId belongs
+ * to a person of the same id as the contact
+ */
+final class CsvContactParser implements ContactParser {
+
+    private static final int ID = 0;
+    private static final int FIRSTNAME = 1;
+    private static final int LASTNAME = 2;
+    private static final int PHONE = 3;
+    private static final int USER_DETAILS_ID = 4;
+
+    //The position of each column in a record, -1 for a column the file does not have
+    private int[] columns = {0, 1, 2, 3, 4};
+    //The number of fields a record must have; the userDetailsId of a file without a header is optional
+    private int fieldCount = 4;
+
+    @Override
+    public int headerLength(byte[] data, int from, int to, boolean eof) {
+        int newline = indexOf(data, (byte) '\n', from, to);
+        if (newline < 0 && !eof) return -1;
+        int end = newline < 0 ? to : newline + 1;
+
+        List<String> names = split(decode(data, from, newline < 0 ? to : newline));
+        if (names == null) return 0;
+        int[] header = {-1, -1, -1, -1, -1};
+        for (int i = 0; i < names.size(); i++) {
+            int column = columnOf(names.get(i));
+            if (column >= 0 && header[column] < 0) header[column] = i;
+        }
+        if (header[PHONE] < 0) return 0;
+
+        columns = header;
+        fieldCount = 0;
+        for (int position : header) {
+            fieldCount = Math.max(fieldCount, position + 1);
+        }
+        return end - from;
+    }
+
+    @Override
+    public int lastRecordEnd(byte[] data, int from, int to) {
+        //The quotes are counted from the start, since a line break may be inside a quoted field
+        int end = -1;
+        boolean quoted = false;
+        for (int i = from; i < to; i++) {
+            if (data[i] == '"') quoted = !quoted;
+            else if (data[i] == '\n' && !quoted) end = i + 1;
+        }
+        return end;
+    }
+
+    @Override
+    public ParsedChunk parse(byte[] data) {
+        ParsedChunk chunk = new ParsedChunk();
+        int lines = 0;
+        int start = 0;
+        while (start < data.length) {
+            int line = lines + 1;
+            boolean quoted = false;
+            int end = start;
+            for (; end < data.length; end++) {
+                if (data[end] == '"') quoted = !quoted;
+                else if (data[end] == '\n' && !quoted) break;
+                else if (data[end] == '\n') lines++;
+            }
+            lines++;
+            String record = decode(data, start, end);
+            if (!record.isBlank()) parseRecord(chunk, line, record);
+            start = end + 1;
+        }
+        chunk.setLineCount(lines);
+        return chunk;
+    }
+
+    private void parseRecord(ParsedChunk chunk, int line, String record) {
+        List<String> fields = split(record);
+        if (fields == null) {
+            chunk.addError(line, "Unterminated quoted field");
+            return;
+        }
+        if (fields.size() < fieldCount) {
+            chunk.addError(line, "Expected " + fieldCount + " fields but found " + fields.size());
+            return;
+        }
+
+        String phoneNumber = field(fields, PHONE);
+        if (phoneNumber.isEmpty()) {
+            chunk.addError(line, "Missing phone number");
+            return;
+        }
+        String idField = field(fields, ID);
+        long id = 0;
+        if (!idField.isEmpty()) {
+            try {
+                id = Long.parseLong(idField);
+            } catch (NumberFormatException e) {
+                chunk.addError(line, "The id is not a number: " + idField);
+                return;
+            }
+        }
+        String userDetailsIdField = field(fields, USER_DETAILS_ID);
+        long userDetailsId = id;
+        if (!userDetailsIdField.isEmpty()) {
+            try {
+                userDetailsId = Long.parseLong(userDetailsIdField);
+            } catch (NumberFormatException e) {
+                chunk.addError(line, "The userDetailsId is not a number: " + userDetailsIdField);
+                return;
+            }
+        }
+        UserDetailsDTO userDetailsDTO = new UserDetailsDTO(userDetailsId, field(fields, FIRSTNAME), field(fields, LASTNAME));
+        chunk.add(line, new MobileContactDTO(id, userDetailsDTO, phoneNumber), !idField.isEmpty(), !userDetailsIdField.isEmpty());
+    }
+
+    private String field(List<String> fields, int column) {
+        int position = columns[column];
+        return position < 0 || position >= fields.size() ? "" : fields.get(position);
+    }
+
+    private static int columnOf(String name) {
+        switch (name.toLowerCase(Locale.ROOT).replace("_", "").replace(" ", "")) {
+            case "id":
+            case "userid":
+                return ID;
+            case "userdetailsid":
+            case "personid":
+                return USER_DETAILS_ID;
+            case "firstname":
+            case "givenname":
+                return FIRSTNAME;
+            case "lastname":
+            case "surname":
+            case "familyname":
+                return LASTNAME;
+            case "phone":
+            case "phonenumber":
+            case "mobile":
+            case "tel":
+                return PHONE;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Splits a record at the commas outside quotes; unquoted fields are trimmed
+     * @return
+     *          the fields, or null if a quote is not closed
+     */
+    static List<String> split(String record) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        int length = record.length();
+        while (true) {
+            while (i < length && record.charAt(i) == ' ') i++;
+            if (i < length && record.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= length) return null;
+                    char c = record.charAt(i++);
+                    if (c == '"') {
+                        if (i < length && record.charAt(i) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                }
+                while (i < length && record.charAt(i) != ',') i++;
+                fields.add(field.toString());
+            } else {
+                int comma = record.indexOf(',', i);
+                int end = comma < 0 ? length : comma;
+                fields.add(record.substring(i, end).trim());
+                i = end;
+            }
+            field.setLength(0);
+            if (i >= length) return fields;
+            i++;
+        }
+    }
+
+    private static String decode(byte[] data, int from, int to) {
+        if (to > from && data[to - 1] == '\r') to--;
+        return new String(data, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    static int indexOf(byte[] data, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (data[i] == value) return i;
+        }
+        return -1;
+    }
+}
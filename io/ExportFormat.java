@@ -0,0 +1,158 @@
+package gr.aueb.mobileapp.io;
+
+import gr.aueb.mobileapp.codec.ContactCodec;
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The file formats that {@link ContactExporter} writes. Each format encodes a
+ * record into a byte array that has room for {@link #maxRecordSize(MobileContact)}
+ * bytes
+ */
+public enum ExportFormat {
+
+    /**
+     * A header line and one line per contact: id, firstname, lastname, phone
+     * number and userDetailsId, the layout {@link ContactImporter} reads back
+     */
+    CSV("csv") {
+        @Override
+        int writeHeader(byte[] dst) {
+            return ByteEncoding.putAscii(dst, 0, "id,firstname,lastname,phoneNumber,userDetailsId\n");
+        }
+
+        @Override
+        int maxRecordSize(MobileContact contact) {
+            //Four separators, the line break and the quotes of three quoted fields; a doubled quote takes fewer bytes than the longest char
+            return 2 * ByteEncoding.MAX_DECIMAL_LENGTH + 5 + 3 * 2 + ByteEncoding.MAX_UTF8_BYTES_PER_CHAR * charsOf(contact);
+        }
+
+        @Override
+        int write(MobileContact contact, byte[] dst) {
+            UserDetails userDetails = contact.getUserDetails();
+            int position = ByteEncoding.putDecimal(dst, 0, contact.getId());
+            dst[position++] = ',';
+            if (userDetails != null) position = ByteEncoding.putCsvField(dst, position, userDetails.getFirstname());
+            dst[position++] = ',';
+            if (userDetails != null) position = ByteEncoding.putCsvField(dst, position, userDetails.getLastname());
+            dst[position++] = ',';
+            position = ByteEncoding.putCsvField(dst, position, contact.getPhoneNumber());
+            dst[position++] = ',';
+            if (userDetails != null) position = ByteEncoding.putDecimal(dst, position, userDetails.getId());
+            dst[position++] = '\n';
+            return position;
+        }
+    },
+
+    /**
+     * One JSON object per line, with the fields of {@link MobileContact} and a nested
+     * userDetails object
+     */
+    JSONL("jsonl") {
+        @Override
+        int writeHeader(byte[] dst) {
+            return 0;
+        }
+
+        @Override
+        int maxRecordSize(MobileContact contact) {
+            return 128 + 2 * ByteEncoding.MAX_DECIMAL_LENGTH + ByteEncoding.MAX_JSON_BYTES_PER_CHAR * charsOf(contact);
+        }
+
+        @Override
+        int write(MobileContact contact, byte[] dst) {
+            UserDetails userDetails = contact.getUserDetails();
+            int position = ByteEncoding.putAscii(dst, 0, "{\"id\":");
+            position = ByteEncoding.putDecimal(dst, position, contact.getId());
+            position = ByteEncoding.putAscii(dst, position, ",\"phoneNumber\":");
+            position = ByteEncoding.putJsonString(dst, position, contact.getPhoneNumber());
+            position = ByteEncoding.putAscii(dst, position, ",\"userDetails\":");
+            if (userDetails == null) {
+                position = ByteEncoding.putAscii(dst, position, "null");
+            } else {
+                position = ByteEncoding.putAscii(dst, position, "{\"id\":");
+                position = ByteEncoding.putDecimal(dst, position, userDetails.getId());
+                position = ByteEncoding.putAscii(dst, position, ",\"firstname\":");
+                position = ByteEncoding.putJsonString(dst, position, userDetails.getFirstname());
+                position = ByteEncoding.putAscii(dst, position, ",\"lastname\":");
+                position = ByteEncoding.putJsonString(dst, position, userDetails.getLastname());
+                dst[position++] = '}';
+            }
+            return ByteEncoding.putAscii(dst, position, "}\n");
+        }
+    },
+
+    /**
+     * A magic number and a version, then the {@link ContactCodec} record of each
+     * contact. The records carry their length, so they follow each other without
+     * framing and read back with {@link ContactCodec#decodeMobileContact}
+     */
+    BINARY("bin") {
+        @Override
+        int writeHeader(byte[] dst) {
+            int position = ByteEncoding.putInt(dst, 0, BINARY_MAGIC);
+            dst[position++] = (byte) (BINARY_VERSION >>> 8);
+            dst[position++] = (byte) BINARY_VERSION;
+            return position;
+        }
+
+        @Override
+        int maxRecordSize(MobileContact contact) {
+            return ContactCodec.maxEncodedLength(contact);
+        }
+
+        @Override
+        int write(MobileContact contact, byte[] dst) {
+            return ContactCodec.encode(contact, ByteBuffer.wrap(dst));
+        }
+    };
+
+    /** "MCEX" */
+    static final int BINARY_MAGIC = 0x4D434558;
+    static final short BINARY_VERSION = 2;
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Returns the extension of the exported files, without the dot
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Writes what comes before the first record of a file
+     * @return
+     *          the number of bytes written
+     */
+    abstract int writeHeader(byte[] dst);
+
+    /**
+     * Returns an upper bound of the bytes {@link #write} takes for a contact
+     */
+    abstract int maxRecordSize(MobileContact contact);
+
+    /**
+     * Writes a contact at the start of the array
+     * @return
+     *          the number of bytes written
+     */
+    abstract int write(MobileContact contact, byte[] dst);
+
+    private static int charsOf(MobileContact contact) {
+        UserDetails userDetails = contact.getUserDetails();
+        int chars = lengthOf(contact.getPhoneNumber());
+        if (userDetails != null) chars += lengthOf(userDetails.getFirstname()) + lengthOf(userDetails.getLastname());
+        return chars;
+    }
+
+    private static int lengthOf(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
@@ -0,0 +1,59 @@
+package gr.aueb.mobileapp.io;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of an export of {@link ContactExporter}
+ */
+public class ExportReport {
+
+    private final List<Path> files;
+    private final long records;
+    private final long bytes;
+    private final long snapshotVersion;
+
+    ExportReport(List<Path> files, long records, long bytes, long snapshotVersion) {
+        this.files = Collections.unmodifiableList(files);
+        this.records = records;
+        this.bytes = bytes;
+        this.snapshotVersion = snapshotVersion;
+    }
+
+    /**
+     * Returns the written files, in the order of their partitions
+     */
+    public List<Path> getFiles() {
+        return files;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * Returns the number of bytes written to all the files
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the version of the snapshot the contacts were read from, or -1 if
+     * the datasource does not keep versions
+     */
+    public long getSnapshotVersion() {
+        return snapshotVersion;
+    }
+
+    @Override
+    public String toString() {
+        return "ExportReport{" +
+                "files=" + files.size() +
+                ", records=" + records +
+                ", bytes=" + bytes +
+                ", snapshotVersion=" + snapshotVersion +
+                '}';
+    }
+}
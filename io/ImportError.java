@@ -0,0 +1,52 @@
+package gr.aueb.mobileapp.io;
+
+/**
+ * A record of an imported file that was not inserted
+ */
+public final class ImportError {
+
+    public enum Kind {
+
+        /** The record could not be read, e.g. a field is missing or the id is not a number */
+        PARSE_ERROR,
+
+        /** The record was read but the service rejected the contact as invalid */
+        INVALID,
+
+        /** The id belongs to a contact already stored or to an earlier record of the file */
+        DUPLICATE_ID,
+
+        /** The phone number belongs to a contact already stored or to an earlier record of the file */
+        DUPLICATE_PHONE
+    }
+
+    private final long line;
+    private final Kind kind;
+    private final String message;
+
+    ImportError(long line, Kind kind, String message) {
+        this.line = line;
+        this.kind = kind;
+        this.message = message;
+    }
+
+    /**
+     * Returns the line of the record, counted from 1
+     */
+    public long getLine() {
+        return line;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "line " + line + ": " + kind + ": " + message;
+    }
+}
@@ -0,0 +1,89 @@
+package gr.aueb.mobileapp.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of an import of {@link ContactImporter}. Every failed record is counted,
+ * but only the first maxErrors of them are kept as {@link ImportError}s, so the
+ * report of a large file full of errors stays small
+ */
+public class ImportReport {
+
+    private final long records;
+    private final long imported;
+    private final Map<ImportError.Kind, Long> failures;
+    private final List<ImportError> errors;
+
+    ImportReport(long records, long imported, Map<ImportError.Kind, Long> failures, List<ImportError> errors) {
+        this.records = records;
+        this.imported = imported;
+        this.failures = Collections.unmodifiableMap(new EnumMap<>(failures));
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Returns the number of records read from the file
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * Returns the number of contacts inserted
+     */
+    public long getImported() {
+        return imported;
+    }
+
+    /**
+     * Returns the number of records that were not inserted
+     */
+    public long getFailed() {
+        return records - imported;
+    }
+
+    /**
+     * Returns the number of records that were not inserted for the given reason
+     */
+    public long getFailed(ImportError.Kind kind) {
+        return failures.getOrDefault(kind, 0L);
+    }
+
+    /**
+     * Returns the kept errors, in the order of the lines of the file
+     */
+    public List<ImportError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Returns the kept errors of the given kind, in the order of the lines of the file
+     */
+    public List<ImportError> getErrors(ImportError.Kind kind) {
+        List<ImportError> ofKind = new ArrayList<>();
+        for (ImportError error : errors) {
+            if (error.getKind() == kind) ofKind.add(error);
+        }
+        return ofKind;
+    }
+
+    /**
+     * Returns true if more records failed than the errors kept
+     */
+    public boolean isErrorsTruncated() {
+        return errors.size() < getFailed();
+    }
+
+    @Override
+    public String toString() {
+        return "ImportReport{" +
+                "records=" + records +
+                ", imported=" + imported +
+                ", failures=" + failures +
+                '}';
+    }
+}
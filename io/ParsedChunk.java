@@ -0,0 +1,69 @@
+package gr.aueb.mobileapp.io;
+
+import gr.aueb.mobileapp.dto.MobileContactDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The rows parsed from one chunk of an imported file
+ */
+final class ParsedChunk {
+
+    private final List<Row> rows = new ArrayList<>();
+    private int lineCount;
+
+    void add(int line, MobileContactDTO contactDTO, boolean hasId) {
+        add(line, contactDTO, hasId, false);
+    }
+
+    /**
+     * Adds a parsed contact
+     * @param hasUserDetailsId
+     *              true if the record gave the id of the UserDetails, which the
+     *              importer keeps when it generates the id of the contact
+     */
+    void add(int line, MobileContactDTO contactDTO, boolean hasId, boolean hasUserDetailsId) {
+        rows.add(new Row(line, contactDTO, hasId, hasUserDetailsId, null));
+    }
+
+    void addError(int line, String message) {
+        rows.add(new Row(line, null, false, false, message));
+    }
+
+    List<Row> getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of lines of the chunk, so the importer can number the lines
+     * of the next chunk without scanning this one again
+     */
+    int getLineCount() {
+        return lineCount;
+    }
+
+    void setLineCount(int lineCount) {
+        this.lineCount = lineCount;
+    }
+
+    /**
+     * A parsed contact, or the reason a record could not be parsed
+     */
+    static final class Row {
+
+        final int line;
+        final MobileContactDTO contactDTO;
+        final boolean hasId;
+        final boolean hasUserDetailsId;
+        final String error;
+
+        private Row(int line, MobileContactDTO contactDTO, boolean hasId, boolean hasUserDetailsId, String error) {
+            this.line = line;
+            this.contactDTO = contactDTO;
+            this.hasId = hasId;
+            this.hasUserDetailsId = hasUserDetailsId;
+            this.error = error;
+        }
+    }
+}
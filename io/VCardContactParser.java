@@ -0,0 +1,253 @@
+package gr.aueb.mobileapp.io;
+
+import gr.aueb.mobileapp.dto.MobileContactDTO;
+import gr.aueb.mobileapp.dto.UserDetailsDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parser of {@link ContactFileFormat#VCARD}. A record is a card, from its
+ * BEGIN:VCARD to its END:VCARD line, and is reported at the line of its BEGIN.
+ * Folded lines are joined before the properties are read. The phone number is
+ * kept as digits, with the leading + of an international number, since cards
+ * usually hold the number as it is displayed
+ */
+final class VCardContactParser implements ContactParser {
+
+    private static final String BEGIN = "BEGIN:VCARD";
+    private static final String END = "END:VCARD";
+
+    @Override
+    public int headerLength(byte[] data, int from, int to, boolean eof) {
+        return 0;
+    }
+
+    @Override
+    public int lastRecordEnd(byte[] data, int from, int to) {
+        //lineEnd is the position of the line break after the line; the last line is complete only if it has one
+        int lineEnd = to;
+        for (int i = to - 1; i >= from - 1; i--) {
+            if (i < from || data[i] == '\n') {
+                if (lineEnd < to && isEndLine(data, i + 1, lineEnd)) return lineEnd + 1;
+                lineEnd = i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public ParsedChunk parse(byte[] data) {
+        ParsedChunk chunk = new ParsedChunk();
+        Card card = null;
+        //The line being unfolded and the line number where it started
+        StringBuilder logical = new StringBuilder();
+        int logicalLine = 0;
+
+        int line = 0;
+        int start = 0;
+        while (start < data.length) {
+            int newline = CsvContactParser.indexOf(data, (byte) '\n', start, data.length);
+            int end = newline < 0 ? data.length : newline;
+            line++;
+            String physical = decode(data, start, end);
+            start = end + 1;
+
+            if (!physical.isEmpty() && (physical.charAt(0) == ' ' || physical.charAt(0) == '\t') && logical.length() > 0) {
+                logical.append(physical, 1, physical.length());
+                continue;
+            }
+            if (logical.length() > 0) card = accept(chunk, card, logical.toString(), logicalLine);
+            logical.setLength(0);
+            logical.append(physical);
+            logicalLine = line;
+        }
+        if (logical.length() > 0) card = accept(chunk, card, logical.toString(), logicalLine);
+        if (card != null) chunk.addError(card.line, "The card has no END:VCARD");
+
+        chunk.setLineCount(line);
+        return chunk;
+    }
+
+    /**
+     * Applies one unfolded line
+     * @return
+     *          the card that is open after the line, or null
+     */
+    private Card accept(ParsedChunk chunk, Card card, String text, int line) {
+        if (text.isBlank()) return card;
+        String trimmed = text.trim();
+        if (trimmed.equalsIgnoreCase(BEGIN)) {
+            if (card != null) chunk.addError(card.line, "The card has no END:VCARD");
+            return new Card(line);
+        }
+        if (card == null) {
+            chunk.addError(line, "The line is outside of a card");
+            return null;
+        }
+        if (trimmed.equalsIgnoreCase(END)) {
+            card.finish(chunk);
+            return null;
+        }
+
+        int colon = valueSeparatorOf(text);
+        if (colon < 0) return card;
+        String[] nameAndParameters = text.substring(0, colon).split(";");
+        String name = nameAndParameters[0];
+        int dot = name.lastIndexOf('.');
+        if (dot >= 0) name = name.substring(dot + 1);
+        String value = text.substring(colon + 1);
+
+        switch (name.toUpperCase(Locale.ROOT)) {
+            case "N":
+                card.structuredName = components(value);
+                break;
+            case "FN":
+                card.formattedName = unescape(value);
+                break;
+            case "TEL":
+                boolean cell = false;
+                for (int i = 1; i < nameAndParameters.length; i++) {
+                    if (nameAndParameters[i].toUpperCase(Locale.ROOT).contains("CELL")) cell = true;
+                }
+                if (card.phoneNumber == null || (cell && !card.cell)) {
+                    card.phoneNumber = normalizePhoneNumber(value);
+                    card.cell = cell;
+                }
+                break;
+            case "UID":
+            case "X-CONTACT-ID":
+                try {
+                    card.id = Long.parseLong(value.trim());
+                    card.hasId = true;
+                } catch (NumberFormatException e) {
+                    //Not an id of ours, e.g. a urn:uuid
+                }
+                break;
+            default:
+                break;
+        }
+        return card;
+    }
+
+    /**
+     * Returns the position of the colon between the name and the value, skipping
+     * the colons of quoted parameter values
+     */
+    private static int valueSeparatorOf(String text) {
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') quoted = !quoted;
+            else if (c == ':' && !quoted) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Splits a structured value at the unescaped semicolons and unescapes the parts
+     */
+    private static List<String> components(String value) {
+        List<String> components = new ArrayList<>();
+        StringBuilder component = new StringBuilder();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                component.append(unescape(value.charAt(++i)));
+            } else if (c == ';') {
+                components.add(component.toString().trim());
+                component.setLength(0);
+            } else {
+                component.append(c);
+            }
+        }
+        components.add(component.toString().trim());
+        return components;
+    }
+
+    private static String unescape(String value) {
+        StringBuilder unescaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                unescaped.append(unescape(value.charAt(++i)));
+            } else {
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString().trim();
+    }
+
+    private static char unescape(char escaped) {
+        return escaped == 'n' || escaped == 'N' ? '\n' : escaped;
+    }
+
+    /**
+     * Keeps the digits of a phone number and the + of an international one,
+     * dropping a tel: prefix and the spaces, dashes and brackets of the display form
+     */
+    static String normalizePhoneNumber(String value) {
+        String number = value.trim();
+        if (number.regionMatches(true, 0, "tel:", 0, 4)) number = number.substring(4);
+        StringBuilder digits = new StringBuilder(number.length());
+        for (int i = 0; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c >= '0' && c <= '9') digits.append(c);
+            else if (c == '+' && digits.length() == 0) digits.append(c);
+        }
+        return digits.toString();
+    }
+
+    private static boolean isEndLine(byte[] data, int from, int to) {
+        while (to > from && (data[to - 1] == '\r' || data[to - 1] == ' ' || data[to - 1] == '\t')) to--;
+        while (from < to && (data[from] == ' ' || data[from] == '\t')) from++;
+        if (to - from != END.length()) return false;
+        for (int i = 0; i < END.length(); i++) {
+            if (Character.toUpperCase((char) data[from + i]) != END.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static String decode(byte[] data, int from, int to) {
+        if (to > from && data[to - 1] == '\r') to--;
+        return new String(data, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The properties of the card being read
+     */
+    private static final class Card {
+
+        final int line;
+        List<String> structuredName;
+        String formattedName;
+        String phoneNumber;
+        boolean cell;
+        long id;
+        boolean hasId;
+
+        Card(int line) {
+            this.line = line;
+        }
+
+        void finish(ParsedChunk chunk) {
+            if (phoneNumber == null || phoneNumber.isEmpty()) {
+                chunk.addError(line, "The card has no phone number");
+                return;
+            }
+            String firstname = "";
+            String lastname = "";
+            if (structuredName != null) {
+                lastname = structuredName.get(0);
+                if (structuredName.size() > 1) firstname = structuredName.get(1);
+            } else if (formattedName != null) {
+                int space = formattedName.indexOf(' ');
+                firstname = space < 0 ? formattedName : formattedName.substring(0, space);
+                lastname = space < 0 ? "" : formattedName.substring(space + 1).trim();
+            }
+            chunk.add(line, new MobileContactDTO(id, new UserDetailsDTO(id, firstname, lastname), phoneNumber), hasId);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package gr.aueb.mobileapp.metrics;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JMX view of a {@link MetricsRegistry}, registered by {@link MetricsRegistry#registerMBean(String)}
+ */
+public interface ContactMetricsMXBean {
+
+    /**
+     * Returns a snapshot of every operation, ordered by name
+     */
+    List<OperationSnapshot> getOperations();
+
+    /**
+     * Returns the current value of every counter, by name
+     */
+    Map<String, Long> getCounters();
+}
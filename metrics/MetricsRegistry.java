@@ -0,0 +1,110 @@
+package gr.aueb.mobileapp.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * The {@link OperationMetrics} of the instrumented service and DAO, by operation name,
+ * and counters that components keep themselves, by counter name. Decorators look
+ * their operations up once, when they are created, so recording a call does not go
+ * through the registry; a counter is read only when the metrics are read
+ */
+public class MetricsRegistry {
+
+    private static final String DOMAIN = "gr.aueb.mobileapp";
+
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the metrics of an operation, creating them on first use
+     * @param name
+     *          the operation name, e.g. "service.insertMobileContact"
+     */
+    public OperationMetrics operation(String name) {
+        return operations.computeIfAbsent(name, OperationMetrics::new);
+    }
+
+    /**
+     * Returns a snapshot of every operation that was looked up, by name
+     */
+    public Map<String, OperationSnapshot> snapshot() {
+        Map<String, OperationSnapshot> snapshots = new TreeMap<>();
+        operations.forEach((name, metrics) -> snapshots.put(name, metrics.snapshot()));
+        return snapshots;
+    }
+
+    /**
+     * Adds a counter kept by a component, replacing a counter of the same name
+     * @param name
+     *          the counter name, e.g. "dao.filter.negatives"
+     * @param count
+     *          reads the current count
+     */
+    public void counter(String name, LongSupplier count) {
+        counters.put(name, count);
+    }
+
+    /**
+     * Returns the current value of every counter, by name
+     */
+    public Map<String, Long> counters() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, count) -> values.put(name, count.getAsLong()));
+        return values;
+    }
+
+    /**
+     * Registers the registry in the platform MBean server as a {@link ContactMetricsMXBean}
+     * @param name
+     *          distinguishes the registries of one JVM, e.g. "contacts"
+     * @return
+     *          the name of the MBean, "gr.aueb.mobileapp:type=ContactMetrics,name=" + name
+     * @throws IllegalStateException
+     *          if a registry is already registered under the name
+     */
+    public ObjectName registerMBean(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=ContactMetrics,name=" + ObjectName.quote(name));
+            ContactMetricsMXBean bean = new ContactMetricsMXBean() {
+                @Override
+                public List<OperationSnapshot> getOperations() {
+                    return new ArrayList<>(snapshot().values());
+                }
+
+                @Override
+                public Map<String, Long> getCounters() {
+                    return counters();
+                }
+            };
+            server.registerMBean(new StandardMBean(bean, ContactMetricsMXBean.class, true), objectName);
+            return objectName;
+        } catch (InstanceAlreadyExistsException e) {
+            throw new IllegalStateException("Metrics are already registered as " + name, e);
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register the metrics " + name, e);
+        }
+    }
+
+    /**
+     * Removes an MBean registered by {@link #registerMBean(String)}
+     */
+    public void unregisterMBean(ObjectName objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not unregister " + objectName, e);
+        }
+    }
+}
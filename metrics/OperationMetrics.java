@@ -0,0 +1,50 @@
+package gr.aueb.mobileapp.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram and outcome counters of one operation. Failures are
+ * counted per reason, e.g. the simple name of the exception thrown or the
+ * status of a result that reports a failure instead of throwing
+ */
+public final class OperationMetrics {
+
+    private final String name;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void recordSuccess(long nanos) {
+        latencies.record(nanos);
+    }
+
+    public void recordFailure(String reason, long nanos) {
+        latencies.record(nanos);
+        failures.computeIfAbsent(reason, key -> new LongAdder()).increment();
+    }
+
+    public void recordFailure(Throwable failure, long nanos) {
+        recordFailure(failure.getClass().getSimpleName(), nanos);
+    }
+
+    /**
+     * Returns the current counters; the successes are the calls of the
+     * histogram that were not counted as failures, so a success costs one
+     * counter less than a failure
+     */
+    public OperationSnapshot snapshot() {
+        Map<String, Long> failureCounts = new TreeMap<>();
+        failures.forEach((reason, count) -> failureCounts.put(reason, count.sum()));
+        return new OperationSnapshot(name, failureCounts, latencies.snapshot());
+    }
+}
@@ -0,0 +1,98 @@
+package gr.aueb.mobileapp.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The counters and latency percentiles of an operation at one point in time.
+ * Latencies are in nanoseconds; a percentile is the upper bound of its
+ * histogram bucket, at most 12.5% above the exact value
+ */
+public class OperationSnapshot {
+
+    private final String operation;
+    private final long successes;
+    private final Map<String, Long> failures;
+    private final long count;
+    private final double meanNanos;
+    private final long p50Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+    private final long maxNanos;
+
+    OperationSnapshot(String operation, Map<String, Long> failures, LatencyHistogram.Snapshot latencies) {
+        this.operation = operation;
+        this.failures = Collections.unmodifiableMap(failures);
+        this.count = latencies.getCount();
+        this.successes = Math.max(0L, count - getFailureCount());
+        this.meanNanos = latencies.getMean();
+        this.p50Nanos = latencies.getValueAt(0.50);
+        this.p99Nanos = latencies.getValueAt(0.99);
+        this.p999Nanos = latencies.getValueAt(0.999);
+        this.maxNanos = latencies.getMax();
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * Returns the number of calls, successful or not
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public long getSuccesses() {
+        return successes;
+    }
+
+    /**
+     * Returns the number of failed calls per reason
+     */
+    public Map<String, Long> getFailures() {
+        return failures;
+    }
+
+    public long getFailureCount() {
+        long failed = 0;
+        for (long count : failures.values()) {
+            failed += count;
+        }
+        return failed;
+    }
+
+    public double getMeanNanos() {
+        return meanNanos;
+    }
+
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    public long getP999Nanos() {
+        return p999Nanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "OperationSnapshot{" +
+                "operation='" + operation + '\'' +
+                ", count=" + count +
+                ", successes=" + successes +
+                ", failures=" + failures +
+                ", p50Nanos=" + p50Nanos +
+                ", p99Nanos=" + p99Nanos +
+                ", p999Nanos=" + p999Nanos +
+                ", maxNanos=" + maxNanos +
+                '}';
+    }
+}
@@ -0,0 +1,300 @@
+package gr.aueb.mobileapp.query;
+
+import gr.aueb.mobileapp.dao.ContactIndex;
+import gr.aueb.mobileapp.dao.ContactPage;
+import gr.aueb.mobileapp.dao.IMobileContactDAO;
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * How a {@link QueryPlan} reads its candidate {@link MobileContact} instances
+ * from an {@link IMobileContactDAO}: one index lookup, one index range, or a
+ * parallel scan of every contact. Nothing is read until the stream of
+ * {@link #open()} is consumed
+ */
+abstract class AccessPath {
+
+    /**
+     * The number of matches read while planning to estimate the size of a lookup
+     */
+    static final int PROBE_SIZE = 1024;
+
+    final IMobileContactDAO dao;
+    final ContactPredicate condition;
+    final ContactIndex index;
+    final long estimatedRows;
+    final boolean exactEstimate;
+
+    AccessPath(IMobileContactDAO dao, ContactPredicate condition, ContactIndex index,
+               long estimatedRows, boolean exactEstimate) {
+        this.dao = dao;
+        this.condition = condition;
+        this.index = index;
+        this.estimatedRows = estimatedRows;
+        this.exactEstimate = exactEstimate;
+    }
+
+    /**
+     * Returns the candidates, which meet {@link #condition} but not
+     * necessarily the rest of the query
+     */
+    abstract Stream<MobileContact> open();
+
+    /**
+     * Returns the field the candidates come out sorted by, in ascending order, or null
+     */
+    ContactField naturalOrder() {
+        return null;
+    }
+
+    /**
+     * Returns the number of candidates read to produce a number of results in
+     * the natural order, which is less than {@link #estimatedRows} with a limit
+     */
+    long cost(ContactQuery query) {
+        if (!query.hasLimit() || naturalOrder() == null) return estimatedRows;
+        List<ContactQuery.SortKey> order = query.getOrder();
+        if (!order.isEmpty() && (order.get(0).getField() != naturalOrder() || order.get(0).isDescending())) {
+            return estimatedRows;
+        }
+        return Math.min(estimatedRows, query.getLimit());
+    }
+
+    abstract String describe();
+
+    String describeEstimate() {
+        if (exactEstimate) return "rows = " + estimatedRows;
+        return "rows > " + PROBE_SIZE;
+    }
+
+    @Override
+    public String toString() {
+        return describe();
+    }
+
+    /**
+     * Returns a stream whose source is only read by its terminal operation
+     */
+    static Stream<MobileContact> deferred(Iterable<MobileContact> source) {
+        int characteristics = Spliterator.ORDERED | Spliterator.NONNULL;
+        return StreamSupport.stream(() -> Spliterators.spliteratorUnknownSize(source.iterator(), characteristics),
+                characteristics, false);
+    }
+
+    /**
+     * {@link IMobileContactDAO#get(long)} or {@link IMobileContactDAO#get(String)},
+     * which return one contact at most
+     */
+    static final class KeyLookup extends AccessPath {
+
+        KeyLookup(IMobileContactDAO dao, ContactPredicate condition, ContactIndex index) {
+            super(dao, condition, index, 1, true);
+        }
+
+        @Override
+        Stream<MobileContact> open() {
+            return deferred(() -> {
+                MobileContact mobileContact = condition.getKind() == ContactPredicate.Kind.ID_EQUALS
+                        ? dao.get(condition.getFrom())
+                        : dao.get(condition.getText());
+                return mobileContact == null
+                        ? Collections.emptyIterator()
+                        : Collections.singletonList(mobileContact).iterator();
+            });
+        }
+
+        @Override
+        String describe() {
+            String using = dao.getIndexes().contains(index) ? " using " + index : " by linear search";
+            return "Lookup " + condition + using + " (rows <= 1)";
+        }
+    }
+
+    /**
+     * {@link IMobileContactDAO#getContactsByUser(long)}
+     */
+    static final class UserLookup extends AccessPath {
+
+        UserLookup(IMobileContactDAO dao, ContactPredicate condition, long estimatedRows) {
+            super(dao, condition, ContactIndex.USER_DETAILS_ID, estimatedRows, true);
+        }
+
+        static UserLookup probe(IMobileContactDAO dao, ContactPredicate condition) {
+            return new UserLookup(dao, condition, dao.getContactsByUser(condition.getFrom()).size());
+        }
+
+        @Override
+        Stream<MobileContact> open() {
+            return deferred(() -> dao.getContactsByUser(condition.getFrom()).iterator());
+        }
+
+        @Override
+        String describe() {
+            return "Lookup " + condition + " using " + index + " (" + describeEstimate() + ")";
+        }
+    }
+
+    /**
+     * {@link IMobileContactDAO#findByPhonePrefix(String, int)} in batches of
+     * growing size, in ascending phone number order
+     */
+    static final class PhonePrefixRange extends AccessPath {
+
+        private static final int FIRST_BATCH = 64;
+
+        PhonePrefixRange(IMobileContactDAO dao, ContactPredicate condition, long estimatedRows, boolean exactEstimate) {
+            super(dao, condition, ContactIndex.PHONE_PREFIX, estimatedRows, exactEstimate);
+        }
+
+        static PhonePrefixRange probe(IMobileContactDAO dao, ContactPredicate condition) {
+            int matches = dao.findByPhonePrefix(condition.getText(), PROBE_SIZE + 1).size();
+            return new PhonePrefixRange(dao, condition, matches, matches <= PROBE_SIZE);
+        }
+
+        @Override
+        Stream<MobileContact> open() {
+            return StreamSupport.stream(() -> new Spliterators.AbstractSpliterator<MobileContact>(Long.MAX_VALUE,
+                    Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT) {
+
+                private int batchSize = FIRST_BATCH;
+                private Iterator<MobileContact> batch = Collections.emptyIterator();
+                private boolean lastBatch;
+                private String lastPhoneNumber;
+
+                @Override
+                public boolean tryAdvance(Consumer<? super MobileContact> action) {
+                    while (!batch.hasNext()) {
+                        if (lastBatch) return false;
+                        List<MobileContact> matches = dao.findByPhonePrefix(condition.getText(), batchSize);
+                        lastBatch = matches.size() < batchSize;
+                        //The next batch starts over from the prefix, so skip what was already returned
+                        int skip = 0;
+                        while (lastPhoneNumber != null && skip < matches.size()
+                                && matches.get(skip).getPhoneNumber().compareTo(lastPhoneNumber) <= 0) {
+                            skip++;
+                        }
+                        batch = matches.subList(skip, matches.size()).iterator();
+                        batchSize = batchSize > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE : batchSize * 2;
+                    }
+                    MobileContact mobileContact = batch.next();
+                    lastPhoneNumber = mobileContact.getPhoneNumber();
+                    action.accept(mobileContact);
+                    return true;
+                }
+            }, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT, false);
+        }
+
+        @Override
+        ContactField naturalOrder() {
+            return ContactField.PHONE_NUMBER;
+        }
+
+        @Override
+        String describe() {
+            return "Range " + condition + " using " + index + ", in phoneNumber order (" + describeEstimate() + ")";
+        }
+    }
+
+    /**
+     * {@link IMobileContactDAO#getPage(Long, int)} from the lower bound of an
+     * id range, in pages of growing size, in ascending id order
+     */
+    static final class IdRange extends AccessPath {
+
+        private static final int FIRST_PAGE = 64;
+        private static final int MAX_PAGE = 4096;
+
+        IdRange(IMobileContactDAO dao, ContactPredicate condition, long estimatedRows, boolean exactEstimate) {
+            super(dao, condition, ContactIndex.ID_ORDER, estimatedRows, exactEstimate);
+        }
+
+        static IdRange probe(IMobileContactDAO dao, ContactPredicate condition) {
+            ContactPage page = dao.getPage(firstCursor(condition), PROBE_SIZE);
+            long matches = page.getContacts().stream().filter(condition).count();
+            boolean exact = !page.hasNext() || matches < page.getContacts().size();
+            //Past the probe the range holds at most one contact per id
+            long span = condition.getTo() - condition.getFrom() + 1;
+            return new IdRange(dao, condition, exact ? matches : span <= 0 ? Long.MAX_VALUE : span, exact);
+        }
+
+        @Override
+        Stream<MobileContact> open() {
+            return StreamSupport.stream(() -> new Spliterators.AbstractSpliterator<MobileContact>(Long.MAX_VALUE,
+                    Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT) {
+
+                private int pageSize = FIRST_PAGE;
+                private Iterator<MobileContact> page = Collections.emptyIterator();
+                private Long cursor = firstCursor(condition);
+                private boolean done;
+
+                @Override
+                public boolean tryAdvance(Consumer<? super MobileContact> action) {
+                    while (!page.hasNext()) {
+                        if (done) return false;
+                        ContactPage next = dao.getPage(cursor, pageSize);
+                        page = next.getContacts().iterator();
+                        cursor = next.getNextCursor();
+                        done = !next.hasNext() || cursor >= condition.getTo();
+                        pageSize = Math.min(pageSize * 2, MAX_PAGE);
+                    }
+                    MobileContact mobileContact = page.next();
+                    if (mobileContact.getId() > condition.getTo()) {
+                        done = true;
+                        page = Collections.emptyIterator();
+                        return false;
+                    }
+                    action.accept(mobileContact);
+                    return true;
+                }
+            }, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT, false);
+        }
+
+        @Override
+        ContactField naturalOrder() {
+            return ContactField.ID;
+        }
+
+        @Override
+        String describeEstimate() {
+            if (exactEstimate) return super.describeEstimate();
+            return "rows > " + PROBE_SIZE + (estimatedRows == Long.MAX_VALUE ? "" : ", at most " + estimatedRows);
+        }
+
+        @Override
+        String describe() {
+            return "Range " + condition + " using " + index + ", in id order (" + describeEstimate() + ")";
+        }
+
+        private static Long firstCursor(ContactPredicate condition) {
+            return condition.getFrom() == Long.MIN_VALUE ? null : condition.getFrom() - 1;
+        }
+    }
+
+    /**
+     * {@link IMobileContactDAO#stream()} in parallel, for a query no index answers
+     */
+    static final class ParallelScan extends AccessPath {
+
+        ParallelScan(IMobileContactDAO dao) {
+            super(dao, ContactPredicate.always(), null, Long.MAX_VALUE, false);
+        }
+
+        @Override
+        Stream<MobileContact> open() {
+            return dao.stream().parallel();
+        }
+
+        @Override
+        String describe() {
+            return "ParallelScan (all rows)";
+        }
+    }
+}
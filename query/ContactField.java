@@ -0,0 +1,59 @@
+package gr.aueb.mobileapp.query;
+
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+
+import java.util.Comparator;
+import java.util.function.Function;
+
+/**
+ * The fields of a {@link MobileContact} that a {@link ContactQuery} sorts
+ * by and projects. The fields of the {@link UserDetails} are null for a
+ * contact without them, and sort after every other value
+ */
+public enum ContactField {
+
+    ID("id", MobileContact::getId),
+    PHONE_NUMBER("phoneNumber", MobileContact::getPhoneNumber),
+    FIRSTNAME("firstname", mobileContact -> mobileContact.getUserDetails() == null ? null
+            : mobileContact.getUserDetails().getFirstname()),
+    LASTNAME("lastname", mobileContact -> mobileContact.getUserDetails() == null ? null
+            : mobileContact.getUserDetails().getLastname()),
+    USER_DETAILS_ID("userDetailsId", mobileContact -> mobileContact.getUserDetails() == null ? null
+            : mobileContact.getUserDetails().getId());
+
+    private final String name;
+    private final Function<MobileContact, Comparable<?>> getter;
+
+    ContactField(String name, Function<MobileContact, Comparable<?>> getter) {
+        this.name = name;
+        this.getter = getter;
+    }
+
+    /**
+     * Returns the name of the field as it appears in a query plan, e.g. "phoneNumber"
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the value of the field in a {@link MobileContact}
+     * @return
+     *          a Long for the ids, a String for the others, or null
+     */
+    public Object valueOf(MobileContact mobileContact) {
+        return getter.apply(mobileContact);
+    }
+
+    /**
+     * Returns the order of the field, with null values last in either direction
+     * @param descending
+     *                  true for the largest values first
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Comparator<MobileContact> comparator(boolean descending) {
+        Comparator<Comparable> order = descending ? Comparator.reverseOrder() : Comparator.naturalOrder();
+        return Comparator.comparing(mobileContact -> (Comparable) getter.apply(mobileContact), Comparator.nullsLast(order));
+    }
+}
@@ -0,0 +1,259 @@
+package gr.aueb.mobileapp.query;
+
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * A condition on a {@link MobileContact} whose structure a query planner can
+ * read: conditions on the id, the phone number and the id of the
+ * {@link UserDetails} may be answered from an index of the DAO, the others
+ * are tested on every candidate. Conditions are combined with {@link #and},
+ * {@link #or} and {@link #negate()}. Names are compared ignoring case.
+ * Instances are immutable and safe to test from several threads
+ */
+public final class ContactPredicate implements Predicate<MobileContact> {
+
+    /**
+     * The shape of a condition, read by the planner
+     */
+    enum Kind {
+        ALWAYS, ID_EQUALS, ID_BETWEEN, PHONE_EQUALS, PHONE_PREFIX, FIRSTNAME_EQUALS, FIRSTNAME_PREFIX,
+        LASTNAME_EQUALS, LASTNAME_PREFIX, USER_DETAILS_ID_EQUALS, AND, OR, NOT, CUSTOM
+    }
+
+    private static final ContactPredicate ALWAYS = new ContactPredicate(Kind.ALWAYS, 0L, 0L, null,
+            Collections.emptyList(), null);
+
+    private final Kind kind;
+    private final long from;
+    private final long to;
+    private final String text;
+    private final List<ContactPredicate> operands;
+    private final Predicate<? super MobileContact> custom;
+
+    private ContactPredicate(Kind kind, long from, long to, String text, List<ContactPredicate> operands,
+                             Predicate<? super MobileContact> custom) {
+        this.kind = kind;
+        this.from = from;
+        this.to = to;
+        this.text = text;
+        this.operands = operands;
+        this.custom = custom;
+    }
+
+    /**
+     * Returns the condition every contact meets
+     */
+    public static ContactPredicate always() {
+        return ALWAYS;
+    }
+
+    public static ContactPredicate idEquals(long id) {
+        return new ContactPredicate(Kind.ID_EQUALS, id, id, null, Collections.emptyList(), null);
+    }
+
+    /**
+     * Returns the condition that the id is between two ids, both included
+     */
+    public static ContactPredicate idBetween(long from, long to) {
+        return new ContactPredicate(Kind.ID_BETWEEN, from, to, null, Collections.emptyList(), null);
+    }
+
+    public static ContactPredicate phoneEquals(String phoneNumber) {
+        return text(Kind.PHONE_EQUALS, phoneNumber);
+    }
+
+    public static ContactPredicate phoneStartsWith(String prefix) {
+        return text(Kind.PHONE_PREFIX, prefix);
+    }
+
+    public static ContactPredicate firstnameEquals(String firstname) {
+        return text(Kind.FIRSTNAME_EQUALS, firstname.toLowerCase(Locale.ROOT));
+    }
+
+    public static ContactPredicate firstnameStartsWith(String prefix) {
+        return text(Kind.FIRSTNAME_PREFIX, prefix.toLowerCase(Locale.ROOT));
+    }
+
+    public static ContactPredicate lastnameEquals(String lastname) {
+        return text(Kind.LASTNAME_EQUALS, lastname.toLowerCase(Locale.ROOT));
+    }
+
+    public static ContactPredicate lastnameStartsWith(String prefix) {
+        return text(Kind.LASTNAME_PREFIX, prefix.toLowerCase(Locale.ROOT));
+    }
+
+    public static ContactPredicate userDetailsIdEquals(long userDetailsId) {
+        return new ContactPredicate(Kind.USER_DETAILS_ID_EQUALS, userDetailsId, userDetailsId, null,
+                Collections.emptyList(), null);
+    }
+
+    /**
+     * Returns a condition the planner cannot read, which is tested on every candidate
+     * @param description
+     *                  how the condition appears in a query plan
+     * @param predicate
+     *                  the condition, which may be tested from several threads at once
+     */
+    public static ContactPredicate matching(String description, Predicate<? super MobileContact> predicate) {
+        return new ContactPredicate(Kind.CUSTOM, 0L, 0L, Objects.requireNonNull(description),
+                Collections.emptyList(), Objects.requireNonNull(predicate));
+    }
+
+    /**
+     * Returns the condition that both this and the other condition are met
+     */
+    public ContactPredicate and(ContactPredicate other) {
+        if (kind == Kind.ALWAYS) return other;
+        if (other.kind == Kind.ALWAYS) return this;
+        List<ContactPredicate> all = new ArrayList<>(operandsOf(Kind.AND));
+        all.addAll(other.operandsOf(Kind.AND));
+        return new ContactPredicate(Kind.AND, 0L, 0L, null, Collections.unmodifiableList(all), null);
+    }
+
+    /**
+     * Returns the condition that this or the other condition is met
+     */
+    public ContactPredicate or(ContactPredicate other) {
+        if (kind == Kind.ALWAYS || other.kind == Kind.ALWAYS) return ALWAYS;
+        List<ContactPredicate> any = new ArrayList<>(operandsOf(Kind.OR));
+        any.addAll(other.operandsOf(Kind.OR));
+        return new ContactPredicate(Kind.OR, 0L, 0L, null, Collections.unmodifiableList(any), null);
+    }
+
+    @Override
+    public ContactPredicate negate() {
+        if (kind == Kind.NOT) return operands.get(0);
+        return new ContactPredicate(Kind.NOT, 0L, 0L, null, Collections.singletonList(this), null);
+    }
+
+    @Override
+    public boolean test(MobileContact mobileContact) {
+        UserDetails userDetails = mobileContact.getUserDetails();
+        switch (kind) {
+            case ALWAYS:
+                return true;
+            case ID_EQUALS:
+            case ID_BETWEEN:
+                return mobileContact.getId() >= from && mobileContact.getId() <= to;
+            case PHONE_EQUALS:
+                return text.equals(mobileContact.getPhoneNumber());
+            case PHONE_PREFIX:
+                return mobileContact.getPhoneNumber() != null && mobileContact.getPhoneNumber().startsWith(text);
+            case FIRSTNAME_EQUALS:
+                return userDetails != null && text.equalsIgnoreCase(userDetails.getFirstname());
+            case FIRSTNAME_PREFIX:
+                return userDetails != null && startsWithIgnoreCase(userDetails.getFirstname(), text);
+            case LASTNAME_EQUALS:
+                return userDetails != null && text.equalsIgnoreCase(userDetails.getLastname());
+            case LASTNAME_PREFIX:
+                return userDetails != null && startsWithIgnoreCase(userDetails.getLastname(), text);
+            case USER_DETAILS_ID_EQUALS:
+                return userDetails != null && userDetails.getId() == from;
+            case AND:
+                for (ContactPredicate operand : operands) {
+                    if (!operand.test(mobileContact)) return false;
+                }
+                return true;
+            case OR:
+                for (ContactPredicate operand : operands) {
+                    if (operand.test(mobileContact)) return true;
+                }
+                return false;
+            case NOT:
+                return !operands.get(0).test(mobileContact);
+            case CUSTOM:
+                return custom.test(mobileContact);
+            default:
+                throw new IllegalStateException("Unknown condition " + kind);
+        }
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the id, the lower bound of an id range or the id of the User Details
+     */
+    long getFrom() {
+        return from;
+    }
+
+    /**
+     * Returns the id or the upper bound of an id range
+     */
+    long getTo() {
+        return to;
+    }
+
+    /**
+     * Returns the phone number or prefix of a phone number condition
+     */
+    String getText() {
+        return text;
+    }
+
+    /**
+     * Returns the conditions that must all be met for this one to be met
+     */
+    List<ContactPredicate> conjuncts() {
+        return operandsOf(Kind.AND);
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case ALWAYS:
+                return "true";
+            case ID_EQUALS:
+                return "id = " + from;
+            case ID_BETWEEN:
+                return "id between " + from + " and " + to;
+            case PHONE_EQUALS:
+                return "phoneNumber = '" + text + "'";
+            case PHONE_PREFIX:
+                return "phoneNumber starts with '" + text + "'";
+            case FIRSTNAME_EQUALS:
+                return "firstname = '" + text + "'";
+            case FIRSTNAME_PREFIX:
+                return "firstname starts with '" + text + "'";
+            case LASTNAME_EQUALS:
+                return "lastname = '" + text + "'";
+            case LASTNAME_PREFIX:
+                return "lastname starts with '" + text + "'";
+            case USER_DETAILS_ID_EQUALS:
+                return "userDetailsId = " + from;
+            case AND:
+                return operands.stream().map(ContactPredicate::toString).collect(Collectors.joining(" and ", "(", ")"));
+            case OR:
+                return operands.stream().map(ContactPredicate::toString).collect(Collectors.joining(" or ", "(", ")"));
+            case NOT:
+                return "not " + operands.get(0);
+            case CUSTOM:
+                return text;
+            default:
+                throw new IllegalStateException("Unknown condition " + kind);
+        }
+    }
+
+    private List<ContactPredicate> operandsOf(Kind combination) {
+        return kind == combination ? operands : Collections.singletonList(this);
+    }
+
+    private static ContactPredicate text(Kind kind, String value) {
+        return new ContactPredicate(kind, 0L, 0L, Objects.requireNonNull(value), Collections.emptyList(), null);
+    }
+
+    private static boolean startsWithIgnoreCase(String value, String prefix) {
+        return value != null && value.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+}
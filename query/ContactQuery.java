@@ -0,0 +1,176 @@
+package gr.aueb.mobileapp.query;
+
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An immutable description of which {@link MobileContact} instances to read:
+ * a {@link ContactPredicate}, an order, a limit and the {@link ContactField}s
+ * of the projected rows. Every method returns a new query, so a query can be
+ * kept and refined, e.g.
+ *
+ * <pre>
+ * ContactQuery.where(ContactPredicate.phoneStartsWith("69").and(ContactPredicate.lastnameEquals("Smith")))
+ *         .orderBy(ContactField.FIRSTNAME)
+ *         .limit(20)
+ * </pre>
+ */
+public final class ContactQuery {
+
+    private static final ContactQuery ALL = new ContactQuery(ContactPredicate.always(), Collections.emptyList(),
+            -1, Collections.unmodifiableSet(EnumSet.allOf(ContactField.class)));
+
+    private final ContactPredicate predicate;
+    private final List<SortKey> order;
+    private final int limit;
+    private final Set<ContactField> fields;
+
+    private ContactQuery(ContactPredicate predicate, List<SortKey> order, int limit, Set<ContactField> fields) {
+        this.predicate = predicate;
+        this.order = order;
+        this.limit = limit;
+        this.fields = fields;
+    }
+
+    /**
+     * Returns the query of every contact, in no particular order
+     */
+    public static ContactQuery all() {
+        return ALL;
+    }
+
+    /**
+     * Returns the query of the contacts that meet a condition
+     */
+    public static ContactQuery where(ContactPredicate predicate) {
+        return ALL.and(predicate);
+    }
+
+    /**
+     * Returns this query restricted to the contacts that also meet a condition
+     */
+    public ContactQuery and(ContactPredicate other) {
+        return new ContactQuery(predicate.and(other), order, limit, fields);
+    }
+
+    /**
+     * Returns this query sorted by one more field, in ascending order
+     */
+    public ContactQuery orderBy(ContactField field) {
+        return orderBy(field, false);
+    }
+
+    /**
+     * Returns this query sorted by one more field; earlier fields take precedence
+     * @param descending
+     *                  true for the largest values first
+     */
+    public ContactQuery orderBy(ContactField field, boolean descending) {
+        List<SortKey> sorted = new ArrayList<>(order);
+        sorted.add(new SortKey(field, descending));
+        return new ContactQuery(predicate, Collections.unmodifiableList(sorted), limit, fields);
+    }
+
+    /**
+     * Returns this query stopped after a number of contacts
+     * @param maxResults
+     *                  the maximum number of results, zero or more
+     */
+    public ContactQuery limit(int maxResults) {
+        if (maxResults < 0) throw new IllegalArgumentException("Invalid limit " + maxResults);
+        return new ContactQuery(predicate, order, maxResults, fields);
+    }
+
+    /**
+     * Returns this query with rows of only some fields; all fields are selected by default
+     */
+    public ContactQuery select(ContactField... selected) {
+        if (selected.length == 0) throw new IllegalArgumentException("No fields selected");
+        return new ContactQuery(predicate, order, limit, Collections.unmodifiableSet(EnumSet.copyOf(Arrays.asList(selected))));
+    }
+
+    public ContactPredicate getPredicate() {
+        return predicate;
+    }
+
+    /**
+     * Returns the sort fields, the first one taking precedence; empty if the order does not matter
+     */
+    public List<SortKey> getOrder() {
+        return order;
+    }
+
+    /**
+     * Returns true if the query has a limit
+     */
+    public boolean hasLimit() {
+        return limit >= 0;
+    }
+
+    /**
+     * Returns the maximum number of results, or -1 if there is no limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    public Set<ContactField> getFields() {
+        return fields;
+    }
+
+    /**
+     * Returns the order of the results, or null if the order does not matter
+     */
+    public Comparator<MobileContact> comparator() {
+        Comparator<MobileContact> comparator = null;
+        for (SortKey key : order) {
+            Comparator<MobileContact> next = key.getField().comparator(key.isDescending());
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+
+    @Override
+    public String toString() {
+        return "ContactQuery{" +
+                "predicate=" + predicate +
+                ", order=" + order +
+                ", limit=" + limit +
+                ", fields=" + fields +
+                '}';
+    }
+
+    /**
+     * A field of the order of a query and its direction
+     */
+    public static final class SortKey {
+
+        private final ContactField field;
+        private final boolean descending;
+
+        SortKey(ContactField field, boolean descending) {
+            this.field = field;
+            this.descending = descending;
+        }
+
+        public ContactField getField() {
+            return field;
+        }
+
+        public boolean isDescending() {
+            return descending;
+        }
+
+        @Override
+        public String toString() {
+            return field.getName() + (descending ? " desc" : " asc");
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package gr.aueb.mobileapp.query;
+
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The selected fields of one {@link MobileContact} of a query result
+ */
+public final class ContactRow {
+
+    private final Map<ContactField, Object> values;
+
+    private ContactRow(Map<ContactField, Object> values) {
+        this.values = Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Reads the selected fields of a {@link MobileContact}
+     */
+    static ContactRow of(MobileContact mobileContact, Set<ContactField> fields) {
+        Map<ContactField, Object> values = new EnumMap<>(ContactField.class);
+        for (ContactField field : fields) {
+            values.put(field, field.valueOf(mobileContact));
+        }
+        return new ContactRow(values);
+    }
+
+    /**
+     * Returns the value of a selected field
+     * @return
+     *          the value, which is null for a name of a contact without User Details
+     * @throws IllegalArgumentException
+     *          if the field was not selected
+     */
+    public Object get(ContactField field) {
+        if (!values.containsKey(field)) throw new IllegalArgumentException("Field not selected: " + field.getName());
+        return values.get(field);
+    }
+
+    /**
+     * Returns the selected fields and their values, in the order of {@link ContactField}
+     */
+    public Map<ContactField, Object> getValues() {
+        return values;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ContactRow)) return false;
+        return values.equals(((ContactRow) o).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return values.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "ContactRow" + values;
+    }
+}
@@ -0,0 +1,156 @@
+package gr.aueb.mobileapp.query;
+
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A {@link ContactQuery} together with the way {@link QueryPlanner} chose to
+ * answer it. The results are read lazily: each call of {@link #stream()} reads
+ * the datasource again when its terminal operation runs, and stops reading once
+ * the limit is reached, unless every match must be read first to be sorted
+ */
+public final class QueryPlan {
+
+    private final ContactQuery query;
+    private final AccessPath accessPath;
+    private final ContactPredicate residual;
+    private final Comparator<MobileContact> comparator;
+
+    QueryPlan(ContactQuery query, AccessPath accessPath, ContactPredicate residual) {
+        this.query = query;
+        this.accessPath = accessPath;
+        this.residual = residual;
+        this.comparator = isSortedByAccess(query, accessPath) ? null : query.comparator();
+    }
+
+    public ContactQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * Returns the index the results are read from, or null for a scan of every contact
+     */
+    public String getIndexUsed() {
+        return accessPath.index == null ? null : accessPath.index.name();
+    }
+
+    /**
+     * Returns the results of the query
+     * @return
+     *          the resulting lazy {@link Stream}, which is parallel when every contact is scanned
+     */
+    public Stream<MobileContact> stream() {
+        Stream<MobileContact> results = accessPath.open();
+        if (residual.getKind() != ContactPredicate.Kind.ALWAYS) results = results.filter(residual);
+        if (comparator != null) {
+            Stream<MobileContact> matches = results;
+            results = StreamSupport.stream(() -> sort(matches).spliterator(),
+                    Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED, false);
+        } else if (query.getOrder().isEmpty() && results.isParallel()) {
+            //Any results will do, so a parallel scan may stop as soon as it has enough of them
+            results = results.unordered();
+        }
+        if (query.hasLimit()) results = results.limit(query.getLimit());
+        return results;
+    }
+
+    /**
+     * Returns the results of the query, projected to its selected fields
+     * @return
+     *          the resulting lazy {@link Stream} of {@link ContactRow} instances
+     */
+    public Stream<ContactRow> rows() {
+        return stream().map(mobileContact -> ContactRow.of(mobileContact, query.getFields()));
+    }
+
+    /**
+     * Returns the plan as a tree of steps, the outermost step first, e.g.
+     * <pre>
+     * Limit 20
+     *   Sort firstname asc (top 20)
+     *     Filter lastname = 'smith'
+     *       Range phoneNumber starts with '69' using PHONE_PREFIX, in phoneNumber order (rows = 312)
+     * </pre>
+     */
+    public String explain() {
+        List<String> steps = new ArrayList<>();
+        if (!query.getFields().equals(EnumSet.allOf(ContactField.class))) {
+            steps.add("Project " + query.getFields().stream().map(ContactField::getName).collect(Collectors.joining(", ")));
+        }
+        if (query.hasLimit()) steps.add("Limit " + query.getLimit());
+        if (comparator != null) {
+            String order = query.getOrder().stream().map(ContactQuery.SortKey::toString).collect(Collectors.joining(", "));
+            steps.add("Sort " + order + (query.hasLimit() ? " (top " + query.getLimit() + ")" : ""));
+        }
+        if (residual.getKind() != ContactPredicate.Kind.ALWAYS) {
+            steps.add("Filter " + residual);
+        }
+        steps.add(accessPath.describe());
+
+        StringBuilder plan = new StringBuilder();
+        for (int depth = 0; depth < steps.size(); depth++) {
+            if (depth > 0) plan.append(System.lineSeparator());
+            plan.append("  ".repeat(depth)).append(steps.get(depth));
+        }
+        return plan.toString();
+    }
+
+    @Override
+    public String toString() {
+        return explain();
+    }
+
+    /**
+     * Reads and sorts every match, keeping only the first ones when there is a limit
+     */
+    private List<MobileContact> sort(Stream<MobileContact> matches) {
+        if (!query.hasLimit()) return matches.sorted(comparator).collect(Collectors.toList());
+        if (query.getLimit() == 0) return new ArrayList<>();
+        List<MobileContact> top = new ArrayList<>(matches.collect(topK(query.getLimit(), comparator)));
+        top.sort(comparator);
+        return top;
+    }
+
+    /**
+     * Collects the k smallest elements in a heap per thread, so a parallel
+     * scan keeps at most k elements per thread in memory
+     */
+    private static Collector<MobileContact, PriorityQueue<MobileContact>, PriorityQueue<MobileContact>> topK(
+            int k, Comparator<MobileContact> comparator) {
+        return Collector.of(
+                () -> new PriorityQueue<>(comparator.reversed()),
+                (heap, mobileContact) -> {
+                    heap.add(mobileContact);
+                    if (heap.size() > k) heap.poll();
+                },
+                (heap, other) -> {
+                    for (MobileContact mobileContact : other) {
+                        heap.add(mobileContact);
+                        if (heap.size() > k) heap.poll();
+                    }
+                    return heap;
+                },
+                Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Returns true if the access path already returns the results in the order of the query
+     */
+    private static boolean isSortedByAccess(ContactQuery query, AccessPath accessPath) {
+        if (query.getOrder().isEmpty()) return true;
+        if (accessPath instanceof AccessPath.KeyLookup) return true;
+        //Ids and phone numbers are unique, so later sort fields never apply
+        ContactQuery.SortKey first = query.getOrder().get(0);
+        return first.getField() == accessPath.naturalOrder() && !first.isDescending();
+    }
+}
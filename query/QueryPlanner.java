@@ -0,0 +1,100 @@
+package gr.aueb.mobileapp.query;
+
+import gr.aueb.mobileapp.dao.ContactIndex;
+import gr.aueb.mobileapp.dao.IMobileContactDAO;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Chooses how an {@link IMobileContactDAO} answers a {@link ContactQuery}.
+ * Each condition of the query that an index of the DAO answers, as reported by
+ * {@link IMobileContactDAO#getIndexes()}, is a candidate: a lookup by id or
+ * phone number always wins, the others are probed for up to
+ * {@value AccessPath#PROBE_SIZE} matches and the cheapest one is kept. Without
+ * a candidate every contact is scanned in parallel. The other conditions are
+ * tested on each candidate
+ */
+public final class QueryPlanner {
+
+    private QueryPlanner() {
+    }
+
+    /**
+     * Returns the plan of a query; the indexes may be probed, but no result is read
+     * @param dao
+     *              the datasource to read from
+     * @param query
+     *              the query
+     * @return
+     *          the resulting {@link QueryPlan}
+     */
+    public static QueryPlan plan(IMobileContactDAO dao, ContactQuery query) {
+        List<ContactPredicate> conjuncts = query.getPredicate().conjuncts();
+        AccessPath chosen = chooseKeyLookup(dao, conjuncts);
+        if (chosen == null) chosen = chooseCheapest(dao, query, conjuncts);
+
+        ContactPredicate residual = ContactPredicate.always();
+        for (ContactPredicate conjunct : conjuncts) {
+            if (conjunct != chosen.condition && conjunct.getKind() != ContactPredicate.Kind.ALWAYS) {
+                residual = residual.and(conjunct);
+            }
+        }
+        return new QueryPlan(query, chosen, residual);
+    }
+
+    private static AccessPath chooseKeyLookup(IMobileContactDAO dao, List<ContactPredicate> conjuncts) {
+        for (ContactPredicate conjunct : conjuncts) {
+            if (conjunct.getKind() == ContactPredicate.Kind.ID_EQUALS) {
+                return new AccessPath.KeyLookup(dao, conjunct, ContactIndex.ID);
+            }
+        }
+        for (ContactPredicate conjunct : conjuncts) {
+            if (conjunct.getKind() == ContactPredicate.Kind.PHONE_EQUALS) {
+                return new AccessPath.KeyLookup(dao, conjunct, ContactIndex.PHONE_NUMBER);
+            }
+        }
+        return null;
+    }
+
+    private static AccessPath chooseCheapest(IMobileContactDAO dao, ContactQuery query,
+                                             List<ContactPredicate> conjuncts) {
+        Set<ContactIndex> indexes = dao.getIndexes();
+        List<AccessPath> candidates = new ArrayList<>();
+        for (ContactPredicate conjunct : conjuncts) {
+            switch (conjunct.getKind()) {
+                case USER_DETAILS_ID_EQUALS:
+                    if (indexes.contains(ContactIndex.USER_DETAILS_ID)) {
+                        candidates.add(AccessPath.UserLookup.probe(dao, conjunct));
+                    }
+                    break;
+                case PHONE_PREFIX:
+                    if (indexes.contains(ContactIndex.PHONE_PREFIX)) {
+                        candidates.add(AccessPath.PhonePrefixRange.probe(dao, conjunct));
+                    }
+                    break;
+                case ID_BETWEEN:
+                    if (indexes.contains(ContactIndex.ID_ORDER)) {
+                        candidates.add(AccessPath.IdRange.probe(dao, conjunct));
+                    }
+                    break;
+                default:
+                    break;
+            }
+            //An empty lookup cannot be beaten
+            if (!candidates.isEmpty() && candidates.get(candidates.size() - 1).estimatedRows == 0) {
+                return candidates.get(candidates.size() - 1);
+            }
+        }
+
+        AccessPath cheapest = new AccessPath.ParallelScan(dao);
+        for (AccessPath candidate : candidates) {
+            if (candidate.cost(query) < cheapest.cost(query)
+                    || candidate.cost(query) == cheapest.cost(query) && candidate.estimatedRows < cheapest.estimatedRows) {
+                cheapest = candidate;
+            }
+        }
+        return cheapest;
+    }
+}
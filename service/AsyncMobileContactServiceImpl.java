@@ -0,0 +1,266 @@
+package gr.aueb.mobileapp.service;
+
+import gr.aueb.mobileapp.dao.ContactPage;
+import gr.aueb.mobileapp.dto.MobileContactDTO;
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every call of an {@link IMobileContactService} on its own virtual thread,
+ * so a call that waits for the I/O of the Datasource parks a virtual thread and
+ * does not hold a platform thread. At most maxInFlight calls are accepted at the
+ * same time, and a call takes its permit before any thread is started for it: when
+ * the bound is reached, the caller blocks until an accepted call finishes, so a
+ * burst of callers cannot overload the Datasource nor pile up waiting threads or
+ * tasks. A caller that is interrupted while it blocks gets a future that fails with
+ * the InterruptedException. On a JVM without virtual threads the calls run on a
+ * pool of maxInFlight platform threads instead, which keeps the same bound.
+ *
+ * The service is closed with {@link #close()}, which waits for the accepted calls;
+ * the calls made after it fail with a RejectedExecutionException
+ */
+public class AsyncMobileContactServiceImpl implements IAsyncMobileContactService, AutoCloseable {
+
+    //Executors.newVirtualThreadPerTaskExecutor, looked up so the class also runs on JVMs without virtual threads
+    private static final Method VIRTUAL_THREAD_EXECUTOR = virtualThreadExecutorFactory();
+
+    private final IMobileContactService service;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+
+    /**
+     * @param service
+     *              the blocking service that runs the calls
+     * @param maxInFlight
+     *              the most calls that run at the same time
+     */
+    public AsyncMobileContactServiceImpl(IMobileContactService service, int maxInFlight) {
+        if (maxInFlight < 1) throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+        this.service = service;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.executor = newExecutor(maxInFlight);
+    }
+
+    /**
+     * Returns true if the calls run on virtual threads, false if on platform threads
+     */
+    public static boolean virtualThreadsAvailable() {
+        return VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    /**
+     * Returns the number of calls accepted and not finished at this moment
+     */
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    @Override
+    public CompletableFuture<MobileContact> insertMobileContact(MobileContactDTO contactDTO) {
+        return submit(() -> service.insertMobileContact(contactDTO));
+    }
+
+    @Override
+    public CompletableFuture<MobileContact> updateMobileContact(long id, MobileContactDTO contactDTO) {
+        return submit(() -> service.updateMobileContact(id, contactDTO));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteMobileContactByPhoneNumber(String phoneNumber) {
+        return submit(() -> {
+            service.deleteMobileContactByPhoneNumber(phoneNumber);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteMobileContactById(long id) {
+        return submit(() -> {
+            service.deleteMobileContactById(id);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<MobileContact> getMobileContact(String phoneNumber) {
+        return submit(() -> service.getMobileContact(phoneNumber));
+    }
+
+    @Override
+    public CompletableFuture<MobileContact> getMobileContact(long id) {
+        return submit(() -> service.getMobileContact(id));
+    }
+
+    @Override
+    public CompletableFuture<Optional<MobileContact>> findMobileContact(String phoneNumber) {
+        return submit(() -> service.findMobileContact(phoneNumber));
+    }
+
+    @Override
+    public CompletableFuture<Optional<MobileContact>> findMobileContact(long id) {
+        return submit(() -> service.findMobileContact(id));
+    }
+
+    @Override
+    public CompletableFuture<ContactOutcome> tryInsertMobileContact(MobileContactDTO contactDTO) {
+        return submit(() -> service.tryInsertMobileContact(contactDTO));
+    }
+
+    @Override
+    public CompletableFuture<ContactOutcome> tryUpdateMobileContact(long id, MobileContactDTO contactDTO) {
+        return submit(() -> service.tryUpdateMobileContact(id, contactDTO));
+    }
+
+    @Override
+    public CompletableFuture<ContactOutcome> tryDeleteMobileContactByPhoneNumber(String phoneNumber) {
+        return submit(() -> service.tryDeleteMobileContactByPhoneNumber(phoneNumber));
+    }
+
+    @Override
+    public CompletableFuture<ContactOutcome> tryDeleteMobileContactById(long id) {
+        return submit(() -> service.tryDeleteMobileContactById(id));
+    }
+
+    @Override
+    public CompletableFuture<List<MobileContact>> getAllMobileContacts() {
+        return submit(service::getAllMobileContacts);
+    }
+
+    @Override
+    public CompletableFuture<ContactPage> getMobileContacts(Long cursor, int pageSize) {
+        return submit(() -> service.getMobileContacts(cursor, pageSize));
+    }
+
+    @Override
+    public CompletableFuture<List<MobileContact>> getMobileContactsByPhonePrefix(String prefix, int limit) {
+        return submit(() -> service.getMobileContactsByPhonePrefix(prefix, limit));
+    }
+
+    @Override
+    public CompletableFuture<List<MobileContact>> searchMobileContactsByName(String query, int limit) {
+        return submit(() -> service.searchMobileContactsByName(query, limit));
+    }
+
+    @Override
+    public CompletableFuture<List<MobileContact>> getMobileContactsByUser(long userDetailsId) {
+        return submit(() -> service.getMobileContactsByUser(userDetailsId));
+    }
+
+    @Override
+    public CompletableFuture<List<MobileContact>> deleteMobileContactsByUser(long userDetailsId) {
+        return submit(() -> service.deleteMobileContactsByUser(userDetailsId));
+    }
+
+    @Override
+    public CompletableFuture<BatchReport> insertMobileContacts(List<MobileContactDTO> contactDTOs) {
+        return submit(() -> service.insertMobileContacts(contactDTOs));
+    }
+
+    @Override
+    public CompletableFuture<BatchReport> updateMobileContacts(List<MobileContactDTO> contactDTOs) {
+        return submit(() -> service.updateMobileContacts(contactDTOs));
+    }
+
+    @Override
+    public CompletableFuture<BatchReport> deleteMobileContactsByIds(List<Long> ids) {
+        return submit(() -> service.deleteMobileContactsByIds(ids));
+    }
+
+    @Override
+    public CompletableFuture<BatchReport> deleteMobileContactsByPhoneNumbers(List<String> phoneNumbers) {
+        return submit(() -> service.deleteMobileContactsByPhoneNumbers(phoneNumbers));
+    }
+
+    /**
+     * Stops accepting calls and waits for the accepted ones to finish
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                //The calls of a slow Datasource are still running
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(ServiceCall<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (executor.isShutdown()) {
+            future.completeExceptionally(new RejectedExecutionException("The service is closed"));
+            return future;
+        }
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            return future;
+        }
+        try {
+            executor.execute(() -> run(call, future));
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private <T> void run(ServiceCall<T> call, CompletableFuture<T> future) {
+        try {
+            future.complete(call.call());
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    private static Method virtualThreadExecutorFactory() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            //Fails if virtual threads are a preview feature that is not enabled
+            ((ExecutorService) factory.invoke(null)).shutdown();
+            return factory;
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newExecutor(int maxInFlight) {
+        if (VIRTUAL_THREAD_EXECUTOR != null) {
+            try {
+                return (ExecutorService) VIRTUAL_THREAD_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                //The factory already worked once, when it was looked up
+                throw new IllegalStateException("Cannot create a virtual thread executor", e);
+            }
+        }
+        return Executors.newFixedThreadPool(maxInFlight, runnable -> {
+            Thread thread = new Thread(runnable, "async-mobile-contact-service");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * A call of the blocking service, which may throw its checked exceptions
+     */
+    @FunctionalInterface
+    private interface ServiceCall<T> {
+        T call() throws Exception;
+    }
+}
@@ -0,0 +1,71 @@
+package gr.aueb.mobileapp.service;
+
+import gr.aueb.mobileapp.dao.WriteStatus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Per item result of a batch operation of {@link IMobileContactService}.
+ * The statuses follow the order of the items of the batch
+ */
+public class BatchReport {
+
+    private final List<WriteStatus> statuses;
+
+    public BatchReport(List<WriteStatus> statuses) {
+        this.statuses = Collections.unmodifiableList(statuses);
+    }
+
+    public List<WriteStatus> getStatuses() {
+        return statuses;
+    }
+
+    public WriteStatus getStatus(int index) {
+        return statuses.get(index);
+    }
+
+    public int size() {
+        return statuses.size();
+    }
+
+    /**
+     * Returns the number of items that were applied
+     * @return
+     *          the number of items with {@link WriteStatus#OK}
+     */
+    public int getSucceeded() {
+        int succeeded = 0;
+        for (WriteStatus status : statuses) {
+            if (status == WriteStatus.OK) succeeded++;
+        }
+        return succeeded;
+    }
+
+    /**
+     * Returns the positions in the batch of the items that were not applied
+     * @return
+     *          the indexes of the failed items
+     */
+    public List<Integer> getFailedIndexes() {
+        List<Integer> failed = new ArrayList<>();
+        for (int i = 0; i < statuses.size(); i++) {
+            if (statuses.get(i) != WriteStatus.OK) failed.add(i);
+        }
+        return failed;
+    }
+
+    public boolean isAllSucceeded() {
+        return getSucceeded() == statuses.size();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchReport{" +
+                "size=" + size() +
+                ", succeeded=" + getSucceeded() +
+                ", failedIndexes=" + getFailedIndexes() +
+                '}';
+    }
+}
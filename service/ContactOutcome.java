@@ -0,0 +1,82 @@
+package gr.aueb.mobileapp.service;
+
+import gr.aueb.mobileapp.dao.WriteStatus;
+import gr.aueb.mobileapp.model.MobileContact;
+
+import java.util.Optional;
+
+/**
+ * Result of a single insert, update or delete of {@link IMobileContactService}
+ * that does not throw. A failed operation carries only its {@link WriteStatus}
+ * and the failure outcomes are shared constants, so a routine miss or conflict
+ * allocates nothing
+ */
+public final class ContactOutcome {
+
+    private static final ContactOutcome INVALID = new ContactOutcome(WriteStatus.INVALID, null);
+    private static final ContactOutcome ID_CONFLICT = new ContactOutcome(WriteStatus.ID_CONFLICT, null);
+    private static final ContactOutcome PHONE_CONFLICT = new ContactOutcome(WriteStatus.PHONE_CONFLICT, null);
+    private static final ContactOutcome NOT_FOUND = new ContactOutcome(WriteStatus.NOT_FOUND, null);
+
+    private final WriteStatus status;
+    private final MobileContact mobileContact;
+
+    private ContactOutcome(WriteStatus status, MobileContact mobileContact) {
+        this.status = status;
+        this.mobileContact = mobileContact;
+    }
+
+    /**
+     * Returns the outcome of an operation that was applied
+     * @param mobileContact
+     *                      the inserted, updated or removed {@link MobileContact}
+     */
+    static ContactOutcome ok(MobileContact mobileContact) {
+        return new ContactOutcome(WriteStatus.OK, mobileContact);
+    }
+
+    /**
+     * Returns the shared outcome of an operation that failed
+     * @param status
+     *              any status other than {@link WriteStatus#OK}
+     */
+    static ContactOutcome failed(WriteStatus status) {
+        switch (status) {
+            case INVALID:
+                return INVALID;
+            case ID_CONFLICT:
+                return ID_CONFLICT;
+            case PHONE_CONFLICT:
+                return PHONE_CONFLICT;
+            case NOT_FOUND:
+                return NOT_FOUND;
+            default:
+                throw new IllegalArgumentException("Not a failure: " + status);
+        }
+    }
+
+    public WriteStatus getStatus() {
+        return status;
+    }
+
+    public boolean isSuccess() {
+        return status == WriteStatus.OK;
+    }
+
+    /**
+     * Returns the inserted, updated or removed {@link MobileContact}
+     * @return
+     *          the {@link MobileContact}, or empty if the operation failed
+     */
+    public Optional<MobileContact> getMobileContact() {
+        return Optional.ofNullable(mobileContact);
+    }
+
+    @Override
+    public String toString() {
+        return "ContactOutcome{" +
+                "status=" + status +
+                ", mobileContact=" + mobileContact +
+                '}';
+    }
+}
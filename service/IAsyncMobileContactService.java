@@ -0,0 +1,199 @@
+package gr.aueb.mobileapp.service;
+
+import gr.aueb.mobileapp.dao.ContactPage;
+import gr.aueb.mobileapp.dto.MobileContactDTO;
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.service.exceptions.MobileContactNotFoundException;
+import gr.aueb.mobileapp.service.exceptions.PhoneNumberAlreadyExistsException;
+import gr.aueb.mobileapp.service.exceptions.UserIdAlreadyExistException;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous companion of {@link IMobileContactService}: every operation returns,
+ * without waiting for the operation to run, a {@link CompletableFuture} of the result
+ * of the same operation of {@link IMobileContactService}. An implementation that
+ * bounds the calls it accepts may block the caller until it can accept one. A future that fails is completed with the exception
+ * the blocking operation throws, e.g. a {@link MobileContactNotFoundException};
+ * {@link CompletableFuture#get()} wraps it in an ExecutionException and
+ * {@link CompletableFuture#join()} in a CompletionException, with the original as
+ * the cause. The lazy streams of the blocking service, of all the contacts and
+ * of the results of a query, have no asynchronous form
+ */
+public interface IAsyncMobileContactService {
+
+    /**
+     *Creates a {@link MobileContact} based on the data carried by the {@link MobileContactDTO}
+     * @param contactDTO
+     *                  the DTO object that contains the mobile contact data
+     * @return
+     *          the resulting Mobile Contact, or a future failed with a
+     *          {@link PhoneNumberAlreadyExistsException} or {@link UserIdAlreadyExistException}
+     */
+    CompletableFuture<MobileContact> insertMobileContact(MobileContactDTO contactDTO);
+
+    /**
+     *Updates a {@link MobileContact} based on the data carried by the {@link MobileContactDTO}
+     * @param id
+     *          the {@link MobileContactDTO}'s id
+     * @param contactDTO
+     *                  the DTO object that contains the mobile contact data.
+     * @return
+     *          the resulting MobileContact, or a future failed with a
+     *          {@link PhoneNumberAlreadyExistsException}, {@link UserIdAlreadyExistException}
+     *          or {@link MobileContactNotFoundException}
+     */
+    CompletableFuture<MobileContact> updateMobileContact(long id, MobileContactDTO contactDTO);
+
+    /**
+     *Removes a {@link MobileContact}
+     * @param phoneNumber
+     *                  the phone number of the {@link MobileContact}
+     *                  needed to be removed
+     * @return
+     *          a future completed when the {@link MobileContact} is removed, or
+     *          failed with a {@link MobileContactNotFoundException}
+     */
+    CompletableFuture<Void> deleteMobileContactByPhoneNumber(String phoneNumber);
+
+    /**
+     *Removes a {@link MobileContact}
+     * @param id
+     *          the id of the {@link MobileContact}
+     *          needed to be removed
+     * @return
+     *          a future completed when the {@link MobileContact} is removed, or
+     *          failed with a {@link MobileContactNotFoundException}
+     */
+    CompletableFuture<Void> deleteMobileContactById(long id);
+
+    /**
+     *Returns a {@link MobileContact} based on input phone number
+     * @param phoneNumber
+     *          the phone number of the {@link MobileContact}
+     *          needed to be returned
+     * @return
+     *          the resulting {@link MobileContact}, or a future failed with a
+     *          {@link MobileContactNotFoundException}
+     */
+    CompletableFuture<MobileContact> getMobileContact(String phoneNumber);
+
+    /**
+     *Returns a {@link MobileContact} based on input id
+     * @param id
+     *          id of the {@link MobileContact}
+     *          needed to be returned
+     * @return
+     *          the resulting {@link MobileContact}, or a future failed with a
+     *          {@link MobileContactNotFoundException}
+     */
+    CompletableFuture<MobileContact> getMobileContact(long id);
+
+    /**
+     *Returns a {@link MobileContact} based on input phone number, without
+     * failing if it does not exist
+     * @param phoneNumber
+     *          the phone number of the {@link MobileContact}
+     *          needed to be returned
+     * @return
+     *          the resulting {@link MobileContact}, or empty
+     */
+    CompletableFuture<Optional<MobileContact>> findMobileContact(String phoneNumber);
+
+    /**
+     *Returns a {@link MobileContact} based on input id, without
+     * failing if it does not exist
+     * @param id
+     *          id of the {@link MobileContact}
+     *          needed to be returned
+     * @return
+     *          the resulting {@link MobileContact}, or empty
+     */
+    CompletableFuture<Optional<MobileContact>> findMobileContact(long id);
+
+    /**
+     *Creates a {@link MobileContact}, reporting a conflict in the result instead of failing
+     * @see IMobileContactService#tryInsertMobileContact(MobileContactDTO)
+     */
+    CompletableFuture<ContactOutcome> tryInsertMobileContact(MobileContactDTO contactDTO);
+
+    /**
+     *Updates a {@link MobileContact}, reporting a failure in the result instead of failing
+     * @see IMobileContactService#tryUpdateMobileContact(long, MobileContactDTO)
+     */
+    CompletableFuture<ContactOutcome> tryUpdateMobileContact(long id, MobileContactDTO contactDTO);
+
+    /**
+     *Removes a {@link MobileContact}, reporting a miss in the result instead of failing
+     * @see IMobileContactService#tryDeleteMobileContactByPhoneNumber(String)
+     */
+    CompletableFuture<ContactOutcome> tryDeleteMobileContactByPhoneNumber(String phoneNumber);
+
+    /**
+     *Removes a {@link MobileContact}, reporting a miss in the result instead of failing
+     * @see IMobileContactService#tryDeleteMobileContactById(long)
+     */
+    CompletableFuture<ContactOutcome> tryDeleteMobileContactById(long id);
+
+    /**
+     *Returns all the {@link MobileContact} instances of the Datasource
+     * @see IMobileContactService#getAllMobileContacts()
+     */
+    CompletableFuture<List<MobileContact>> getAllMobileContacts();
+
+    /**
+     *Returns one page of {@link MobileContact} instances in ascending id order
+     * @see IMobileContactService#getMobileContacts(Long, int)
+     */
+    CompletableFuture<ContactPage> getMobileContacts(Long cursor, int pageSize);
+
+    /**
+     *Returns the {@link MobileContact} instances whose phone number starts with the prefix
+     * @see IMobileContactService#getMobileContactsByPhonePrefix(String, int)
+     */
+    CompletableFuture<List<MobileContact>> getMobileContactsByPhonePrefix(String prefix, int limit);
+
+    /**
+     *Returns the {@link MobileContact} instances whose first or last name best match the query
+     * @see IMobileContactService#searchMobileContactsByName(String, int)
+     */
+    CompletableFuture<List<MobileContact>> searchMobileContactsByName(String query, int limit);
+
+    /**
+     *Returns the {@link MobileContact} instances of a person
+     * @see IMobileContactService#getMobileContactsByUser(long)
+     */
+    CompletableFuture<List<MobileContact>> getMobileContactsByUser(long userDetailsId);
+
+    /**
+     *Removes the {@link MobileContact} instances of a person
+     * @see IMobileContactService#deleteMobileContactsByUser(long)
+     */
+    CompletableFuture<List<MobileContact>> deleteMobileContactsByUser(long userDetailsId);
+
+    /**
+     *Creates a batch of {@link MobileContact} instances
+     * @see IMobileContactService#insertMobileContacts(List)
+     */
+    CompletableFuture<BatchReport> insertMobileContacts(List<MobileContactDTO> contactDTOs);
+
+    /**
+     *Updates a batch of {@link MobileContact} instances
+     * @see IMobileContactService#updateMobileContacts(List)
+     */
+    CompletableFuture<BatchReport> updateMobileContacts(List<MobileContactDTO> contactDTOs);
+
+    /**
+     *Removes a batch of {@link MobileContact} instances
+     * @see IMobileContactService#deleteMobileContactsByIds(List)
+     */
+    CompletableFuture<BatchReport> deleteMobileContactsByIds(List<Long> ids);
+
+    /**
+     *Removes a batch of {@link MobileContact} instances
+     * @see IMobileContactService#deleteMobileContactsByPhoneNumbers(List)
+     */
+    CompletableFuture<BatchReport> deleteMobileContactsByPhoneNumbers(List<String> phoneNumbers);
+}
@@ -1,12 +1,18 @@
 package gr.aueb.mobileapp.service;
 
+import gr.aueb.mobileapp.dao.ContactPage;
 import gr.aueb.mobileapp.dto.MobileContactDTO;
 import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.query.ContactQuery;
+import gr.aueb.mobileapp.query.ContactRow;
+import gr.aueb.mobileapp.query.QueryPlan;
 import gr.aueb.mobileapp.service.exceptions.MobileContactNotFoundException;
 import gr.aueb.mobileapp.service.exceptions.PhoneNumberAlreadyExistsException;
 import gr.aueb.mobileapp.service.exceptions.UserIdAlreadyExistException;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface IMobileContactService {
 
@@ -96,12 +102,211 @@ public interface IMobileContactService {
      */
     MobileContact getMobileContact(long id) throws MobileContactNotFoundException;
 
+    /**
+     *Returns a {@link MobileContact} based on input phone number, without
+     * throwing if it does not exist
+     * @param phoneNumber
+     *          the phone number of the {@link MobileContact}
+     *          needed to be returned
+     * @return
+     *          the resulting {@link MobileContact}, or empty
+     */
+    Optional<MobileContact> findMobileContact(String phoneNumber);
+
+    /**
+     *Returns a {@link MobileContact} based on input id, without
+     * throwing if it does not exist
+     * @param id
+     *          id of the {@link MobileContact}
+     *          needed to be returned
+     * @return
+     *          the resulting {@link MobileContact}, or empty
+     */
+    Optional<MobileContact> findMobileContact(long id);
+
+    /**
+     *Creates a {@link MobileContact} like {@link #insertMobileContact(MobileContactDTO)},
+     * reporting a conflict in the result instead of throwing
+     * @param contactDTO
+     *                  the DTO object that contains the mobile contact data
+     * @return
+     *          the {@link ContactOutcome} with the inserted {@link MobileContact}, or
+     *          with status INVALID, PHONE_CONFLICT or ID_CONFLICT
+     */
+    ContactOutcome tryInsertMobileContact(MobileContactDTO contactDTO);
+
+    /**
+     *Updates a {@link MobileContact} like {@link #updateMobileContact(long, MobileContactDTO)},
+     * reporting a failure in the result instead of throwing
+     * @param id
+     *          the {@link MobileContactDTO}'s id
+     * @param contactDTO
+     *                  the DTO object that contains the mobile contact data
+     * @return
+     *          the {@link ContactOutcome} with the updated {@link MobileContact}, or
+     *          with status INVALID, NOT_FOUND or PHONE_CONFLICT
+     */
+    ContactOutcome tryUpdateMobileContact(long id, MobileContactDTO contactDTO);
+
+    /**
+     *Removes a {@link MobileContact}, reporting a miss in the result instead of throwing
+     * @param phoneNumber
+     *                  the phone number of the {@link MobileContact}
+     *                  needed to be removed
+     * @return
+     *          the {@link ContactOutcome} with the removed {@link MobileContact},
+     *          or with status NOT_FOUND
+     */
+    ContactOutcome tryDeleteMobileContactByPhoneNumber(String phoneNumber);
+
+    /**
+     *Removes a {@link MobileContact}, reporting a miss in the result instead of throwing
+     * @param id
+     *          the id of the {@link MobileContact}
+     *          needed to be removed
+     * @return
+     *          the {@link ContactOutcome} with the removed {@link MobileContact},
+     *          or with status NOT_FOUND
+     */
+    ContactOutcome tryDeleteMobileContactById(long id);
+
     /**
      *Returns all the {@link MobileContact} instances of the Datasource
      * @return
      *          the resulting {@link List<MobileContact>}
      */
     List<MobileContact> getAllMobileContacts();
+
+    /**
+     *Returns one page of {@link MobileContact} instances in ascending id order
+     * @param cursor
+     *              the cursor returned with the previous page, or null for the first page
+     * @param pageSize
+     *              the maximum number of {@link MobileContact} instances of the page
+     * @return
+     *          the resulting {@link ContactPage}
+     */
+    ContactPage getMobileContacts(Long cursor, int pageSize);
+
+    /**
+     *Returns a lazy {@link Stream} over all the {@link MobileContact} instances
+     * of the Datasource
+     * @return
+     *          the resulting {@link Stream}, which may be made parallel
+     */
+    Stream<MobileContact> streamMobileContacts();
+
+    /**
+     *Returns the {@link MobileContact} instances whose phone number starts with the prefix
+     * @param prefix
+     *              the phone number prefix, e.g. an area code
+     * @param limit
+     *              the maximum number of results
+     * @return
+     *          at most limit matching {@link MobileContact} instances
+     */
+    List<MobileContact> getMobileContactsByPhonePrefix(String prefix, int limit);
+
+    /**
+     *Returns the {@link MobileContact} instances whose first or last name
+     * best match the query
+     * @param query
+     *              one or more, possibly partial or misspelled, names
+     * @param limit
+     *              the maximum number of results
+     * @return
+     *          at most limit {@link MobileContact} instances, best match first
+     */
+    List<MobileContact> searchMobileContactsByName(String query, int limit);
+
+    /**
+     *Returns the {@link MobileContact} instances of a person, based on the id
+     * of its {@link gr.aueb.mobileapp.model.UserDetails}
+     * @param userDetailsId
+     *                      the id of the User Details
+     * @return
+     *          the matching {@link MobileContact} instances, empty if there are none
+     */
+    List<MobileContact> getMobileContactsByUser(long userDetailsId);
+
+    /**
+     *Removes the {@link MobileContact} instances of a person, based on the id
+     * of its {@link gr.aueb.mobileapp.model.UserDetails}
+     * @param userDetailsId
+     *                      the id of the User Details
+     * @return
+     *          the removed {@link MobileContact} instances, empty if there were none
+     */
+    List<MobileContact> deleteMobileContactsByUser(long userDetailsId);
+
+    /**
+     *Returns how a query would be answered, e.g. which index is used,
+     * without reading its results
+     * @param query
+     *              the conditions, order, limit and fields of the results
+     * @return
+     *          the resulting {@link QueryPlan}, see {@link QueryPlan#explain()}
+     */
+    QueryPlan planQuery(ContactQuery query);
+
+    /**
+     *Returns the {@link MobileContact} instances that match a query, read from
+     * the most selective index of the Datasource or else a parallel scan
+     * @param query
+     *              the conditions, order and limit of the results
+     * @return
+     *          the resulting lazy {@link Stream}, which stops reading at the limit
+     */
+    Stream<MobileContact> queryMobileContacts(ContactQuery query);
+
+    /**
+     *Returns the selected fields of the {@link MobileContact} instances that match a query
+     * @param query
+     *              the conditions, order, limit and fields of the results
+     * @return
+     *          the resulting lazy {@link Stream} of {@link ContactRow} instances
+     */
+    Stream<ContactRow> selectMobileContacts(ContactQuery query);
+
+    /**
+     *Creates a batch of {@link MobileContact} instances. The whole batch is validated
+     * in one pass, including ids and phone numbers repeated inside the batch,
+     * and the valid items are applied with one call to the Datasource
+     * @param contactDTOs
+     *                  the DTO objects that contain the mobile contact data
+     * @return
+     *          the {@link BatchReport} with the result of each item
+     */
+    BatchReport insertMobileContacts(List<MobileContactDTO> contactDTOs);
+
+    /**
+     *Updates a batch of {@link MobileContact} instances, each one based on the id
+     * of its {@link MobileContactDTO}
+     * @param contactDTOs
+     *                  the DTO objects that contain the mobile contact data
+     * @return
+     *          the {@link BatchReport} with the result of each item
+     */
+    BatchReport updateMobileContacts(List<MobileContactDTO> contactDTOs);
+
+    /**
+     *Removes a batch of {@link MobileContact} instances
+     * @param ids
+     *          the ids of the {@link MobileContact} instances needed to be removed
+     * @return
+     *          the {@link BatchReport} with the result of each id
+     */
+    BatchReport deleteMobileContactsByIds(List<Long> ids);
+
+    /**
+     *Removes a batch of {@link MobileContact} instances
+     * @param phoneNumbers
+     *                  the phone numbers of the {@link MobileContact} instances
+     *                  needed to be removed
+     * @return
+     *          the {@link BatchReport} with the result of each phone number
+     */
+    BatchReport deleteMobileContactsByPhoneNumbers(List<String> phoneNumbers);
 }
 
 
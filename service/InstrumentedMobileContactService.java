@@ -0,0 +1,443 @@
+package gr.aueb.mobileapp.service;
+
+import gr.aueb.mobileapp.dao.ContactPage;
+import gr.aueb.mobileapp.dao.WriteStatus;
+import gr.aueb.mobileapp.dto.MobileContactDTO;
+import gr.aueb.mobileapp.metrics.MetricsRegistry;
+import gr.aueb.mobileapp.metrics.OperationMetrics;
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.query.ContactQuery;
+import gr.aueb.mobileapp.query.ContactRow;
+import gr.aueb.mobileapp.query.QueryPlan;
+import gr.aueb.mobileapp.service.exceptions.MobileContactNotFoundException;
+import gr.aueb.mobileapp.service.exceptions.PhoneNumberAlreadyExistsException;
+import gr.aueb.mobileapp.service.exceptions.UserIdAlreadyExistException;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Decorator of {@link IMobileContactService} that records the latency of every
+ * operation and counts its successes and its failures by reason: the simple name
+ * of the exception thrown, or the {@link WriteStatus} of a failed {@link ContactOutcome}
+ * or an empty {@link Optional}. The metrics are named "service." followed by the
+ * operation, e.g. "service.getMobileContactById"
+ */
+public class InstrumentedMobileContactService implements IMobileContactService {
+
+    private static final String PREFIX = "service.";
+
+    private final IMobileContactService delegate;
+
+    private final OperationMetrics insertMobileContact;
+    private final OperationMetrics updateMobileContact;
+    private final OperationMetrics deleteMobileContactByPhoneNumber;
+    private final OperationMetrics deleteMobileContactById;
+    private final OperationMetrics getMobileContactByPhoneNumber;
+    private final OperationMetrics getMobileContactById;
+    private final OperationMetrics findMobileContactByPhoneNumber;
+    private final OperationMetrics findMobileContactById;
+    private final OperationMetrics tryInsertMobileContact;
+    private final OperationMetrics tryUpdateMobileContact;
+    private final OperationMetrics tryDeleteMobileContactByPhoneNumber;
+    private final OperationMetrics tryDeleteMobileContactById;
+    private final OperationMetrics getAllMobileContacts;
+    private final OperationMetrics getMobileContacts;
+    private final OperationMetrics streamMobileContacts;
+    private final OperationMetrics getMobileContactsByPhonePrefix;
+    private final OperationMetrics searchMobileContactsByName;
+    private final OperationMetrics getMobileContactsByUser;
+    private final OperationMetrics deleteMobileContactsByUser;
+    private final OperationMetrics planQuery;
+    private final OperationMetrics queryMobileContacts;
+    private final OperationMetrics selectMobileContacts;
+    private final OperationMetrics insertMobileContacts;
+    private final OperationMetrics updateMobileContacts;
+    private final OperationMetrics deleteMobileContactsByIds;
+    private final OperationMetrics deleteMobileContactsByPhoneNumbers;
+
+    public InstrumentedMobileContactService(IMobileContactService delegate, MetricsRegistry registry) {
+        this.delegate = delegate;
+        insertMobileContact = registry.operation(PREFIX + "insertMobileContact");
+        updateMobileContact = registry.operation(PREFIX + "updateMobileContact");
+        deleteMobileContactByPhoneNumber = registry.operation(PREFIX + "deleteMobileContactByPhoneNumber");
+        deleteMobileContactById = registry.operation(PREFIX + "deleteMobileContactById");
+        getMobileContactByPhoneNumber = registry.operation(PREFIX + "getMobileContactByPhoneNumber");
+        getMobileContactById = registry.operation(PREFIX + "getMobileContactById");
+        findMobileContactByPhoneNumber = registry.operation(PREFIX + "findMobileContactByPhoneNumber");
+        findMobileContactById = registry.operation(PREFIX + "findMobileContactById");
+        tryInsertMobileContact = registry.operation(PREFIX + "tryInsertMobileContact");
+        tryUpdateMobileContact = registry.operation(PREFIX + "tryUpdateMobileContact");
+        tryDeleteMobileContactByPhoneNumber = registry.operation(PREFIX + "tryDeleteMobileContactByPhoneNumber");
+        tryDeleteMobileContactById = registry.operation(PREFIX + "tryDeleteMobileContactById");
+        getAllMobileContacts = registry.operation(PREFIX + "getAllMobileContacts");
+        getMobileContacts = registry.operation(PREFIX + "getMobileContacts");
+        streamMobileContacts = registry.operation(PREFIX + "streamMobileContacts");
+        getMobileContactsByPhonePrefix = registry.operation(PREFIX + "getMobileContactsByPhonePrefix");
+        searchMobileContactsByName = registry.operation(PREFIX + "searchMobileContactsByName");
+        getMobileContactsByUser = registry.operation(PREFIX + "getMobileContactsByUser");
+        deleteMobileContactsByUser = registry.operation(PREFIX + "deleteMobileContactsByUser");
+        planQuery = registry.operation(PREFIX + "planQuery");
+        queryMobileContacts = registry.operation(PREFIX + "queryMobileContacts");
+        selectMobileContacts = registry.operation(PREFIX + "selectMobileContacts");
+        insertMobileContacts = registry.operation(PREFIX + "insertMobileContacts");
+        updateMobileContacts = registry.operation(PREFIX + "updateMobileContacts");
+        deleteMobileContactsByIds = registry.operation(PREFIX + "deleteMobileContactsByIds");
+        deleteMobileContactsByPhoneNumbers = registry.operation(PREFIX + "deleteMobileContactsByPhoneNumbers");
+    }
+
+    @Override
+    public MobileContact insertMobileContact(MobileContactDTO contactDTO)
+            throws PhoneNumberAlreadyExistsException, UserIdAlreadyExistException {
+        long start = System.nanoTime();
+        try {
+            MobileContact result = delegate.insertMobileContact(contactDTO);
+            insertMobileContact.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (PhoneNumberAlreadyExistsException | UserIdAlreadyExistException | RuntimeException e) {
+            insertMobileContact.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public MobileContact updateMobileContact(long id, MobileContactDTO contactDTO)
+            throws PhoneNumberAlreadyExistsException, UserIdAlreadyExistException, MobileContactNotFoundException {
+        long start = System.nanoTime();
+        try {
+            MobileContact result = delegate.updateMobileContact(id, contactDTO);
+            updateMobileContact.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (PhoneNumberAlreadyExistsException | UserIdAlreadyExistException | MobileContactNotFoundException | RuntimeException e) {
+            updateMobileContact.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void deleteMobileContactByPhoneNumber(String phoneNumber) throws MobileContactNotFoundException {
+        long start = System.nanoTime();
+        try {
+            delegate.deleteMobileContactByPhoneNumber(phoneNumber);
+            deleteMobileContactByPhoneNumber.recordSuccess(System.nanoTime() - start);
+        } catch (MobileContactNotFoundException | RuntimeException e) {
+            deleteMobileContactByPhoneNumber.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void deleteMobileContactById(long id) throws MobileContactNotFoundException {
+        long start = System.nanoTime();
+        try {
+            delegate.deleteMobileContactById(id);
+            deleteMobileContactById.recordSuccess(System.nanoTime() - start);
+        } catch (MobileContactNotFoundException | RuntimeException e) {
+            deleteMobileContactById.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public MobileContact getMobileContact(String phoneNumber) throws MobileContactNotFoundException {
+        long start = System.nanoTime();
+        try {
+            MobileContact result = delegate.getMobileContact(phoneNumber);
+            getMobileContactByPhoneNumber.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (MobileContactNotFoundException | RuntimeException e) {
+            getMobileContactByPhoneNumber.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public MobileContact getMobileContact(long id) throws MobileContactNotFoundException {
+        long start = System.nanoTime();
+        try {
+            MobileContact result = delegate.getMobileContact(id);
+            getMobileContactById.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (MobileContactNotFoundException | RuntimeException e) {
+            getMobileContactById.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<MobileContact> findMobileContact(String phoneNumber) {
+        long start = System.nanoTime();
+        try {
+            Optional<MobileContact> result = delegate.findMobileContact(phoneNumber);
+            if (result.isPresent()) {
+                findMobileContactByPhoneNumber.recordSuccess(System.nanoTime() - start);
+            } else {
+                findMobileContactByPhoneNumber.recordFailure(WriteStatus.NOT_FOUND.name(), System.nanoTime() - start);
+            }
+            return result;
+        } catch (RuntimeException e) {
+            findMobileContactByPhoneNumber.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<MobileContact> findMobileContact(long id) {
+        long start = System.nanoTime();
+        try {
+            Optional<MobileContact> result = delegate.findMobileContact(id);
+            if (result.isPresent()) {
+                findMobileContactById.recordSuccess(System.nanoTime() - start);
+            } else {
+                findMobileContactById.recordFailure(WriteStatus.NOT_FOUND.name(), System.nanoTime() - start);
+            }
+            return result;
+        } catch (RuntimeException e) {
+            findMobileContactById.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public ContactOutcome tryInsertMobileContact(MobileContactDTO contactDTO) {
+        long start = System.nanoTime();
+        try {
+            ContactOutcome result = delegate.tryInsertMobileContact(contactDTO);
+            record(tryInsertMobileContact, start, result);
+            return result;
+        } catch (RuntimeException e) {
+            tryInsertMobileContact.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public ContactOutcome tryUpdateMobileContact(long id, MobileContactDTO contactDTO) {
+        long start = System.nanoTime();
+        try {
+            ContactOutcome result = delegate.tryUpdateMobileContact(id, contactDTO);
+            record(tryUpdateMobileContact, start, result);
+            return result;
+        } catch (RuntimeException e) {
+            tryUpdateMobileContact.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public ContactOutcome tryDeleteMobileContactByPhoneNumber(String phoneNumber) {
+        long start = System.nanoTime();
+        try {
+            ContactOutcome result = delegate.tryDeleteMobileContactByPhoneNumber(phoneNumber);
+            record(tryDeleteMobileContactByPhoneNumber, start, result);
+            return result;
+        } catch (RuntimeException e) {
+            tryDeleteMobileContactByPhoneNumber.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public ContactOutcome tryDeleteMobileContactById(long id) {
+        long start = System.nanoTime();
+        try {
+            ContactOutcome result = delegate.tryDeleteMobileContactById(id);
+            record(tryDeleteMobileContactById, start, result);
+            return result;
+        } catch (RuntimeException e) {
+            tryDeleteMobileContactById.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<MobileContact> getAllMobileContacts() {
+        long start = System.nanoTime();
+        try {
+            List<MobileContact> result = delegate.getAllMobileContacts();
+            getAllMobileContacts.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            getAllMobileContacts.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public ContactPage getMobileContacts(Long cursor, int pageSize) {
+        long start = System.nanoTime();
+        try {
+            ContactPage result = delegate.getMobileContacts(cursor, pageSize);
+            getMobileContacts.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            getMobileContacts.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Stream<MobileContact> streamMobileContacts() {
+        long start = System.nanoTime();
+        try {
+            Stream<MobileContact> result = delegate.streamMobileContacts();
+            streamMobileContacts.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            streamMobileContacts.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<MobileContact> getMobileContactsByPhonePrefix(String prefix, int limit) {
+        long start = System.nanoTime();
+        try {
+            List<MobileContact> result = delegate.getMobileContactsByPhonePrefix(prefix, limit);
+            getMobileContactsByPhonePrefix.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            getMobileContactsByPhonePrefix.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<MobileContact> searchMobileContactsByName(String query, int limit) {
+        long start = System.nanoTime();
+        try {
+            List<MobileContact> result = delegate.searchMobileContactsByName(query, limit);
+            searchMobileContactsByName.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            searchMobileContactsByName.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<MobileContact> getMobileContactsByUser(long userDetailsId) {
+        long start = System.nanoTime();
+        try {
+            List<MobileContact> result = delegate.getMobileContactsByUser(userDetailsId);
+            getMobileContactsByUser.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            getMobileContactsByUser.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<MobileContact> deleteMobileContactsByUser(long userDetailsId) {
+        long start = System.nanoTime();
+        try {
+            List<MobileContact> result = delegate.deleteMobileContactsByUser(userDetailsId);
+            deleteMobileContactsByUser.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            deleteMobileContactsByUser.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public QueryPlan planQuery(ContactQuery query) {
+        long start = System.nanoTime();
+        try {
+            QueryPlan result = delegate.planQuery(query);
+            planQuery.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            planQuery.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Stream<MobileContact> queryMobileContacts(ContactQuery query) {
+        long start = System.nanoTime();
+        try {
+            Stream<MobileContact> result = delegate.queryMobileContacts(query);
+            queryMobileContacts.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            queryMobileContacts.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Stream<ContactRow> selectMobileContacts(ContactQuery query) {
+        long start = System.nanoTime();
+        try {
+            Stream<ContactRow> result = delegate.selectMobileContacts(query);
+            selectMobileContacts.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            selectMobileContacts.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public BatchReport insertMobileContacts(List<MobileContactDTO> contactDTOs) {
+        long start = System.nanoTime();
+        try {
+            BatchReport result = delegate.insertMobileContacts(contactDTOs);
+            insertMobileContacts.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            insertMobileContacts.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public BatchReport updateMobileContacts(List<MobileContactDTO> contactDTOs) {
+        long start = System.nanoTime();
+        try {
+            BatchReport result = delegate.updateMobileContacts(contactDTOs);
+            updateMobileContacts.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            updateMobileContacts.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public BatchReport deleteMobileContactsByIds(List<Long> ids) {
+        long start = System.nanoTime();
+        try {
+            BatchReport result = delegate.deleteMobileContactsByIds(ids);
+            deleteMobileContactsByIds.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            deleteMobileContactsByIds.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public BatchReport deleteMobileContactsByPhoneNumbers(List<String> phoneNumbers) {
+        long start = System.nanoTime();
+        try {
+            BatchReport result = delegate.deleteMobileContactsByPhoneNumbers(phoneNumbers);
+            deleteMobileContactsByPhoneNumbers.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            deleteMobileContactsByPhoneNumbers.recordFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    private static void record(OperationMetrics metrics, long start, ContactOutcome outcome) {
+        if (outcome.isSuccess()) {
+            metrics.recordSuccess(System.nanoTime() - start);
+        } else {
+            metrics.recordFailure(outcome.getStatus().name(), System.nanoTime() - start);
+        }
+    }
+}
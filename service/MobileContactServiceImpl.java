@@ -1,15 +1,27 @@
 package gr.aueb.mobileapp.service;
 
+import gr.aueb.mobileapp.dao.ContactPage;
 import gr.aueb.mobileapp.dao.IMobileContactDAO;
+import gr.aueb.mobileapp.dao.WriteStatus;
 import gr.aueb.mobileapp.dto.MobileContactDTO;
 import gr.aueb.mobileapp.dto.UserDetailsDTO;
 import gr.aueb.mobileapp.model.MobileContact;
 import gr.aueb.mobileapp.model.UserDetails;
+import gr.aueb.mobileapp.query.ContactQuery;
+import gr.aueb.mobileapp.query.ContactRow;
+import gr.aueb.mobileapp.query.QueryPlan;
+import gr.aueb.mobileapp.query.QueryPlanner;
 import gr.aueb.mobileapp.service.exceptions.MobileContactNotFoundException;
 import gr.aueb.mobileapp.service.exceptions.PhoneNumberAlreadyExistsException;
 import gr.aueb.mobileapp.service.exceptions.UserIdAlreadyExistException;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * This gr.aueb.mobileapp.service Layer class implements the Proxy Design Pattern
@@ -19,8 +31,24 @@ public class MobileContactServiceImpl implements IMobileContactService {
 
     private final IMobileContactDAO dao;
 
+    //If true, exceptions carry no stack trace and are not printed
+    private final boolean lightweightExceptions;
+
     public MobileContactServiceImpl (IMobileContactDAO dao) {
+        this(dao, false);
+    }
+
+    /**
+     * @param dao
+     *          the Datasource
+     * @param lightweightExceptions
+     *                  true to throw exceptions without a stack trace and to not
+     *                  print them, for callers that handle misses and conflicts
+     *                  as routine results
+     */
+    public MobileContactServiceImpl (IMobileContactDAO dao, boolean lightweightExceptions) {
         this.dao = dao;
+        this.lightweightExceptions = lightweightExceptions;
     }
 
 
@@ -32,20 +60,18 @@ public class MobileContactServiceImpl implements IMobileContactService {
 
         try {
             mobileContact = new MobileContact();
-
-            if (dao.phoneNumberExists(contactDTO.getPhoneNumber())) {
-                throw new PhoneNumberAlreadyExistsException(mobileContact);
-            }
-            if (dao.userIdExist(contactDTO.getId())) {
-                throw new UserIdAlreadyExistException(mobileContact);
-            }
-
             mapMobileContact(mobileContact, contactDTO);
 
-            mobileContact = dao.insert(mobileContact);
+            MobileContact existing = dao.insertIfAbsent(mobileContact);
+            if (existing != null) {
+                if (existing.getPhoneNumber().equals(mobileContact.getPhoneNumber())) {
+                    throw new PhoneNumberAlreadyExistsException(mobileContact.getPhoneNumber(), !lightweightExceptions);
+                }
+                throw new UserIdAlreadyExistException(mobileContact.getId(), !lightweightExceptions);
+            }
 
         } catch (PhoneNumberAlreadyExistsException | UserIdAlreadyExistException e) {
-            e.printStackTrace();
+            if (!lightweightExceptions) e.printStackTrace();
             throw e;
         }
         return mobileContact;
@@ -58,23 +84,22 @@ public class MobileContactServiceImpl implements IMobileContactService {
         MobileContact mobileContact = null;
 
         try {
+            if (id != contactDTO.getId()){
+                throw new MobileContactNotFoundException(id, !lightweightExceptions);
+            }
             mobileContact = new MobileContact();
+            mapMobileContact(mobileContact, contactDTO);
 
-            if (id != contactDTO.getId() || !dao.userIdExist(id)){
-                throw new MobileContactNotFoundException(id);
+            MobileContact previous = dao.replaceIfPresent(id, mobileContact);
+            if (previous == null) {
+                throw new MobileContactNotFoundException(id, !lightweightExceptions);
             }
-
-            if (dao.phoneNumberExists(contactDTO.getPhoneNumber())) {
-                if (!dao.get(contactDTO.getId()).equals(dao.get(contactDTO.getPhoneNumber()))) {
-                    throw new PhoneNumberAlreadyExistsException(mobileContact);
-                }
+            if (previous.getId() != id) {
+                throw new PhoneNumberAlreadyExistsException(mobileContact.getPhoneNumber(), !lightweightExceptions);
             }
-            mapMobileContact(mobileContact, contactDTO);
-
-            mobileContact = dao.update(id, mobileContact);
 
         } catch (PhoneNumberAlreadyExistsException | MobileContactNotFoundException e) {
-            e.printStackTrace();
+            if (!lightweightExceptions) e.printStackTrace();
             throw e;
         }
         return mobileContact;
@@ -83,19 +108,13 @@ public class MobileContactServiceImpl implements IMobileContactService {
     @Override
     public void deleteMobileContactByPhoneNumber(String phoneNumber) throws MobileContactNotFoundException {
 
-        MobileContact mobileContact;
-
         try {
-            mobileContact = new MobileContact();
-
-            if (!dao.phoneNumberExists(phoneNumber)) {
-                throw new MobileContactNotFoundException(mobileContact);
+            if (dao.remove(phoneNumber) == null) {
+                throw new MobileContactNotFoundException(phoneNumber, !lightweightExceptions);
             }
 
-            dao.delete(phoneNumber);
-
         } catch (MobileContactNotFoundException e) {
-            e.printStackTrace();
+            if (!lightweightExceptions) e.printStackTrace();
             throw e;
         }
     }
@@ -103,19 +122,13 @@ public class MobileContactServiceImpl implements IMobileContactService {
     @Override
     public void deleteMobileContactById(long id) throws MobileContactNotFoundException {
 
-        MobileContact mobileContact;
-
         try {
-            mobileContact = new MobileContact();
-
-            if (!dao.userIdExist(id)) {
-                throw new MobileContactNotFoundException(mobileContact);
+            if (dao.remove(id) == null) {
+                throw new MobileContactNotFoundException(id, !lightweightExceptions);
             }
 
-            dao.delete(id);
-
         } catch (MobileContactNotFoundException e) {
-            e.printStackTrace();
+            if (!lightweightExceptions) e.printStackTrace();
             throw e;
         }
 
@@ -129,12 +142,12 @@ public class MobileContactServiceImpl implements IMobileContactService {
         try {
             mobileContact = dao.get(phoneNumber);
             if (mobileContact == null) {
-                throw new MobileContactNotFoundException(phoneNumber);
+                throw new MobileContactNotFoundException(phoneNumber, !lightweightExceptions);
             }
             return mobileContact;
 
         } catch (MobileContactNotFoundException e) {
-            e.printStackTrace();
+            if (!lightweightExceptions) e.printStackTrace();
             throw e;
         }
     }
@@ -146,21 +159,243 @@ public class MobileContactServiceImpl implements IMobileContactService {
         try {
             mobileContact = dao.get(id);
             if (mobileContact == null) {
-                throw new MobileContactNotFoundException(id);
+                throw new MobileContactNotFoundException(id, !lightweightExceptions);
             }
             return mobileContact;
 
         } catch (MobileContactNotFoundException e) {
-            e.printStackTrace();
+            if (!lightweightExceptions) e.printStackTrace();
             throw e;
         }
     }
 
+    @Override
+    public Optional<MobileContact> findMobileContact(String phoneNumber) {
+        return Optional.ofNullable(dao.get(phoneNumber));
+    }
+
+    @Override
+    public Optional<MobileContact> findMobileContact(long id) {
+        return Optional.ofNullable(dao.get(id));
+    }
+
+    @Override
+    public ContactOutcome tryInsertMobileContact(MobileContactDTO contactDTO) {
+        if (!isValid(contactDTO)) return ContactOutcome.failed(WriteStatus.INVALID);
+
+        MobileContact mobileContact = new MobileContact();
+        mapMobileContact(mobileContact, contactDTO);
+
+        MobileContact existing = dao.insertIfAbsent(mobileContact);
+        if (existing == null) return ContactOutcome.ok(mobileContact);
+        if (existing.getPhoneNumber().equals(mobileContact.getPhoneNumber())) {
+            return ContactOutcome.failed(WriteStatus.PHONE_CONFLICT);
+        }
+        return ContactOutcome.failed(WriteStatus.ID_CONFLICT);
+    }
+
+    @Override
+    public ContactOutcome tryUpdateMobileContact(long id, MobileContactDTO contactDTO) {
+        if (!isValid(contactDTO)) return ContactOutcome.failed(WriteStatus.INVALID);
+        if (id != contactDTO.getId()) return ContactOutcome.failed(WriteStatus.NOT_FOUND);
+
+        MobileContact mobileContact = new MobileContact();
+        mapMobileContact(mobileContact, contactDTO);
+
+        MobileContact previous = dao.replaceIfPresent(id, mobileContact);
+        if (previous == null) return ContactOutcome.failed(WriteStatus.NOT_FOUND);
+        if (previous.getId() != id) return ContactOutcome.failed(WriteStatus.PHONE_CONFLICT);
+        return ContactOutcome.ok(mobileContact);
+    }
+
+    @Override
+    public ContactOutcome tryDeleteMobileContactByPhoneNumber(String phoneNumber) {
+        MobileContact removed = dao.remove(phoneNumber);
+        return removed != null ? ContactOutcome.ok(removed) : ContactOutcome.failed(WriteStatus.NOT_FOUND);
+    }
+
+    @Override
+    public ContactOutcome tryDeleteMobileContactById(long id) {
+        MobileContact removed = dao.remove(id);
+        return removed != null ? ContactOutcome.ok(removed) : ContactOutcome.failed(WriteStatus.NOT_FOUND);
+    }
+
     @Override
     public List<MobileContact> getAllMobileContacts() {
         return dao.getAll();
     }
 
+    @Override
+    public ContactPage getMobileContacts(Long cursor, int pageSize) {
+        return dao.getPage(cursor, pageSize);
+    }
+
+    @Override
+    public Stream<MobileContact> streamMobileContacts() {
+        return dao.stream();
+    }
+
+    @Override
+    public List<MobileContact> getMobileContactsByPhonePrefix(String prefix, int limit) {
+        return dao.findByPhonePrefix(prefix, limit);
+    }
+
+    @Override
+    public List<MobileContact> searchMobileContactsByName(String query, int limit) {
+        return dao.searchByName(query, limit);
+    }
+
+    @Override
+    public List<MobileContact> getMobileContactsByUser(long userDetailsId) {
+        return dao.getContactsByUser(userDetailsId);
+    }
+
+    @Override
+    public List<MobileContact> deleteMobileContactsByUser(long userDetailsId) {
+        return dao.deleteContactsByUser(userDetailsId);
+    }
+
+    @Override
+    public QueryPlan planQuery(ContactQuery query) {
+        return QueryPlanner.plan(dao, query);
+    }
+
+    @Override
+    public Stream<MobileContact> queryMobileContacts(ContactQuery query) {
+        return QueryPlanner.plan(dao, query).stream();
+    }
+
+    @Override
+    public Stream<ContactRow> selectMobileContacts(ContactQuery query) {
+        return QueryPlanner.plan(dao, query).rows();
+    }
+
+    @Override
+    public BatchReport insertMobileContacts(List<MobileContactDTO> contactDTOs) {
+
+        WriteStatus[] statuses = new WriteStatus[contactDTOs.size()];
+        List<Integer> positions = new ArrayList<>();
+        List<MobileContact> mobileContacts = new ArrayList<>();
+        Set<Long> ids = new HashSet<>();
+        Set<String> phoneNumbers = new HashSet<>();
+
+        for (int i = 0; i < contactDTOs.size(); i++) {
+            MobileContactDTO contactDTO = contactDTOs.get(i);
+            if (!isValid(contactDTO)) {
+                statuses[i] = WriteStatus.INVALID;
+            } else if (phoneNumbers.contains(contactDTO.getPhoneNumber())) {
+                statuses[i] = WriteStatus.PHONE_CONFLICT;
+            } else if (!ids.add(contactDTO.getId())) {
+                statuses[i] = WriteStatus.ID_CONFLICT;
+            } else {
+                phoneNumbers.add(contactDTO.getPhoneNumber());
+                MobileContact mobileContact = new MobileContact();
+                mapMobileContact(mobileContact, contactDTO);
+                mobileContacts.add(mobileContact);
+                positions.add(i);
+            }
+        }
+
+        return mergeReport(statuses, positions, dao.insertAll(mobileContacts));
+    }
+
+    @Override
+    public BatchReport updateMobileContacts(List<MobileContactDTO> contactDTOs) {
+
+        WriteStatus[] statuses = new WriteStatus[contactDTOs.size()];
+        List<Integer> positions = new ArrayList<>();
+        List<MobileContact> mobileContacts = new ArrayList<>();
+        Set<Long> ids = new HashSet<>();
+        Set<String> phoneNumbers = new HashSet<>();
+
+        for (int i = 0; i < contactDTOs.size(); i++) {
+            MobileContactDTO contactDTO = contactDTOs.get(i);
+            if (!isValid(contactDTO)) {
+                statuses[i] = WriteStatus.INVALID;
+            } else if (ids.contains(contactDTO.getId())) {
+                statuses[i] = WriteStatus.ID_CONFLICT;
+            } else if (!phoneNumbers.add(contactDTO.getPhoneNumber())) {
+                statuses[i] = WriteStatus.PHONE_CONFLICT;
+            } else {
+                ids.add(contactDTO.getId());
+                MobileContact mobileContact = new MobileContact();
+                mapMobileContact(mobileContact, contactDTO);
+                mobileContacts.add(mobileContact);
+                positions.add(i);
+            }
+        }
+
+        return mergeReport(statuses, positions, dao.updateAll(mobileContacts));
+    }
+
+    @Override
+    public BatchReport deleteMobileContactsByIds(List<Long> ids) {
+
+        WriteStatus[] statuses = new WriteStatus[ids.size()];
+        List<Integer> positions = new ArrayList<>();
+        List<Long> validIds = new ArrayList<>();
+
+        for (int i = 0; i < ids.size(); i++) {
+            if (ids.get(i) == null) {
+                statuses[i] = WriteStatus.INVALID;
+            } else {
+                validIds.add(ids.get(i));
+                positions.add(i);
+            }
+        }
+
+        return mergeReport(statuses, positions, dao.deleteAllById(validIds));
+    }
+
+    @Override
+    public BatchReport deleteMobileContactsByPhoneNumbers(List<String> phoneNumbers) {
+
+        WriteStatus[] statuses = new WriteStatus[phoneNumbers.size()];
+        List<Integer> positions = new ArrayList<>();
+        List<String> validPhoneNumbers = new ArrayList<>();
+
+        for (int i = 0; i < phoneNumbers.size(); i++) {
+            if (phoneNumbers.get(i) == null) {
+                statuses[i] = WriteStatus.INVALID;
+            } else {
+                validPhoneNumbers.add(phoneNumbers.get(i));
+                positions.add(i);
+            }
+        }
+
+        return mergeReport(statuses, positions, dao.deleteAllByPhoneNumber(validPhoneNumbers));
+    }
+
+    /**
+     * Checks that a {@link MobileContactDTO} carries the data
+     * needed to be mapped to a {@link MobileContact}
+     * @param contactDTO
+     *                  the Mobile Contact Data Transfer Object
+     * @return
+     *          true if the DTO can be sent to the Datasource
+     */
+    private boolean isValid(MobileContactDTO contactDTO) {
+        return contactDTO != null && contactDTO.getPhoneNumber() != null && contactDTO.getUserDetails() != null;
+    }
+
+    /**
+     * Fills in the statuses of the items that reached the Datasource
+     * @param statuses
+     *                  the statuses of the batch, already set for the rejected items
+     * @param positions
+     *                  the position in the batch of each item sent to the Datasource
+     * @param applied
+     *                  the statuses returned by the Datasource
+     * @return
+     *          the resulting {@link BatchReport}
+     */
+    private BatchReport mergeReport(WriteStatus[] statuses, List<Integer> positions, List<WriteStatus> applied) {
+        for (int i = 0; i < positions.size(); i++) {
+            statuses[positions.get(i)] = applied.get(i);
+        }
+        return new BatchReport(Arrays.asList(statuses));
+    }
+
     /**
      * Maps {@link MobileContactDTO} to {@link MobileContact}
      * @param mobileContact
@@ -2,18 +2,61 @@ package gr.aueb.mobileapp.service.exceptions;
 
 import gr.aueb.mobileapp.model.MobileContact;
 
+/**
+ * The message is built when it is first read. An exception created without
+ * a writable stack trace costs no more than a small object, which suits
+ * callers for which a missing contact is a routine result
+ */
 public class MobileContactNotFoundException extends Exception{
     private static final long serialVersionUID = 1L;
 
+    private final String phoneNumber;
+    private final long id;
+    private String message;
+
     public MobileContactNotFoundException(String phoneNumber) {
-        super("The mobile contact with phone number " + phoneNumber + " was not found");
+        this(phoneNumber, true);
     }
 
     public MobileContactNotFoundException(long id) {
-        super("The mobile contact with id " + id + " was not found");
+        this(id, true);
     }
 
     public MobileContactNotFoundException(MobileContact mobileContact) {
-        super("The mobile contact with phone number " + mobileContact.getPhoneNumber() + " was not found");
+        this(mobileContact.getPhoneNumber(), true);
+    }
+
+    /**
+     * @param phoneNumber
+     *                  the phone number that was not found
+     * @param writableStackTrace
+     *                  false to skip capturing the stack trace
+     */
+    public MobileContactNotFoundException(String phoneNumber, boolean writableStackTrace) {
+        super(null, null, writableStackTrace, writableStackTrace);
+        this.phoneNumber = phoneNumber;
+        this.id = 0L;
+    }
+
+    /**
+     * @param id
+     *          the id that was not found
+     * @param writableStackTrace
+     *                  false to skip capturing the stack trace
+     */
+    public MobileContactNotFoundException(long id, boolean writableStackTrace) {
+        super(null, null, writableStackTrace, writableStackTrace);
+        this.phoneNumber = null;
+        this.id = id;
+    }
+
+    @Override
+    public String getMessage() {
+        if (message == null) {
+            message = phoneNumber != null
+                    ? "The mobile contact with phone number " + phoneNumber + " was not found"
+                    : "The mobile contact with id " + id + " was not found";
+        }
+        return message;
     }
 }
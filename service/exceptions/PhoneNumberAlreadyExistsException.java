@@ -2,12 +2,36 @@ package gr.aueb.mobileapp.service.exceptions;
 
 import gr.aueb.mobileapp.model.MobileContact;
 
+/**
+ * The message is built when it is first read; see {@link MobileContactNotFoundException}
+ */
 public class PhoneNumberAlreadyExistsException extends Exception {
 
     private static final long serialVersionUID = 1L;
 
+    private final String phoneNumber;
+    private String message;
+
     public PhoneNumberAlreadyExistsException (MobileContact mobileContact) {
+        this(mobileContact.getPhoneNumber(), true);
+    }
+
+    /**
+     * @param phoneNumber
+     *                  the phone number that already exists
+     * @param writableStackTrace
+     *                  false to skip capturing the stack trace
+     */
+    public PhoneNumberAlreadyExistsException(String phoneNumber, boolean writableStackTrace) {
+        super(null, null, writableStackTrace, writableStackTrace);
+        this.phoneNumber = phoneNumber;
+    }
 
-        super("Mobile contact with mobile phone number " + mobileContact.getPhoneNumber() + " already exists");
+    @Override
+    public String getMessage() {
+        if (message == null) {
+            message = "Mobile contact with mobile phone number " + phoneNumber + " already exists";
+        }
+        return message;
     }
 }
@@ -2,10 +2,35 @@ package gr.aueb.mobileapp.service.exceptions;
 
 import gr.aueb.mobileapp.model.MobileContact;
 
+/**
+ * The message is built when it is first read; see {@link MobileContactNotFoundException}
+ */
 public class UserIdAlreadyExistException extends Exception {
     private static final long serialVersionUID = 1L;
 
+    private final long id;
+    private String message;
+
     public UserIdAlreadyExistException (MobileContact mobileContact) {
-        super("Mobile contact with id " + mobileContact.getId() + " already exists");
+        this(mobileContact.getId(), true);
+    }
+
+    /**
+     * @param id
+     *          the id that already exists
+     * @param writableStackTrace
+     *                  false to skip capturing the stack trace
+     */
+    public UserIdAlreadyExistException(long id, boolean writableStackTrace) {
+        super(null, null, writableStackTrace, writableStackTrace);
+        this.id = id;
+    }
+
+    @Override
+    public String getMessage() {
+        if (message == null) {
+            message = "Mobile contact with id " + id + " already exists";
+        }
+        return message;
     }
 }
@@ -0,0 +1,257 @@
+package gr.aueb.mobileapp.codec;
+
+import gr.aueb.mobileapp.dto.MobileContactDTO;
+import gr.aueb.mobileapp.dto.UserDetailsDTO;
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContactCodecTest {
+
+    private static final List<MobileContact> SAMPLES = List.of(
+            new MobileContact(1L, new UserDetails(2L, "Alice", "Smith"), "6900000001"),
+            new MobileContact(3L, null, "6900000003"),
+            new MobileContact(4L, new UserDetails(5L, null, ""), null),
+            new MobileContact(Long.MAX_VALUE, new UserDetails(Long.MIN_VALUE, "\u0395\u03bb\u03ad\u03bd\u03b7", "M\u00fcller"), "+30 69\u20ac"),
+            new MobileContact(-1L, new UserDetails(0L, "\ud83d\ude00", "a\ud83c\udf89b"), "\ud834\udd1e"),
+            new MobileContact(0L, new UserDetails(6L, "", null), ""));
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void contactsRoundTrip(boolean direct) {
+        ByteBuffer buffer = allocate(direct, 256);
+        for (MobileContact sample : SAMPLES) {
+            buffer.clear();
+            int length = ContactCodec.encode(sample, buffer);
+
+            assertEquals(ContactCodec.encodedLength(sample), length);
+            assertEquals(length, buffer.position());
+            assertTrue(length <= ContactCodec.maxEncodedLength(sample));
+
+            buffer.flip();
+            assertSameContact(sample, ContactCodec.decodeMobileContact(buffer));
+            assertFalse(buffer.hasRemaining());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void fieldsAreReadInPlace(boolean direct) {
+        ByteBuffer buffer = allocate(direct, 256);
+        for (MobileContact sample : SAMPLES) {
+            buffer.clear();
+            int length = ContactCodec.encode(sample, buffer);
+
+            assertEquals(ContactCodec.CONTACT, ContactCodec.recordType(buffer, 0));
+            assertEquals(length, ContactCodec.recordLength(buffer, 0));
+            assertEquals(sample.getId(), ContactCodec.readId(buffer, 0));
+            assertEquals(sample.getPhoneNumber(), ContactCodec.readPhoneNumber(buffer, 0));
+            assertTrue(ContactCodec.phoneNumberEquals(buffer, 0, sample.getPhoneNumber()));
+            assertFalse(ContactCodec.phoneNumberEquals(buffer, 0, "0"));
+
+            ByteBuffer phoneNumberBytes = ContactCodec.phoneNumberBytes(buffer, 0);
+            if (sample.getPhoneNumber() == null) {
+                assertNull(phoneNumberBytes);
+            } else {
+                assertEquals(ByteBuffer.wrap(sample.getPhoneNumber().getBytes(StandardCharsets.UTF_8)), phoneNumberBytes);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void dtosAndEntitiesShareTheEncoding(boolean direct) {
+        ByteBuffer buffer = allocate(direct, 256);
+        for (MobileContact sample : SAMPLES) {
+            buffer.clear();
+            int length = ContactCodec.encode(toDTO(sample), buffer);
+            assertEquals(ContactCodec.encodedLength(toDTO(sample)), length);
+            buffer.flip();
+            assertSameContact(sample, ContactCodec.decodeMobileContact(buffer));
+
+            buffer.clear();
+            ContactCodec.encode(sample, buffer);
+            buffer.flip();
+            assertSameContact(sample, toModel(ContactCodec.decodeMobileContactDTO(buffer)));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void userDetailsRoundTrip(boolean direct) {
+        ByteBuffer buffer = allocate(direct, 256);
+        for (MobileContact sample : SAMPLES) {
+            UserDetails userDetails = sample.getUserDetails();
+            if (userDetails == null) continue;
+
+            buffer.clear();
+            assertEquals(ContactCodec.encodedLength(userDetails), ContactCodec.encode(userDetails, buffer));
+            assertEquals(ContactCodec.USER_DETAILS, ContactCodec.recordType(buffer, 0));
+            buffer.flip();
+            assertSameUserDetails(userDetails, ContactCodec.decodeUserDetails(buffer));
+
+            buffer.clear();
+            ContactCodec.encode(new UserDetailsDTO(userDetails.getId(), userDetails.getFirstname(), userDetails.getLastname()), buffer);
+            buffer.flip();
+            UserDetailsDTO userDetailsDTO = ContactCodec.decodeUserDetailsDTO(buffer);
+            assertSameUserDetails(userDetails, new UserDetails(userDetailsDTO.getId(), userDetailsDTO.getFirstname(),
+                    userDetailsDTO.getLastname()));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void recordsAreReadInSequence(boolean direct) {
+        ByteBuffer buffer = allocate(direct, 4096);
+        // start away from zero, so absolute indexes and array offsets are exercised
+        buffer.position(7);
+        ByteBuffer records = buffer.slice();
+        for (MobileContact sample : SAMPLES) {
+            ContactCodec.encode(sample, records);
+        }
+        records.flip();
+
+        int index = 0;
+        for (MobileContact sample : SAMPLES) {
+            assertEquals(sample.getId(), ContactCodec.readId(records, index));
+            index += ContactCodec.recordLength(records, index);
+        }
+        for (MobileContact sample : SAMPLES) {
+            assertSameContact(sample, ContactCodec.decodeMobileContact(records));
+        }
+        assertEquals(index, records.position());
+    }
+
+    @Test
+    void unpairedSurrogateIsEncodedAsQuestionMark() {
+        MobileContact contact = new MobileContact(1L, new UserDetails(1L, "a\ud800b", "\udc00"), "69");
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        assertEquals(ContactCodec.encodedLength(contact), ContactCodec.encode(contact, buffer));
+        buffer.flip();
+
+        UserDetails decoded = ContactCodec.decodeMobileContact(buffer).getUserDetails();
+        assertEquals("a?b", decoded.getFirstname());
+        assertEquals("?", decoded.getLastname());
+    }
+
+    @Test
+    void laterVersionWithMoreFieldsIsSkipped() {
+        MobileContact sample = SAMPLES.get(0);
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        int length = ContactCodec.encode(sample, buffer);
+        buffer.putLong(42L).put(0, (byte) (ContactCodec.VERSION + 1)).putInt(2, length + Long.BYTES);
+        ContactCodec.encode(SAMPLES.get(1), buffer);
+        buffer.flip();
+
+        assertSameContact(sample, ContactCodec.decodeMobileContact(buffer));
+        assertSameContact(SAMPLES.get(1), ContactCodec.decodeMobileContact(buffer));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void encodingThatDoesNotFitLeavesTheBufferUnchanged(boolean direct) {
+        MobileContact sample = SAMPLES.get(3);
+        ByteBuffer buffer = allocate(direct, ContactCodec.encodedLength(sample) - 1);
+        buffer.position(1);
+
+        assertThrows(BufferOverflowException.class, () -> ContactCodec.encode(sample, buffer));
+        assertThrows(BufferOverflowException.class, () -> ContactCodec.encode(toDTO(sample), buffer));
+        assertEquals(1, buffer.position());
+        for (int i = 0; i < buffer.capacity(); i++) {
+            assertEquals(0, buffer.get(i));
+        }
+    }
+
+    @Test
+    void truncatedRecordsAreRejected() {
+        byte[] record = encode(SAMPLES.get(0));
+        for (int length = 0; length < record.length; length++) {
+            ByteBuffer truncated = ByteBuffer.wrap(record, 0, length);
+            assertThrows(IllegalArgumentException.class, () -> ContactCodec.decodeMobileContact(truncated),
+                    "record cut at " + length);
+        }
+    }
+
+    @Test
+    void malformedRecordsAreRejected() {
+        assertMalformed(record -> record.put(0, (byte) 0));
+        assertMalformed(record -> record.put(1, ContactCodec.USER_DETAILS));
+        assertMalformed(record -> record.putInt(2, ContactCodec.CONTACT_HEADER_BYTES - 1));
+        assertMalformed(record -> record.putInt(2, record.capacity() + 1));
+        assertMalformed(record -> record.putInt(23, -5));
+        assertMalformed(record -> record.putInt(23, record.capacity()));
+        assertMalformed(record -> record.putInt(27, Integer.MAX_VALUE));
+        assertMalformed(record -> record.putInt(31, 1000));
+
+        ByteBuffer userDetails = ByteBuffer.allocate(64);
+        ContactCodec.encode(SAMPLES.get(0).getUserDetails(), userDetails);
+        userDetails.flip();
+        assertThrows(IllegalArgumentException.class, () -> ContactCodec.decodeMobileContact(userDetails));
+        userDetails.putInt(14, 60);
+        assertThrows(IllegalArgumentException.class, () -> ContactCodec.decodeUserDetails(userDetails));
+    }
+
+    private static void assertMalformed(Consumer<ByteBuffer> corruption) {
+        ByteBuffer record = ByteBuffer.wrap(encode(SAMPLES.get(0)));
+        corruption.accept(record);
+        assertThrows(IllegalArgumentException.class, () -> ContactCodec.decodeMobileContact(record.duplicate()));
+        assertThrows(IllegalArgumentException.class, () -> ContactCodec.decodeMobileContactDTO(record.duplicate()));
+    }
+
+    private static byte[] encode(MobileContact mobileContact) {
+        byte[] record = new byte[ContactCodec.encodedLength(mobileContact)];
+        ContactCodec.encode(mobileContact, ByteBuffer.wrap(record));
+        return record;
+    }
+
+    private static ByteBuffer allocate(boolean direct, int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    static void assertSameContact(MobileContact expected, MobileContact actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getPhoneNumber(), actual.getPhoneNumber());
+        if (expected.getUserDetails() == null) {
+            assertNull(actual.getUserDetails());
+        } else {
+            assertSameUserDetails(expected.getUserDetails(), actual.getUserDetails());
+        }
+    }
+
+    static void assertSameUserDetails(UserDetails expected, UserDetails actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getFirstname(), actual.getFirstname());
+        assertEquals(expected.getLastname(), actual.getLastname());
+    }
+
+    private static MobileContactDTO toDTO(MobileContact mobileContact) {
+        UserDetails userDetails = mobileContact.getUserDetails();
+        UserDetailsDTO userDetailsDTO = userDetails == null ? null
+                : new UserDetailsDTO(userDetails.getId(), userDetails.getFirstname(), userDetails.getLastname());
+        return new MobileContactDTO(mobileContact.getId(), userDetailsDTO, mobileContact.getPhoneNumber());
+    }
+
+    private static MobileContact toModel(MobileContactDTO contactDTO) {
+        UserDetailsDTO userDetailsDTO = contactDTO.getUserDetails();
+        UserDetails userDetails = userDetailsDTO == null ? null
+                : new UserDetails(userDetailsDTO.getId(), userDetailsDTO.getFirstname(), userDetailsDTO.getLastname());
+        return new MobileContact(contactDTO.getId(), userDetails, contactDTO.getPhoneNumber());
+    }
+}
@@ -0,0 +1,42 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.dao.cache.EvictionPolicy;
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CachingMobileContactDAOTest {
+
+    @Test
+    void lookupsByPhoneNumberAreCachedAfterTheOwnerIsReadById() {
+        MobileContactHashDAOImpl store = new MobileContactHashDAOImpl();
+        store.insert(new MobileContact(1L, new UserDetails(1L, "Alice", "Smith"), "6900000001"));
+        CachingMobileContactDAO dao = new CachingMobileContactDAO(store, 64, EvictionPolicy.LRU);
+
+        assertEquals(1L, dao.get("6900000001").getId());
+        assertEquals(1L, dao.get("6900000001").getId());
+        assertEquals(1L, dao.get("6900000001").getId());
+
+        assertEquals(1, dao.getStats().getHitCount());
+        assertEquals(2, dao.getStats().getMissCount());
+    }
+
+    @Test
+    void writesByIdAreSeenByLookupsByPhoneNumber() {
+        MobileContactHashDAOImpl store = new MobileContactHashDAOImpl();
+        store.insert(new MobileContact(1L, new UserDetails(1L, "Alice", "Smith"), "6900000001"));
+        CachingMobileContactDAO dao = new CachingMobileContactDAO(store, 64, EvictionPolicy.LRU);
+        dao.get("6900000001");
+        dao.get(1L);
+
+        dao.update(1L, new MobileContact(1L, new UserDetails(1L, "Alice", "Smith"), "6900000002"));
+        assertNull(dao.get("6900000001"));
+        assertEquals(1L, dao.get("6900000002").getId());
+
+        dao.delete(1L);
+        assertNull(dao.get("6900000002"));
+    }
+}
@@ -0,0 +1,56 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.dao.changes.ChangeEvent;
+import gr.aueb.mobileapp.dao.changes.ChangeStreamOverrunException;
+import gr.aueb.mobileapp.dao.changes.ChangeSubscription;
+import gr.aueb.mobileapp.dao.changes.ChangeType;
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class ChangeCapturingMobileContactDAOTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void removeByPhoneNumberOfPrimitiveDAO() throws ChangeStreamOverrunException {
+        assertRemovedByPhoneNumber(new MobileContactPrimitiveDAOImpl());
+    }
+
+    @Test
+    void removeByPhoneNumberOfMappedDAO() throws IOException, ChangeStreamOverrunException {
+        try (MobileContactMappedDAOImpl dao = new MobileContactMappedDAOImpl(directory)) {
+            assertRemovedByPhoneNumber(dao);
+        }
+    }
+
+    private static void assertRemovedByPhoneNumber(IMobileContactDAO delegate) throws ChangeStreamOverrunException {
+        ChangeCapturingMobileContactDAO dao = new ChangeCapturingMobileContactDAO(delegate);
+        ChangeSubscription subscription = dao.subscribe();
+        dao.insert(new MobileContact(1L, new UserDetails(1L, "Alice", "Smith"), "6900000001"));
+        //The delegate builds a new instance on every read
+        assertNotSame(delegate.get("6900000001"), delegate.get("6900000001"));
+
+        MobileContact removed = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> dao.remove("6900000001"));
+
+        assertEquals(1L, removed.getId());
+        assertNull(dao.get(1L));
+        assertNull(dao.remove("6900000001"));
+        List<ChangeEvent> events = subscription.poll(10);
+        assertEquals(List.of(ChangeType.INSERT, ChangeType.DELETE), List.of(events.get(0).getType(), events.get(1).getType()));
+        assertEquals(2, events.size());
+        assertEquals(1L, events.get(1).getId());
+    }
+}
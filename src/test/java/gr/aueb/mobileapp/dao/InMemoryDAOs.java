@@ -0,0 +1,29 @@
+package gr.aueb.mobileapp.dao;
+
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Factories of the in-memory DAOs, shared by the tests that run over each of them
+ */
+public final class InMemoryDAOs {
+
+    private InMemoryDAOs() {
+    }
+
+    /**
+     * Returns a factory of each in-memory DAO, every one of which starts empty
+     */
+    public static Stream<Supplier<IMobileContactDAO>> daos() {
+        return Stream.of(InMemoryDAOs::emptyListDAO, MobileContactHashDAOImpl::new,
+                MobileContactConcurrentDAOImpl::new, MobileContactPrimitiveDAOImpl::new);
+    }
+
+    /**
+     * Returns a list DAO over an emptied storage, which its instances share
+     */
+    public static MobileContactDAOImpl emptyListDAO() {
+        MobileContactDAOImpl.reset();
+        return new MobileContactDAOImpl();
+    }
+}
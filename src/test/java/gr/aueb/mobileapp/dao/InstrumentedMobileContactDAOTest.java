@@ -0,0 +1,57 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.metrics.MetricsRegistry;
+import gr.aueb.mobileapp.metrics.OperationSnapshot;
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InstrumentedMobileContactDAOTest {
+
+    @Test
+    void callsAreCountedAndExceptionsByType() {
+        MetricsRegistry registry = new MetricsRegistry();
+        //Inserts of odd ids fail with an I/O error, of ids above 10 with a state error
+        IMobileContactDAO dao = new InstrumentedMobileContactDAO(new ForwardingMobileContactDAO(new MobileContactHashDAOImpl()) {
+            @Override
+            public MobileContact insert(MobileContact mobileContact) {
+                if (mobileContact.getId() > 10) throw new IllegalStateException("Full");
+                if (mobileContact.getId() % 2 == 1) throw new UncheckedIOException(new IOException("Disk"));
+                return delegate.insert(mobileContact);
+            }
+        }, registry);
+
+        for (long id = 2; id <= 10; id += 2) {
+            dao.insert(contact(id));
+        }
+        assertThrows(UncheckedIOException.class, () -> dao.insert(contact(1L)));
+        assertThrows(UncheckedIOException.class, () -> dao.insert(contact(3L)));
+        assertThrows(IllegalStateException.class, () -> dao.insert(contact(12L)));
+        assertNull(dao.get(1L));
+        dao.get(2L);
+
+        OperationSnapshot insert = registry.snapshot().get("dao.insert");
+        assertEquals(8, insert.getCount());
+        assertEquals(5, insert.getSuccesses());
+        assertEquals(Map.of("UncheckedIOException", 2L, "IllegalStateException", 1L), insert.getFailures());
+        assertTrue(insert.getMaxNanos() >= insert.getP50Nanos());
+
+        //A missing contact is a result, not a failure
+        OperationSnapshot getById = registry.snapshot().get("dao.getById");
+        assertEquals(2, getById.getSuccesses());
+        assertEquals(0, getById.getFailureCount());
+    }
+
+    private static MobileContact contact(long id) {
+        return new MobileContact(id, new UserDetails(id, "First" + id, "Last" + id), String.format("69%08d", id));
+    }
+}
@@ -0,0 +1,66 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MobileContactConcurrentDAOImplTest {
+
+    @Test
+    void snapshotsSeeEveryEarlierWrite() throws InterruptedException {
+        MobileContactConcurrentDAOImpl dao = new MobileContactConcurrentDAOImpl(16);
+        int count = 20_000;
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            for (long id = 0; id < count; id++) {
+                dao.insert(contact(id));
+            }
+            done.set(true);
+        });
+        writer.start();
+
+        // the ids are inserted in order, so a snapshot holds exactly the ids below its size
+        while (!done.get()) {
+            ContactSnapshot snapshot = dao.snapshot();
+            int size = snapshot.size();
+            assertEquals(size, snapshot.getVersion());
+            if (size > 0) assertNotNull(snapshot.get(size - 1));
+            assertNull(snapshot.get(size));
+            assertEquals(size, snapshot.stream().count());
+        }
+        writer.join();
+
+        assertEquals(count, dao.snapshot().size());
+        assertEquals(count, dao.getAll().size());
+    }
+
+    @Test
+    void snapshotsDoNotSeeLaterWrites() {
+        MobileContactConcurrentDAOImpl dao = new MobileContactConcurrentDAOImpl(4);
+        for (long id = 0; id < 100; id++) {
+            dao.insert(contact(id));
+        }
+        ContactSnapshot snapshot = dao.snapshot();
+
+        dao.remove(5L);
+        dao.update(6L, new MobileContact(6L, new UserDetails(6L, "Changed", "Contact"), "6906"));
+        dao.insert(contact(100L));
+
+        assertEquals(100, snapshot.size());
+        assertEquals("First6", snapshot.get(6L).getUserDetails().getFirstname());
+        assertNotNull(snapshot.get(5L));
+        assertNull(snapshot.get(100L));
+        assertEquals(103, dao.snapshot().getVersion());
+        assertEquals(100, dao.snapshot().size());
+    }
+
+    private static MobileContact contact(long id) {
+        return new MobileContact(id, new UserDetails(id, "First" + id, "Last" + id), "69" + id);
+    }
+}
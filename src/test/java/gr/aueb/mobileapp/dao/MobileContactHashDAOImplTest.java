@@ -0,0 +1,72 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MobileContactHashDAOImplTest {
+
+    @Test
+    void streamReadsTheStorageLazily() {
+        MobileContactHashDAOImpl dao = new MobileContactHashDAOImpl();
+        dao.insert(contact(1));
+        Stream<MobileContact> stream = dao.stream();
+        dao.insert(contact(2));
+
+        assertEquals(List.of(1L, 2L), stream.map(MobileContact::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void parallelStreamSeesEveryContact() {
+        MobileContactHashDAOImpl dao = new MobileContactHashDAOImpl();
+        for (long id = 1; id <= 10_000; id++) {
+            dao.insert(contact(id));
+        }
+
+        assertEquals(10_000L * 10_001 / 2, dao.stream().parallel().mapToLong(MobileContact::getId).sum());
+    }
+
+    @Test
+    void phoneNumberOfAnotherContactIsRejected() {
+        MobileContactHashDAOImpl dao = new MobileContactHashDAOImpl();
+        dao.insert(contact(1));
+        dao.insert(contact(2));
+
+        assertNull(dao.insert(new MobileContact(3L, new UserDetails(3L, "First3", "Last3"), "691")));
+        assertNull(dao.update(2L, new MobileContact(2L, new UserDetails(2L, "First2", "Last2"), "691")));
+        assertNull(dao.get(3L));
+        assertEquals("692", dao.get(2L).getPhoneNumber());
+        assertEquals(1L, dao.get("691").getId());
+        assertEquals(List.of(1L), ids(dao.findByPhonePrefix("691", 10)));
+        assertEquals(List.of(2L), ids(dao.getContactsByUser(2L)));
+
+        dao.delete("691");
+        assertEquals(List.of(2L), ids(dao.getAll()));
+    }
+
+    @Test
+    void contactKeepsItsOwnPhoneNumber() {
+        MobileContactHashDAOImpl dao = new MobileContactHashDAOImpl();
+        dao.insert(contact(1));
+
+        MobileContact renamed = new MobileContact(1L, new UserDetails(1L, "Other", "Name"), "691");
+        assertEquals(renamed, dao.insert(renamed));
+        assertEquals(renamed, dao.update(1L, renamed));
+        assertEquals("Other", dao.get("691").getUserDetails().getFirstname());
+    }
+
+    private static List<Long> ids(List<MobileContact> mobileContacts) {
+        return mobileContacts.stream().map(MobileContact::getId).collect(Collectors.toList());
+    }
+
+    private static MobileContact contact(long id) {
+        return new MobileContact(id, new UserDetails(id, "First" + id, "Last" + id), "69" + id);
+    }
+}
@@ -0,0 +1,77 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.dao.mapped.FilterStats;
+import gr.aueb.mobileapp.metrics.MetricsRegistry;
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MobileContactMappedDAOImplTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void updatesSurviveReopening() throws Exception {
+        try (MobileContactMappedDAOImpl dao = new MobileContactMappedDAOImpl(directory)) {
+            dao.insert(new MobileContact(1L, new UserDetails(1L, "Alice", "Smith"), "6900000001"));
+            dao.insert(new MobileContact(2L, new UserDetails(2L, "Bob", "Jones"), "6900000002"));
+            dao.update(1L, new MobileContact(1L, new UserDetails(1L, "Alice", "Brown"), "6911111111"));
+            dao.update(1L, new MobileContact(1L, new UserDetails(1L, "Alice", "Green"), "6900000001"));
+        }
+
+        try (MobileContactMappedDAOImpl dao = new MobileContactMappedDAOImpl(directory)) {
+            assertEquals(2, dao.getAll().size());
+            assertEquals("Green", dao.get("6900000001").getUserDetails().getLastname());
+            assertFalse(dao.phoneNumberExists("6911111111"));
+            assertEquals(1, dao.getContactsByUser(1L).size());
+        }
+    }
+
+    @Test
+    void filterCountsArePublishedAsCounters() throws Exception {
+        try (MobileContactMappedDAOImpl dao = new MobileContactMappedDAOImpl(directory)) {
+            for (long id = 1; id <= 100; id++) {
+                dao.insert(new MobileContact(id, new UserDetails(id, "First" + id, "Last" + id), "69000" + id));
+            }
+            MetricsRegistry registry = new MetricsRegistry();
+            dao.registerMetrics(registry);
+
+            for (long id = 1; id <= 1000; id++) {
+                dao.userIdExist(id);
+            }
+            FilterStats stats = dao.getFilterStats();
+            Map<String, Long> counters = registry.counters();
+
+            assertEquals(stats.getNegativeCount(), counters.get("dao.filter.negatives"));
+            assertEquals(stats.getPositiveCount(), counters.get("dao.filter.positives"));
+            assertEquals(stats.getFalsePositiveCount(), counters.get("dao.filter.falsePositives"));
+            assertEquals(stats.getRebuildCount(), counters.get("dao.filter.rebuilds"));
+            assertTrue(counters.get("dao.filter.negatives") > 0);
+            assertTrue(counters.get("dao.filter.positives") >= 100);
+
+            ObjectName name = registry.registerMBean("mapped-filter-test");
+            try {
+                TabularData table = (TabularData) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Counters");
+                assertNotNull(table.get(new Object[] {"dao.filter.negatives"}));
+                assertEquals(counters.get("dao.filter.negatives"),
+                        table.get(new Object[] {"dao.filter.negatives"}).get("value"));
+            } finally {
+                registry.unregisterMBean(name);
+            }
+            assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        }
+    }
+}
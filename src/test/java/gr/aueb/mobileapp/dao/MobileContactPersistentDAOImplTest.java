@@ -0,0 +1,102 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class MobileContactPersistentDAOImplTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void removeByPhoneNumberOverDelegateThatBuildsNewInstances() throws IOException {
+        try (MobileContactPersistentDAOImpl dao = open(new MobileContactPrimitiveDAOImpl())) {
+            dao.insert(contact(1L));
+            dao.insert(contact(2L));
+
+            MobileContact removed = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> dao.remove("6900000001"));
+            assertEquals(1L, removed.getId());
+        }
+
+        try (MobileContactPersistentDAOImpl dao = open(new MobileContactPrimitiveDAOImpl())) {
+            assertNull(dao.get(1L));
+            assertNotNull(dao.get(2L));
+        }
+    }
+
+    @Test
+    void writesAfterTheLogClosedLeaveTheContactsUnchanged() throws IOException {
+        IMobileContactDAO delegate = new MobileContactHashDAOImpl();
+        MobileContactPersistentDAOImpl dao = open(delegate);
+        dao.insert(contact(1L));
+        dao.close();
+
+        assertThrows(UncheckedIOException.class, () -> dao.insert(contact(2L)));
+        assertThrows(UncheckedIOException.class, () -> dao.remove(1L));
+        assertThrows(UncheckedIOException.class, () -> dao.deleteAllByPhoneNumber(List.of("6900000001")));
+        assertNull(delegate.get(2L));
+        assertNotNull(delegate.get(1L));
+    }
+
+    @Test
+    void writesWhoseRecordIsNotLoggedAreUndone() throws IOException {
+        MobileContactPersistentDAOImpl[] dao = new MobileContactPersistentDAOImpl[1];
+        //Closes the log after the delegate is changed and before the record is appended
+        IMobileContactDAO delegate = new ForwardingMobileContactDAO(new MobileContactHashDAOImpl()) {
+            @Override
+            public MobileContact remove(long id) {
+                MobileContact removed = delegate.remove(id);
+                if (id == 1L) closeQuietly(dao[0]);
+                return removed;
+            }
+
+            @Override
+            public MobileContact update(long id, MobileContact mobileContact) {
+                MobileContact updated = delegate.update(id, mobileContact);
+                closeQuietly(dao[0]);
+                return updated;
+            }
+        };
+        dao[0] = open(delegate);
+        dao[0].insert(contact(1L));
+
+        assertThrows(UncheckedIOException.class, () -> dao[0].remove(1L));
+        assertEquals("6900000001", delegate.get(1L).getPhoneNumber());
+
+        dao[0] = open(delegate);
+        assertThrows(UncheckedIOException.class,
+                () -> dao[0].update(1L, new MobileContact(1L, new UserDetails(1L, "Bob", "Jones"), "6911111111")));
+        assertEquals("6900000001", delegate.get(1L).getPhoneNumber());
+        assertNull(delegate.get("6911111111"));
+    }
+
+    private MobileContactPersistentDAOImpl open(IMobileContactDAO delegate) throws IOException {
+        return new MobileContactPersistentDAOImpl(delegate, directory, 1, 1, true, 0);
+    }
+
+    private static void closeQuietly(MobileContactPersistentDAOImpl dao) {
+        try {
+            dao.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static MobileContact contact(long id) {
+        return new MobileContact(id, new UserDetails(id, "First" + id, "Last" + id), "690000000" + id);
+    }
+}
@@ -0,0 +1,142 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MobileContactShardedDAOImplTest {
+
+    @Test
+    void phoneNumbersAndIdsAreUniqueAcrossPartitions() {
+        MobileContactShardedDAOImpl dao = filled(100);
+
+        assertNull(dao.insert(contact(101L, 5L, phoneOf(5L))));
+        assertNull(dao.insert(contact(5L, 5L, "6999999999")));
+        assertNull(dao.update(7L, contact(7L, 7L, phoneOf(50L))));
+        assertEquals(50L, dao.get(phoneOf(50L)).getId());
+        assertEquals(phoneOf(7L), dao.get(7L).getPhoneNumber());
+        assertFalse(dao.phoneNumberExists("6999999999"));
+
+        assertEquals(contact(7L, 7L, "6999999999"), dao.update(7L, contact(7L, 7L, "6999999999")));
+        assertEquals(contact(101L, 101L, phoneOf(7L)), dao.insert(contact(101L, 101L, phoneOf(7L))));
+        assertEquals(101L, dao.remove(phoneOf(7L)).getId());
+        assertEquals(7L, dao.get("6999999999").getId());
+        assertEquals(100, dao.getAll().size());
+    }
+
+    @Test
+    void concurrentInsertsClaimEachPhoneNumberOnce() throws Exception {
+        MobileContactShardedDAOImpl dao = new MobileContactShardedDAOImpl(8, () -> new MobileContactHashDAOImpl(false));
+        AtomicInteger inserted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                long firstId = thread * 1_000L;
+                futures.add(executor.submit(() -> {
+                    for (long i = 0; i < 500; i++) {
+                        if (dao.insert(contact(firstId + i, firstId + i, phoneOf(i))) != null) inserted.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(500, inserted.get());
+        assertEquals(500, dao.getAll().size());
+        for (long i = 0; i < 500; i++) {
+            assertEquals(phoneOf(i), dao.get(dao.get(phoneOf(i)).getId()).getPhoneNumber());
+        }
+    }
+
+    @Test
+    void scansMergeEveryPartition() {
+        MobileContactShardedDAOImpl dao = filled(1_000);
+
+        assertEquals(1_000, dao.getAll().size());
+        assertEquals(1_000, dao.stream().parallel().count());
+        assertEquals(LongStream.rangeClosed(1, 100).boxed().collect(Collectors.toList()),
+                sortedIds(dao.findAll(mobileContact -> mobileContact.getId() <= 100)));
+
+        List<MobileContact> prefixed = dao.findByPhonePrefix(phoneOf(10L).substring(0, 9), 5);
+        assertEquals(List.of(phoneOf(10L), phoneOf(11L), phoneOf(12L), phoneOf(13L), phoneOf(14L)),
+                prefixed.stream().map(MobileContact::getPhoneNumber).collect(Collectors.toList()));
+
+        List<Long> paged = new ArrayList<>();
+        ContactPage page = dao.getPage(null, 64);
+        paged.addAll(ids(page.getContacts()));
+        while (page.hasNext()) {
+            page = dao.getPage(page.getNextCursor(), 64);
+            paged.addAll(ids(page.getContacts()));
+        }
+        assertEquals(LongStream.rangeClosed(1, 1_000).boxed().collect(Collectors.toList()), paged);
+    }
+
+    @Test
+    void personLookupsUseTheIndexesOverAllPartitions() {
+        MobileContactShardedDAOImpl dao = new MobileContactShardedDAOImpl();
+        for (long id = 1; id <= 40; id++) {
+            dao.insert(contact(id, id % 4, phoneOf(id)));
+        }
+
+        assertTrue(dao.getIndexes().contains(ContactIndex.USER_DETAILS_ID));
+        assertEquals(LongStream.iterate(3, id -> id <= 40, id -> id + 4).boxed().collect(Collectors.toList()),
+                sortedIds(dao.getContactsByUser(3L)));
+        assertEquals(10, dao.deleteContactsByUser(3L).size());
+        assertTrue(dao.getContactsByUser(3L).isEmpty());
+        assertEquals(List.of(5L), ids(dao.searchByName("First5", 1)));
+    }
+
+    @Test
+    void leanPartitionAnswersPersonLookupsByScanning() {
+        MobileContactHashDAOImpl dao = new MobileContactHashDAOImpl(false);
+        dao.insert(contact(1L, 9L, phoneOf(1L)));
+        dao.insert(contact(2L, 9L, phoneOf(2L)));
+
+        assertFalse(dao.getIndexes().contains(ContactIndex.USER_DETAILS_ID));
+        assertEquals(List.of(1L, 2L), sortedIds(dao.getContactsByUser(9L)));
+        assertEquals(List.of(2L), ids(dao.searchByName("first2", 10)));
+    }
+
+    private static MobileContactShardedDAOImpl filled(int count) {
+        MobileContactShardedDAOImpl dao = new MobileContactShardedDAOImpl(8, () -> new MobileContactHashDAOImpl(false));
+        for (long id = 1; id <= count; id++) {
+            dao.insert(contact(id, id, phoneOf(id)));
+        }
+        return dao;
+    }
+
+    private static List<Long> ids(List<MobileContact> mobileContacts) {
+        return mobileContacts.stream().map(MobileContact::getId).collect(Collectors.toList());
+    }
+
+    private static List<Long> sortedIds(List<MobileContact> mobileContacts) {
+        return mobileContacts.stream().map(MobileContact::getId).sorted().collect(Collectors.toList());
+    }
+
+    private static String phoneOf(long id) {
+        return String.format("69%08d", id);
+    }
+
+    private static MobileContact contact(long id, long userDetailsId, String phoneNumber) {
+        return new MobileContact(id, new UserDetails(userDetailsId, "First" + id, "Last" + id), phoneNumber);
+    }
+}
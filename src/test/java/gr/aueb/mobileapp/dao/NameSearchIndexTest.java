@@ -0,0 +1,78 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NameSearchIndexTest {
+
+    @Test
+    void exactMatchesRankBeforePartialAndFuzzyOnes() {
+        NameSearchIndex index = new NameSearchIndex();
+        index.add(contact(1, "Alexandra", "Smith"));
+        index.add(contact(2, "Alex", "Jones"));
+        index.add(contact(3, "Alec", "Brown"));
+
+        assertEquals(List.of(2L, 1L, 3L), ids(index.search("alex", 10)));
+    }
+
+    @Test
+    void caseAndAccentsAreIgnored() {
+        NameSearchIndex index = new NameSearchIndex();
+        index.add(contact(1, "\u0395\u03bb\u03ad\u03bd\u03b7", "M\u00fcller"));
+
+        assertEquals(List.of(1L), ids(index.search("\u03b5\u03bb\u03b5\u03bd\u03b7", 10)));
+        assertEquals(List.of(1L), ids(index.search("MULLER", 10)));
+    }
+
+    @Test
+    void contactWithEveryTokenIsFoundAmongCommonTokens() {
+        NameSearchIndex index = new NameSearchIndex();
+        for (long id = 1; id <= 20_000; id++) {
+            index.add(id % 2 == 0 ? contact(id, "Maria", "Jones" + id) : contact(id, "Anna" + id, "Papadopoulou"));
+        }
+        index.add(contact(50_000, "Maria", "Papadopoulou"));
+
+        List<MobileContact> found = index.search("maria papadopoulou", 5);
+
+        assertEquals(5, found.size());
+        assertEquals(50_000L, found.get(0).getId());
+    }
+
+    @Test
+    void removedNamesAreNoLongerFound() {
+        NameSearchIndex index = new NameSearchIndex();
+        MobileContact zed = contact(1, "Zedekiah", "Smith");
+        index.add(zed);
+        index.add(contact(2, "Anna", "Smith"));
+        index.remove(zed);
+
+        assertTrue(index.search("zed", 10).isEmpty());
+        index.add(contact(3, "Zed", "Jones"));
+        assertEquals(List.of(3L), ids(index.search("zed", 10)));
+    }
+
+    @Test
+    void replacedContactIsNotRemovedByItsOldVersion() {
+        NameSearchIndex index = new NameSearchIndex();
+        MobileContact old = contact(1, "Anna", "Smith");
+        index.add(old);
+        index.add(contact(1, "Anna", "Jones"));
+        index.remove(old);
+
+        assertEquals(List.of(1L), ids(index.search("anna", 10)));
+    }
+
+    private static MobileContact contact(long id, String firstname, String lastname) {
+        return new MobileContact(id, new UserDetails(id, firstname, lastname), "69" + id);
+    }
+
+    private static List<Long> ids(List<MobileContact> contacts) {
+        return contacts.stream().map(MobileContact::getId).toList();
+    }
+}
@@ -0,0 +1,48 @@
+package gr.aueb.mobileapp.dao;
+
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserContactsLookupTest {
+
+    @ParameterizedTest
+    @MethodSource("gr.aueb.mobileapp.dao.InMemoryDAOs#daos")
+    void contactsOfAPersonFollowEveryWrite(Supplier<IMobileContactDAO> daoFactory) {
+        IMobileContactDAO dao = daoFactory.get();
+        assertTrue(dao.getIndexes().contains(ContactIndex.USER_DETAILS_ID));
+
+        for (long id = 1; id <= 6; id++) {
+            dao.insert(new MobileContact(id, new UserDetails(id % 2, "First" + id, "Last" + id), "690000000" + id));
+        }
+        dao.insert(new MobileContact(7L, null, "6900000007"));
+        assertEquals(List.of(1L, 3L, 5L), idsOf(dao.getContactsByUser(1L)));
+        assertEquals(List.of(2L, 4L, 6L), idsOf(dao.getContactsByUser(0L)));
+
+        dao.update(3L, new MobileContact(3L, new UserDetails(0L, "First3", "Last3"), "6900000003"));
+        dao.remove(5L);
+        dao.delete("6900000002");
+        assertEquals(List.of(1L), idsOf(dao.getContactsByUser(1L)));
+        assertEquals(List.of(3L, 4L, 6L), sorted(idsOf(dao.getContactsByUser(0L))));
+
+        assertEquals(List.of(3L, 4L, 6L), sorted(idsOf(dao.deleteContactsByUser(0L))));
+        assertTrue(dao.getContactsByUser(0L).isEmpty());
+        assertEquals(List.of(1L, 7L), sorted(idsOf(dao.getAll())));
+    }
+
+    private static List<Long> idsOf(List<MobileContact> contacts) {
+        return contacts.stream().map(MobileContact::getId).collect(Collectors.toList());
+    }
+
+    private static List<Long> sorted(List<Long> ids) {
+        return ids.stream().sorted().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,60 @@
+package gr.aueb.mobileapp.dao.cache;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedCacheTest {
+
+    @ParameterizedTest
+    @EnumSource(EvictionPolicy.class)
+    void loadOfAnInvalidatedKeyIsRejected(EvictionPolicy policy) {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(1024, policy, 4);
+        long load = cache.startLoad(1);
+        cache.invalidate(1);
+
+        assertFalse(cache.putLoaded(1, "old", load));
+        assertNull(cache.get(1));
+        assertTrue(cache.putLoaded(1, "new", cache.startLoad(1)));
+        assertEquals("new", cache.get(1));
+    }
+
+    @ParameterizedTest
+    @EnumSource(EvictionPolicy.class)
+    void invalidationKeepsTheLoadsOfOtherKeys(EvictionPolicy policy) {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(1024, policy, 4);
+        long[] loads = new long[100];
+        for (int key = 0; key < loads.length; key++) {
+            loads[key] = cache.startLoad(key);
+        }
+        cache.invalidate(0);
+
+        int cached = 0;
+        for (int key = 1; key < loads.length; key++) {
+            if (cache.putLoaded(key, "value" + key, loads[key])) cached++;
+        }
+        // only the few keys that share the stamp of the invalidated key are dropped
+        assertTrue(cached >= 90, "cached " + cached);
+    }
+
+    @ParameterizedTest
+    @EnumSource(EvictionPolicy.class)
+    void invalidateAllRejectsEveryLoad(EvictionPolicy policy) {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(1024, policy, 4);
+        long[] loads = new long[100];
+        for (int key = 0; key < loads.length; key++) {
+            cache.putLoaded(key, "value" + key, cache.startLoad(key));
+            loads[key] = cache.startLoad(key);
+        }
+        cache.invalidateAll();
+
+        assertEquals(0, cache.size());
+        for (int key = 0; key < loads.length; key++) {
+            assertFalse(cache.putLoaded(key, "old", loads[key]));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package gr.aueb.mobileapp.dao.changes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeRingBufferTest {
+
+    @Test
+    void eventsAreReadInOrderOfSequence() throws ChangeStreamOverrunException {
+        ChangeRingBuffer ring = new ChangeRingBuffer(10);
+        assertEquals(16, ring.getCapacity());
+        ChangeSubscription subscription = ring.subscribe();
+        for (long id = 0; id < 5; id++) {
+            assertEquals(id, ring.publish(ChangeType.INSERT, id, null));
+        }
+        assertEquals(5, subscription.getLag());
+
+        List<ChangeEvent> first = subscription.poll(3);
+        List<ChangeEvent> rest = subscription.poll(10);
+        assertEquals(List.of(0L, 1L, 2L), sequencesOf(first));
+        assertEquals(List.of(3L, 4L), sequencesOf(rest));
+        assertEquals(4L, rest.get(1).getId());
+        assertEquals(ChangeType.INSERT, rest.get(1).getType());
+        assertTrue(subscription.poll(10).isEmpty());
+        assertEquals(0, subscription.getLag());
+    }
+
+    @Test
+    void overrunSubscriberIsToldAndCanSeekToTheOldestEvent() throws ChangeStreamOverrunException {
+        ChangeRingBuffer ring = new ChangeRingBuffer(4);
+        ChangeSubscription subscription = ring.subscribe();
+        for (long id = 0; id < 10; id++) {
+            ring.publish(ChangeType.UPDATE, id, null);
+        }
+
+        assertTrue(subscription.isOverrun());
+        assertEquals(List.of(subscription), ring.getSlowSubscriptions(Long.MAX_VALUE));
+        ChangeStreamOverrunException overrun = assertThrows(ChangeStreamOverrunException.class, () -> subscription.poll(10));
+        assertEquals(0, overrun.getSequence());
+        assertEquals(6, overrun.getOldestSequence());
+        assertEquals(1, ring.getOverrunCount());
+
+        subscription.seek(ring.getOldestSequence());
+        assertFalse(subscription.isOverrun());
+        assertEquals(List.of(6L, 7L, 8L, 9L), sequencesOf(subscription.poll(10)));
+    }
+
+    @Test
+    void resumedSubscriptionContinuesWhereTheClosedOneStopped() throws ChangeStreamOverrunException {
+        ChangeRingBuffer ring = new ChangeRingBuffer(16);
+        ChangeSubscription subscription = ring.subscribe();
+        for (long id = 0; id < 6; id++) {
+            ring.publish(ChangeType.DELETE, id, null);
+        }
+        subscription.poll(4);
+        subscription.close();
+        assertTrue(ring.getSubscriptions().isEmpty());
+
+        ChangeSubscription resumed = ring.subscribe(subscription.getNextSequence());
+        assertEquals(List.of(4L, 5L), sequencesOf(resumed.poll(10)));
+        assertThrows(IllegalArgumentException.class, () -> ring.subscribe(7));
+    }
+
+    @Test
+    void concurrentWritersLoseNoEvent() throws Exception {
+        ChangeRingBuffer ring = new ChangeRingBuffer(1 << 16);
+        ChangeSubscription subscription = ring.subscribe();
+        int writers = 4;
+        int perWriter = 10_000;
+        List<Thread> threads = new ArrayList<>();
+        for (int writer = 0; writer < writers; writer++) {
+            long base = (long) writer * perWriter;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perWriter; i++) {
+                    ring.publish(ChangeType.INSERT, base + i, null);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        boolean[] seen = new boolean[writers * perWriter];
+        int count = 0;
+        long expected = 0;
+        while (count < seen.length) {
+            List<ChangeEvent> events = subscription.poll(1024, 10, TimeUnit.SECONDS);
+            assertFalse(events.isEmpty(), "no event after " + count);
+            for (ChangeEvent event : events) {
+                assertEquals(expected++, event.getSequence());
+                assertFalse(seen[(int) event.getId()]);
+                seen[(int) event.getId()] = true;
+                count++;
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, ring.getOverrunCount());
+    }
+
+    private static List<Long> sequencesOf(List<ChangeEvent> events) {
+        List<Long> sequences = new ArrayList<>();
+        for (ChangeEvent event : events) {
+            sequences.add(event.getSequence());
+        }
+        return sequences;
+    }
+}
@@ -0,0 +1,92 @@
+package gr.aueb.mobileapp.dao.mapped;
+
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedContactFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replacementIsWrittenToAnotherSlot() throws IOException {
+        try (MappedContactFile file = new MappedContactFile(directory)) {
+            int slot = file.append(contact(1L, "6900000001"));
+            int replacement = file.appendReplacement(slot, contact(1L, "6911111111"));
+
+            assertTrue(slot != replacement);
+            assertTrue(file.isLive(slot));
+            assertEquals("6900000001", file.read(slot).getPhoneNumber());
+            assertEquals("6911111111", file.read(replacement).getPhoneNumber());
+        }
+    }
+
+    @Test
+    void crashBeforeTheOldSlotIsFreedKeepsTheReplacement() throws IOException {
+        try (MappedContactFile file = new MappedContactFile(directory)) {
+            int slot = file.append(contact(1L, "6900000001"));
+            slot = replace(file, slot, "6900000002");
+            //Dies after the last replacement is live, before the old record is freed
+            file.appendReplacement(slot, contact(1L, "6900000003"));
+        }
+
+        assertLive(List.of("6900000003"));
+    }
+
+    @Test
+    void replacementInAnEarlierSlotWins() throws IOException {
+        try (MappedContactFile file = new MappedContactFile(directory)) {
+            int first = file.append(contact(1L, "6900000001"));
+            int second = file.append(contact(2L, "6900000002"));
+            file.free(first);
+            //Reuses the first slot, so the later version lies before the older one
+            assertEquals(first, file.appendReplacement(second, contact(2L, "6922222222")));
+        }
+
+        assertLive(List.of("6922222222"));
+    }
+
+    @Test
+    void droppedVersionsAreReused() throws IOException {
+        try (MappedContactFile file = new MappedContactFile(directory)) {
+            int slot = file.append(contact(1L, "6900000001"));
+            file.appendReplacement(slot, contact(1L, "6900000002"));
+        }
+
+        try (MappedContactFile file = new MappedContactFile(directory)) {
+            assertFalse(file.isLive(0));
+            assertEquals(0, file.append(contact(2L, "6900000003")));
+        }
+    }
+
+    private static int replace(MappedContactFile file, int slot, String phoneNumber) throws IOException {
+        int replacement = file.appendReplacement(slot, contact(file.id(slot), phoneNumber));
+        file.free(slot);
+        return replacement;
+    }
+
+    private void assertLive(List<String> expected) throws IOException {
+        try (MappedContactFile file = new MappedContactFile(directory)) {
+            List<String> live = new ArrayList<>();
+            for (int slot = 0; slot < file.slotCount(); slot++) {
+                if (file.isLive(slot)) live.add(file.read(slot).getPhoneNumber());
+            }
+            assertEquals(expected, live);
+        }
+    }
+
+    private static MobileContact contact(long id, String phoneNumber) {
+        return new MobileContact(id, new UserDetails(id, "First" + id, "Last" + id), phoneNumber);
+    }
+}
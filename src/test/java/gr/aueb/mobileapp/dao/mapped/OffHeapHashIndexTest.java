@@ -0,0 +1,85 @@
+package gr.aueb.mobileapp.dao.mapped;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapHashIndexTest {
+
+    @Test
+    void keysMayHoldSeveralSlots() {
+        OffHeapHashIndex index = new OffHeapHashIndex(4);
+        index.put(7L, 1);
+        index.put(7L, 2);
+        index.put(7L, 2);
+
+        assertEquals(2, index.size());
+        assertEquals(1, index.find(7L, slot -> slot == 1));
+        assertEquals(2, index.find(7L, slot -> slot == 2));
+        assertEquals(-1, index.find(7L, slot -> slot == 3));
+        assertEquals(-1, index.find(8L, slot -> true));
+
+        assertTrue(index.remove(7L, 1));
+        assertFalse(index.remove(7L, 1));
+        assertEquals(-1, index.find(7L, slot -> slot == 1));
+        assertEquals(2, index.find(7L, slot -> slot == 2));
+    }
+
+    @Test
+    void matchesAMapUnderRandomPutsAndRemoves() {
+        OffHeapHashIndex index = new OffHeapHashIndex(0);
+        Map<Long, Set<Integer>> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // few keys, so runs of colliding entries are long and removals shift them back
+            long key = random.nextInt(5_000);
+            int slot = random.nextInt(8);
+            if (random.nextInt(3) == 0) {
+                Set<Integer> slots = expected.get(key);
+                assertEquals(slots != null && slots.remove(slot), index.remove(key, slot));
+            } else {
+                expected.computeIfAbsent(key, k -> new HashSet<>()).add(slot);
+                index.put(key, slot);
+            }
+        }
+
+        assertEquals(expected.values().stream().mapToInt(Set::size).sum(), index.size());
+        for (long key = 0; key < 5_000; key++) {
+            Set<Integer> slots = expected.getOrDefault(key, Set.of());
+            for (int slot = 0; slot < 8; slot++) {
+                int wanted = slot;
+                assertEquals(slots.contains(slot) ? slot : -1, index.find(key, candidate -> candidate == wanted));
+            }
+        }
+    }
+
+    @Test
+    void fullIndexRejectsPutsInsteadOfRehashingInPlace() {
+        OffHeapHashIndex index = new OffHeapHashIndex(0, 16);
+        for (int slot = 0; slot < 12; slot++) {
+            index.put(slot, slot);
+        }
+
+        assertThrows(IllegalStateException.class, () -> index.put(100L, 100));
+        assertEquals(12, index.size());
+        assertEquals(-1, index.find(100L, slot -> true));
+        for (int slot = 0; slot < 12; slot++) {
+            int wanted = slot;
+            assertEquals(slot, index.find(slot, candidate -> candidate == wanted));
+        }
+
+        // removals free their entries for later puts
+        assertTrue(index.remove(3L, 3));
+        index.put(100L, 100);
+        assertEquals(100, index.find(100L, slot -> true));
+    }
+}
@@ -0,0 +1,94 @@
+package gr.aueb.mobileapp.dao.persistence;
+
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ContactLogStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void loggedRecordsAreRecovered() throws IOException {
+        Map<Long, MobileContact> state = new TreeMap<>();
+        try (ContactLogStore store = open(state)) {
+            store.append(LogRecord.put(contact(1L)));
+            store.appendAll(List.of(LogRecord.put(contact(2L)), LogRecord.put(contact(3L)), LogRecord.delete(1L)));
+        }
+
+        assertEquals(List.of(2L, 3L), List.copyOf(recover().keySet()));
+    }
+
+    @Test
+    void checkpointDeletesTheFilesItMakesObsolete() throws IOException {
+        Map<Long, MobileContact> state = new TreeMap<>();
+        try (ContactLogStore store = open(state)) {
+            for (long id = 1; id <= 5; id++) {
+                store.append(LogRecord.put(contact(id)));
+                state.put(id, contact(id));
+            }
+            assertEquals(1L, store.checkpoint(() -> state.values().iterator()));
+            store.append(LogRecord.delete(2L));
+            store.append(LogRecord.put(contact(6L)));
+        }
+
+        assertEquals(List.of(SnapshotFile.snapshotFile(directory, 1), WriteAheadLog.logFile(directory, 1)), files());
+        assertEquals(List.of(1L, 3L, 4L, 5L, 6L), List.copyOf(recover().keySet()));
+    }
+
+    @Test
+    void tornTailIsCutOff() throws IOException {
+        try (ContactLogStore store = open(new TreeMap<>())) {
+            store.append(LogRecord.put(contact(1L)));
+            store.append(LogRecord.put(contact(2L)));
+        }
+        Path log = WriteAheadLog.logFile(directory, 0);
+        long complete = Files.size(log);
+        // a crash in the middle of a write leaves a length without its whole payload
+        Files.write(log, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        assertEquals(List.of(1L, 2L), List.copyOf(recover().keySet()));
+        assertEquals(complete, Files.size(log));
+    }
+
+    private ContactLogStore open(Map<Long, MobileContact> state) throws IOException {
+        return new ContactLogStore(directory, 1, 1, true, contact -> state.put(contact.getId(), contact),
+                record -> {
+                    if (record.getType() == LogRecord.Type.PUT) {
+                        state.put(record.getId(), record.getMobileContact());
+                    } else {
+                        state.remove(record.getId());
+                    }
+                });
+    }
+
+    private Map<Long, MobileContact> recover() throws IOException {
+        Map<Long, MobileContact> state = new TreeMap<>();
+        open(state).close();
+        return state;
+    }
+
+    private List<Path> files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static MobileContact contact(long id) {
+        return new MobileContact(id, new UserDetails(id, "First" + id, "Last" + id), "690000000" + id);
+    }
+}
@@ -0,0 +1,57 @@
+package gr.aueb.mobileapp.dao.persistence;
+
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LogRecordTest {
+
+    @Test
+    void putRoundTrips() throws IOException {
+        MobileContact contact = new MobileContact(7L, new UserDetails(8L, "\u0395\u03bb\u03ad\u03bd\u03b7", null), "6900000007");
+        LogRecord decoded = LogRecord.decode(LogRecord.put(contact).encode());
+
+        assertEquals(LogRecord.Type.PUT, decoded.getType());
+        assertEquals(7L, decoded.getId());
+        assertSameContact(contact, decoded.getMobileContact());
+    }
+
+    @Test
+    void deleteRoundTrips() throws IOException {
+        LogRecord decoded = LogRecord.decode(LogRecord.delete(-3L).encode());
+
+        assertEquals(LogRecord.Type.DELETE, decoded.getType());
+        assertEquals(-3L, decoded.getId());
+        assertNull(decoded.getMobileContact());
+    }
+
+    @Test
+    void invalidPayloadsAreRejected() throws IOException {
+        byte[] put = LogRecord.put(new MobileContact(1L, null, "69")).encode();
+
+        assertThrows(IOException.class, () -> LogRecord.decode(new byte[0]));
+        assertThrows(IOException.class, () -> LogRecord.decode(new byte[] {0, 0, 0, 0, 0, 0, 0, 0, 1}));
+        assertThrows(IOException.class, () -> LogRecord.decode(new byte[] {9}));
+        assertThrows(IOException.class, () -> LogRecord.decode(new byte[] {1, 0, 0}));
+        assertThrows(IOException.class, () -> LogRecord.decode(Arrays.copyOf(put, put.length - 1)));
+    }
+
+    private static void assertSameContact(MobileContact expected, MobileContact actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getPhoneNumber(), actual.getPhoneNumber());
+        if (expected.getUserDetails() == null) {
+            assertNull(actual.getUserDetails());
+            return;
+        }
+        assertEquals(expected.getUserDetails().getId(), actual.getUserDetails().getId());
+        assertEquals(expected.getUserDetails().getFirstname(), actual.getUserDetails().getFirstname());
+        assertEquals(expected.getUserDetails().getLastname(), actual.getUserDetails().getLastname());
+    }
+}
@@ -0,0 +1,79 @@
+package gr.aueb.mobileapp.dao.persistent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PersistentVectorTest {
+
+    @Test
+    void matchesAListUnderRandomWrites() {
+        PersistentVector<Integer> vector = PersistentVector.empty();
+        List<Integer> expected = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            int operation = random.nextInt(10);
+            if (operation < 6 || expected.isEmpty()) {
+                vector = vector.with(i);
+                expected.add(i);
+            } else if (operation < 8) {
+                int position = random.nextInt(expected.size());
+                vector = vector.set(position, -i);
+                expected.set(position, -i);
+            } else {
+                int position = random.nextInt(expected.size());
+                vector = vector.without(position);
+                expected.remove(position);
+            }
+        }
+
+        assertEquals(expected.size(), vector.size());
+        assertEquals(expected, vector.asList());
+        for (int position = 0; position < expected.size(); position += 97) {
+            assertEquals(expected.get(position), vector.get(position));
+        }
+    }
+
+    @Test
+    void earlierVersionsDoNotChange() {
+        PersistentVector<Integer> first = PersistentVector.<Integer>empty().withAll(range(1000));
+        PersistentVector<Integer> second = first.without(0).set(500, -1).with(1000);
+
+        assertEquals(range(1000), first.asList());
+        assertEquals(-1, second.get(500));
+        assertEquals(1000, second.size());
+    }
+
+    @Test
+    void removingEveryElementLeavesAnEmptyVector() {
+        PersistentVector<Integer> vector = PersistentVector.<Integer>empty().withAll(range(5000));
+        for (int i = 0; i < 5000; i++) {
+            vector = vector.without(vector.size() / 2);
+        }
+
+        assertTrue(vector.isEmpty());
+        assertTrue(vector.asList().isEmpty());
+        assertEquals(List.of(7), vector.with(7).asList());
+    }
+
+    @Test
+    void positionsOutsideTheVectorAreRejected() {
+        PersistentVector<Integer> vector = PersistentVector.<Integer>empty().withAll(range(3));
+
+        assertThrows(IndexOutOfBoundsException.class, () -> vector.get(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> vector.set(-1, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> vector.without(3));
+    }
+
+    private static List<Integer> range(int size) {
+        return IntStream.range(0, size).boxed().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,65 @@
+package gr.aueb.mobileapp.dao.primitive;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongIntHashMapTest {
+
+    @Test
+    void putsReplaceAndRemovesReturnThePreviousValue() {
+        LongIntHashMap map = new LongIntHashMap(0);
+
+        assertEquals(LongIntHashMap.NO_VALUE, map.put(Long.MIN_VALUE, 0));
+        assertEquals(LongIntHashMap.NO_VALUE, map.put(0L, 1));
+        assertEquals(1, map.put(0L, 2));
+        assertEquals(2, map.size());
+        assertEquals(0, map.get(Long.MIN_VALUE));
+        assertTrue(map.containsKey(0L));
+        assertFalse(map.containsKey(1L));
+
+        assertEquals(2, map.remove(0L));
+        assertEquals(LongIntHashMap.NO_VALUE, map.remove(0L));
+        assertEquals(LongIntHashMap.NO_VALUE, map.get(0L));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void negativeValuesAreRejected() {
+        LongIntHashMap map = new LongIntHashMap(4);
+
+        assertThrows(IllegalArgumentException.class, () -> map.put(1L, LongIntHashMap.NO_VALUE));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void growsAndShrinksLikeAHashMap() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        // few distinct keys, so removals often shift entries of a run back
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(5_000) * 1024L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.getOrDefault(key, LongIntHashMap.NO_VALUE), map.remove(key));
+                expected.remove(key);
+            } else {
+                Integer previous = expected.put(key, i);
+                assertEquals(previous == null ? LongIntHashMap.NO_VALUE : previous, map.put(key, i));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (int key = 0; key < 5_000; key++) {
+            assertEquals(expected.getOrDefault(key * 1024L, LongIntHashMap.NO_VALUE), map.get(key * 1024L));
+        }
+    }
+}
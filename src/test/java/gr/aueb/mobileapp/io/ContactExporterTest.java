@@ -0,0 +1,131 @@
+package gr.aueb.mobileapp.io;
+
+import gr.aueb.mobileapp.codec.ContactCodec;
+import gr.aueb.mobileapp.dao.IMobileContactDAO;
+import gr.aueb.mobileapp.dao.MobileContactHashDAOImpl;
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+import gr.aueb.mobileapp.service.IMobileContactService;
+import gr.aueb.mobileapp.service.MobileContactServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContactExporterTest {
+
+    private static final int CONTACTS = 1_000;
+
+    @TempDir
+    Path directory;
+
+    private IMobileContactDAO dao;
+
+    @BeforeEach
+    void fill() {
+        dao = new MobileContactHashDAOImpl();
+        for (long id = 1; id <= CONTACTS; id++) {
+            //Every person has several contacts, so the userDetailsId differs from the id
+            dao.insert(new MobileContact(id, new UserDetails(id % 10, "First, \"" + id + "\"", "Last" + id),
+                    String.format("69%08d", id)));
+        }
+    }
+
+    @Test
+    void csvExportImportsBackWithItsPersons() throws IOException {
+        Path file = directory.resolve("contacts.csv");
+        ExportReport report = new ContactExporter(dao, 1024).export(file, ExportFormat.CSV);
+
+        assertEquals(List.of(file), report.getFiles());
+        assertEquals(CONTACTS, report.getRecords());
+        assertEquals(Files.size(file), report.getBytes());
+        assertEquals("id,firstname,lastname,phoneNumber,userDetailsId", Files.readAllLines(file).get(0));
+        assertEquals("13,\"First, \"\"13\"\"\",Last13,6900000013,3", Files.readAllLines(file).stream()
+                .filter(line -> line.startsWith("13,")).findFirst().orElseThrow());
+
+        IMobileContactService service = new MobileContactServiceImpl(new MobileContactHashDAOImpl());
+        ImportReport imported = new ContactImporter(service, 100, 2, 4096, 100).importFile(file);
+
+        assertEquals(CONTACTS, imported.getImported());
+        assertEquals(describe(dao.getAll()), describe(service.getAllMobileContacts()));
+        assertEquals(CONTACTS / 10, service.getMobileContactsByUser(3L).size());
+    }
+
+    @Test
+    void partitionsHoldEveryContactOnce() throws IOException {
+        ExportReport report = new ContactExporter(dao, 1024).exportPartitioned(directory, ExportFormat.CSV, 3);
+
+        assertEquals(List.of(directory.resolve("contacts-00000.csv"), directory.resolve("contacts-00001.csv"),
+                directory.resolve("contacts-00002.csv")), report.getFiles());
+        assertEquals(CONTACTS, report.getRecords());
+
+        long bytes = 0;
+        List<String> records = new ArrayList<>();
+        for (Path file : report.getFiles()) {
+            bytes += Files.size(file);
+            List<String> lines = Files.readAllLines(file);
+            assertEquals("id,firstname,lastname,phoneNumber,userDetailsId", lines.get(0));
+            assertTrue(lines.size() - 1 >= CONTACTS / 3, file + " has " + (lines.size() - 1) + " records");
+            records.addAll(lines.subList(1, lines.size()));
+        }
+        assertEquals(bytes, report.getBytes());
+        assertEquals(CONTACTS, records.size());
+        assertEquals(CONTACTS, records.stream().distinct().count());
+
+        IMobileContactService service = new MobileContactServiceImpl(new MobileContactHashDAOImpl());
+        ContactImporter importer = new ContactImporter(service, 100, 2, 4096, 100);
+        for (Path file : report.getFiles()) {
+            importer.importFile(file);
+        }
+        assertEquals(describe(dao.getAll()), describe(service.getAllMobileContacts()));
+    }
+
+    @Test
+    void binaryRecordsDecodeBack() throws IOException {
+        Path file = directory.resolve("contacts.bin");
+        new ContactExporter(dao, 1024).export(file, ExportFormat.BINARY);
+
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(file));
+        assertEquals(ExportFormat.BINARY_MAGIC, content.getInt());
+        assertEquals(ExportFormat.BINARY_VERSION, content.getShort());
+        List<MobileContact> decoded = new ArrayList<>();
+        while (content.hasRemaining()) {
+            decoded.add(ContactCodec.decodeMobileContact(content));
+        }
+        assertEquals(describe(dao.getAll()), describe(decoded));
+    }
+
+    @Test
+    void jsonLinesNestTheUserDetails() throws IOException {
+        Path file = directory.resolve("contacts.jsonl");
+        new ContactExporter(dao, 1024).export(file, ExportFormat.JSONL);
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(CONTACTS, lines.size());
+        assertTrue(lines.contains("{\"id\":13,\"phoneNumber\":\"6900000013\",\"userDetails\":"
+                + "{\"id\":3,\"firstname\":\"First, \\\"13\\\"\",\"lastname\":\"Last13\"}}"));
+    }
+
+    /**
+     * Returns every field of the contacts, sorted by id, since the equality of
+     * {@link MobileContact} leaves the ids out
+     */
+    private static List<String> describe(List<MobileContact> mobileContacts) {
+        return mobileContacts.stream()
+                .sorted((a, b) -> Long.compare(a.getId(), b.getId()))
+                .map(mobileContact -> mobileContact.getId() + "/" + mobileContact.getUserDetails().getId() + "/"
+                        + mobileContact.getUserDetails().getFirstname() + "/" + mobileContact.getUserDetails().getLastname()
+                        + "/" + mobileContact.getPhoneNumber())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,220 @@
+package gr.aueb.mobileapp.io;
+
+import gr.aueb.mobileapp.dao.MobileContactHashDAOImpl;
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.service.IMobileContactService;
+import gr.aueb.mobileapp.service.MobileContactServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContactImporterTest {
+
+    //Smaller than most records, so records cross the chunk boundaries and the buffer grows
+    private static final int CHUNK_SIZE = 16;
+
+    @TempDir
+    Path directory;
+
+    private IMobileContactService service;
+    private ContactImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        service = new MobileContactServiceImpl(new MobileContactHashDAOImpl());
+        importer = new ContactImporter(service, 3, 2, CHUNK_SIZE, 100);
+    }
+
+    @Test
+    void headerAfterByteOrderMarkGivesTheColumns() throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write(new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF});
+        content.writeBytes(("phone number,surname,given_name,id\r\n"
+                + "6900000001,Smith,Alice,1\r\n"
+                + "6900000002,Jones,Bob,2\r\n").getBytes(StandardCharsets.UTF_8));
+        Path file = directory.resolve("contacts.csv");
+        Files.write(file, content.toByteArray());
+
+        ImportReport report = importer.importFile(file);
+
+        assertEquals(2, report.getRecords());
+        assertEquals(2, report.getImported());
+        MobileContact alice = service.findMobileContact(1L).orElseThrow();
+        assertEquals("Alice", alice.getUserDetails().getFirstname());
+        assertEquals("Smith", alice.getUserDetails().getLastname());
+        assertEquals("6900000001", alice.getPhoneNumber());
+    }
+
+    @Test
+    void quotedFieldsMayHoldCommasQuotesAndLineBreaks() throws IOException {
+        Path file = write("contacts.csv",
+                "1,\"Mary, Ann\",\"O\"\"Brien\",6900000001\n"
+                + "2,Bob,\"Jones\n-Smith\",6900000002\n"
+                + "x,Carol,White,6900000003\n");
+
+        ImportReport report = importer.importFile(file);
+
+        assertEquals(2, report.getImported());
+        assertEquals("Mary, Ann", service.findMobileContact(1L).orElseThrow().getUserDetails().getFirstname());
+        assertEquals("O\"Brien", service.findMobileContact(1L).orElseThrow().getUserDetails().getLastname());
+        assertEquals("Jones\n-Smith", service.findMobileContact(2L).orElseThrow().getUserDetails().getLastname());
+        //The line break inside the quotes is counted
+        assertEquals(List.of("line 4: PARSE_ERROR: The id is not a number: x"), messages(report));
+    }
+
+    @Test
+    void recordLongerThanTheChunkGrowsTheBuffer() throws IOException {
+        String firstname = "A".repeat(CHUNK_SIZE * 10);
+        Path file = write("contacts.csv", "1," + firstname + ",Smith,6900000001\n2,Bob,Jones,6900000002");
+
+        ImportReport report = importer.importFile(file);
+
+        assertEquals(2, report.getImported());
+        assertEquals(firstname, service.findMobileContact(1L).orElseThrow().getUserDetails().getFirstname());
+        assertTrue(service.findMobileContact(2L).isPresent());
+    }
+
+    @Test
+    void errorsAreReportedAtTheirLineAcrossChunks() throws IOException {
+        StringBuilder content = new StringBuilder("id,firstname,lastname,phone\n");
+        for (int id = 1; id <= 50; id++) {
+            if (id % 10 == 0) content.append(id).append(",Broken\n");
+            else content.append(id).append(",First").append(id).append(",Last").append(id).append(",69000000").append(10 + id).append('\n');
+        }
+        Path file = write("contacts.csv", content.toString());
+
+        ImportReport report = importer.importFile(file);
+
+        assertEquals(50, report.getRecords());
+        assertEquals(45, report.getImported());
+        assertEquals(5, report.getFailed(ImportError.Kind.PARSE_ERROR));
+        assertEquals(List.of(11L, 21L, 31L, 41L, 51L),
+                report.getErrors().stream().map(ImportError::getLine).collect(Collectors.toList()));
+        assertEquals("Expected 4 fields but found 2", report.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    void duplicatesAreReportedWithTheirOwner() throws IOException {
+        importer.importFile(write("first.csv", "1,Alice,Smith,6900000001\n"));
+        Path file = write("second.csv",
+                "2,Bob,Jones,6900000001\n"
+                + "1,Carol,White,6900000003\n"
+                + "4,Dave,Brown,6900000004\n"
+                + "5,Eve,Black,6900000004\n"
+                + "4,Fay,Green,6900000006\n");
+
+        ImportReport report = importer.importFile(file);
+
+        assertEquals(5, report.getRecords());
+        assertEquals(1, report.getImported());
+        assertEquals(2, report.getFailed(ImportError.Kind.DUPLICATE_PHONE));
+        assertEquals(2, report.getFailed(ImportError.Kind.DUPLICATE_ID));
+        assertEquals(List.of(
+                "line 1: DUPLICATE_PHONE: The phone number 6900000001 belongs to the contact with id 1",
+                "line 2: DUPLICATE_ID: The id 1 belongs to the contact with phone number 6900000001",
+                "line 4: DUPLICATE_PHONE: The phone number 6900000004 belongs to the contact with id 4",
+                "line 5: DUPLICATE_ID: The id 4 belongs to the contact with phone number 6900000004"), messages(report));
+    }
+
+    @Test
+    void recordsWithoutIdGetGeneratedIds() throws IOException {
+        Path file = write("contacts.csv", ",Alice,Smith,6900000001\n7,Bob,Jones,6900000002\n,Carol,White,6900000003\n");
+
+        ImportReport rejected = importer.importFile(file);
+        assertEquals(1, rejected.getImported());
+        assertEquals(List.of("line 1: PARSE_ERROR: Missing id", "line 3: PARSE_ERROR: Missing id"), messages(rejected));
+
+        service = new MobileContactServiceImpl(new MobileContactHashDAOImpl());
+        importer = new ContactImporter(service, 3, 2, CHUNK_SIZE, 100);
+        ImportReport generated = importer.importFile(file, ContactFileFormat.CSV, 100L);
+        assertEquals(3, generated.getImported());
+        assertEquals("6900000001", service.findMobileContact(100L).orElseThrow().getPhoneNumber());
+        assertEquals("6900000003", service.findMobileContact(101L).orElseThrow().getPhoneNumber());
+        assertEquals(100L, service.findMobileContact(100L).orElseThrow().getUserDetails().getId());
+    }
+
+    @Test
+    void generatedIdsKeepTheGivenPerson() throws IOException {
+        Path file = write("contacts.csv", "id,firstname,lastname,phone,userDetailsId\n"
+                + ",Alice,Smith,6900000001,5\n,Alice,Smith,6900000002,5\n,Bob,Jones,6900000003,\n");
+
+        ImportReport report = importer.importFile(file, ContactFileFormat.CSV, 100L);
+
+        assertEquals(3, report.getImported());
+        assertEquals(List.of(100L, 101L), service.getMobileContactsByUser(5L).stream()
+                .map(MobileContact::getId).sorted().collect(Collectors.toList()));
+        assertEquals(102L, service.findMobileContact(102L).orElseThrow().getUserDetails().getId());
+    }
+
+    @Test
+    void onlyTheFirstMaxErrorsAreKept() throws IOException {
+        importer = new ContactImporter(service, 3, 2, CHUNK_SIZE, 2);
+        Path file = write("contacts.csv", "a,1,1,1\nb,2,2,2\nc,3,3,3\n");
+
+        ImportReport report = importer.importFile(file);
+
+        assertEquals(3, report.getFailed());
+        assertEquals(2, report.getErrors().size());
+        assertTrue(report.isErrorsTruncated());
+    }
+
+    @Test
+    void cardsAreReadAcrossChunks() throws IOException {
+        Path file = write("contacts.vcf",
+                "BEGIN:VCARD\r\n"
+                + "VERSION:4.0\r\n"
+                + "UID:1\r\n"
+                + "N:Smith;Alice;;;\r\n"
+                + "TEL;TYPE=home:+30 210-000 0001\r\n"
+                + "TEL;TYPE=\"cell,voice\":+30 (690) 000-0001\r\n"
+                + "END:VCARD\r\n"
+                + "BEGIN:VCARD\r\n"
+                + "X-CONTACT-ID:2\r\n"
+                + "FN:Bob Van\r\n"
+                + "  Jones\r\n"
+                + "TEL:tel:6900000002\r\n"
+                + "END:VCARD\r\n"
+                + "BEGIN:VCARD\r\n"
+                + "UID:3\r\n"
+                + "FN:Carol\r\n"
+                + "END:VCARD\r\n"
+                + "BEGIN:VCARD\r\n"
+                + "UID:4\r\n");
+
+        ImportReport report = importer.importFile(file);
+
+        assertEquals(4, report.getRecords());
+        assertEquals(2, report.getImported());
+        MobileContact alice = service.findMobileContact(1L).orElseThrow();
+        assertEquals("+306900000001", alice.getPhoneNumber());
+        assertEquals("Alice", alice.getUserDetails().getFirstname());
+        assertEquals("Smith", alice.getUserDetails().getLastname());
+        MobileContact bob = service.findMobileContact(2L).orElseThrow();
+        assertEquals("6900000002", bob.getPhoneNumber());
+        assertEquals("Bob", bob.getUserDetails().getFirstname());
+        assertEquals("Van Jones", bob.getUserDetails().getLastname());
+        assertEquals(List.of("line 14: PARSE_ERROR: The card has no phone number",
+                "line 18: PARSE_ERROR: The card has no END:VCARD"), messages(report));
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(directory.resolve(name), content);
+    }
+
+    private static List<String> messages(ImportReport report) {
+        assertFalse(report.isErrorsTruncated());
+        return report.getErrors().stream().map(ImportError::toString).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,93 @@
+package gr.aueb.mobileapp.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvContactParserTest {
+
+    @Test
+    void splitKeepsQuotedCommasAndTrimsUnquotedFields() {
+        assertEquals(List.of("1", "Mary, Ann", "O\"Brien", ""), CsvContactParser.split(" 1 , \"Mary, Ann\",\"O\"\"Brien\","));
+        assertEquals(List.of("a\nb"), CsvContactParser.split("\"a\nb\""));
+        assertNull(CsvContactParser.split("1,\"Mary"));
+    }
+
+    @Test
+    void lastRecordEndSkipsLineBreaksInsideQuotes() {
+        CsvContactParser parser = new CsvContactParser();
+        byte[] data = bytes("1,a,b,1\n2,\"a\nb");
+
+        assertEquals(8, parser.lastRecordEnd(data, 0, data.length));
+        assertEquals(-1, parser.lastRecordEnd(data, 8, data.length));
+        byte[] closed = bytes("2,\"a\nb\",c,2\n");
+        assertEquals(closed.length, parser.lastRecordEnd(closed, 0, closed.length));
+    }
+
+    @Test
+    void headerNeedsAPhoneColumn() {
+        CsvContactParser parser = new CsvContactParser();
+        byte[] header = bytes("surname,tel\nSmith,6900000001\n");
+
+        assertEquals(-1, parser.headerLength(header, 0, 5, false));
+        assertEquals(0, new CsvContactParser().headerLength(bytes("1,a,b,1\n"), 0, 8, false));
+        assertEquals(12, parser.headerLength(header, 0, header.length, false));
+
+        ParsedChunk chunk = parser.parse(Arrays.copyOfRange(header, 12, header.length));
+        assertRow(chunk.getRows().get(0), 1, "", "Smith", "6900000001", false);
+        assertEquals(1, chunk.getLineCount());
+    }
+
+    @Test
+    void carriageReturnsAndBlankLinesAreIgnored() {
+        ParsedChunk chunk = new CsvContactParser().parse(bytes("1,a,b,6900000001\r\n\r\n2,c,d,6900000002\r\n"));
+
+        assertEquals(2, chunk.getRows().size());
+        assertRow(chunk.getRows().get(0), 1, "a", "b", "6900000001", true);
+        assertRow(chunk.getRows().get(1), 3, "c", "d", "6900000002", true);
+        assertEquals(3, chunk.getLineCount());
+    }
+
+    @Test
+    void userDetailsIdDefaultsToTheId() {
+        CsvContactParser parser = new CsvContactParser();
+        byte[] header = bytes("userDetailsId,id,phone\n");
+        assertEquals(header.length, parser.headerLength(header, 0, header.length, false));
+
+        List<ParsedChunk.Row> rows = parser.parse(bytes("9,1,6900000001\n,2,6900000002\n8,,6900000003\nx,4,6900000004\n")).getRows();
+
+        assertEquals(9L, rows.get(0).contactDTO.getUserDetails().getId());
+        assertTrue(rows.get(0).hasUserDetailsId);
+        assertEquals(2L, rows.get(1).contactDTO.getUserDetails().getId());
+        assertFalse(rows.get(1).hasUserDetailsId);
+        assertEquals(8L, rows.get(2).contactDTO.getUserDetails().getId());
+        assertFalse(rows.get(2).hasId);
+        assertEquals("The userDetailsId is not a number: x", rows.get(3).error);
+
+        //Without a header the userDetailsId is an optional fifth column
+        List<ParsedChunk.Row> headerless = new CsvContactParser().parse(bytes("1,a,b,6900000001,9\n2,c,d,6900000002\n")).getRows();
+        assertEquals(9L, headerless.get(0).contactDTO.getUserDetails().getId());
+        assertEquals(2L, headerless.get(1).contactDTO.getUserDetails().getId());
+    }
+
+    private static void assertRow(ParsedChunk.Row row, int line, String firstname, String lastname,
+                                  String phoneNumber, boolean hasId) {
+        assertNull(row.error);
+        assertEquals(line, row.line);
+        assertEquals(firstname, row.contactDTO.getUserDetails().getFirstname());
+        assertEquals(lastname, row.contactDTO.getUserDetails().getLastname());
+        assertEquals(phoneNumber, row.contactDTO.getPhoneNumber());
+        assertEquals(hasId, row.hasId);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
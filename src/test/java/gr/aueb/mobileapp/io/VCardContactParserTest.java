@@ -0,0 +1,48 @@
+package gr.aueb.mobileapp.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class VCardContactParserTest {
+
+    @Test
+    void lastRecordEndIsAfterTheLastCompleteEndLine() {
+        VCardContactParser parser = new VCardContactParser();
+        byte[] data = bytes("BEGIN:VCARD\r\nTEL:1\r\n end:vcard \r\nBEGIN:VCARD\r\nEND:VCARD");
+
+        assertEquals(33, parser.lastRecordEnd(data, 0, data.length));
+        assertEquals(-1, parser.lastRecordEnd(data, 33, data.length));
+        assertEquals(-1, parser.lastRecordEnd(data, 0, 20));
+    }
+
+    @Test
+    void phoneNumbersKeepTheirDigitsAndLeadingPlus() {
+        assertEquals("+306900000001", VCardContactParser.normalizePhoneNumber(" tel:+30 (690) 000-0001"));
+        assertEquals("6900000001", VCardContactParser.normalizePhoneNumber("690 000 00+01"));
+    }
+
+    @Test
+    void escapedValuesAndGroupedPropertiesAreRead() {
+        ParsedChunk chunk = new VCardContactParser().parse(bytes(
+                "BEGIN:VCARD\nN:O\\;Brien;Mary\\, Ann\nitem1.TEL:6900000001\nUID:urn:uuid:1\nEND:VCARD\nTEL:1\n"));
+
+        assertEquals(2, chunk.getRows().size());
+        ParsedChunk.Row card = chunk.getRows().get(0);
+        assertEquals(1, card.line);
+        assertEquals("O;Brien", card.contactDTO.getUserDetails().getLastname());
+        assertEquals("Mary, Ann", card.contactDTO.getUserDetails().getFirstname());
+        assertEquals("6900000001", card.contactDTO.getPhoneNumber());
+        assertFalse(card.hasId);
+        assertEquals(6, chunk.getRows().get(1).line);
+        assertEquals("The line is outside of a card", chunk.getRows().get(1).error);
+        assertEquals(6, chunk.getLineCount());
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
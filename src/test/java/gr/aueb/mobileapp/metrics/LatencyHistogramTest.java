@@ -0,0 +1,77 @@
+package gr.aueb.mobileapp.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void smallValuesHaveABucketEach() {
+        for (int value = 0; value < 16; value++) {
+            assertEquals(value, LatencyHistogram.bucketOf(value));
+            assertEquals(value, LatencyHistogram.highestValueOf(value));
+        }
+    }
+
+    @Test
+    void everyPowerOfTwoIsSplitIntoEightBuckets() {
+        //16..31 in buckets of 2, 32..63 in buckets of 4
+        assertEquals(16, LatencyHistogram.bucketOf(16));
+        assertEquals(16, LatencyHistogram.bucketOf(17));
+        assertEquals(17, LatencyHistogram.bucketOf(18));
+        assertEquals(23, LatencyHistogram.bucketOf(31));
+        assertEquals(24, LatencyHistogram.bucketOf(32));
+        assertEquals(24, LatencyHistogram.bucketOf(35));
+        assertEquals(25, LatencyHistogram.bucketOf(36));
+        assertEquals(17, LatencyHistogram.highestValueOf(16));
+        assertEquals(31, LatencyHistogram.highestValueOf(23));
+        assertEquals(35, LatencyHistogram.highestValueOf(24));
+
+        int last = LatencyHistogram.bucketOf(Long.MAX_VALUE);
+        assertEquals(16 + 59 * 8 - 1, last);
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValueOf(last));
+    }
+
+    @Test
+    void bucketsBoundTheirValuesWithinOneEighth() {
+        for (int bucket = 16; bucket < LatencyHistogram.bucketOf(Long.MAX_VALUE); bucket++) {
+            long highest = LatencyHistogram.highestValueOf(bucket);
+            long lowest = LatencyHistogram.highestValueOf(bucket - 1) + 1;
+            assertEquals(bucket, LatencyHistogram.bucketOf(lowest));
+            assertEquals(bucket, LatencyHistogram.bucketOf(highest));
+            assertEquals(bucket + 1, LatencyHistogram.bucketOf(highest + 1));
+            assertTrue(highest - lowest <= lowest / 8, "bucket " + bucket);
+        }
+    }
+
+    @Test
+    void quantilesAreTheHighestValueOfTheirBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+        histogram.record(-5);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(101, snapshot.getCount());
+        assertEquals(100, snapshot.getMax());
+        assertEquals(5050.0 / 101, snapshot.getMean(), 1e-9);
+        assertEquals(0, snapshot.getValueAt(0.0));
+        //The 51st value is 50, in the bucket 48..51
+        assertEquals(51, snapshot.getValueAt(0.5));
+        //The 100th value is 99, in the bucket 96..103, which is cut at the max
+        assertEquals(100, snapshot.getValueAt(0.99));
+        assertEquals(100, snapshot.getValueAt(1.0));
+    }
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0.0, snapshot.getMean());
+        assertEquals(0, snapshot.getValueAt(0.99));
+    }
+}
@@ -0,0 +1,88 @@
+package gr.aueb.mobileapp.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsRegistryTest {
+
+    @Test
+    void failuresAreCountedPerReason() {
+        MetricsRegistry registry = new MetricsRegistry();
+        OperationMetrics metrics = registry.operation("dao.insert");
+        assertSame(metrics, registry.operation("dao.insert"));
+
+        metrics.recordSuccess(10);
+        metrics.recordSuccess(20);
+        metrics.recordFailure(new IllegalStateException(), 30);
+        metrics.recordFailure(new IllegalStateException(), 40);
+        metrics.recordFailure(new UncheckedIOException(null, new IOException()), 50);
+        metrics.recordFailure("NOT_FOUND", 60);
+
+        OperationSnapshot snapshot = registry.snapshot().get("dao.insert");
+        assertEquals(6, snapshot.getCount());
+        assertEquals(2, snapshot.getSuccesses());
+        assertEquals(4, snapshot.getFailureCount());
+        assertEquals(Map.of("IllegalStateException", 2L, "UncheckedIOException", 1L, "NOT_FOUND", 1L),
+                snapshot.getFailures());
+        assertEquals(60, snapshot.getMaxNanos());
+        assertEquals(35.0, snapshot.getMeanNanos(), 1e-9);
+    }
+
+    @Test
+    void snapshotAndCountersAreSortedByName() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.operation("service.b");
+        registry.operation("service.a");
+        AtomicLong count = new AtomicLong(3);
+        registry.counter("dao.z", count::get);
+        registry.counter("dao.y", () -> 1L);
+
+        assertEquals(List.of("service.a", "service.b"), List.copyOf(registry.snapshot().keySet()));
+        assertEquals(List.of("dao.y", "dao.z"), List.copyOf(registry.counters().keySet()));
+        count.set(7);
+        assertEquals(7L, registry.counters().get("dao.z"));
+    }
+
+    @Test
+    void mbeanIsRegisteredOnceAndUnregistered() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.operation("service.getMobileContactById").recordFailure("NOT_FOUND", 100);
+        registry.counter("dao.filter.rebuilds", () -> 2L);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        ObjectName name = registry.registerMBean("registry-test");
+        try {
+            assertEquals(new ObjectName("gr.aueb.mobileapp:type=ContactMetrics,name=\"registry-test\""), name);
+            assertTrue(server.isRegistered(name));
+            assertThrows(IllegalStateException.class, () -> new MetricsRegistry().registerMBean("registry-test"));
+
+            CompositeData[] operations = (CompositeData[]) server.getAttribute(name, "Operations");
+            assertEquals(1, operations.length);
+            assertEquals("service.getMobileContactById", operations[0].get("operation"));
+            assertEquals(1L, operations[0].get("failureCount"));
+            TabularData counters = (TabularData) server.getAttribute(name, "Counters");
+            assertEquals(2L, counters.get(new Object[] {"dao.filter.rebuilds"}).get("value"));
+        } finally {
+            registry.unregisterMBean(name);
+        }
+
+        assertFalse(server.isRegistered(name));
+        assertThrows(IllegalStateException.class, () -> registry.unregisterMBean(name));
+    }
+}
@@ -0,0 +1,176 @@
+package gr.aueb.mobileapp.query;
+
+import gr.aueb.mobileapp.dao.ContactPage;
+import gr.aueb.mobileapp.dao.ForwardingMobileContactDAO;
+import gr.aueb.mobileapp.dao.IMobileContactDAO;
+import gr.aueb.mobileapp.dao.MobileContactConcurrentDAOImpl;
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static gr.aueb.mobileapp.query.ContactPredicate.firstnameStartsWith;
+import static gr.aueb.mobileapp.query.ContactPredicate.idBetween;
+import static gr.aueb.mobileapp.query.ContactPredicate.idEquals;
+import static gr.aueb.mobileapp.query.ContactPredicate.lastnameEquals;
+import static gr.aueb.mobileapp.query.ContactPredicate.phoneStartsWith;
+import static gr.aueb.mobileapp.query.ContactPredicate.userDetailsIdEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryPlannerTest {
+
+    private static final int CONTACTS = 20_000;
+
+    private RecordingDAO dao;
+
+    @BeforeEach
+    void fill() {
+        dao = new RecordingDAO(new MobileContactConcurrentDAOImpl());
+        for (long id = 1; id <= CONTACTS; id++) {
+            dao.insert(new MobileContact(id, new UserDetails(id % 100, "First" + id % 50, "Last" + id % 7),
+                    String.format("69%08d", id)));
+        }
+    }
+
+    @Test
+    void keyLookupBeatsEveryRangeWithoutProbing() {
+        QueryPlan plan = QueryPlanner.plan(dao, ContactQuery.where(phoneStartsWith("69"))
+                .and(idBetween(1, CONTACTS)).and(idEquals(5)));
+
+        assertEquals("ID", plan.getIndexUsed());
+        assertTrue(dao.prefixLimits.isEmpty());
+        assertTrue(dao.pageCursors.isEmpty());
+        assertEquals(lines("Filter (phoneNumber starts with '69' and id between 1 and " + CONTACTS + ")",
+                "  Lookup id = 5 using ID (rows <= 1)"), plan.explain());
+        assertEquals(List.of(5L), ids(plan.stream()));
+    }
+
+    @Test
+    void emptyProbeWinsBeforeTheOtherCandidatesAreProbed() {
+        QueryPlan plan = QueryPlanner.plan(dao, ContactQuery.where(userDetailsIdEquals(999))
+                .and(phoneStartsWith("69")));
+
+        assertEquals("USER_DETAILS_ID", plan.getIndexUsed());
+        assertTrue(dao.prefixLimits.isEmpty());
+        assertEquals(lines("Filter phoneNumber starts with '69'",
+                "  Lookup userDetailsId = 999 using USER_DETAILS_ID (rows = 0)"), plan.explain());
+        assertEquals(0, plan.stream().count());
+    }
+
+    @Test
+    void cheapestCandidateWins() {
+        assertEquals("USER_DETAILS_ID", QueryPlanner.plan(dao, ContactQuery.where(phoneStartsWith("69"))
+                .and(userDetailsIdEquals(3))).getIndexUsed());
+
+        //999 phone numbers start with 6900000, while the id range is only known to hold more than the probe
+        ContactQuery query = ContactQuery.where(idBetween(1, 2_000)).and(phoneStartsWith("6900000"));
+        assertEquals("PHONE_PREFIX", QueryPlanner.plan(dao, query).getIndexUsed());
+
+        //In id order the id range stops after the limit
+        QueryPlan sorted = QueryPlanner.plan(dao, query.orderBy(ContactField.ID).limit(10));
+        assertEquals("ID_ORDER", sorted.getIndexUsed());
+        assertEquals(LongStream.rangeClosed(1, 10).boxed().collect(Collectors.toList()), ids(sorted.stream()));
+    }
+
+    @Test
+    void phonePrefixRangeSkipsWhatEarlierBatchesReturned() {
+        QueryPlan plan = QueryPlanner.plan(dao, ContactQuery.where(phoneStartsWith("6900000")));
+        assertEquals(List.of(AccessPath.PROBE_SIZE + 1), dao.prefixLimits);
+        dao.prefixLimits.clear();
+
+        assertEquals(LongStream.rangeClosed(1, 999).boxed().collect(Collectors.toList()), ids(plan.stream()));
+        assertEquals(List.of(64, 128, 256, 512, 1024), dao.prefixLimits);
+    }
+
+    @Test
+    void idRangeStopsAtItsUpperBound() {
+        QueryPlan plan = QueryPlanner.plan(dao, ContactQuery.where(idBetween(100, 300)));
+        assertEquals("ID_ORDER", plan.getIndexUsed());
+        dao.pageCursors.clear();
+
+        assertEquals(LongStream.rangeClosed(100, 300).boxed().collect(Collectors.toList()), ids(plan.stream()));
+        assertEquals(List.of(99L, 163L, 291L), dao.pageCursors);
+    }
+
+    @Test
+    void parallelScanStopsAtTheLimit() {
+        QueryPlan plan = QueryPlanner.plan(dao, ContactQuery.where(firstnameStartsWith("first")).limit(10));
+
+        assertNull(plan.getIndexUsed());
+        assertEquals(lines("Limit 10", "  Filter firstname starts with 'first'", "    ParallelScan (all rows)"),
+                plan.explain());
+        assertEquals(10, plan.stream().count());
+        assertTrue(dao.scanned.get() < CONTACTS, "scanned " + dao.scanned.get());
+    }
+
+    @Test
+    void explainShowsEveryStepOfATopKQuery() {
+        ContactQuery query = ContactQuery.where(phoneStartsWith("6900000")).and(lastnameEquals("Last1"))
+                .orderBy(ContactField.FIRSTNAME).limit(20).select(ContactField.ID, ContactField.FIRSTNAME);
+        QueryPlan plan = QueryPlanner.plan(dao, query);
+
+        assertEquals(lines("Project id, firstname",
+                "  Limit 20",
+                "    Sort firstname asc (top 20)",
+                "      Filter lastname = 'last1'",
+                "        Range phoneNumber starts with '6900000' using PHONE_PREFIX, in phoneNumber order (rows = 999)"),
+                plan.explain());
+
+        List<String> expected = dao.getAll().stream()
+                .filter(query.getPredicate())
+                .map(mobileContact -> mobileContact.getUserDetails().getFirstname())
+                .sorted()
+                .limit(20)
+                .collect(Collectors.toList());
+        assertEquals(expected, plan.stream().map(mobileContact -> mobileContact.getUserDetails().getFirstname())
+                .collect(Collectors.toList()));
+    }
+
+    private static String lines(String... lines) {
+        return String.join(System.lineSeparator(), lines);
+    }
+
+    private static List<Long> ids(Stream<MobileContact> mobileContacts) {
+        return mobileContacts.map(MobileContact::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * Records the index reads of the planner and the plans
+     */
+    private static final class RecordingDAO extends ForwardingMobileContactDAO {
+
+        final List<Integer> prefixLimits = new ArrayList<>();
+        final List<Long> pageCursors = new ArrayList<>();
+        final AtomicLong scanned = new AtomicLong();
+
+        RecordingDAO(IMobileContactDAO delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public List<MobileContact> findByPhonePrefix(String prefix, int limit) {
+            prefixLimits.add(limit);
+            return super.findByPhonePrefix(prefix, limit);
+        }
+
+        @Override
+        public ContactPage getPage(Long cursor, int pageSize) {
+            pageCursors.add(cursor);
+            return super.getPage(cursor, pageSize);
+        }
+
+        @Override
+        public Stream<MobileContact> stream() {
+            return super.stream().peek(mobileContact -> scanned.incrementAndGet());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package gr.aueb.mobileapp.service;
+
+import gr.aueb.mobileapp.dao.ForwardingMobileContactDAO;
+import gr.aueb.mobileapp.dao.MobileContactHashDAOImpl;
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncMobileContactServiceImplTest {
+
+    @Test
+    void callerBlocksWhileTheBoundIsReached() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (AsyncMobileContactServiceImpl asyncService = new AsyncMobileContactServiceImpl(blockingService(release), 2)) {
+            CompletableFuture<Optional<MobileContact>> first = asyncService.findMobileContact(1L);
+            CompletableFuture<Optional<MobileContact>> second = asyncService.findMobileContact(1L);
+            assertEquals(2, asyncService.getInFlight());
+
+            CompletableFuture<CompletableFuture<Optional<MobileContact>>> third =
+                    CompletableFuture.supplyAsync(() -> asyncService.findMobileContact(1L));
+            Thread.sleep(100);
+            assertFalse(third.isDone());
+
+            release.countDown();
+            assertTrue(first.get(10, TimeUnit.SECONDS).isPresent());
+            assertTrue(second.get(10, TimeUnit.SECONDS).isPresent());
+            assertTrue(third.get(10, TimeUnit.SECONDS).get(10, TimeUnit.SECONDS).isPresent());
+        }
+    }
+
+    @Test
+    void interruptedCallerGetsAFailedFuture() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (AsyncMobileContactServiceImpl asyncService = new AsyncMobileContactServiceImpl(blockingService(release), 1)) {
+            asyncService.findMobileContact(1L);
+
+            Thread.currentThread().interrupt();
+            CompletableFuture<Optional<MobileContact>> call = asyncService.findMobileContact(1L);
+            assertTrue(Thread.interrupted());
+            CompletionException failure = assertThrows(CompletionException.class, call::join);
+            assertInstanceOf(InterruptedException.class, failure.getCause());
+            release.countDown();
+        }
+    }
+
+    @Test
+    void callsAfterCloseAreRejected() {
+        AsyncMobileContactServiceImpl asyncService = new AsyncMobileContactServiceImpl(blockingService(new CountDownLatch(0)), 1);
+        asyncService.close();
+
+        CompletionException failure = assertThrows(CompletionException.class, () -> asyncService.findMobileContact(1L).join());
+        assertInstanceOf(RejectedExecutionException.class, failure.getCause());
+        assertEquals(0, asyncService.getInFlight());
+    }
+
+    /**
+     * Returns a service whose lookups by id wait for the latch
+     */
+    private static IMobileContactService blockingService(CountDownLatch release) {
+        MobileContactHashDAOImpl store = new MobileContactHashDAOImpl();
+        store.insert(new MobileContact(1L, new UserDetails(1L, "Alice", "Smith"), "6900000001"));
+        return new MobileContactServiceImpl(new ForwardingMobileContactDAO(store) {
+            @Override
+            public MobileContact get(long id) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.get(id);
+            }
+        });
+    }
+}
@@ -0,0 +1,60 @@
+package gr.aueb.mobileapp.service;
+
+import gr.aueb.mobileapp.dao.IMobileContactDAO;
+import gr.aueb.mobileapp.dao.WriteStatus;
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.model.UserDetails;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BatchDeleteTest {
+
+    @ParameterizedTest
+    @MethodSource("gr.aueb.mobileapp.dao.InMemoryDAOs#daos")
+    void nullIdsAreInvalidItems(Supplier<IMobileContactDAO> daoFactory) {
+        IMobileContactDAO dao = filled(daoFactory.get());
+        IMobileContactService service = new MobileContactServiceImpl(dao);
+
+        BatchReport report = service.deleteMobileContactsByIds(Arrays.asList(1L, null, 9L, 2L, null));
+
+        assertEquals(List.of(WriteStatus.OK, WriteStatus.INVALID, WriteStatus.NOT_FOUND, WriteStatus.OK,
+                WriteStatus.INVALID), report.getStatuses());
+        assertNull(dao.get(1L));
+        assertNull(dao.get(2L));
+        assertNotNull(dao.get(3L));
+    }
+
+    @ParameterizedTest
+    @MethodSource("gr.aueb.mobileapp.dao.InMemoryDAOs#daos")
+    void nullIdsAreInvalidItemsOfTheDao(Supplier<IMobileContactDAO> daoFactory) {
+        IMobileContactDAO dao = filled(daoFactory.get());
+
+        assertEquals(List.of(WriteStatus.INVALID, WriteStatus.OK), dao.deleteAllById(Arrays.asList(null, 3L)));
+        assertNull(dao.get(3L));
+    }
+
+    @ParameterizedTest
+    @MethodSource("gr.aueb.mobileapp.dao.InMemoryDAOs#daos")
+    void nullPhoneNumbersAreInvalidItems(Supplier<IMobileContactDAO> daoFactory) {
+        IMobileContactService service = new MobileContactServiceImpl(filled(daoFactory.get()));
+
+        BatchReport report = service.deleteMobileContactsByPhoneNumbers(Arrays.asList(null, "6900000001"));
+
+        assertEquals(List.of(WriteStatus.INVALID, WriteStatus.OK), report.getStatuses());
+    }
+
+    private static IMobileContactDAO filled(IMobileContactDAO dao) {
+        for (long id = 1; id <= 3; id++) {
+            dao.insert(new MobileContact(id, new UserDetails(id, "First" + id, "Last" + id), "690000000" + id));
+        }
+        return dao;
+    }
+}
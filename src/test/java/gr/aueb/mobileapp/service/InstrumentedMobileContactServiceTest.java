@@ -0,0 +1,84 @@
+package gr.aueb.mobileapp.service;
+
+import gr.aueb.mobileapp.dao.ForwardingMobileContactDAO;
+import gr.aueb.mobileapp.dao.MobileContactHashDAOImpl;
+import gr.aueb.mobileapp.dto.MobileContactDTO;
+import gr.aueb.mobileapp.dto.UserDetailsDTO;
+import gr.aueb.mobileapp.metrics.MetricsRegistry;
+import gr.aueb.mobileapp.metrics.OperationSnapshot;
+import gr.aueb.mobileapp.model.MobileContact;
+import gr.aueb.mobileapp.service.exceptions.MobileContactNotFoundException;
+import gr.aueb.mobileapp.service.exceptions.PhoneNumberAlreadyExistsException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InstrumentedMobileContactServiceTest {
+
+    private MetricsRegistry registry;
+    private IMobileContactService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        registry = new MetricsRegistry();
+        //getAll fails, so a runtime exception of the delegate is counted too
+        IMobileContactService delegate = new MobileContactServiceImpl(new ForwardingMobileContactDAO(new MobileContactHashDAOImpl()) {
+            @Override
+            public List<MobileContact> getAll() {
+                throw new IllegalStateException("Unavailable");
+            }
+        }, true);
+        service = new InstrumentedMobileContactService(delegate, registry);
+        service.insertMobileContact(contactDTO(1L, "6900000001"));
+    }
+
+    @Test
+    void exceptionsAreCountedByType() {
+        assertThrows(PhoneNumberAlreadyExistsException.class, () -> service.insertMobileContact(contactDTO(2L, "6900000001")));
+        assertThrows(MobileContactNotFoundException.class, () -> service.getMobileContact(9L));
+        assertThrows(MobileContactNotFoundException.class, () -> service.getMobileContact(8L));
+        assertThrows(IllegalStateException.class, () -> service.getAllMobileContacts());
+
+        OperationSnapshot insert = snapshot("insertMobileContact");
+        assertEquals(2, insert.getCount());
+        assertEquals(1, insert.getSuccesses());
+        assertEquals(Map.of("PhoneNumberAlreadyExistsException", 1L), insert.getFailures());
+        assertEquals(Map.of("MobileContactNotFoundException", 2L), snapshot("getMobileContactById").getFailures());
+        assertEquals(Map.of("IllegalStateException", 1L), snapshot("getAllMobileContacts").getFailures());
+    }
+
+    @Test
+    void failedOutcomesAndEmptyResultsAreCountedByStatus() {
+        service.findMobileContact(1L);
+        assertFalse(service.findMobileContact(2L).isPresent());
+        service.tryInsertMobileContact(contactDTO(2L, "6900000001"));
+        service.tryInsertMobileContact(contactDTO(1L, "6900000003"));
+        service.tryDeleteMobileContactById(5L);
+
+        OperationSnapshot find = snapshot("findMobileContactById");
+        assertEquals(1, find.getSuccesses());
+        assertEquals(Map.of("NOT_FOUND", 1L), find.getFailures());
+        assertEquals(Map.of("PHONE_CONFLICT", 1L, "ID_CONFLICT", 1L), snapshot("tryInsertMobileContact").getFailures());
+        assertEquals(Map.of("NOT_FOUND", 1L), snapshot("tryDeleteMobileContactById").getFailures());
+    }
+
+    @Test
+    void everyOperationIsRegisteredUpFront() {
+        assertEquals(26, registry.snapshot().size());
+        assertEquals(0, snapshot("deleteMobileContactsByPhoneNumbers").getCount());
+    }
+
+    private OperationSnapshot snapshot(String operation) {
+        return registry.snapshot().get("service." + operation);
+    }
+
+    private static MobileContactDTO contactDTO(long id, String phoneNumber) {
+        return new MobileContactDTO(id, new UserDetailsDTO(id, "First" + id, "Last" + id), phoneNumber);
+    }
+}